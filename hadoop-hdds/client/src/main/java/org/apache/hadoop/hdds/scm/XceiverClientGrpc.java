@@ -21,12 +21,15 @@
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.StorageUnit;
 import org.apache.hadoop.hdds.HddsUtils;
 import org.apache.hadoop.hdds.protocol.DatanodeDetails;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ContainerCommandRequestProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ContainerCommandResponseProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.DatanodeBlockID;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.StreamTargetProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.WriteChunkRequestProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.XceiverClientProtocolServiceGrpc;
 import org.apache.hadoop.hdds.protocol.datanode.proto.XceiverClientProtocolServiceGrpc.XceiverClientProtocolServiceStub;
 import org.apache.hadoop.hdds.protocol.proto.HddsProtos;
@@ -54,6 +57,7 @@
 
 import java.io.IOException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -81,6 +85,7 @@ public class XceiverClientGrpc extends XceiverClientSpi {
   private boolean closed = false;
   private SecurityConfig secConfig;
   private final boolean topologyAwareRead;
+  private final long maxReadRangeSize;
   private X509Certificate caCert;
   // Cache the DN which returned the GetBlock command so that the ReadChunk
   // command can be sent to the same DN.
@@ -110,6 +115,10 @@ public XceiverClientGrpc(Pipeline pipeline, Configuration config,
     this.topologyAwareRead = config.getBoolean(
         OzoneConfigKeys.OZONE_NETWORK_TOPOLOGY_AWARE_READ_KEY,
         OzoneConfigKeys.OZONE_NETWORK_TOPOLOGY_AWARE_READ_DEFAULT);
+    this.maxReadRangeSize = (long) config.getStorageSize(
+        OzoneConfigKeys.OZONE_CLIENT_READ_BLOCK_RANGE_MAX_SIZE,
+        OzoneConfigKeys.OZONE_CLIENT_READ_BLOCK_RANGE_MAX_SIZE_DEFAULT,
+        StorageUnit.BYTES);
     this.caCert = caCert;
     this.getBlockDNcache = new ConcurrentHashMap<>();
   }
@@ -156,13 +165,7 @@ private synchronized void connectToDatanode(DatanodeDetails dn,
     if (isConnected(dn)){
       return;
     }
-    // read port from the data node, on failure use default configured
-    // port.
-    int port = dn.getPort(DatanodeDetails.Port.Name.STANDALONE).getValue();
-    if (port == 0) {
-      port = config.getInt(OzoneConfigKeys.DFS_CONTAINER_IPC_PORT,
-          OzoneConfigKeys.DFS_CONTAINER_IPC_PORT_DEFAULT);
-    }
+    int port = getPort(dn);
 
     // Add credential context to the client call
     if (LOG.isDebugEnabled()) {
@@ -193,6 +196,17 @@ private synchronized void connectToDatanode(DatanodeDetails dn,
     channels.put(dn.getUuid(), channel);
   }
 
+  private int getPort(DatanodeDetails dn) {
+    // read port from the data node, on failure use default configured
+    // port.
+    int port = dn.getPort(DatanodeDetails.Port.Name.STANDALONE).getValue();
+    if (port == 0) {
+      port = config.getInt(OzoneConfigKeys.DFS_CONTAINER_IPC_PORT,
+          OzoneConfigKeys.DFS_CONTAINER_IPC_PORT_DEFAULT);
+    }
+    return port;
+  }
+
   /**
    * Returns if the xceiver client connects to all servers in the pipeline.
    *
@@ -278,35 +292,7 @@ private XceiverClientReply sendCommandWithRetry(
     // TODO: cache the correct leader info in here, so that any subsequent calls
     // should first go to leader
     XceiverClientReply reply = new XceiverClientReply(null);
-    List<DatanodeDetails> datanodeList = null;
-
-    DatanodeBlockID blockID = null;
-    if (request.getCmdType() == ContainerProtos.Type.ReadChunk) {
-      blockID = request.getReadChunk().getBlockID();
-    } else if (request.getCmdType() == ContainerProtos.Type.GetSmallFile) {
-      blockID = request.getGetSmallFile().getBlock().getBlockID();
-    }
-
-    if (blockID != null) {
-      // Check if the DN to which the GetBlock command was sent has been cached.
-      DatanodeDetails cachedDN = getBlockDNcache.get(blockID);
-      if (cachedDN != null) {
-        datanodeList = pipeline.getNodes();
-        int getBlockDNCacheIndex = datanodeList.indexOf(cachedDN);
-        if (getBlockDNCacheIndex > 0) {
-          // Pull the Cached DN to the top of the DN list
-          Collections.swap(datanodeList, 0, getBlockDNCacheIndex);
-        }
-      } else if (topologyAwareRead) {
-        datanodeList = pipeline.getNodesInOrder();
-      }
-    }
-    if (datanodeList == null) {
-      datanodeList = pipeline.getNodes();
-      // Shuffle datanode list so that clients do not read in the same order
-      // every time.
-      Collections.shuffle(datanodeList);
-    }
+    List<DatanodeDetails> datanodeList = getDatanodesInReadOrder(request);
 
     for (DatanodeDetails dn : datanodeList) {
       try {
@@ -356,6 +342,150 @@ private XceiverClientReply sendCommandWithRetry(
     }
   }
 
+  /**
+   * Returns the datanodes of the pipeline in the order a request should be
+   * tried on them.
+   */
+  private List<DatanodeDetails> getDatanodesInReadOrder(
+      ContainerCommandRequestProto request) {
+    List<DatanodeDetails> datanodeList = null;
+
+    DatanodeBlockID blockID = null;
+    if (request.getCmdType() == ContainerProtos.Type.ReadChunk) {
+      blockID = request.getReadChunk().getBlockID();
+    } else if (request.getCmdType() == ContainerProtos.Type.ReadBlockRange) {
+      blockID = request.getReadBlockRange().getBlockID();
+    } else if (request.getCmdType() == ContainerProtos.Type.GetSmallFile) {
+      blockID = request.getGetSmallFile().getBlock().getBlockID();
+    }
+
+    if (blockID != null) {
+      // Check if the DN to which the GetBlock command was sent has been cached.
+      DatanodeDetails cachedDN = getBlockDNcache.get(blockID);
+      if (cachedDN != null) {
+        datanodeList = pipeline.getNodes();
+        int getBlockDNCacheIndex = datanodeList.indexOf(cachedDN);
+        if (getBlockDNCacheIndex > 0) {
+          // Pull the Cached DN to the top of the DN list
+          Collections.swap(datanodeList, 0, getBlockDNCacheIndex);
+        }
+      } else if (topologyAwareRead) {
+        datanodeList = pipeline.getNodesInOrder();
+      }
+    }
+    if (datanodeList == null) {
+      datanodeList = pipeline.getNodes();
+      // Shuffle datanode list so that clients do not read in the same order
+      // every time.
+      Collections.shuffle(datanodeList);
+    }
+    return datanodeList;
+  }
+
+  /**
+   * Returns the maximum amount of data to read with a single ReadBlockRange
+   * request, or 0 if ranges of blocks should not be read this way.
+   */
+  public long getMaxReadRangeSize() {
+    return maxReadRangeSize;
+  }
+
+  /**
+   * Sends a command which the datanode replies to with a stream of
+   * responses, i.e. ReadBlockRange. Like other reads, the command is retried
+   * on the next datanode of the pipeline if it fails on one, or if any of
+   * its responses is rejected by the validators.
+   *
+   * @param request request
+   * @param validators functions to validate each response
+   * @return the responses, in the order they were sent by the datanode
+   */
+  public List<ContainerCommandResponseProto> sendStreamingCommand(
+      ContainerCommandRequestProto request, List<CheckedBiFunction> validators)
+      throws IOException {
+    try (Scope scope = GlobalTracer.get()
+        .buildSpan("XceiverClientGrpc." + request.getCmdType().name())
+        .startActive(true)) {
+      ContainerCommandRequestProto finalPayload =
+          ContainerCommandRequestProto.newBuilder(request)
+              .setTraceID(TracingUtil.exportCurrentSpan()).build();
+      IOException ioException = null;
+      for (DatanodeDetails dn : getDatanodesInReadOrder(finalPayload)) {
+        try {
+          List<ContainerCommandResponseProto> responses =
+              sendStreamingCommand(finalPayload, dn).get();
+          if (validators != null && !validators.isEmpty()) {
+            for (ContainerCommandResponseProto response : responses) {
+              for (CheckedBiFunction validator : validators) {
+                validator.apply(finalPayload, response);
+              }
+            }
+          }
+          return responses;
+        } catch (ExecutionException | InterruptedException | IOException e) {
+          LOG.debug("Failed to execute command {} on datanode {}",
+              finalPayload.getCmdType(), dn.getUuid(), e);
+          if (!(e instanceof IOException)) {
+            if (Status.fromThrowable(e.getCause()).getCode()
+                == Status.UNAUTHENTICATED.getCode()) {
+              throw new SCMSecurityException("Failed to authenticate with "
+                  + "GRPC XceiverServer with Ozone block token.");
+            }
+            ioException = new IOException(e);
+          } else {
+            ioException = (IOException) e;
+          }
+        }
+      }
+      Preconditions.checkNotNull(ioException);
+      LOG.error("Failed to execute command {} on the pipeline {}.",
+          finalPayload.getCmdType(), pipeline);
+      throw ioException;
+    }
+  }
+
+  private CompletableFuture<List<ContainerCommandResponseProto>>
+      sendStreamingCommand(ContainerCommandRequestProto request,
+      DatanodeDetails dn) throws IOException, InterruptedException {
+    checkOpen(dn, request.getEncodedToken());
+    final CompletableFuture<List<ContainerCommandResponseProto>> replyFuture =
+        new CompletableFuture<>();
+    final List<ContainerCommandResponseProto> responses = new ArrayList<>();
+    semaphore.acquire();
+    long requestTime = Time.monotonicNowNanos();
+    metrics.incrPendingContainerOpsMetrics(request.getCmdType());
+    final StreamObserver<ContainerCommandRequestProto> requestObserver =
+        asyncStubs.get(dn.getUuid())
+            .send(new StreamObserver<ContainerCommandResponseProto>() {
+              @Override
+              public void onNext(ContainerCommandResponseProto value) {
+                responses.add(value);
+              }
+
+              @Override
+              public void onError(Throwable t) {
+                replyFuture.completeExceptionally(t);
+                done();
+              }
+
+              @Override
+              public void onCompleted() {
+                replyFuture.complete(responses);
+                done();
+              }
+
+              private void done() {
+                metrics.decrPendingContainerOpsMetrics(request.getCmdType());
+                metrics.addContainerOpsLatency(request.getCmdType(),
+                    Time.monotonicNowNanos() - requestTime);
+                semaphore.release();
+              }
+            });
+    requestObserver.onNext(request);
+    requestObserver.onCompleted();
+    return replyFuture;
+  }
+
   // TODO: for a true async API, once the waitable future while executing
   // the command on one channel fails, it should be retried asynchronously
   // on the future Task for all the remaining datanodes.
@@ -395,6 +525,45 @@ public XceiverClientReply sendCommandAsync(
     }
   }
 
+  /**
+   * Streams a WriteChunk request along the pipeline. The request is only sent
+   * to the first datanode, which writes the chunk and passes it on to the
+   * next datanode of the pipeline, and so on. Unlike
+   * {@link #sendCommandAsync(ContainerCommandRequestProto)} this does not
+   * wait for the reply, which completes once the chunk has been written on
+   * all datanodes of the pipeline.
+   *
+   * @param request WriteChunk request
+   * @return reply to the request
+   */
+  public XceiverClientReply streamCommandAsync(
+      ContainerCommandRequestProto request)
+      throws IOException, InterruptedException {
+    Preconditions.checkArgument(
+        request.getCmdType() == ContainerProtos.Type.WriteChunk);
+    try (Scope scope = GlobalTracer.get()
+        .buildSpan("XceiverClientGrpc." + request.getCmdType().name())
+        .startActive(true)) {
+      // start the chain with the closest node, if known.
+      List<DatanodeDetails> datanodeList = topologyAwareRead ?
+          pipeline.getNodesInOrder() : pipeline.getNodes();
+      WriteChunkRequestProto.Builder writeChunk =
+          request.getWriteChunk().toBuilder().clearStreamTargets();
+      for (DatanodeDetails dn : datanodeList.subList(1, datanodeList.size())) {
+        writeChunk.addStreamTargets(StreamTargetProto.newBuilder()
+            .setUuid(dn.getUuidString())
+            .setIpAddress(dn.getIpAddress())
+            .setPort(getPort(dn)));
+      }
+      ContainerCommandRequestProto finalPayload =
+          ContainerCommandRequestProto.newBuilder(request)
+              .setWriteChunk(writeChunk)
+              .setTraceID(TracingUtil.exportCurrentSpan())
+              .build();
+      return sendCommandAsync(finalPayload, datanodeList.get(0));
+    }
+  }
+
   private XceiverClientReply sendCommandAsync(
       ContainerCommandRequestProto request, DatanodeDetails dn)
       throws IOException, InterruptedException {
@@ -30,6 +30,7 @@
 import org.apache.hadoop.hdds.conf.ConfigType;
 import org.apache.hadoop.hdds.conf.OzoneConfiguration;
 import org.apache.hadoop.hdds.scm.pipeline.Pipeline;
+import org.apache.hadoop.hdds.scm.storage.BufferArena;
 import org.apache.hadoop.hdds.protocol.proto.HddsProtos;
 import org.apache.hadoop.hdds.security.exception.SCMSecurityException;
 import org.apache.hadoop.hdds.security.x509.certificate.utils.CertificateCodec;
@@ -74,8 +75,11 @@ public class XceiverClientManager implements Closeable {
   private X509Certificate caCert;
 
   private static XceiverClientMetrics metrics;
+  private static BufferArena sharedBufferArena;
   private boolean isSecurityEnabled;
   private final boolean topologyAwareRead;
+  private final boolean dataStreamEnabled;
+  private final BufferArena bufferArena;
   /**
    * Creates a new XceiverClientManager for non secured ozone cluster.
    * For security enabled ozone cluster, client should use the other constructor
@@ -124,6 +128,9 @@ public void onRemoval(
     topologyAwareRead = conf.getBoolean(
         OzoneConfigKeys.OZONE_NETWORK_TOPOLOGY_AWARE_READ_KEY,
         OzoneConfigKeys.OZONE_NETWORK_TOPOLOGY_AWARE_READ_DEFAULT);
+    dataStreamEnabled = clientConf.isDataStreamEnabled();
+    bufferArena = clientConf.getBufferArenaSize() > 0
+        ? getSharedBufferArena(clientConf) : null;
   }
 
   @VisibleForTesting
@@ -162,6 +169,31 @@ public XceiverClientSpi acquireClientForReadData(Pipeline pipeline)
     return acquireClient(pipeline, true);
   }
 
+  /**
+   * Acquires a XceiverClientGrpc to stream chunk data along the given
+   * pipeline, bypassing Ratis.
+   *
+   * @param pipeline the container pipeline the data is written to
+   * @return XceiverClientGrpc connected to the pipeline
+   * @throws IOException if a XceiverClientGrpc cannot be acquired
+   */
+  public XceiverClientGrpc acquireClientForDataStream(Pipeline pipeline)
+      throws IOException {
+    if (pipeline.getType() != HddsProtos.ReplicationType.STAND_ALONE) {
+      pipeline = Pipeline.newBuilder(pipeline)
+          .setType(HddsProtos.ReplicationType.STAND_ALONE).build();
+    }
+    return (XceiverClientGrpc) acquireClient(pipeline, true);
+  }
+
+  /**
+   * Whether chunk data written to Ratis pipelines is streamed along the
+   * pipeline, with only the block commit going through Ratis.
+   */
+  public boolean isDataStreamEnabled() {
+    return dataStreamEnabled;
+  }
+
   private XceiverClientSpi acquireClient(Pipeline pipeline, boolean read)
       throws IOException {
     Preconditions.checkNotNull(pipeline);
@@ -185,6 +217,17 @@ public void releaseClient(XceiverClientSpi client, boolean invalidateClient) {
     releaseClient(client, invalidateClient, false);
   }
 
+  /**
+   * Releases a XceiverClientGrpc used to stream chunk data.
+   *
+   * @param client client to release
+   * @param invalidateClient if true, invalidates the client in cache
+   */
+  public void releaseClientForDataStream(XceiverClientGrpc client,
+      boolean invalidateClient) {
+    releaseClient(client, invalidateClient, true);
+  }
+
   /**
    * Releases a read XceiverClientSpi after use.
    *
@@ -280,6 +323,34 @@ public Function<ByteBuffer, ByteString> byteBufferToByteStringConversion(){
     return ByteStringConversion.createByteBufferConversion(conf);
   }
 
+  /**
+   * Returns the arena the write buffers of the keys are leased from, or null
+   * if each key allocates its own buffers.
+   */
+  public BufferArena getBufferArena() {
+    return bufferArena;
+  }
+
+  /**
+   * Returns the buffer arena shared by all clients of the process. It is
+   * created with the configuration of the first client using it.
+   */
+  private static synchronized BufferArena getSharedBufferArena(
+      ScmClientConfig clientConf) {
+    if (sharedBufferArena == null) {
+      sharedBufferArena = new BufferArena(clientConf.getBufferArenaSize(),
+          clientConf.isBufferArenaDirect(),
+          clientConf.getBufferArenaWaitTimeout(MILLISECONDS), MILLISECONDS,
+          getXceiverClientMetrics());
+    } else if (sharedBufferArena.getCapacity()
+        != clientConf.getBufferArenaSize()) {
+      LOG.warn("Ignoring buffer arena size {}, the shared buffer arena of " +
+          "{} bytes has already been created.",
+          clientConf.getBufferArenaSize(), sharedBufferArena.getCapacity());
+    }
+    return sharedBufferArena;
+  }
+
   /**
    * Get xceiver client metric.
    */
@@ -300,6 +371,10 @@ public static class ScmClientConfig {
     private int maxSize;
     private long staleThreshold;
     private int maxOutstandingRequests;
+    private boolean dataStreamEnabled;
+    private long bufferArenaSize;
+    private boolean bufferArenaDirect;
+    private long bufferArenaWaitTimeout;
 
     public long getStaleThreshold(TimeUnit unit) {
       return unit.convert(staleThreshold, MILLISECONDS);
@@ -349,6 +424,78 @@ public int getMaxOutstandingRequests() {
     public void setMaxOutstandingRequests(int maxOutstandingRequests) {
       this.maxOutstandingRequests = maxOutstandingRequests;
     }
+
+    public boolean isDataStreamEnabled() {
+      return dataStreamEnabled;
+    }
+
+    @Config(key = "datastream.enabled",
+        type = ConfigType.BOOLEAN,
+        defaultValue = "false",
+        tags = { OZONE, PERFORMANCE },
+        description =
+            "If enabled, chunk data written to Ratis pipelines is streamed by"
+            + " the client to the first datanode of the pipeline, which"
+            + " passes it on to the other datanodes. Only the block commit"
+            + " goes through the Ratis log, which keeps the chunk data out"
+            + " of the log and the state machine data cache."
+    )
+    public void setDataStreamEnabled(boolean dataStreamEnabled) {
+      this.dataStreamEnabled = dataStreamEnabled;
+    }
+
+    public long getBufferArenaSize() {
+      return bufferArenaSize;
+    }
+
+    @Config(key = "buffer.arena.size",
+        type = ConfigType.SIZE,
+        defaultValue = "0B",
+        tags = { OZONE, PERFORMANCE },
+        description =
+            "If set, the write buffers of all the keys written by the client"
+            + " process are leased from a shared arena of this many bytes,"
+            + " instead of each key holding up to"
+            + " ozone.client.stream.buffer.max.size bytes of buffers of its"
+            + " own. Writers wait for buffers while the arena is full."
+    )
+    public void setBufferArenaSize(long bufferArenaSize) {
+      this.bufferArenaSize = bufferArenaSize;
+    }
+
+    public boolean isBufferArenaDirect() {
+      return bufferArenaDirect;
+    }
+
+    @Config(key = "buffer.arena.direct",
+        type = ConfigType.BOOLEAN,
+        defaultValue = "true",
+        tags = { OZONE, PERFORMANCE },
+        description =
+            "Whether the buffers of the shared buffer arena are allocated"
+            + " outside of the heap. Direct buffers count against"
+            + " -XX:MaxDirectMemorySize."
+    )
+    public void setBufferArenaDirect(boolean bufferArenaDirect) {
+      this.bufferArenaDirect = bufferArenaDirect;
+    }
+
+    public long getBufferArenaWaitTimeout(TimeUnit unit) {
+      return unit.convert(bufferArenaWaitTimeout, MILLISECONDS);
+    }
+
+    @Config(key = "buffer.arena.wait.timeout",
+        type = ConfigType.TIME, timeUnit = MILLISECONDS,
+        defaultValue = "60s",
+        tags = { OZONE, PERFORMANCE },
+        description =
+            "The time a writer waits for a buffer of the full shared buffer"
+            + " arena, after which it gets a buffer beyond the size of the"
+            + " arena."
+    )
+    public void setBufferArenaWaitTimeout(long bufferArenaWaitTimeout) {
+      this.bufferArenaWaitTimeout = bufferArenaWaitTimeout;
+    }
   }
 
 }
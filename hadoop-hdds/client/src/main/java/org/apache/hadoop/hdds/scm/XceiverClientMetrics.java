@@ -26,6 +26,7 @@
 import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
 import org.apache.hadoop.metrics2.lib.MutableRate;
 
 /**
@@ -39,6 +40,14 @@ public class XceiverClientMetrics {
 
   private @Metric MutableCounterLong pendingOps;
   private @Metric MutableCounterLong totalOps;
+  @Metric("Bytes of the buffers leased from the shared buffer arena")
+  private MutableGaugeLong bufferArenaLeasedBytes;
+  @Metric("Number of waits for buffers of the shared buffer arena")
+  private MutableCounterLong bufferArenaWaits;
+  @Metric("Time waited for buffers of the shared buffer arena")
+  private MutableRate bufferArenaWaitLatency;
+  @Metric("Buffers leased beyond the capacity of the shared buffer arena")
+  private MutableCounterLong bufferArenaOverflows;
   private MutableCounterLong[] pendingOpsArray;
   private MutableCounterLong[] opsArray;
   private MutableRate[] containerOpsLatency;
@@ -92,6 +101,19 @@ public void addContainerOpsLatency(ContainerProtos.Type type,
     containerOpsLatency[type.ordinal()].add(latencyNanos);
   }
 
+  public void incrBufferArenaLeasedBytes(long bytes) {
+    bufferArenaLeasedBytes.incr(bytes);
+  }
+
+  public void addBufferArenaWaitLatency(long latencyNanos) {
+    bufferArenaWaits.incr();
+    bufferArenaWaitLatency.add(latencyNanos);
+  }
+
+  public void incrBufferArenaOverflows() {
+    bufferArenaOverflows.incr();
+  }
+
   public long getContainerOpsMetrics(ContainerProtos.Type type) {
     return pendingOpsArray[type.ordinal()].value();
   }
@@ -106,6 +128,21 @@ public long getContainerOpCountMetrics(ContainerProtos.Type type) {
     return opsArray[type.ordinal()].value();
   }
 
+  @VisibleForTesting
+  public long getBufferArenaLeasedBytes() {
+    return bufferArenaLeasedBytes.value();
+  }
+
+  @VisibleForTesting
+  public long getBufferArenaWaitCount() {
+    return bufferArenaWaits.value();
+  }
+
+  @VisibleForTesting
+  public long getBufferArenaOverflows() {
+    return bufferArenaOverflows.value();
+  }
+
   public void unRegister() {
     MetricsSystem ms = DefaultMetricsSystem.instance();
     ms.unregisterSource(SOURCE_NAME);
@@ -26,21 +26,29 @@
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.fs.Seekable;
+import org.apache.hadoop.hdds.scm.XceiverClientGrpc;
 import org.apache.hadoop.hdds.scm.XceiverClientManager;
 import org.apache.hadoop.hdds.scm.XceiverClientSpi;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ChunkInfo;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ChunkRangeProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ContainerCommandRequestProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ContainerCommandResponseProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ReadChunkResponseProto;
 import org.apache.hadoop.hdds.client.BlockID;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.DatanodeBlockID;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.GetBlockResponseProto;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * An {@link InputStream} called from KeyInputStream to read a block from the
@@ -61,8 +69,8 @@ public class BlockInputStream extends InputStream implements Seekable {
   private final Token<OzoneBlockTokenIdentifier> token;
   private final boolean verifyChecksum;
   private XceiverClientManager xceiverClientManager;
-  private XceiverClientSpi xceiverClient;
-  private boolean initialized = false;
+  private volatile XceiverClientSpi xceiverClient;
+  private volatile boolean initialized = false;
 
   // List of ChunkInputStreams, one for each chunk in the block
   private List<ChunkInputStream> chunkStreams;
@@ -93,6 +101,10 @@ public class BlockInputStream extends InputStream implements Seekable {
   // can be reset if a new position is seeked.
   private int chunkIndexOfPrevPosition;
 
+  // Set if reading a range of the block with a single request failed, after
+  // which each chunk is read with its own request.
+  private boolean rangeReadFailed;
+
   public BlockInputStream(BlockID blockId, long blockLen, Pipeline pipeline,
       Token<OzoneBlockTokenIdentifier> token, boolean verifyChecksum,
       XceiverClientManager xceiverClientManager) {
@@ -219,12 +231,27 @@ public synchronized int read(byte[] b, int off, int len) throws IOException {
     if (len == 0) {
       return 0;
     }
+    return read(ByteBuffer.wrap(b, off, len));
+  }
+
+  /**
+   * Reads up to buf.remaining() bytes of the block into the given buffer.
+   * The data read from the datanode is copied into the buffer directly.
+   * @param buf the buffer to read into, up to its limit
+   * @return the number of bytes read, or -1 at the end of the block
+   */
+  public synchronized int read(ByteBuffer buf) throws IOException {
+    int len = buf.remaining();
+    if (len == 0) {
+      return 0;
+    }
 
     if (!initialized) {
       initialize();
     }
 
     checkOpen();
+    readChunkRanges(len);
     int totalReadLen = 0;
     while (len > 0) {
       // if we are at the last chunk and have read the entire chunk, return
@@ -238,7 +265,14 @@ public synchronized int read(byte[] b, int off, int len) throws IOException {
       // Get the current chunkStream and read data from it
       ChunkInputStream current = chunkStreams.get(chunkIndex);
       int numBytesToRead = Math.min(len, (int)current.getRemaining());
-      int numBytesRead = current.read(b, off, numBytesToRead);
+      int limit = buf.limit();
+      buf.limit(buf.position() + numBytesToRead);
+      int numBytesRead;
+      try {
+        numBytesRead = current.read(buf);
+      } finally {
+        buf.limit(limit);
+      }
 
       if (numBytesRead != numBytesToRead) {
         // This implies that there is either data loss or corruption in the
@@ -250,7 +284,6 @@ public synchronized int read(byte[] b, int off, int len) throws IOException {
             numBytesToRead, numBytesRead));
       }
       totalReadLen += numBytesRead;
-      off += numBytesRead;
       len -= numBytesRead;
       if (current.getRemaining() <= 0 &&
           ((chunkIndex + 1) < chunkStreams.size())) {
@@ -260,6 +293,196 @@ public synchronized int read(byte[] b, int off, int len) throws IOException {
     return totalReadLen;
   }
 
+  /**
+   * Reads up to len bytes of the block from the given position without
+   * using or changing the position of the stream. The chunks covering the
+   * requested bytes are read from the datanode directly, so positional reads
+   * of the block can be performed concurrently with each other and with
+   * sequential reads.
+   * @param position position in the block to read from
+   * @return the number of bytes read, or -1 if the position is at the end of
+   * the block
+   */
+  public int read(long position, byte[] b, int off, int len)
+      throws IOException {
+    if (position >= length) {
+      return EOF;
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (!initialized) {
+      initialize();
+    }
+    checkOpen();
+    if (!initialized) {
+      throw new IOException("No chunks found for block " + blockID
+          + " of length " + length);
+    }
+
+    int index = Arrays.binarySearch(chunkOffsets, position);
+    if (index < 0) {
+      index = -index - 2;
+    }
+    int totalReadLen = 0;
+    for (; index < chunkStreams.size() && len > 0; index++) {
+      ChunkInputStream chunkStream = chunkStreams.get(index);
+      long chunkPosition = position - chunkOffsets[index];
+      int numBytesToRead =
+          (int) Math.min(len, chunkStream.getLength() - chunkPosition);
+      if (numBytesToRead <= 0) {
+        continue;
+      }
+      int numBytesRead =
+          chunkStream.read(chunkPosition, b, off, numBytesToRead);
+      if (numBytesRead != numBytesToRead) {
+        throw new IOException(String.format(
+            "Inconsistent read for chunkName=%s length=%d position=%d " +
+                "numBytesToRead=%d numBytesRead=%d",
+            chunkStream.getChunkName(), chunkStream.getLength(),
+            chunkPosition, numBytesToRead, numBytesRead));
+      }
+      totalReadLen += numBytesRead;
+      position += numBytesRead;
+      off += numBytesRead;
+      len -= numBytesRead;
+    }
+    return totalReadLen == 0 ? EOF : totalReadLen;
+  }
+
+  /**
+   * If a read of len bytes spans multiple chunks which have to be read from
+   * the datanode, reads the data of these chunks with a single request, up
+   * to the maximum size of such a request. The datanode reads the chunks in
+   * parallel, which saves a round trip per chunk for large sequential reads.
+   * If the request fails, the chunks are read one by one instead.
+   */
+  private void readChunkRanges(int len) throws IOException {
+    long maxRangeLength = getMaxRangeLength();
+    if (maxRangeLength <= 0 || rangeReadFailed || chunkStreams == null) {
+      return;
+    }
+
+    List<ChunkInputStream> streams = new ArrayList<>();
+    List<ChunkRangeProto> ranges = new ArrayList<>();
+    long remaining = len;
+    long rangeLength = 0;
+    for (int i = chunkIndex; i < chunkStreams.size() && remaining > 0; i++) {
+      ChunkInputStream stream = chunkStreams.get(i);
+      long chunkRemaining = stream.getRemaining();
+      ChunkRangeProto range =
+          stream.getRangeToRead(Math.min(remaining, chunkRemaining));
+      remaining -= chunkRemaining;
+      if (range == null) {
+        // the data is buffered already.
+        continue;
+      }
+      if (!ranges.isEmpty()
+          && rangeLength + range.getReadLength() > maxRangeLength) {
+        break;
+      }
+      streams.add(stream);
+      ranges.add(range);
+      rangeLength += range.getReadLength();
+    }
+    if (ranges.size() < 2) {
+      return;
+    }
+
+    try {
+      List<ByteString> data = readChunkRanges(ranges);
+      for (int i = 0; i < ranges.size(); i++) {
+        streams.get(i).setRangeData(ranges.get(i), data.get(i));
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to read {} chunks of block {} with a single request, " +
+          "reading chunks one by one", ranges.size(), blockID, e);
+      rangeReadFailed = true;
+    }
+  }
+
+  /**
+   * Send RPC call to read the ranges of consecutive chunks of the block.
+   * @return data of each range
+   */
+  @VisibleForTesting
+  protected List<ByteString> readChunkRanges(List<ChunkRangeProto> ranges)
+      throws IOException {
+    ContainerCommandRequestProto request = ContainerProtocolCalls
+        .getReadBlockRangeRequest(xceiverClient, blockID, ranges);
+    List<ContainerCommandResponseProto> responses =
+        ((XceiverClientGrpc) xceiverClient).sendStreamingCommand(request,
+            ContainerProtocolCalls.getValidatorList());
+    if (responses.size() != ranges.size()) {
+      throw new IOException("Expected " + ranges.size() + " chunks of block "
+          + blockID + " but got " + responses.size());
+    }
+    List<ByteString> data = new ArrayList<>(ranges.size());
+    for (int i = 0; i < ranges.size(); i++) {
+      ReadChunkResponseProto response = responses.get(i).getReadChunk();
+      String chunkName = ranges.get(i).getChunkData().getChunkName();
+      if (!chunkName.equals(response.getChunkData().getChunkName())) {
+        throw new IOException("Expected chunk " + chunkName + " of block "
+            + blockID + " but got " + response.getChunkData().getChunkName());
+      }
+      data.add(response.getData());
+    }
+    return data;
+  }
+
+  /**
+   * Returns the maximum amount of data to read with a single request
+   * spanning multiple chunks, or 0 if chunks are read one by one.
+   */
+  protected long getMaxRangeLength() {
+    return xceiverClient instanceof XceiverClientGrpc ?
+        ((XceiverClientGrpc) xceiverClient).getMaxReadRangeSize() : 0;
+  }
+
+  /**
+   * Starts reading up to the given number of chunks from the current
+   * position of the stream onwards from the datanode in the background. The
+   * stream is initialized first if needed.
+   * @param chunks maximum number of chunks to read ahead
+   * @param executor executor to read the chunks with
+   * @return the number of chunks of the block from the current position,
+   * up to the given number
+   * @throws IOException if the stream can not be initialized or is closed
+   */
+  public synchronized int readAhead(int chunks, Executor executor)
+      throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (!initialized) {
+      initialize();
+    }
+    if (chunkStreams == null) {
+      return 0;
+    }
+    checkOpen();
+    int count = 0;
+    for (int i = chunkIndex; i < chunkStreams.size() && count < chunks; i++) {
+      ChunkInputStream stream = chunkStreams.get(i);
+      if (stream.getRemaining() > 0) {
+        stream.readAhead(executor);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Discards the chunks being read ahead of the reader.
+   */
+  public synchronized void cancelReadAhead() {
+    if (chunkStreams != null) {
+      for (ChunkInputStream stream : chunkStreams) {
+        stream.cancelReadAhead();
+      }
+    }
+  }
+
   /**
    * Seeks the BlockInputStream to the specified position. If the stream is
    * not initialized, save the seeked position via blockPosition. Otherwise,
@@ -348,6 +571,7 @@ public boolean seekToNewSource(long targetPos) throws IOException {
 
   @Override
   public synchronized void close() {
+    cancelReadAhead();
     if (xceiverClientManager != null && xceiverClient != null) {
       xceiverClientManager.releaseClient(xceiverClient, false);
       xceiverClientManager = null;
@@ -364,7 +588,7 @@ public synchronized void resetPosition() {
    *
    * @throws IOException if stream is closed
    */
-  protected synchronized void checkOpen() throws IOException {
+  protected void checkOpen() throws IOException {
     if (xceiverClient == null) {
       throw new IOException("BlockInputStream has been closed.");
     }
@@ -21,12 +21,15 @@
 import com.google.common.base.Preconditions;
 import org.apache.hadoop.hdds.protocol.DatanodeDetails;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
+import org.apache.hadoop.hdds.protocol.proto.HddsProtos;
+import org.apache.hadoop.hdds.scm.XceiverClientGrpc;
 import org.apache.hadoop.hdds.scm.XceiverClientReply;
 import org.apache.hadoop.hdds.scm.container.common.helpers.StorageContainerException;
 import org.apache.hadoop.hdds.scm.pipeline.Pipeline;
 import org.apache.hadoop.ozone.common.Checksum;
 import org.apache.hadoop.ozone.common.ChecksumData;
 import org.apache.hadoop.ozone.common.OzoneChecksumException;
+import org.apache.hadoop.ozone.OzoneConsts;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.apache.hadoop.hdds.scm.XceiverClientManager;
 import org.apache.hadoop.hdds.scm.XceiverClientSpi;
@@ -51,6 +54,8 @@
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.apache.hadoop.hdds.scm.storage.ContainerProtocolCalls
+    .getWriteChunkRequest;
 import static org.apache.hadoop.hdds.scm.storage.ContainerProtocolCalls
     .putBlockAsync;
 import static org.apache.hadoop.hdds.scm.storage.ContainerProtocolCalls
@@ -115,6 +120,17 @@ public class BlockOutputStream extends OutputStream {
 
   private List<DatanodeDetails> failedServers;
 
+  // Client used to stream chunk data along the pipeline if data streaming
+  // is enabled, in which case only putBlock goes through xceiverClient.
+  private XceiverClientGrpc streamClient;
+
+  // Responses of the chunks streamed since the last putBlock call. PutBlock
+  // must only be sent once all of these chunks have been written.
+  private List<CompletableFuture<ContainerProtos.ContainerCommandResponseProto>>
+      streamFutures;
+
+  private boolean containerCreated;
+
   /**
    * Creates a new BlockOutputStream.
    *
@@ -145,6 +161,12 @@ public BlockOutputStream(BlockID blockID,
             .addMetadata(keyValue);
     this.xceiverClientManager = xceiverClientManager;
     this.xceiverClient = xceiverClientManager.acquireClient(pipeline);
+    if (xceiverClientManager.isDataStreamEnabled()
+        && pipeline.getType() == HddsProtos.ReplicationType.RATIS) {
+      this.streamClient =
+          xceiverClientManager.acquireClientForDataStream(pipeline);
+      this.streamFutures = new ArrayList<>();
+    }
     this.chunkIndex = 0;
     this.streamBufferFlushSize = streamBufferFlushSize;
     this.streamBufferMaxSize = streamBufferMaxSize;
@@ -224,21 +246,35 @@ public void write(byte[] b, int off, int len) throws IOException {
     if (len == 0) {
       return;
     }
+    write(ByteBuffer.wrap(b, off, len));
+  }
 
+  /**
+   * Writes the remaining bytes of the given buffer, which may be a direct
+   * buffer, to the stream. The data is copied into the buffers of the
+   * stream directly.
+   * @param data the data to write, from its position up to its limit
+   * @throws IOException if the data can not be written
+   */
+  public void write(ByteBuffer data) throws IOException {
+    checkOpen();
+    int len = data.remaining();
     while (len > 0) {
       int writeLen;
       // Allocate a buffer if needed. The buffer will be allocated only
       // once as needed and will be reused again for multiple blockOutputStream
       // entries.
-      ByteBuffer  currentBuffer = bufferPool.allocateBufferIfNeeded();
+      ByteBuffer  currentBuffer = allocateBuffer();
       int pos = currentBuffer.position();
       writeLen =
           Math.min(chunkSize - pos % chunkSize, len);
-      currentBuffer.put(b, off, writeLen);
+      ByteBuffer slice = data.duplicate();
+      slice.limit(slice.position() + writeLen);
+      currentBuffer.put(slice);
+      data.position(slice.position());
       if (!currentBuffer.hasRemaining()) {
         writeChunk(currentBuffer);
       }
-      off += writeLen;
       len -= writeLen;
       writtenDataLength += writeLen;
       if (shouldFlush()) {
@@ -252,6 +288,28 @@ public void write(byte[] b, int off, int len) throws IOException {
     }
   }
 
+  /**
+   * Returns the buffer to write to. If a new buffer has to be leased from a
+   * full buffer arena, the buffers of the data flushed so far are released
+   * first, so that the stream does not hold on to them while it waits for
+   * other streams to release their buffers.
+   */
+  private ByteBuffer allocateBuffer() throws IOException {
+    if (bufferPool.isArenaFull() && !commitWatcher.getFutureMap().isEmpty()) {
+      handleFullBuffer();
+    }
+    return bufferPool.allocateBufferIfNeeded();
+  }
+
+  /**
+   * Returns whether data has been written through the buffer pool. Buffers
+   * leased from a buffer arena are returned once their data is committed,
+   * so the pool may be empty even though data has been written.
+   */
+  private boolean isPoolUsed() {
+    return bufferPool.getSize() > 0 || writtenDataLength > 0;
+  }
+
   private boolean shouldFlush() {
     return bufferPool.computeBufferData() % streamBufferFlushSize == 0;
   }
@@ -364,6 +422,9 @@ private void watchForCommit(boolean bufferFull) throws IOException {
       ContainerCommandResponseProto> executePutBlock()
       throws IOException {
     checkOpen();
+    if (streamClient != null) {
+      waitOnStreamedChunks();
+    }
     long flushPos = totalDataFlushedLength;
     Preconditions.checkNotNull(bufferList);
     List<ByteBuffer> byteBufferList = bufferList;
@@ -374,7 +435,8 @@ ContainerCommandResponseProto> executePutBlock()
         ContainerCommandResponseProto> flushFuture;
     try {
       XceiverClientReply asyncReply =
-          putBlockAsync(xceiverClient, containerBlockData.build());
+          putBlockAsync(xceiverClient, containerBlockData.build(),
+              streamClient != null);
       CompletableFuture<ContainerProtos.ContainerCommandResponseProto> future =
           asyncReply.getResponse();
       flushFuture = future.thenApplyAsync(e -> {
@@ -426,7 +488,7 @@ ContainerCommandResponseProto> executePutBlock()
   @Override
   public void flush() throws IOException {
     if (xceiverClientManager != null && xceiverClient != null
-        && bufferPool != null && bufferPool.getSize() > 0) {
+        && bufferPool != null && isPoolUsed()) {
       try {
         handleFlush();
       } catch (InterruptedException | ExecutionException e) {
@@ -491,7 +553,7 @@ private void handleFlush()
   @Override
   public void close() throws IOException {
     if (xceiverClientManager != null && xceiverClient != null
-        && bufferPool != null && bufferPool.getSize() > 0) {
+        && bufferPool != null && isPoolUsed()) {
       try {
         handleFlush();
       } catch (InterruptedException | ExecutionException e) {
@@ -518,6 +580,35 @@ private void waitOnFlushFutures()
     combinedFuture.get();
   }
 
+  /**
+   * Waits until all chunks streamed since the last putBlock call have been
+   * written on all datanodes, as putBlock is not ordered after them by the
+   * Ratis log.
+   */
+  private void waitOnStreamedChunks() throws IOException {
+    try {
+      CompletableFuture.allOf(streamFutures.toArray(
+          new CompletableFuture[streamFutures.size()])).get();
+    } catch (InterruptedException | ExecutionException e) {
+      setIoException(e);
+    } finally {
+      streamFutures.clear();
+    }
+    // a failed chunk write sets the exception while handling the response.
+    checkOpen();
+  }
+
+  /**
+   * Makes sure the container exists in the Ratis state machine before chunk
+   * data streamed outside of Ratis is committed by putBlock.
+   */
+  private void createContainerIfNeeded() throws IOException {
+    if (!containerCreated) {
+      ContainerProtocolCalls.createContainer(xceiverClient, blockID);
+      containerCreated = true;
+    }
+  }
+
   private void validateResponse(
       ContainerProtos.ContainerCommandResponseProto responseProto)
       throws IOException {
@@ -549,7 +640,12 @@ private void setIoException(Exception e) {
   public void cleanup(boolean invalidateClient) {
     if (xceiverClientManager != null) {
       xceiverClientManager.releaseClient(xceiverClient, invalidateClient);
+      if (streamClient != null) {
+        xceiverClientManager.releaseClientForDataStream(streamClient,
+            invalidateClient);
+      }
     }
+    streamClient = null;
     xceiverClientManager = null;
     xceiverClient = null;
     commitWatcher.cleanup();
@@ -592,19 +688,35 @@ private void writeChunkToContainer(ByteBuffer chunk) throws IOException {
     ByteString data = bufferPool.byteStringConversion().apply(chunk);
     Checksum checksum = new Checksum(checksumType, bytesPerChecksum);
     ChecksumData checksumData = checksum.computeChecksum(chunk);
+    // Every chunk starts at a chunk size boundary within the block. A
+    // partially written chunk which is written again once its buffer is full
+    // therefore keeps its offset. The offset in the block is sent as
+    // metadata, the chunk offset stays 0 as FILE_PER_CHUNK datanodes write
+    // the chunk file from that offset.
+    long blockOffset = (writtenDataLength / chunkSize) * chunkSize;
     ChunkInfo chunkInfo = ChunkInfo.newBuilder()
         .setChunkName(blockID.getLocalID() + "_chunk_" + ++chunkIndex)
         .setOffset(0)
         .setLen(effectiveChunkSize)
+        .addMetadata(KeyValue.newBuilder()
+            .setKey(OzoneConsts.CHUNK_BLOCK_OFFSET)
+            .setValue(Long.toString(blockOffset)))
         .setChecksumData(checksumData.getProtoBufMessage())
         .build();
 
     try {
-      XceiverClientReply asyncReply =
-          writeChunkAsync(xceiverClient, chunkInfo, blockID, data);
+      XceiverClientReply asyncReply;
+      if (streamClient != null) {
+        createContainerIfNeeded();
+        asyncReply = streamClient.streamCommandAsync(
+            getWriteChunkRequest(streamClient, chunkInfo, blockID, data));
+      } else {
+        asyncReply = writeChunkAsync(xceiverClient, chunkInfo, blockID, data);
+      }
       CompletableFuture<ContainerProtos.ContainerCommandResponseProto> future =
           asyncReply.getResponse();
-      future.thenApplyAsync(e -> {
+      CompletableFuture<ContainerProtos.ContainerCommandResponseProto>
+          responseFuture = future.thenApplyAsync(e -> {
         try {
           validateResponse(e);
         } catch (IOException sce) {
@@ -621,6 +733,9 @@ private void writeChunkToContainer(ByteBuffer chunk) throws IOException {
         setIoException(ce);
         throw ce;
       });
+      if (streamClient != null) {
+        streamFutures.add(responseFuture);
+      }
     } catch (IOException | InterruptedException | ExecutionException e) {
       throw new IOException(
           "Unexpected Storage Container Exception: " + e.toString(), e);
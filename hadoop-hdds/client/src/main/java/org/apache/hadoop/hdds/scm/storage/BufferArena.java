@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdds.scm.storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.hdds.scm.XceiverClientMetrics;
+import org.apache.hadoop.util.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A byte bounded arena of write buffers shared by the {@link BufferPool}s of
+ * all the keys written by the process.
+ * <p>
+ * Buffers are leased from the arena while they hold data which has not
+ * been acknowledged yet, and are kept for reuse once they are released.
+ * Writers asking for a buffer while the arena is full wait until another
+ * writer releases one. A writer which waits longer than the wait timeout
+ * gets a buffer beyond the capacity of the arena, so that writers which
+ * hold on to partly written buffers can not block each other forever.
+ * <p>
+ * The bytes leased from the arena and the time waited for buffers are
+ * recorded in {@link XceiverClientMetrics}.
+ */
+public class BufferArena {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(BufferArena.class);
+
+  private final long capacity;
+  private final boolean direct;
+  private final long waitTimeoutNanos;
+  private final XceiverClientMetrics metrics;
+
+  // buffers released to the arena, by their size.
+  private final Map<Integer, Deque<ByteBuffer>> freeBuffers = new HashMap<>();
+  // bytes of the buffers leased from the arena.
+  private long leasedBytes;
+  // bytes of the buffers kept for reuse.
+  private long freeBytes;
+
+  /**
+   * @param capacity maximum number of bytes of the buffers leased from and
+   *                 kept by the arena.
+   * @param direct whether buffers are allocated outside of the heap.
+   * @param waitTimeout time to wait for a buffer if the arena is full.
+   * @param unit unit of waitTimeout.
+   * @param metrics metrics to record the usage of the arena to, may be null.
+   */
+  public BufferArena(long capacity, boolean direct, long waitTimeout,
+      TimeUnit unit, XceiverClientMetrics metrics) {
+    Preconditions.checkArgument(capacity > 0,
+        "Invalid capacity %s", capacity);
+    this.capacity = capacity;
+    this.direct = direct;
+    this.waitTimeoutNanos = unit.toNanos(waitTimeout);
+    this.metrics = metrics;
+  }
+
+  /**
+   * Leases a cleared buffer of the given size, waiting for other writers to
+   * release buffers if the arena is full.
+   *
+   * @param size size of the buffer
+   * @return buffer
+   * @throws InterruptedIOException if interrupted while waiting
+   */
+  public ByteBuffer allocate(int size) throws InterruptedIOException {
+    long startNanos = Time.monotonicNowNanos();
+    long deadline = startNanos + waitTimeoutNanos;
+    boolean waited = false;
+    synchronized (this) {
+      while (true) {
+        Deque<ByteBuffer> buffers = freeBuffers.get(size);
+        if (buffers != null && !buffers.isEmpty()) {
+          ByteBuffer buffer = buffers.pop();
+          freeBytes -= size;
+          lease(size, startNanos, waited);
+          return buffer;
+        }
+        if (leasedBytes + freeBytes + size > capacity && freeBytes > 0) {
+          // make room by dropping buffers of other sizes.
+          dropFreeBuffers(leasedBytes + freeBytes + size - capacity);
+        }
+        // a buffer larger than the arena can be leased once it is empty.
+        if (leasedBytes + freeBytes + size <= capacity || leasedBytes == 0) {
+          break;
+        }
+        long remaining = deadline - Time.monotonicNowNanos();
+        if (remaining <= 0) {
+          LOG.warn("Timed out waiting for a buffer of {} bytes, {} of {} " +
+              "bytes are leased.", size, leasedBytes, capacity);
+          if (metrics != null) {
+            metrics.incrBufferArenaOverflows();
+          }
+          break;
+        }
+        waited = true;
+        try {
+          TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException(
+              "Interrupted while waiting for a buffer");
+        }
+      }
+      lease(size, startNanos, waited);
+    }
+    return direct ? ByteBuffer.allocateDirect(size)
+        : ByteBuffer.allocate(size);
+  }
+
+  private void lease(int size, long startNanos, boolean waited) {
+    leasedBytes += size;
+    if (metrics != null) {
+      metrics.incrBufferArenaLeasedBytes(size);
+      if (waited) {
+        metrics.addBufferArenaWaitLatency(
+            Time.monotonicNowNanos() - startNanos);
+      }
+    }
+  }
+
+  private void dropFreeBuffers(long bytes) {
+    for (Iterator<Deque<ByteBuffer>> it = freeBuffers.values().iterator();
+         it.hasNext() && bytes > 0;) {
+      Deque<ByteBuffer> buffers = it.next();
+      while (!buffers.isEmpty() && bytes > 0) {
+        int size = buffers.pop().capacity();
+        freeBytes -= size;
+        bytes -= size;
+      }
+      if (buffers.isEmpty()) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns a buffer leased from the arena. The buffer must not be used
+   * afterwards.
+   *
+   * @param buffer buffer
+   */
+  public synchronized void release(ByteBuffer buffer) {
+    int size = buffer.capacity();
+    Preconditions.checkState(leasedBytes >= size,
+        "Released %s bytes but only %s bytes are leased", size, leasedBytes);
+    leasedBytes -= size;
+    if (metrics != null) {
+      metrics.incrBufferArenaLeasedBytes(-size);
+    }
+    // buffers leased beyond the capacity are not kept.
+    if (leasedBytes + freeBytes + size <= capacity) {
+      buffer.clear();
+      freeBuffers.computeIfAbsent(size, s -> new ArrayDeque<>()).push(buffer);
+      freeBytes += size;
+    }
+    notifyAll();
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public boolean isDirect() {
+    return direct;
+  }
+
+  /**
+   * Returns whether a buffer of the given size can be leased without
+   * waiting.
+   */
+  public synchronized boolean hasRoom(int size) {
+    Deque<ByteBuffer> buffers = freeBuffers.get(size);
+    return (buffers != null && !buffers.isEmpty())
+        || leasedBytes + size <= capacity;
+  }
+
+  @VisibleForTesting
+  public synchronized long getLeasedBytes() {
+    return leasedBytes;
+  }
+
+  @VisibleForTesting
+  synchronized long getFreeBytes() {
+    return freeBytes;
+  }
+}
@@ -22,6 +22,7 @@
 import org.apache.hadoop.hdds.scm.ByteStringConversion;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
@@ -29,6 +30,10 @@
 
 /**
  * This class creates and manages pool of n buffers.
+ *
+ * If the pool is given a {@link BufferArena}, its buffers are leased from
+ * the arena and returned to it as soon as they are released, otherwise the
+ * pool keeps the buffers it allocated until it is cleared.
  */
 public class BufferPool {
 
@@ -37,6 +42,7 @@ public class BufferPool {
   private final int bufferSize;
   private final int capacity;
   private final Function<ByteBuffer, ByteString> byteStringConversion;
+  private final BufferArena arena;
 
   public BufferPool(int bufferSize, int capacity) {
     this(bufferSize, capacity,
@@ -45,11 +51,18 @@ public BufferPool(int bufferSize, int capacity) {
 
   public BufferPool(int bufferSize, int capacity,
       Function<ByteBuffer, ByteString> byteStringConversion){
+    this(bufferSize, capacity, byteStringConversion, null);
+  }
+
+  public BufferPool(int bufferSize, int capacity,
+      Function<ByteBuffer, ByteString> byteStringConversion,
+      BufferArena arena) {
     this.capacity = capacity;
     this.bufferSize = bufferSize;
     bufferList = new ArrayList<>(capacity);
     currentBufferIndex = -1;
     this.byteStringConversion = byteStringConversion;
+    this.arena = arena;
   }
 
   public Function<ByteBuffer, ByteString> byteStringConversion(){
@@ -70,7 +83,7 @@ public ByteBuffer getCurrentBuffer() {
    * chunk size.
    *
    */
-  public ByteBuffer allocateBufferIfNeeded() {
+  public ByteBuffer allocateBufferIfNeeded() throws InterruptedIOException {
     ByteBuffer buffer = getCurrentBuffer();
     if (buffer != null && buffer.hasRemaining()) {
       return buffer;
@@ -78,7 +91,8 @@ public ByteBuffer allocateBufferIfNeeded() {
     if (currentBufferIndex < bufferList.size() - 1) {
       buffer = getBuffer(currentBufferIndex + 1);
     } else {
-      buffer = ByteBuffer.allocate(bufferSize);
+      buffer = arena != null ? arena.allocate(bufferSize)
+          : ByteBuffer.allocate(bufferSize);
       bufferList.add(buffer);
     }
     Preconditions.checkArgument(bufferList.size() <= capacity);
@@ -94,17 +108,35 @@ public void releaseBuffer(ByteBuffer byteBuffer) {
     ByteBuffer buffer = bufferList.remove(0);
     // Ensure the buffer to be removed is always at the head of the list.
     Preconditions.checkArgument(buffer.equals(byteBuffer));
-    buffer.clear();
-    bufferList.add(buffer);
+    if (arena != null) {
+      arena.release(buffer);
+    } else {
+      buffer.clear();
+      bufferList.add(buffer);
+    }
     Preconditions.checkArgument(currentBufferIndex >= 0);
     currentBufferIndex--;
   }
 
   public void clearBufferPool() {
+    if (arena != null) {
+      bufferList.forEach(arena::release);
+    }
     bufferList.clear();
     currentBufferIndex = -1;
   }
 
+  /**
+   * Returns whether the next buffer has to be leased from a buffer arena
+   * which has no room for it.
+   */
+  public boolean isArenaFull() {
+    ByteBuffer buffer = getCurrentBuffer();
+    return arena != null && (buffer == null || !buffer.hasRemaining())
+        && currentBufferIndex == bufferList.size() - 1
+        && !arena.hasRoom(bufferSize);
+  }
+
   public void checkBufferPoolEmpty() {
     Preconditions.checkArgument(computeBufferData() == 0);
   }
@@ -25,19 +25,31 @@
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ContainerCommandRequestProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ContainerCommandResponseProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ChunkInfo;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ChunkRangeProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ReadChunkResponseProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ReadChunkRequestProto;
 import org.apache.hadoop.hdds.scm.XceiverClientSpi;
 import org.apache.hadoop.hdds.scm.container.common.helpers.StorageContainerException;
 import org.apache.hadoop.ozone.common.Checksum;
 import org.apache.hadoop.ozone.common.ChecksumData;
 import org.apache.hadoop.ozone.common.OzoneChecksumException;
+import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.security.PrivilegedExceptionAction;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * An {@link InputStream} called from BlockInputStream to read a chunk from the
@@ -46,10 +58,13 @@
  */
 public class ChunkInputStream extends InputStream implements Seekable {
 
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ChunkInputStream.class);
+
   private ChunkInfo chunkInfo;
   private final long length;
   private final BlockID blockID;
-  private XceiverClientSpi xceiverClient;
+  private volatile XceiverClientSpi xceiverClient;
   private boolean verifyChecksum;
   private boolean allocated = false;
   // Buffer to store the chunk data read from the DN container
@@ -72,6 +87,10 @@ public class ChunkInputStream extends InputStream implements Seekable {
   // position. Once the chunk is read, this variable is reset.
   private long chunkPosition = -1;
 
+  // The range of the chunk being read ahead of the reader, see readAhead().
+  private ChunkRangeProto readAheadRange;
+  private CompletableFuture<ByteString> readAheadData;
+
   private static final int EOF = -1;
 
   ChunkInputStream(ChunkInfo chunkInfo, BlockID blockId,
@@ -137,6 +156,20 @@ public synchronized int read(byte[] b, int off, int len) throws IOException {
     if (len == 0) {
       return 0;
     }
+    return read(ByteBuffer.wrap(b, off, len));
+  }
+
+  /**
+   * Reads up to buf.remaining() bytes of the chunk into the given buffer.
+   * The data read from the datanode is copied into the buffer directly.
+   * @param buf the buffer to read into, up to its limit
+   * @return the number of bytes read, or -1 at the end of the chunk
+   */
+  public synchronized int read(ByteBuffer buf) throws IOException {
+    int len = buf.remaining();
+    if (len == 0) {
+      return 0;
+    }
     checkOpen();
     int total = 0;
     while (len > 0) {
@@ -147,7 +180,11 @@ public synchronized int read(byte[] b, int off, int len) throws IOException {
         Preconditions.checkState(buffers == null);
         return total != 0 ? total : EOF;
       }
-      buffers.get(bufferIndex).get(b, off + total, available);
+      ByteBuffer readBuf = buffers.get(bufferIndex);
+      ByteBuffer data = readBuf.duplicate();
+      data.limit(data.position() + available);
+      buf.put(data);
+      readBuf.position(data.position());
       len -= available;
       total += available;
     }
@@ -180,6 +217,9 @@ public synchronized void seek(long pos) throws IOException {
           + chunkInfo.getChunkName());
     }
 
+    if (!readAheadHasPosition(pos)) {
+      cancelReadAhead();
+    }
     if (buffersHavePosition(pos)) {
       // The bufferPosition is w.r.t the current chunk.
       // Adjust the bufferIndex and position to the seeked position.
@@ -213,6 +253,7 @@ public boolean seekToNewSource(long targetPos) throws IOException {
 
   @Override
   public synchronized void close() {
+    cancelReadAhead();
     if (xceiverClient != null) {
       xceiverClient = null;
     }
@@ -223,12 +264,36 @@ public synchronized void close() {
    *
    * @throws IOException if stream is closed
    */
-  protected synchronized void checkOpen() throws IOException {
+  protected void checkOpen() throws IOException {
     if (xceiverClient == null) {
       throw new IOException("BlockInputStream has been closed.");
     }
   }
 
+  /**
+   * Reads up to len bytes of the chunk from the given position without
+   * using or changing the position and buffers of the stream. Only the range
+   * of the chunk covering the requested bytes is read from the datanode, so
+   * positional reads of a chunk can be performed concurrently.
+   * @param position position in the chunk to read from
+   * @return the number of bytes read, or -1 if the position is at the end of
+   * the chunk
+   */
+  int read(long position, byte[] b, int off, int len) throws IOException {
+    checkOpen();
+    if (position >= length) {
+      return EOF;
+    }
+    len = (int) Math.min(len, length - position);
+    ChunkRangeProto range = getRange(position, len);
+    ByteString data = readChunk(ChunkInfo.newBuilder(chunkInfo)
+        .setOffset(range.getReadOffset())
+        .setLen(range.getReadLength())
+        .build());
+    data.copyTo(b, (int) (position - range.getReadOffset()), off, len);
+    return len;
+  }
+
   /**
    * Prepares to read by advancing through buffers or allocating new buffers,
    * as needed until it finds data to return, or encounters EOF.
@@ -286,6 +351,10 @@ private synchronized void readChunkFromContainer(int len) throws IOException {
       startByteIndex = bufferOffset + bufferLength;
     }
 
+    if (readAheadData != null && setReadAheadData(startByteIndex)) {
+      return;
+    }
+
     if (verifyChecksum) {
       // Update the bufferOffset and bufferLength as per the checksum
       // boundary requirement.
@@ -305,6 +374,178 @@ private synchronized void readChunkFromContainer(int len) throws IOException {
 
     ByteString byteString = readChunk(adjustedChunkInfo);
 
+    setBuffers(byteString, startByteIndex);
+  }
+
+  /**
+   * Returns the range of the chunk which has to be read from the datanode to
+   * serve the next len bytes of the stream, aligned to checksum boundaries if
+   * checksums are verified, or null if the next byte is already buffered or
+   * the whole chunk has been read.
+   * @param len number of bytes of data to be read
+   */
+  synchronized ChunkRangeProto getRangeToRead(long len) {
+    long startByteIndex;
+    if (chunkPosition >= 0) {
+      if (buffersHavePosition(chunkPosition)) {
+        return null;
+      }
+      startByteIndex = chunkPosition;
+    } else if (buffersHaveData() || !dataRemainingInChunk()) {
+      return null;
+    } else {
+      startByteIndex = bufferOffset + bufferLength;
+    }
+    if (readAheadHasPosition(startByteIndex)) {
+      return null;
+    }
+    return getRange(startByteIndex, len);
+  }
+
+  /**
+   * Returns the range of the chunk to read from the datanode to serve len
+   * bytes from the given position, aligned to checksum boundaries if
+   * checksums are verified.
+   */
+  private ChunkRangeProto getRange(long startByteIndex, long len) {
+    long offset = startByteIndex;
+    long end = Math.min(length, startByteIndex + len);
+    if (verifyChecksum) {
+      int bytesPerChecksum =
+          chunkInfo.getChecksumData().getBytesPerChecksum();
+      offset = (offset / bytesPerChecksum) * bytesPerChecksum;
+      end = Math.min(length,
+          ((end + bytesPerChecksum - 1) / bytesPerChecksum) * bytesPerChecksum);
+    }
+    return ChunkRangeProto.newBuilder()
+        .setChunkData(chunkInfo)
+        .setReadOffset(offset)
+        .setReadLength(end - offset)
+        .build();
+  }
+
+  /**
+   * Fills the buffers with the data of a range returned by
+   * {@link #getRangeToRead(long)}, which has been read from the datanode
+   * along with other chunks of the block.
+   * @param range the range of the chunk which was read
+   * @param data the data of the range
+   * @throws IOException if the data does not match the range or its checksum
+   */
+  synchronized void setRangeData(ChunkRangeProto range, ByteString data)
+      throws IOException {
+    verifyData(range.getChunkData(), range.getReadOffset(),
+        range.getReadLength(), data);
+    long startByteIndex = chunkPosition >= 0 ? chunkPosition
+        : bufferOffset + bufferLength;
+    Preconditions.checkArgument(startByteIndex >= range.getReadOffset()
+        && startByteIndex < range.getReadOffset() + range.getReadLength(),
+        "Range does not contain the position of the stream");
+    bufferOffset = range.getReadOffset();
+    bufferLength = range.getReadLength();
+    setBuffers(data, startByteIndex);
+  }
+
+  /**
+   * Starts reading the rest of the chunk from the datanode in the background
+   * with the given executor, unless it is buffered or being read already.
+   * The data is used by the next read of the stream, unless the stream is
+   * seeked outside of it before.
+   * @param executor executor to read the chunk with
+   * @throws IOException if the stream is closed
+   */
+  synchronized void readAhead(Executor executor) throws IOException {
+    checkOpen();
+    if (readAheadData != null) {
+      return;
+    }
+    // the part of the chunk following the buffers or the seeked position.
+    long startByteIndex = chunkPosition >= 0
+        && !buffersHavePosition(chunkPosition) ? chunkPosition
+        : bufferOffset + bufferLength;
+    if (startByteIndex >= length) {
+      return;
+    }
+    ChunkRangeProto range = getRange(startByteIndex, length);
+    final ChunkInfo readChunkInfo = ChunkInfo.newBuilder(chunkInfo)
+        .setOffset(range.getReadOffset())
+        .setLen(range.getReadLength())
+        .build();
+    // the block token of the reader is needed to read the chunk.
+    final UserGroupInformation ugi = UserGroupInformation.getCurrentUser();
+    readAheadRange = range;
+    readAheadData = CompletableFuture.supplyAsync(() -> {
+      try {
+        return ugi.doAs((PrivilegedExceptionAction<ByteString>)
+            () -> readChunk(readChunkInfo));
+      } catch (IOException | InterruptedException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+  /**
+   * Fills the buffers with the data read ahead, if it contains the given
+   * position of the chunk.
+   * @return true if the buffers were filled, false if the chunk has to be
+   * read from the datanode
+   * @throws InterruptedIOException if interrupted while waiting for the data
+   */
+  private boolean setReadAheadData(long startByteIndex)
+      throws InterruptedIOException {
+    if (!readAheadHasPosition(startByteIndex)) {
+      cancelReadAhead();
+      return false;
+    }
+    ChunkRangeProto range = readAheadRange;
+    CompletableFuture<ByteString> data = readAheadData;
+    readAheadRange = null;
+    readAheadData = null;
+    ByteString byteString;
+    try {
+      byteString = data.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+          "Interrupted while reading chunk " + chunkInfo.getChunkName());
+    } catch (ExecutionException | CancellationException e) {
+      LOG.debug("Failed to read ahead chunk {} of block {}",
+          chunkInfo.getChunkName(), blockID, e);
+      return false;
+    }
+    // the data was verified when it was read.
+    bufferOffset = range.getReadOffset();
+    bufferLength = range.getReadLength();
+    setBuffers(byteString, startByteIndex);
+    return true;
+  }
+
+  /**
+   * Check if the range read ahead contains the given position of the chunk.
+   */
+  private boolean readAheadHasPosition(long pos) {
+    return readAheadData != null && pos >= readAheadRange.getReadOffset()
+        && pos < readAheadRange.getReadOffset()
+        + readAheadRange.getReadLength();
+  }
+
+  /**
+   * Discards the data being read ahead of the reader.
+   */
+  synchronized void cancelReadAhead() {
+    if (readAheadData != null) {
+      readAheadData.cancel(false);
+      readAheadData = null;
+      readAheadRange = null;
+    }
+  }
+
+  @VisibleForTesting
+  synchronized boolean isReadingAhead() {
+    return readAheadData != null;
+  }
+
+  private void setBuffers(ByteString byteString, long startByteIndex) {
     buffers = byteString.asReadOnlyByteBufferList();
     bufferIndex = 0;
     allocated = true;
@@ -331,8 +572,13 @@ protected ByteString readChunk(ChunkInfo readChunkInfo) throws IOException {
           ContainerProtocolCalls.getValidatorList();
       validators.add(validator);
 
+      // The range to read is sent along with the chunk as stored in the
+      // block, so that the datanode can locate the chunk irrespective of
+      // the chunk layout of the container. Datanodes which do not know the
+      // range fields read the range from the offset and len of the chunk.
       readChunkResponse = ContainerProtocolCalls.readChunk(xceiverClient,
-          readChunkInfo, blockID, validators);
+          chunkInfo, blockID, readChunkInfo.getOffset(),
+          readChunkInfo.getLen(), validators);
 
     } catch (IOException e) {
       if (e instanceof StorageContainerException) {
@@ -347,35 +593,48 @@ protected ByteString readChunk(ChunkInfo readChunkInfo) throws IOException {
   private CheckedBiFunction<ContainerCommandRequestProto,
       ContainerCommandResponseProto, IOException> validator =
           (request, response) -> {
-            final ChunkInfo reqChunkInfo =
-                request.getReadChunk().getChunkData();
+            final ReadChunkRequestProto readChunkRequest =
+                request.getReadChunk();
+            final ChunkInfo reqChunkInfo = readChunkRequest.getChunkData();
+            final long reqOffset = readChunkRequest.hasReadOffset() ?
+                readChunkRequest.getReadOffset() : reqChunkInfo.getOffset();
+            final long reqLength = readChunkRequest.hasReadLength() ?
+                readChunkRequest.getReadLength() : reqChunkInfo.getLen();
 
             ReadChunkResponseProto readChunkResponse = response.getReadChunk();
-            ByteString byteString = readChunkResponse.getData();
-
-            if (byteString.size() != reqChunkInfo.getLen()) {
-              // Bytes read from chunk should be equal to chunk size.
-              throw new OzoneChecksumException(String
-                  .format("Inconsistent read for chunk=%s len=%d bytesRead=%d",
-                      reqChunkInfo.getChunkName(), reqChunkInfo.getLen(),
-                      byteString.size()));
-            }
-
-            if (verifyChecksum) {
-              ChecksumData checksumData = ChecksumData.getFromProtoBuf(
-                  chunkInfo.getChecksumData());
-
-              // ChecksumData stores checksum for each 'numBytesPerChecksum'
-              // number of bytes in a list. Compute the index of the first
-              // checksum to match with the read data
-
-              int checkumStartIndex = (int) (reqChunkInfo.getOffset() /
-                  checksumData.getBytesPerChecksum());
-              Checksum.verifyChecksum(
-                  byteString, checksumData, checkumStartIndex);
-            }
+            verifyData(reqChunkInfo, reqOffset, reqLength,
+                readChunkResponse.getData());
           };
 
+  /**
+   * Verifies the length and, if enabled, the checksums of data read from
+   * the chunk.
+   */
+  private void verifyData(ChunkInfo reqChunkInfo, long reqOffset,
+      long reqLength, ByteString byteString) throws OzoneChecksumException {
+    if (byteString.size() != reqLength) {
+      // Bytes read from chunk should be equal to chunk size.
+      throw new OzoneChecksumException(String
+          .format("Inconsistent read for chunk=%s len=%d bytesRead=%d",
+              reqChunkInfo.getChunkName(), reqLength,
+              byteString.size()));
+    }
+
+    if (verifyChecksum) {
+      ChecksumData checksumData = ChecksumData.getFromProtoBuf(
+          chunkInfo.getChecksumData());
+
+      // ChecksumData stores checksum for each 'numBytesPerChecksum'
+      // number of bytes in a list. Compute the index of the first
+      // checksum to match with the read data
+
+      int checkumStartIndex = (int) (reqOffset /
+          checksumData.getBytesPerChecksum());
+      Checksum.verifyChecksum(
+          byteString, checksumData, checkumStartIndex);
+    }
+  }
+
   /**
    * Return the offset and length of bytes that need to be read from the
    * chunk file to cover the checksum boundaries covering the actual start and
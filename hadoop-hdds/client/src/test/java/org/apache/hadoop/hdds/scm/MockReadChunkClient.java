@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdds.scm;
+
+import org.apache.hadoop.hdds.protocol.DatanodeDetails;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ChunkInfo;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerCommandRequestProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerCommandResponseProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ReadChunkResponseProto;
+import org.apache.hadoop.hdds.protocol.proto.HddsProtos;
+import org.apache.hadoop.hdds.scm.pipeline.Pipeline;
+import org.apache.hadoop.hdds.scm.pipeline.PipelineID;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A client of a datanode which does not know the range fields of ReadChunk
+ * requests, and replies with the data given by the offset and len of the
+ * chunk in the request.
+ */
+public class MockReadChunkClient extends XceiverClientSpi {
+
+  private final byte[] chunkData;
+  private final List<ContainerCommandRequestProto> requests =
+      new ArrayList<>();
+  private final Pipeline pipeline = Pipeline.newBuilder()
+      .setId(PipelineID.randomId())
+      .setType(HddsProtos.ReplicationType.STAND_ALONE)
+      .setFactor(HddsProtos.ReplicationFactor.ONE)
+      .setState(Pipeline.PipelineState.OPEN)
+      .setNodes(Collections.singletonList(DatanodeDetails.newBuilder()
+          .setUuid(UUID.randomUUID().toString())
+          .setHostName("localhost")
+          .setIpAddress("127.0.0.1")
+          .build()))
+      .build();
+
+  public MockReadChunkClient(byte[] chunkData) {
+    this.chunkData = chunkData;
+  }
+
+  /**
+   * Returns the requests sent with this client.
+   */
+  public List<ContainerCommandRequestProto> getRequests() {
+    return requests;
+  }
+
+  @Override
+  public XceiverClientReply sendCommandAsync(
+      ContainerCommandRequestProto request) {
+    requests.add(request);
+    ChunkInfo chunk = request.getReadChunk().getChunkData();
+    ContainerCommandResponseProto response =
+        ContainerCommandResponseProto.newBuilder()
+            .setCmdType(request.getCmdType())
+            .setResult(ContainerProtos.Result.SUCCESS)
+            .setReadChunk(ReadChunkResponseProto.newBuilder()
+                .setBlockID(request.getReadChunk().getBlockID())
+                .setChunkData(chunk)
+                .setData(ByteString.copyFrom(chunkData,
+                    (int) chunk.getOffset(), (int) chunk.getLen())))
+            .build();
+    return new XceiverClientReply(
+        CompletableFuture.completedFuture(response));
+  }
+
+  @Override
+  public Pipeline getPipeline() {
+    return pipeline;
+  }
+
+  @Override
+  public void connect() {
+  }
+
+  @Override
+  public void connect(String encodedToken) {
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public HddsProtos.ReplicationType getPipelineType() {
+    return pipeline.getType();
+  }
+
+  @Override
+  public XceiverClientReply watchForCommit(long index, long timeout) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long getReplicatedMinCommitIndex() {
+    return 0;
+  }
+}
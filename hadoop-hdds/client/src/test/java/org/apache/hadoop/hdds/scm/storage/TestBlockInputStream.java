@@ -23,17 +23,20 @@
 import org.apache.hadoop.hdds.client.ContainerBlockID;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ChecksumType;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ChunkInfo;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ChunkRangeProto;
 import org.apache.hadoop.hdds.scm.XceiverClientManager;
 import org.apache.hadoop.hdds.scm.pipeline.Pipeline;
 import org.apache.hadoop.hdds.security.token.OzoneBlockTokenIdentifier;
 import org.apache.hadoop.ozone.common.Checksum;
 import org.apache.hadoop.security.token.Token;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -55,12 +58,14 @@ public class TestBlockInputStream {
   private int blockSize;
   private List<ChunkInfo> chunks;
   private Map<String, byte[]> chunkDataMap;
+  private List<List<ChunkRangeProto>> rangeRequests;
 
   @Before
   public void setup() throws Exception {
     BlockID blockID = new BlockID(new ContainerBlockID(1, 1));
     checksum = new Checksum(ChecksumType.NONE, CHUNK_SIZE);
     createChunkList(5);
+    rangeRequests = new ArrayList<>();
 
     blockStream = new DummyBlockInputStream(blockID, blockSize, null, null,
         false, null);
@@ -108,6 +113,9 @@ private void createChunkList(int numChunks)
    */
   private class DummyBlockInputStream extends BlockInputStream {
 
+    private long maxRangeLength;
+    private boolean failRangeReads;
+
     DummyBlockInputStream(BlockID blockId,
         long blockLen,
         Pipeline pipeline,
@@ -135,6 +143,27 @@ protected void addStream(ChunkInfo chunkInfo) {
     protected synchronized void checkOpen() throws IOException {
       // No action needed
     }
+
+    @Override
+    protected long getMaxRangeLength() {
+      return maxRangeLength;
+    }
+
+    @Override
+    protected List<ByteString> readChunkRanges(List<ChunkRangeProto> ranges)
+        throws IOException {
+      rangeRequests.add(ranges);
+      if (failRangeReads) {
+        throw new IOException("Range reads are not supported");
+      }
+      List<ByteString> data = new ArrayList<>();
+      for (ChunkRangeProto range : ranges) {
+        data.add(ByteString.copyFrom(
+            chunkDataMap.get(range.getChunkData().getChunkName()),
+            (int) range.getReadOffset(), (int) range.getReadLength()));
+      }
+      return data;
+    }
   }
 
   private void seekAndVerify(int pos) throws Exception {
@@ -231,4 +260,160 @@ public void testSeekAndRead() throws Exception {
     blockStream.read(b2, 0, 100);
     matchWithInputData(b2, 150, 100);
   }
+
+  @Test
+  public void testReadChunkRanges() throws Exception {
+    DummyBlockInputStream stream = new DummyBlockInputStream(
+        new BlockID(new ContainerBlockID(1, 1)), blockSize, null, null, false,
+        null);
+    stream.maxRangeLength = CHUNK_SIZE * 3;
+    blockStream = stream;
+
+    // a read within a chunk is not read as a range.
+    seekAndVerify(10);
+    byte[] b = new byte[20];
+    blockStream.read(b, 0, 20);
+    matchWithInputData(b, 10, 20);
+    Assert.assertEquals(0, rangeRequests.size());
+
+    // the rest of chunk 0, chunks 1 and 2 and the start of chunk 3 are read
+    // with a single request.
+    b = new byte[300];
+    blockStream.read(b, 0, 300);
+    matchWithInputData(b, 30, 300);
+    Assert.assertEquals(1, rangeRequests.size());
+    List<ChunkRangeProto> ranges = rangeRequests.get(0);
+    Assert.assertEquals(4, ranges.size());
+    Assert.assertEquals("chunk-0", ranges.get(0).getChunkData().getChunkName());
+    Assert.assertEquals(30, ranges.get(0).getReadOffset());
+    Assert.assertEquals(CHUNK_SIZE - 30, ranges.get(0).getReadLength());
+    Assert.assertEquals(0, ranges.get(1).getReadOffset());
+    Assert.assertEquals(CHUNK_SIZE, ranges.get(1).getReadLength());
+    // the last chunk is only read as far as needed.
+    Assert.assertEquals("chunk-3", ranges.get(3).getChunkData().getChunkName());
+    Assert.assertEquals(30, ranges.get(3).getReadLength());
+    Assert.assertEquals(330, blockStream.getPos());
+
+    // read the rest of the block, starting in the middle of chunk 3.
+    b = new byte[blockSize - 330];
+    Assert.assertEquals(b.length, blockStream.read(b, 0, b.length));
+    matchWithInputData(b, 330, b.length);
+    Assert.assertEquals(2, rangeRequests.size());
+    ranges = rangeRequests.get(1);
+    Assert.assertEquals(2, ranges.size());
+    Assert.assertEquals(30, ranges.get(0).getReadOffset());
+    Assert.assertEquals(CHUNK_SIZE - 30, ranges.get(0).getReadLength());
+    Assert.assertEquals(CHUNK_SIZE / 2, ranges.get(1).getReadLength());
+  }
+
+  @Test
+  public void testChunkRangeIsLimited() throws Exception {
+    DummyBlockInputStream stream = new DummyBlockInputStream(
+        new BlockID(new ContainerBlockID(1, 1)), blockSize, null, null, false,
+        null);
+    stream.maxRangeLength = CHUNK_SIZE * 2 + CHUNK_SIZE / 2;
+    blockStream = stream;
+
+    // chunks which do not fit into the range are read on their own.
+    byte[] b = new byte[300];
+    blockStream.read(b, 0, 300);
+    matchWithInputData(b, 0, 300);
+    Assert.assertEquals(1, rangeRequests.size());
+    Assert.assertEquals(2, rangeRequests.get(0).size());
+  }
+
+  @Test
+  public void testFailedChunkRangesAreReadByChunk() throws Exception {
+    DummyBlockInputStream stream = new DummyBlockInputStream(
+        new BlockID(new ContainerBlockID(1, 1)), blockSize, null, null, false,
+        null);
+    stream.maxRangeLength = blockSize;
+    stream.failRangeReads = true;
+    blockStream = stream;
+
+    byte[] b = new byte[250];
+    blockStream.read(b, 0, 250);
+    matchWithInputData(b, 0, 250);
+
+    // after a failure, ranges are not read again.
+    b = new byte[blockSize - 250];
+    blockStream.read(b, 0, b.length);
+    matchWithInputData(b, 250, b.length);
+    Assert.assertEquals(1, rangeRequests.size());
+  }
+
+  @Test
+  public void testReadAhead() throws Exception {
+    DummyBlockInputStream stream = new DummyBlockInputStream(
+        new BlockID(new ContainerBlockID(1, 1)), blockSize, null, null, false,
+        null);
+    stream.maxRangeLength = blockSize;
+    blockStream = stream;
+
+    byte[] b = new byte[50];
+    blockStream.read(b, 0, 50);
+    // the rest of chunk 0 and chunk 1 are read ahead, so the next read does
+    // not need to read a range of the block.
+    Assert.assertEquals(2, blockStream.readAhead(2, Runnable::run));
+    b = new byte[150];
+    blockStream.read(b, 0, 150);
+    matchWithInputData(b, 50, 150);
+    Assert.assertEquals(0, rangeRequests.size());
+
+    // chunks no longer read ahead are read when needed.
+    Assert.assertEquals(3, blockStream.readAhead(10, Runnable::run));
+    blockStream.cancelReadAhead();
+    b = new byte[blockSize - 200];
+    blockStream.read(b, 0, b.length);
+    matchWithInputData(b, 200, b.length);
+    Assert.assertEquals(1, rangeRequests.size());
+    Assert.assertEquals(3, rangeRequests.get(0).size());
+  }
+
+  @Test
+  public void testPositionalRead() throws Exception {
+    seekAndVerify(10);
+
+    // read across chunks 1, 2 and 3.
+    byte[] b = new byte[250];
+    Assert.assertEquals(250, blockStream.read(150, b, 0, 250));
+    matchWithInputData(b, 150, 250);
+
+    // the read is limited to the end of the block.
+    Assert.assertEquals(30, blockStream.read(blockSize - 30, b, 0, 100));
+    matchWithInputData(b, blockSize - 30, 30);
+    Assert.assertEquals(-1, blockStream.read(blockSize, b, 0, 100));
+
+    // the position of the stream is not changed.
+    Assert.assertEquals(10, blockStream.getPos());
+    b = new byte[20];
+    blockStream.read(b, 0, 20);
+    matchWithInputData(b, 10, 20);
+  }
+
+  @Test
+  public void testByteBufferRead() throws Exception {
+    // read across chunks 0, 1 and 2 into a direct buffer, the bytes after
+    // the limit of the buffer are not written.
+    seekAndVerify(50);
+    ByteBuffer buf = ByteBuffer.allocateDirect(250);
+    buf.position(10);
+    buf.limit(210);
+    Assert.assertEquals(200, blockStream.read(buf));
+    Assert.assertEquals(210, buf.position());
+    Assert.assertEquals(250, blockStream.getPos());
+
+    byte[] b = new byte[200];
+    buf.position(10);
+    buf.get(b);
+    matchWithInputData(b, 50, 200);
+    buf.limit(250);
+    Assert.assertEquals(0, buf.get());
+
+    // the read is limited to the end of the block.
+    blockStream.seek(blockSize - 30);
+    buf.clear();
+    Assert.assertEquals(30, blockStream.read(buf));
+    Assert.assertEquals(-1, blockStream.read(buf));
+  }
 }
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.hdds.scm.storage;
+
+import org.apache.hadoop.hdds.scm.ByteStringConversion;
+import org.apache.hadoop.hdds.scm.XceiverClientManager;
+import org.apache.hadoop.hdds.scm.XceiverClientMetrics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link BufferArena} and the {@link BufferPool}s using it.
+ */
+public class TestBufferArena {
+
+  private static final int BUFFER_SIZE = 4;
+
+  private XceiverClientMetrics metrics;
+
+  @Before
+  public void setup() {
+    metrics = XceiverClientManager.getXceiverClientMetrics();
+  }
+
+  @Test
+  public void testReleasedBuffersAreReused() throws Exception {
+    long leasedBytes = metrics.getBufferArenaLeasedBytes();
+    BufferArena arena = new BufferArena(2 * BUFFER_SIZE, true, 1,
+        TimeUnit.MINUTES, metrics);
+
+    ByteBuffer first = arena.allocate(BUFFER_SIZE);
+    ByteBuffer second = arena.allocate(BUFFER_SIZE);
+    Assert.assertTrue(first.isDirect());
+    Assert.assertEquals(2 * BUFFER_SIZE, arena.getLeasedBytes());
+    Assert.assertEquals(leasedBytes + 2 * BUFFER_SIZE,
+        metrics.getBufferArenaLeasedBytes());
+    Assert.assertFalse(arena.hasRoom(BUFFER_SIZE));
+
+    first.put((byte) 1);
+    arena.release(first);
+    Assert.assertTrue(arena.hasRoom(BUFFER_SIZE));
+    ByteBuffer reused = arena.allocate(BUFFER_SIZE);
+    Assert.assertSame(first, reused);
+    Assert.assertEquals(0, reused.position());
+
+    arena.release(reused);
+    arena.release(second);
+    Assert.assertEquals(0, arena.getLeasedBytes());
+    Assert.assertEquals(2 * BUFFER_SIZE, arena.getFreeBytes());
+    Assert.assertEquals(leasedBytes, metrics.getBufferArenaLeasedBytes());
+
+    // buffers of another size replace the free buffers.
+    ByteBuffer large = arena.allocate(2 * BUFFER_SIZE);
+    Assert.assertEquals(0, arena.getFreeBytes());
+    arena.release(large);
+  }
+
+  @Test(timeout = 30000)
+  public void testAllocateWaitsForRelease() throws Exception {
+    long waits = metrics.getBufferArenaWaitCount();
+    BufferArena arena = new BufferArena(BUFFER_SIZE, false, 1,
+        TimeUnit.MINUTES, metrics);
+    ByteBuffer leased = arena.allocate(BUFFER_SIZE);
+
+    CompletableFuture<ByteBuffer> waiting = CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return arena.allocate(BUFFER_SIZE);
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+        });
+    Thread.sleep(100);
+    Assert.assertFalse(waiting.isDone());
+
+    arena.release(leased);
+    Assert.assertSame(leased, waiting.get(10, TimeUnit.SECONDS));
+    Assert.assertEquals(waits + 1, metrics.getBufferArenaWaitCount());
+  }
+
+  @Test(timeout = 30000)
+  public void testAllocateBeyondCapacityAfterTimeout() throws Exception {
+    long overflows = metrics.getBufferArenaOverflows();
+    BufferArena arena = new BufferArena(BUFFER_SIZE, false, 10,
+        TimeUnit.MILLISECONDS, metrics);
+    ByteBuffer first = arena.allocate(BUFFER_SIZE);
+    ByteBuffer second = arena.allocate(BUFFER_SIZE);
+    Assert.assertEquals(2 * BUFFER_SIZE, arena.getLeasedBytes());
+    Assert.assertEquals(overflows + 1, metrics.getBufferArenaOverflows());
+
+    // only the buffers within the capacity are kept.
+    arena.release(first);
+    arena.release(second);
+    Assert.assertEquals(0, arena.getLeasedBytes());
+    Assert.assertEquals(BUFFER_SIZE, arena.getFreeBytes());
+  }
+
+  @Test
+  public void testBufferPoolReturnsBuffersToArena() throws Exception {
+    BufferArena arena = new BufferArena(2 * BUFFER_SIZE, false, 1,
+        TimeUnit.MINUTES, metrics);
+    BufferPool pool = new BufferPool(BUFFER_SIZE, 2,
+        ByteStringConversion.createByteBufferConversion(null), arena);
+
+    ByteBuffer first = pool.allocateBufferIfNeeded();
+    first.put(new byte[BUFFER_SIZE]);
+    ByteBuffer second = pool.allocateBufferIfNeeded();
+    second.put((byte) 1);
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals(2 * BUFFER_SIZE, arena.getLeasedBytes());
+    Assert.assertFalse(pool.isArenaFull());
+
+    // the acknowledged buffer goes back to the arena right away.
+    pool.releaseBuffer(first);
+    Assert.assertEquals(1, pool.getSize());
+    Assert.assertEquals(BUFFER_SIZE, arena.getLeasedBytes());
+    Assert.assertEquals(1, pool.computeBufferData());
+
+    pool.clearBufferPool();
+    Assert.assertEquals(0, arena.getLeasedBytes());
+  }
+}
@@ -21,6 +21,11 @@
 import org.apache.hadoop.hdds.client.BlockID;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ChecksumType;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ChunkInfo;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerCommandRequestProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ReadChunkRequestProto;
+import org.apache.hadoop.hdds.scm.MockReadChunkClient;
 import org.apache.hadoop.hdds.scm.XceiverClientSpi;
 import org.apache.hadoop.ozone.OzoneConfigKeys;
 import org.apache.hadoop.ozone.common.Checksum;
@@ -31,6 +36,7 @@
 import org.junit.Test;
 
 import java.io.EOFException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -219,4 +225,119 @@ public void testSeekAndRead() throws Exception {
     chunkStream.read(b2, 0, 20);
     matchWithInputData(b2, 70, 20);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testReadAhead() throws Exception {
+    byte[] b = new byte[10];
+    chunkStream.read(b, 0, 10);
+    matchWithInputData(b, 0, 10);
+
+    // The rest of the chunk after the buffered checksum boundary is read
+    // ahead, and used by the following reads.
+    chunkStream.readAhead(Runnable::run);
+    Assert.assertTrue(chunkStream.isReadingAhead());
+    Assert.assertEquals(2, chunkStream.readByteBuffers.size());
+    matchWithInputData(chunkStream.readByteBuffers.get(1).toByteArray(),
+        20, CHUNK_SIZE - 20);
+
+    b = new byte[CHUNK_SIZE - 10];
+    chunkStream.read(b, 0, b.length);
+    matchWithInputData(b, 10, b.length);
+    Assert.assertFalse(chunkStream.isReadingAhead());
+    Assert.assertEquals(2, chunkStream.readByteBuffers.size());
+  }
+
+  @Test
+  public void testSeekCancelsReadAhead() throws Exception {
+    chunkStream.readAhead(Runnable::run);
+
+    // Seeking within the data read ahead keeps it.
+    seekAndVerify(60);
+    Assert.assertTrue(chunkStream.isReadingAhead());
+    byte[] b = new byte[20];
+    chunkStream.read(b, 0, 20);
+    matchWithInputData(b, 60, 20);
+    Assert.assertEquals(1, chunkStream.readByteBuffers.size());
+
+    chunkStream = new DummyChunkInputStream(chunkInfo, null, null, true);
+    b = new byte[10];
+    chunkStream.read(b, 0, 10);
+    chunkStream.readAhead(Runnable::run);
+    // Seeking back into the buffers discards the data read ahead.
+    seekAndVerify(5);
+    Assert.assertFalse(chunkStream.isReadingAhead());
+  }
+
+  @Test
+  public void testPositionalRead() throws Exception {
+    seekAndVerify(30);
+
+    // Reading 10 bytes from index 45 reads the chunk from 40 to 59.
+    byte[] b = new byte[10];
+    Assert.assertEquals(10, chunkStream.read(45, b, 0, 10));
+    matchWithInputData(b, 45, 10);
+    matchWithInputData(chunkStream.readByteBuffers.get(0).toByteArray(),
+        40, 20);
+
+    // The read is limited to the end of the chunk.
+    b = new byte[20];
+    Assert.assertEquals(5, chunkStream.read(CHUNK_SIZE - 5, b, 0, 20));
+    matchWithInputData(b, CHUNK_SIZE - 5, 5);
+    Assert.assertEquals(-1, chunkStream.read(CHUNK_SIZE, b, 0, 20));
+
+    // The position of the stream is not changed.
+    Assert.assertEquals(30, chunkStream.getPos());
+    Assert.assertEquals(30, chunkStream.getChunkPosition());
+  }
+
+  @Test
+  public void testByteBufferRead() throws Exception {
+    seekAndVerify(30);
+    ByteBuffer buf = ByteBuffer.allocateDirect(50);
+    buf.limit(40);
+    Assert.assertEquals(40, chunkStream.read(buf));
+    Assert.assertEquals(70, chunkStream.getPos());
+
+    byte[] b = new byte[40];
+    buf.flip();
+    buf.get(b);
+    matchWithInputData(b, 30, 40);
+
+    // read the last bytes of the chunk.
+    seekAndVerify(CHUNK_SIZE - 5);
+    buf.clear();
+    buf.limit(5);
+    Assert.assertEquals(5, chunkStream.read(buf));
+    Assert.assertEquals(CHUNK_SIZE, chunkStream.getPos());
+    buf.flip();
+    b = new byte[5];
+    buf.get(b);
+    matchWithInputData(b, CHUNK_SIZE - 5, 5);
+  }
+
+  @Test
+  public void testReadFromDatanodeWithoutRangeFields() throws Exception {
+    MockReadChunkClient client = new MockReadChunkClient(chunkData);
+    ChunkInputStream stream = new ChunkInputStream(chunkInfo,
+        new BlockID(1, 1), client, true);
+
+    // a read starting at a checksum boundary, and one within a checksum.
+    stream.seek(40);
+    byte[] b = new byte[20];
+    Assert.assertEquals(20, stream.read(b, 0, 20));
+    matchWithInputData(b, 40, 20);
+    b = new byte[10];
+    Assert.assertEquals(10, stream.read(65, b, 0, 10));
+    matchWithInputData(b, 65, 10);
+
+    // the ranges were sent as the offset and len of the chunk.
+    Assert.assertEquals(2, client.getRequests().size());
+    for (ContainerCommandRequestProto request : client.getRequests()) {
+      ReadChunkRequestProto readChunk = request.getReadChunk();
+      Assert.assertEquals(readChunk.getReadOffset(),
+          readChunk.getChunkData().getOffset());
+      Assert.assertEquals(readChunk.getReadLength(),
+          readChunk.getChunkData().getLen());
+    }
+  }
+}
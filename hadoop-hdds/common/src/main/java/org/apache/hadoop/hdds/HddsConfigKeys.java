@@ -154,6 +154,12 @@ public final class HddsConfigKeys {
   public static final String HDDS_BLOCK_TOKEN_ENABLED =
       "hdds.block.token.enabled";
   public static final boolean HDDS_BLOCK_TOKEN_ENABLED_DEFAULT = false;
+  // Number of verified block tokens cached by a datanode, 0 to verify the
+  // signature of the token of each request.
+  public static final String HDDS_BLOCK_TOKEN_VERIFICATION_CACHE_SIZE =
+      "hdds.block.token.verification.cache.size";
+  public static final int HDDS_BLOCK_TOKEN_VERIFICATION_CACHE_SIZE_DEFAULT =
+      10000;
 
   public static final String HDDS_X509_DIR_NAME = "hdds.x509.dir.name";
   public static final String HDDS_X509_DIR_NAME_DEFAULT = "certs";
@@ -225,6 +231,133 @@ private HddsConfigKeys() {
       "hdds.container.chunk.persistdata";
   public static final boolean HDDS_CONTAINER_PERSISTDATA_DEFAULT = true;
 
+  // Chunk layout version used for newly created KeyValue containers.
+  // 1 stores each chunk in its own file, 2 stores all chunks of a block in a
+  // single block file. Existing containers keep their own layout.
+  public static final String HDDS_CONTAINER_CHUNK_LAYOUT_VERSION =
+      "hdds.container.chunk.layout.version";
+  public static final int HDDS_CONTAINER_CHUNK_LAYOUT_VERSION_DEFAULT = 1;
+
+  // Maximum number of chunk/block files kept open per volume, 0 disables
+  // caching of open file handles.
+  public static final String HDDS_CONTAINER_CHUNK_FILE_HANDLE_CACHE_SIZE =
+      "hdds.container.chunk.file.handle.cache.size";
+  public static final int HDDS_CONTAINER_CHUNK_FILE_HANDLE_CACHE_SIZE_DEFAULT =
+      256;
+  public static final String
+      HDDS_CONTAINER_CHUNK_FILE_HANDLE_CACHE_IDLE_TIMEOUT =
+      "hdds.container.chunk.file.handle.cache.idle.timeout";
+  public static final String
+      HDDS_CONTAINER_CHUNK_FILE_HANDLE_CACHE_IDLE_TIMEOUT_DEFAULT = "60s";
+
+  // Serve ReadChunk requests from memory mapped chunk files instead of
+  // copying the chunk data into heap buffers.
+  public static final String HDDS_CONTAINER_CHUNK_READ_MAPPED_ENABLED =
+      "hdds.container.chunk.read.mapped.enabled";
+  public static final boolean
+      HDDS_CONTAINER_CHUNK_READ_MAPPED_ENABLED_DEFAULT = false;
+  // Smaller reads are copied, as mapping them costs more than the copy.
+  public static final String HDDS_CONTAINER_CHUNK_READ_MAPPED_MIN_SIZE =
+      "hdds.container.chunk.read.mapped.min.size";
+  public static final String
+      HDDS_CONTAINER_CHUNK_READ_MAPPED_MIN_SIZE_DEFAULT = "256KB";
+
+  // Write chunk data with direct I/O, bypassing the page cache.
+  public static final String HDDS_CONTAINER_CHUNK_WRITE_DIRECT_ENABLED =
+      "hdds.container.chunk.write.direct.enabled";
+  public static final boolean
+      HDDS_CONTAINER_CHUNK_WRITE_DIRECT_ENABLED_DEFAULT = false;
+
+  // Sync chunk writes in batches per volume instead of syncing each write on
+  // its own. Only applies if dfs.container.chunk.write.sync is set.
+  public static final String HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_ENABLED =
+      "hdds.container.chunk.write.sync.batch.enabled";
+  public static final boolean
+      HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_ENABLED_DEFAULT = false;
+  public static final String HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_DELAY =
+      "hdds.container.chunk.write.sync.batch.delay";
+  public static final String
+      HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_DELAY_DEFAULT = "2ms";
+  public static final String HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_BYTES =
+      "hdds.container.chunk.write.sync.batch.bytes";
+  public static final String
+      HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_BYTES_DEFAULT = "16MB";
+
+  // Append the data of PutSmallFile requests up to the given size to a pack
+  // file shared by the small files of the container, instead of writing a
+  // file per chunk or block.
+  public static final String HDDS_CONTAINER_SMALL_FILE_PACK_ENABLED =
+      "hdds.container.small.file.pack.enabled";
+  public static final boolean
+      HDDS_CONTAINER_SMALL_FILE_PACK_ENABLED_DEFAULT = false;
+  public static final String HDDS_CONTAINER_SMALL_FILE_PACK_MAX_SIZE =
+      "hdds.container.small.file.pack.max.size";
+  public static final String
+      HDDS_CONTAINER_SMALL_FILE_PACK_MAX_SIZE_DEFAULT = "64KB";
+
+  // Number of threads reading the chunks of ReadBlockRange requests, which
+  // is also the number of chunks of a request read at the same time.
+  public static final String HDDS_CONTAINER_READ_BLOCK_RANGE_THREADS =
+      "hdds.container.read.block.range.threads";
+  public static final int HDDS_CONTAINER_READ_BLOCK_RANGE_THREADS_DEFAULT =
+      8;
+
+  // Import replicated containers while they are downloaded, with the given
+  // compression, instead of downloading them to a temporary file first.
+  // Requires all datanodes to support it.
+  public static final String HDDS_CONTAINER_REPLICATION_STREAMING_ENABLED =
+      "hdds.container.replication.streaming.enabled";
+  public static final boolean
+      HDDS_CONTAINER_REPLICATION_STREAMING_ENABLED_DEFAULT = false;
+  public static final String HDDS_CONTAINER_REPLICATION_COMPRESSION =
+      "hdds.container.replication.compression";
+  public static final String HDDS_CONTAINER_REPLICATION_COMPRESSION_DEFAULT =
+      "NO_COMPRESSION";
+
+  // Download replicated containers from all their replicas at once, in parts
+  // of about the given size, instead of from one replica.
+  public static final String
+      HDDS_CONTAINER_REPLICATION_PARALLEL_DOWNLOAD_ENABLED =
+      "hdds.container.replication.parallel.download.enabled";
+  public static final boolean
+      HDDS_CONTAINER_REPLICATION_PARALLEL_DOWNLOAD_ENABLED_DEFAULT = false;
+  public static final String HDDS_CONTAINER_REPLICATION_DOWNLOAD_PART_SIZE =
+      "hdds.container.replication.download.part.size";
+  public static final String
+      HDDS_CONTAINER_REPLICATION_DOWNLOAD_PART_SIZE_DEFAULT = "64MB";
+
+  // Schedule the I/O of each volume among client, replication, deletion and
+  // scrubber operations, limiting the operations outstanding on the volume
+  // and reserving some of them for clients.
+  public static final String HDDS_DATANODE_VOLUME_IO_SCHEDULER_ENABLED =
+      "hdds.datanode.volume.io.scheduler.enabled";
+  public static final boolean
+      HDDS_DATANODE_VOLUME_IO_SCHEDULER_ENABLED_DEFAULT = false;
+  public static final String
+      HDDS_DATANODE_VOLUME_IO_SCHEDULER_MAX_OUTSTANDING =
+      "hdds.datanode.volume.io.scheduler.max.outstanding";
+  public static final int
+      HDDS_DATANODE_VOLUME_IO_SCHEDULER_MAX_OUTSTANDING_DEFAULT = 16;
+  public static final String
+      HDDS_DATANODE_VOLUME_IO_SCHEDULER_CLIENT_RESERVED =
+      "hdds.datanode.volume.io.scheduler.client.reserved";
+  public static final int
+      HDDS_DATANODE_VOLUME_IO_SCHEDULER_CLIENT_RESERVED_DEFAULT = 4;
+
+  // Keep the metadata of all containers of a volume in a single DB of the
+  // volume instead of one DB per container.
+  public static final String HDDS_CONTAINER_DB_PER_VOLUME_ENABLED =
+      "hdds.container.db.per.volume.enabled";
+  public static final boolean
+      HDDS_CONTAINER_DB_PER_VOLUME_ENABLED_DEFAULT = false;
+
+  // Save the metadata of the containers of each volume in an index when the
+  // datanode stops, and load the containers from it on the next start.
+  public static final String HDDS_DATANODE_CONTAINER_INDEX_ENABLED =
+      "hdds.datanode.container.index.enabled";
+  public static final boolean
+      HDDS_DATANODE_CONTAINER_INDEX_ENABLED_DEFAULT = false;
+
   public static final String HDDS_CONTAINER_SCRUB_ENABLED =
       "hdds.container.scrub.enabled";
   public static final boolean HDDS_CONTAINER_SCRUB_ENABLED_DEFAULT = false;
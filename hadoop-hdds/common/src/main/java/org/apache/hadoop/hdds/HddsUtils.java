@@ -371,6 +371,7 @@ public static boolean isReadOnly(
     switch (proto.getCmdType()) {
     case ReadContainer:
     case ReadChunk:
+    case ReadBlockRange:
     case ListBlock:
     case GetBlock:
     case GetSmallFile:
@@ -409,6 +410,7 @@ public static boolean requireBlockToken(
       ContainerProtos.Type cmdType) {
     switch (cmdType) {
     case ReadChunk:
+    case ReadBlockRange:
     case GetBlock:
     case WriteChunk:
     case PutBlock:
@@ -431,6 +433,10 @@ public static BlockID getBlockID(ContainerCommandRequestProto msg) {
       if (msg.hasReadChunk()) {
         return BlockID.getFromProtobuf(msg.getReadChunk().getBlockID());
       }
+    case ReadBlockRange:
+      if (msg.hasReadBlockRange()) {
+        return BlockID.getFromProtobuf(msg.getReadBlockRange().getBlockID());
+      }
     case GetBlock:
       if (msg.hasGetBlock()) {
         return BlockID.getFromProtobuf(msg.getGetBlock().getBlockID());
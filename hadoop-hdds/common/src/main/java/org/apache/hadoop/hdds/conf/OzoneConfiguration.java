@@ -37,6 +37,7 @@
 import com.google.common.base.Preconditions;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.StorageUnit;
 
 /**
  * Configuration for ozone.
@@ -161,6 +162,10 @@ public <T> T getObject(Class<T> configurationClass) {
             setterMethod.invoke(configuration,
                 getTimeDuration(key, 0, configAnnotation.timeUnit()));
             break;
+          case SIZE:
+            setterMethod.invoke(configuration,
+                (long) getStorageSize(key, "0B", StorageUnit.BYTES));
+            break;
           default:
             throw new ConfigurationException(
                 "Unsupported ConfigType " + type + " on " + methodLocation);
@@ -56,6 +56,11 @@ public final class ScmConfigKeys {
       = "dfs.container.ratis.num.container.op.executors";
   public static final int DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_DEFAULT
       = 10;
+  public static final String
+      DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_MAX_KEY
+      = "dfs.container.ratis.num.container.op.executors.max";
+  public static final int
+      DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_MAX_DEFAULT = 50;
   public static final String DFS_CONTAINER_RATIS_SEGMENT_SIZE_KEY =
       "dfs.container.ratis.segment.size";
   public static final String DFS_CONTAINER_RATIS_SEGMENT_SIZE_DEFAULT =
@@ -117,6 +122,11 @@ public final class ScmConfigKeys {
   public static final String
       DFS_CONTAINER_RATIS_STATEMACHINEDATA_CACHE_EXPIRY_INTERVAL_DEFAULT =
       "10s";
+  // max bytes of stateMachineData cached inside containerStateMachine
+  public static final String DFS_CONTAINER_RATIS_STATEMACHINEDATA_CACHE_SIZE =
+      "dfs.container.ratis.statemachine.cache.size";
+  public static final String
+      DFS_CONTAINER_RATIS_STATEMACHINEDATA_CACHE_SIZE_DEFAULT = "128MB";
   public static final String DFS_RATIS_CLIENT_REQUEST_TIMEOUT_DURATION_KEY =
       "dfs.ratis.client.request.timeout.duration";
   public static final TimeDuration
@@ -35,6 +35,8 @@
     .StorageContainerException;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.ChunkInfo;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ChunkRangeProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .ContainerCommandRequestProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
@@ -56,6 +58,8 @@
     .PutBlockRequestProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .PutSmallFileRequestProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ReadBlockRangeRequestProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .ReadChunkRequestProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
@@ -196,8 +200,30 @@ public static ContainerProtos.PutBlockResponseProto putBlock(
   public static XceiverClientReply putBlockAsync(
       XceiverClientSpi xceiverClient, BlockData containerBlockData)
       throws IOException, InterruptedException, ExecutionException {
+    return putBlockAsync(xceiverClient, containerBlockData, false);
+  }
+
+  /**
+   * Calls the container protocol to put a container block.
+   *
+   * @param xceiverClient client to perform call
+   * @param containerBlockData block data to identify container
+   * @param chunksStreamed whether the chunks of the block were streamed
+   *                       along the pipeline instead of written via Ratis
+   * @return putBlockResponse
+   * @throws IOException if there is an error while performing the call
+   * @throws InterruptedException
+   * @throws ExecutionException
+   */
+  public static XceiverClientReply putBlockAsync(
+      XceiverClientSpi xceiverClient, BlockData containerBlockData,
+      boolean chunksStreamed)
+      throws IOException, InterruptedException, ExecutionException {
     PutBlockRequestProto.Builder createBlockRequest =
         PutBlockRequestProto.newBuilder().setBlockData(containerBlockData);
+    if (chunksStreamed) {
+      createBlockRequest.setChunksStreamed(true);
+    }
     String id = xceiverClient.getPipeline().getFirstNode().getUuidString();
     ContainerCommandRequestProto.Builder builder =
         ContainerCommandRequestProto.newBuilder().setCmdType(Type.PutBlock)
@@ -230,6 +256,42 @@ public static ContainerProtos.ReadChunkResponseProto readChunk(
         ReadChunkRequestProto.newBuilder()
             .setBlockID(blockID.getDatanodeBlockIDProtobuf())
             .setChunkData(chunk);
+    return readChunk(xceiverClient, readChunkRequest, blockID, validators);
+  }
+
+  /**
+   * Calls the container protocol to read a range of a chunk. The range is
+   * sent as the offset and length of the chunk as well, so that datanodes
+   * which do not know the range fields of the request read the same range.
+   *
+   * @param xceiverClient client to perform call
+   * @param chunk information about chunk to read, as stored in the block
+   * @param blockID ID of the block
+   * @param offset offset of the range, relative to the start of the chunk
+   * @param length length of the range
+   * @param validators functions to validate the response
+   * @return container protocol read chunk response
+   * @throws IOException if there is an I/O error while performing the call
+   */
+  public static ContainerProtos.ReadChunkResponseProto readChunk(
+      XceiverClientSpi xceiverClient, ChunkInfo chunk, BlockID blockID,
+      long offset, long length, List<CheckedBiFunction> validators)
+      throws IOException {
+    ReadChunkRequestProto.Builder readChunkRequest =
+        ReadChunkRequestProto.newBuilder()
+            .setBlockID(blockID.getDatanodeBlockIDProtobuf())
+            .setChunkData(ChunkInfo.newBuilder(chunk)
+                .setOffset(offset)
+                .setLen(length))
+            .setReadOffset(offset)
+            .setReadLength(length);
+    return readChunk(xceiverClient, readChunkRequest, blockID, validators);
+  }
+
+  private static ContainerProtos.ReadChunkResponseProto readChunk(
+      XceiverClientSpi xceiverClient,
+      ReadChunkRequestProto.Builder readChunkRequest, BlockID blockID,
+      List<CheckedBiFunction> validators) throws IOException {
     String id = xceiverClient.getPipeline().getClosestNode().getUuidString();
     ContainerCommandRequestProto.Builder builder =
         ContainerCommandRequestProto.newBuilder().setCmdType(Type.ReadChunk)
@@ -246,6 +308,39 @@ public static ContainerProtos.ReadChunkResponseProto readChunk(
     return reply.getReadChunk();
   }
 
+  /**
+   * Builds the request to read ranges of consecutive chunks of a block with
+   * a single request. The datanode replies with a ReadChunk response for
+   * each chunk.
+   *
+   * @param xceiverClient client the request will be sent with
+   * @param blockID ID of the block
+   * @param chunks ranges of the chunks to read, relative to the start of
+   *               each chunk
+   * @return ReadBlockRange request
+   * @throws IOException if the block token cannot be encoded
+   */
+  public static ContainerCommandRequestProto getReadBlockRangeRequest(
+      XceiverClientSpi xceiverClient, BlockID blockID,
+      List<ChunkRangeProto> chunks) throws IOException {
+    ReadBlockRangeRequestProto.Builder readBlockRangeRequest =
+        ReadBlockRangeRequestProto.newBuilder()
+            .setBlockID(blockID.getDatanodeBlockIDProtobuf())
+            .addAllChunks(chunks);
+    String id = xceiverClient.getPipeline().getClosestNode().getUuidString();
+    ContainerCommandRequestProto.Builder builder =
+        ContainerCommandRequestProto.newBuilder()
+            .setCmdType(Type.ReadBlockRange)
+            .setContainerID(blockID.getContainerID())
+            .setDatanodeUuid(id).setReadBlockRange(readBlockRangeRequest);
+    String encodedToken = getEncodedBlockToken(new Text(blockID.
+        getContainerBlockID().toString()));
+    if (encodedToken != null) {
+      builder.setEncodedToken(encodedToken);
+    }
+    return builder.build();
+  }
+
   /**
    * Calls the container protocol to write a chunk.
    *
@@ -292,6 +387,23 @@ public static XceiverClientReply writeChunkAsync(
       XceiverClientSpi xceiverClient, ChunkInfo chunk, BlockID blockID,
       ByteString data)
       throws IOException, ExecutionException, InterruptedException {
+    return xceiverClient.sendCommandAsync(
+        getWriteChunkRequest(xceiverClient, chunk, blockID, data));
+  }
+
+  /**
+   * Builds the request to write a chunk.
+   *
+   * @param xceiverClient client the request will be sent with
+   * @param chunk information about chunk to write
+   * @param blockID ID of the block
+   * @param data the data of the chunk to write
+   * @return WriteChunk request
+   * @throws IOException if the block token cannot be encoded
+   */
+  public static ContainerCommandRequestProto getWriteChunkRequest(
+      XceiverClientSpi xceiverClient, ChunkInfo chunk, BlockID blockID,
+      ByteString data) throws IOException {
     WriteChunkRequestProto.Builder writeChunkRequest =
         WriteChunkRequestProto.newBuilder()
             .setBlockID(blockID.getDatanodeBlockIDProtobuf())
@@ -306,8 +418,7 @@ public static XceiverClientReply writeChunkAsync(
     if (encodedToken != null) {
       builder.setEncodedToken(encodedToken);
     }
-    ContainerCommandRequestProto request = builder.build();
-    return xceiverClient.sendCommandAsync(request);
+    return builder.build();
   }
 
   /**
@@ -370,6 +481,19 @@ public static PutSmallFileResponseProto writeSmallFile(
     return response.getPutSmallFile();
   }
 
+  /**
+   * createContainer call that creates the container of a block on the
+   * datanode, using the block token of the current user for the block.
+   * @param client  - client
+   * @param blockID - ID of a block of the container
+   * @throws IOException
+   */
+  public static void createContainer(XceiverClientSpi client,
+      BlockID blockID) throws IOException {
+    createContainer(client, blockID.getContainerID(), getEncodedBlockToken(
+        getService(blockID.getDatanodeBlockIDProtobuf())));
+  }
+
   /**
    * createContainer call that creates a container on the datanode.
    * @param client  - client
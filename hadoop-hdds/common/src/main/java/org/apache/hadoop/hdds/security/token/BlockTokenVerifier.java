@@ -19,6 +19,9 @@
 package org.apache.hadoop.hdds.security.token;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.hadoop.hdds.HddsConfigKeys;
 import org.apache.hadoop.hdds.HddsUtils;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
 import org.apache.hadoop.hdds.security.exception.SCMSecurityException;
@@ -33,7 +36,10 @@
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.CertificateNotYetValidException;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -47,9 +53,26 @@ public class BlockTokenVerifier implements TokenVerifier {
   private final static Logger LOGGER =
       LoggerFactory.getLogger(BlockTokenVerifier.class);
 
+  // tokens whose signature has been verified, by their encoded form.
+  private final Cache<String, VerifiedToken> verifiedTokens;
+
   public BlockTokenVerifier(SecurityConfig conf, CertificateClient caClient) {
     this.conf = conf;
     this.caClient = caClient;
+    int cacheSize = conf.getBlockTokenVerificationCacheSize();
+    if (cacheSize > 0) {
+      // tokens are not valid for longer than they are issued for.
+      long tokenLifetime = conf.getConfiguration().getTimeDuration(
+          HddsConfigKeys.HDDS_BLOCK_TOKEN_EXPIRY_TIME,
+          HddsConfigKeys.HDDS_BLOCK_TOKEN_EXPIRY_TIME_DEFAULT,
+          TimeUnit.MILLISECONDS);
+      this.verifiedTokens = CacheBuilder.newBuilder()
+          .maximumSize(cacheSize)
+          .expireAfterWrite(tokenLifetime, TimeUnit.MILLISECONDS)
+          .build();
+    } else {
+      this.verifiedTokens = null;
+    }
   }
 
   private boolean isExpired(long expiryDate) {
@@ -69,6 +92,40 @@ public void verify(String user, String tokenStr,
           "null.)");
     }
 
+    VerifiedToken verified = getVerifiedToken(tokenStr);
+    boolean cached = verified != null;
+    if (!cached) {
+      verified = verifySignature(user, tokenStr);
+    }
+    OzoneBlockTokenIdentifier tokenId = verified.tokenId;
+    UserGroupInformation tokenUser = tokenId.getUser();
+    // check expiration
+    if (isExpired(tokenId.getExpiryDate())) {
+      if (verifiedTokens != null) {
+        verifiedTokens.invalidate(tokenStr);
+      }
+      throw new BlockTokenException("Expired block token for user: " +
+          tokenUser);
+    }
+
+    // Token block id mismatch
+    if (!tokenId.getBlockId().equals(id)) {
+      throw new BlockTokenException("Block id mismatch. Token for block ID: " +
+          tokenId.getBlockId() + " can't be used to access block: " + id +
+          " by user: " + tokenUser);
+    }
+
+    if (verifiedTokens != null && !cached) {
+      verifiedTokens.put(tokenStr, verified);
+    }
+    // TODO: check cmd type and the permissions(AccessMode) in the token
+  }
+
+  /**
+   * Decodes the token and verifies its signature.
+   */
+  private VerifiedToken verifySignature(String user, String tokenStr)
+      throws SCMSecurityException {
     final Token<OzoneBlockTokenIdentifier> token = new Token();
     OzoneBlockTokenIdentifier tokenId = new OzoneBlockTokenIdentifier();
     try {
@@ -105,20 +162,50 @@ public void verify(String user, String tokenStr,
       throw new BlockTokenException("Invalid block token for user: " +
           tokenId.getUser());
     }
-    // check expiration
-    if (isExpired(tokenId.getExpiryDate())) {
-      throw new BlockTokenException("Expired block token for user: " +
-          tokenUser);
-    }
+    return new VerifiedToken(tokenId, signerCert);
+  }
 
-    // Token block id mismatch
-    if (!tokenId.getBlockId().equals(id)) {
-      throw new BlockTokenException("Block id mismatch. Token for block ID: " +
-          tokenId.getBlockId() + " can't be used to access block: " + id +
-          " by user: " + tokenUser);
+  /**
+   * Returns the cached token if its signature has been verified with the
+   * certificate the certificate client still has for its signer, and that
+   * certificate has not expired. Otherwise the token is removed from the
+   * cache.
+   */
+  private VerifiedToken getVerifiedToken(String tokenStr)
+      throws SCMSecurityException {
+    if (verifiedTokens == null) {
+      return null;
+    }
+    VerifiedToken verified = verifiedTokens.getIfPresent(tokenStr);
+    if (verified == null) {
+      return null;
+    }
+    X509Certificate signerCert =
+        caClient.getCertificate(verified.tokenId.getOmCertSerialId());
+    try {
+      if (signerCert != null && signerCert.equals(verified.signerCert)) {
+        signerCert.checkValidity();
+        return verified;
+      }
+    } catch (CertificateExpiredException | CertificateNotYetValidException e) {
+      LOGGER.debug("Signer certificate of cached token is not valid", e);
     }
+    verifiedTokens.invalidate(tokenStr);
+    return null;
+  }
 
-    // TODO: check cmd type and the permissions(AccessMode) in the token
+  /**
+   * A token whose signature has been verified.
+   */
+  private static final class VerifiedToken {
+    private final OzoneBlockTokenIdentifier tokenId;
+    private final X509Certificate signerCert;
+
+    private VerifiedToken(OzoneBlockTokenIdentifier tokenId,
+        X509Certificate signerCert) {
+      this.tokenId = tokenId;
+      this.signerCert = signerCert;
+    }
   }
 
   public static boolean isTestStub() {
@@ -0,0 +1,388 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.hdds.utils;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.hadoop.hdds.utils.MetadataKeyFilters.MetadataKeyFilter;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A view of the keys of a {@link MetadataStore} which start with a given
+ * prefix. This allows several independent key spaces to be kept in a single
+ * underlying store. The prefix is added to all keys passed in and removed
+ * from all keys returned, so callers of the view see the same keys they
+ * would see in a store of their own.
+ *
+ * The view does not own the underlying store, closing the view leaves the
+ * store open.
+ */
+public class PrefixedMetadataStore implements MetadataStore {
+
+  /**
+   * Number of entries read from the underlying store at a time by iterators.
+   */
+  private static final int ITERATOR_BATCH_SIZE = 1000;
+
+  private final MetadataStore store;
+  private final byte[] prefix;
+
+  public PrefixedMetadataStore(MetadataStore store, byte[] prefix) {
+    Preconditions.checkNotNull(store);
+    Preconditions.checkArgument(prefix != null && prefix.length > 0,
+        "Prefix cannot be empty");
+    this.store = store;
+    this.prefix = prefix.clone();
+  }
+
+  /**
+   * Returns the store the view is backed by.
+   */
+  public MetadataStore getStore() {
+    return store;
+  }
+
+  @Override
+  public void put(byte[] key, byte[] value) throws IOException {
+    store.put(addPrefix(key), value);
+  }
+
+  @Override
+  public boolean isEmpty() throws IOException {
+    ImmutablePair<byte[], byte[]> first = store.peekAround(0, prefix);
+    return first == null || !hasPrefix(first.getKey());
+  }
+
+  @Override
+  public byte[] get(byte[] key) throws IOException {
+    return store.get(addPrefix(key));
+  }
+
+  @Override
+  public void delete(byte[] key) throws IOException {
+    store.delete(addPrefix(key));
+  }
+
+  @Override
+  public List<Map.Entry<byte[], byte[]>> getRangeKVs(byte[] startKey,
+      int count, MetadataKeyFilter... filters)
+      throws IOException, IllegalArgumentException {
+    return getRangeKVs(startKey, count, false, filters);
+  }
+
+  @Override
+  public List<Map.Entry<byte[], byte[]>> getSequentialRangeKVs(
+      byte[] startKey, int count, MetadataKeyFilter... filters)
+      throws IOException, IllegalArgumentException {
+    return getRangeKVs(startKey, count, true, filters);
+  }
+
+  private List<Map.Entry<byte[], byte[]>> getRangeKVs(byte[] startKey,
+      int count, boolean sequential, MetadataKeyFilter... filters)
+      throws IOException, IllegalArgumentException {
+    if (count < 0) {
+      throw new IllegalArgumentException(
+          "Invalid count given " + count + ", count must be greater than 0");
+    }
+    byte[] from = prefix;
+    byte[] prevKey = null;
+    if (startKey != null) {
+      from = addPrefix(startKey);
+      if (store.get(from) == null) {
+        // Key not found, return empty list
+        return new ArrayList<>();
+      }
+      ImmutablePair<byte[], byte[]> prev = store.peekAround(-1, from);
+      if (prev != null && hasPrefix(prev.getKey())) {
+        prevKey = removePrefix(prev.getKey());
+      }
+    }
+    RangeCollector collector =
+        new RangeCollector(prevKey, count, sequential, filters);
+    store.iterate(from, collector);
+    collector.finish();
+    return collector.result;
+  }
+
+  @Override
+  public void writeBatch(BatchOperation operation) throws IOException {
+    BatchOperation prefixed = new BatchOperation();
+    for (BatchOperation.SingleOperation opt : operation.getOperations()) {
+      switch (opt.getOpt()) {
+      case DELETE:
+        prefixed.delete(addPrefix(opt.getKey()));
+        break;
+      case PUT:
+        prefixed.put(addPrefix(opt.getKey()), opt.getValue());
+        break;
+      default:
+        throw new IllegalArgumentException("Invalid operation "
+            + opt.getOpt());
+      }
+    }
+    store.writeBatch(prefixed);
+  }
+
+  /**
+   * Compaction is left to the underlying store, compacting all of it for the
+   * keys of one view would be far more expensive than the view is worth.
+   */
+  @Override
+  public void compactDB() throws IOException {
+  }
+
+  @Override
+  public void flushDB(boolean sync) throws IOException {
+    store.flushDB(sync);
+  }
+
+  /**
+   * Deletes all keys of the view from the underlying store.
+   */
+  @Override
+  public void destroy() throws IOException {
+    List<byte[]> keys = new ArrayList<>();
+    store.iterate(prefix, (key, value) -> {
+      if (!hasPrefix(key)) {
+        return false;
+      }
+      keys.add(key);
+      return true;
+    });
+    BatchOperation batch = new BatchOperation();
+    for (byte[] key : keys) {
+      batch.delete(key);
+    }
+    store.writeBatch(batch);
+  }
+
+  @Override
+  public ImmutablePair<byte[], byte[]> peekAround(int offset, byte[] from)
+      throws IOException, IllegalArgumentException {
+    ImmutablePair<byte[], byte[]> entry =
+        store.peekAround(offset, from == null ? prefix : addPrefix(from));
+    if (entry == null || !hasPrefix(entry.getKey())) {
+      return null;
+    }
+    return new ImmutablePair<>(removePrefix(entry.getKey()),
+        entry.getValue());
+  }
+
+  @Override
+  public void iterate(byte[] from, EntryConsumer consumer)
+      throws IOException {
+    store.iterate(from == null ? prefix : addPrefix(from),
+        (key, value) -> hasPrefix(key)
+            && consumer.consume(removePrefix(key), value));
+  }
+
+  @Override
+  public MetaStoreIterator<KeyValue> iterator() {
+    return new PrefixedIterator();
+  }
+
+  /**
+   * The underlying store is shared with other views and is not closed.
+   */
+  @Override
+  public void close() throws IOException {
+  }
+
+  private byte[] addPrefix(byte[] key) {
+    byte[] result = new byte[prefix.length + key.length];
+    System.arraycopy(prefix, 0, result, 0, prefix.length);
+    System.arraycopy(key, 0, result, prefix.length, key.length);
+    return result;
+  }
+
+  private boolean hasPrefix(byte[] key) {
+    if (key.length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (key[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private byte[] removePrefix(byte[] key) {
+    return Arrays.copyOfRange(key, prefix.length, key.length);
+  }
+
+  /**
+   * Collects the entries of a range, applying the filters to the keys
+   * without prefix. An entry is only checked once the key after it is known,
+   * as filters get passed the keys before and after the current one.
+   */
+  private final class RangeCollector implements EntryConsumer {
+    private final List<Map.Entry<byte[], byte[]>> result = new ArrayList<>();
+    private final int count;
+    private final boolean sequential;
+    private final MetadataKeyFilter[] filters;
+    private byte[] prevKey;
+    private byte[] currentKey;
+    private byte[] currentValue;
+    private boolean done;
+
+    RangeCollector(byte[] prevKey, int count, boolean sequential,
+        MetadataKeyFilter[] filters) {
+      this.prevKey = prevKey;
+      this.count = count;
+      this.sequential = sequential;
+      this.filters = filters;
+      this.done = count == 0;
+    }
+
+    @Override
+    public boolean consume(byte[] key, byte[] value) {
+      byte[] nextKey = hasPrefix(key) ? removePrefix(key) : null;
+      if (currentKey != null) {
+        offer(nextKey);
+      }
+      if (done || nextKey == null) {
+        return false;
+      }
+      currentKey = nextKey;
+      currentValue = value;
+      return true;
+    }
+
+    /**
+     * Checks the last entry of the view, which has no key after it.
+     */
+    void finish() {
+      if (currentKey != null) {
+        offer(null);
+      }
+    }
+
+    private void offer(byte[] nextKey) {
+      if (!done) {
+        boolean match = true;
+        if (filters != null) {
+          for (MetadataKeyFilter filter : filters) {
+            match &= filter.filterKey(prevKey, currentKey, nextKey);
+          }
+        }
+        if (match) {
+          result.add(new AbstractMap.SimpleImmutableEntry<>(currentKey,
+              currentValue));
+        } else if (sequential && !result.isEmpty()) {
+          // if the caller asks for a sequential range of results,
+          // and we met a dis-match, abort iteration from here.
+          done = true;
+        }
+        if (result.size() >= count) {
+          done = true;
+        }
+      }
+      prevKey = currentKey;
+      currentKey = null;
+      currentValue = null;
+    }
+  }
+
+  /**
+   * Iterates over the entries of the view, reading them from the underlying
+   * store in batches.
+   */
+  private final class PrefixedIterator implements MetaStoreIterator<KeyValue> {
+    private final List<KeyValue> batch = new ArrayList<>();
+    private int position;
+    private boolean exhausted;
+
+    PrefixedIterator() {
+      seekToFirst();
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (position == batch.size() && !exhausted) {
+        byte[] from = prefix;
+        if (!batch.isEmpty()) {
+          // the smallest key after the last one read.
+          byte[] last = batch.get(batch.size() - 1).getKey();
+          from = Arrays.copyOf(addPrefix(last),
+              prefix.length + last.length + 1);
+        }
+        readBatch(from);
+      }
+      return position < batch.size();
+    }
+
+    @Override
+    public KeyValue next() {
+      if (hasNext()) {
+        return batch.get(position++);
+      }
+      throw new NoSuchElementException("Store has no more elements");
+    }
+
+    @Override
+    public void seekToFirst() {
+      batch.clear();
+      position = 0;
+      exhausted = false;
+    }
+
+    @Override
+    public void seekToLast() {
+      KeyValue last = null;
+      seekToFirst();
+      while (hasNext()) {
+        position = batch.size();
+        last = batch.get(position - 1);
+      }
+      batch.clear();
+      position = 0;
+      if (last != null) {
+        batch.add(last);
+      }
+    }
+
+    private void readBatch(byte[] from) {
+      batch.clear();
+      position = 0;
+      try {
+        store.iterate(from, (key, value) -> {
+          if (!hasPrefix(key)) {
+            exhausted = true;
+            return false;
+          }
+          batch.add(KeyValue.create(removePrefix(key), value));
+          return batch.size() < ITERATOR_BATCH_SIZE;
+        });
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to read from store", e);
+      }
+      if (batch.size() < ITERATOR_BATCH_SIZE) {
+        exhausted = true;
+      }
+    }
+  }
+}
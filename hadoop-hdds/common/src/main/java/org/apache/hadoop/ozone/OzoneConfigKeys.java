@@ -56,6 +56,15 @@ public final class OzoneConfigKeys {
   public static final boolean DFS_CONTAINER_IPC_RANDOM_PORT_DEFAULT =
       false;
 
+  /**
+   * How long a datanode waits for the next datanode of the pipeline to write
+   * chunk data streamed along the pipeline.
+   */
+  public static final String DFS_CONTAINER_DATASTREAM_FORWARD_TIMEOUT =
+      "dfs.container.datastream.forward.timeout";
+  public static final String DFS_CONTAINER_DATASTREAM_FORWARD_TIMEOUT_DEFAULT =
+      "60s";
+
   public static final String DFS_CONTAINER_CHUNK_WRITE_SYNC_KEY =
       "dfs.container.chunk.write.sync";
   public static final boolean DFS_CONTAINER_CHUNK_WRITE_SYNC_DEFAULT = false;
@@ -147,6 +156,11 @@ public final class OzoneConfigKeys {
       "ozone.client.retry.interval";
   public static final TimeDuration OZONE_CLIENT_RETRY_INTERVAL_DEFAULT =
       TimeDuration.valueOf(0, TimeUnit.MILLISECONDS);
+  // Number of blocks of a key allocated ahead of time, while the block
+  // before them is being written.
+  public static final String OZONE_CLIENT_BLOCKS_ALLOCATED_AHEAD =
+      "ozone.client.blocks.allocated.ahead";
+  public static final int OZONE_CLIENT_BLOCKS_ALLOCATED_AHEAD_DEFAULT = 0;
 
   // This defines the overall connection limit for the connection pool used in
   // RestClient.
@@ -228,6 +242,19 @@ public final class OzoneConfigKeys {
   public static final int
       OZONE_BLOCK_DELETING_CONTAINER_LIMIT_PER_INTERVAL_DEFAULT = 10;
 
+  // Number of threads deleting the files of the deleted blocks of a volume.
+  public static final String OZONE_BLOCK_DELETING_THREADS_PER_VOLUME =
+      "ozone.block.deleting.threads.per.volume";
+  public static final int OZONE_BLOCK_DELETING_THREADS_PER_VOLUME_DEFAULT = 4;
+
+  // Upper bound of the factor the number of blocks deleted per container in
+  // an interval is scaled by, as the backlog of blocks pending deletion
+  // grows beyond what an interval deletes.
+  public static final String OZONE_BLOCK_DELETING_LIMIT_MAX_MULTIPLIER =
+      "ozone.block.deleting.limit.max.multiplier";
+  public static final int OZONE_BLOCK_DELETING_LIMIT_MAX_MULTIPLIER_DEFAULT =
+      1;
+
   public static final String DFS_CONTAINER_RATIS_ENABLED_KEY
       = ScmConfigKeys.DFS_CONTAINER_RATIS_ENABLED_KEY;
   public static final boolean DFS_CONTAINER_RATIS_ENABLED_DEFAULT
@@ -249,6 +276,13 @@ public final class OzoneConfigKeys {
       = ScmConfigKeys.DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_KEY;
   public static final int DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_DEFAULT
       = ScmConfigKeys.DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_DEFAULT;
+  public static final String
+      DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_MAX_KEY
+      = ScmConfigKeys.DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_MAX_KEY;
+  public static final int
+      DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_MAX_DEFAULT
+      = ScmConfigKeys
+          .DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_MAX_DEFAULT;
   public static final String DFS_CONTAINER_RATIS_SEGMENT_SIZE_KEY
       = ScmConfigKeys.DFS_CONTAINER_RATIS_SEGMENT_SIZE_KEY;
   public static final String DFS_CONTAINER_RATIS_SEGMENT_SIZE_DEFAULT
@@ -275,6 +309,11 @@ public final class OzoneConfigKeys {
       DFS_CONTAINER_RATIS_STATEMACHINEDATA_CACHE_EXPIRY_INTERVAL_DEFAULT =
       ScmConfigKeys.
           DFS_CONTAINER_RATIS_STATEMACHINEDATA_CACHE_EXPIRY_INTERVAL_DEFAULT;
+  public static final String DFS_CONTAINER_RATIS_STATEMACHINEDATA_CACHE_SIZE =
+      ScmConfigKeys.DFS_CONTAINER_RATIS_STATEMACHINEDATA_CACHE_SIZE;
+  public static final String
+      DFS_CONTAINER_RATIS_STATEMACHINEDATA_CACHE_SIZE_DEFAULT =
+      ScmConfigKeys.DFS_CONTAINER_RATIS_STATEMACHINEDATA_CACHE_SIZE_DEFAULT;
 
   public static final String DFS_CONTAINER_RATIS_DATANODE_STORAGE_DIR =
       "dfs.container.ratis.datanode.storage.dir";
@@ -389,6 +428,13 @@ public final class OzoneConfigKeys {
   public static final String OZONE_CLIENT_VERIFY_CHECKSUM =
       "ozone.client.verify.checksum";
   public static final boolean OZONE_CLIENT_VERIFY_CHECKSUM_DEFAULT = true;
+  public static final String OZONE_CLIENT_READ_BLOCK_RANGE_MAX_SIZE =
+      "ozone.client.read.block.range.max.size";
+  public static final String OZONE_CLIENT_READ_BLOCK_RANGE_MAX_SIZE_DEFAULT =
+      "16MB";
+  public static final String OZONE_CLIENT_READ_AHEAD_CHUNKS =
+      "ozone.client.read.ahead.chunks";
+  public static final int OZONE_CLIENT_READ_AHEAD_CHUNKS_DEFAULT = 0;
   public static final String OZONE_ACL_AUTHORIZER_CLASS =
       "ozone.acl.authorizer.class";
   public static final String OZONE_ACL_AUTHORIZER_CLASS_DEFAULT =
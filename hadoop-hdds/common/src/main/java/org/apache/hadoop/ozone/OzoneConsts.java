@@ -97,6 +97,13 @@ public final class OzoneConsts {
   public static final String CONTAINER_META_PATH = "metadata";
   public static final String CONTAINER_TEMPORARY_CHUNK_PREFIX = "tmp";
   public static final String CONTAINER_CHUNK_NAME_DELIMITER = ".";
+  public static final String CONTAINER_BLOCK_FILE_EXTENSION = ".block";
+  public static final String CONTAINER_PACK_FILE_NAME = "smallfiles.pack";
+  // metadata key of the offset of a chunk in the pack file of its container.
+  public static final String CHUNK_PACK_OFFSET = "packOffset";
+  // metadata key of the offset of a chunk in its block, where the chunk is
+  // written in the block file of a FILE_PER_BLOCK container.
+  public static final String CHUNK_BLOCK_OFFSET = "blockOffset";
   public static final String CONTAINER_ROOT_PREFIX = "repository";
 
   public static final String FILE_HASH = "SHA-256";
@@ -117,6 +124,8 @@ public final class OzoneConsts {
   public static final String SCM_CONTAINER_DB = "scm-" + CONTAINER_DB_SUFFIX;
   public static final String SCM_PIPELINE_DB = "scm-" + PIPELINE_DB_SUFFIX;
   public static final String DN_CONTAINER_DB = "-dn-"+ CONTAINER_DB_SUFFIX;
+  public static final String DN_VOLUME_CONTAINER_DB = "dn-"
+      + CONTAINER_DB_SUFFIX;
   public static final String DELETED_BLOCK_DB = "deletedBlock.db";
   public static final String OM_DB_NAME = "om.db";
   public static final String OM_DB_BACKUP_PREFIX = "om.db.backup.";
@@ -143,6 +152,8 @@ public static Versioning getVersioning(boolean versioning) {
   public static final String DELETED_KEY_PREFIX = "#deleted#";
   public static final String DELETE_TRANSACTION_KEY_PREFIX = "#delTX#";
   public static final String BLOCK_COMMIT_SEQUENCE_ID_PREFIX = "#BCSID";
+  // length of the pack file of the container referred to by committed blocks.
+  public static final String PACK_FILE_LENGTH_PREFIX = "#PACKLEN";
 
   /**
    * OM LevelDB prefixes.
@@ -227,6 +238,7 @@ private OzoneConsts() {
   public static final String CONTAINER_DB_TYPE = "containerDBType";
   public static final String CHECKSUM = "checksum";
   public static final String DATA_SCAN_TIMESTAMP = "dataScanTimestamp";
+  public static final String DATA_SCAN_BCS_ID = "dataScanBcsId";
   public static final String ORIGIN_PIPELINE_ID = "originPipelineId";
   public static final String ORIGIN_NODE_ID = "originNodeId";
 
@@ -34,6 +34,7 @@
     .ChecksumType;
 import org.apache.hadoop.ozone.OzoneConfigKeys;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -169,6 +170,10 @@ public ChecksumData computeChecksum(ByteBuffer data)
       return checksumData;
     }
 
+    if (ChunkedChecksum.isSupported(checksumType)) {
+      return computeChunkedChecksum(data, checksumData);
+    }
+
     final Function<ByteBuffer, ByteString> function;
     try {
       function = Algorithm.valueOf(checksumType).newChecksumFunction();
@@ -193,6 +198,28 @@ public ChecksumData computeChecksum(ByteBuffer data)
     return checksumData;
   }
 
+  /**
+   * Computes the CRC checksums of all the slices of the data into a single
+   * array, the checksums of the slices are views of that array.
+   */
+  private ChecksumData computeChunkedChecksum(ByteBuffer data,
+      ChecksumData checksumData) {
+    final ChunkedChecksum chunkedChecksum =
+        new ChunkedChecksum(checksumType, bytesPerChecksum);
+    final int numChecksums = chunkedChecksum.getNumChecksums(data.remaining());
+    final byte[] sums = new byte[numChecksums * ChunkedChecksum.CHECKSUM_SIZE];
+    chunkedChecksum.compute(data, sums, 0);
+
+    final ByteString allSums = UnsafeByteOperations.unsafeWrap(sums);
+    final List<ByteString> checksumList = new ArrayList<>(numChecksums);
+    for (int i = 0; i < sums.length; i += ChunkedChecksum.CHECKSUM_SIZE) {
+      checksumList.add(
+          allSums.substring(i, i + ChunkedChecksum.CHECKSUM_SIZE));
+    }
+    checksumData.setChecksums(checksumList);
+    return checksumData;
+  }
+
   /**
    * Compute checksum using the algorithm for the data upto the max length.
    * @param data input data
@@ -261,11 +288,57 @@ private static boolean verifyChecksum(ByteBuffer data,
     }
 
     int bytesPerChecksum = checksumData.getBytesPerChecksum();
+    if (ChunkedChecksum.isSupported(checksumType)) {
+      return verifyChunkedChecksum(data, checksumData, startIndex);
+    }
     Checksum checksum = new Checksum(checksumType, bytesPerChecksum);
     final ChecksumData computed = checksum.computeChecksum(data);
     return checksumData.verifyChecksumDataMatches(computed, startIndex);
   }
 
+  /**
+   * Verifies the CRC checksums of all the slices of the data in one pass,
+   * without computing a ChecksumData for the data.
+   */
+  private static boolean verifyChunkedChecksum(ByteBuffer data,
+      ChecksumData checksumData, int startIndex)
+      throws OzoneChecksumException {
+    final List<ByteString> expected = checksumData.getChecksums();
+    if (expected.isEmpty()) {
+      throw new OzoneChecksumException("Original checksumData has no " +
+          "checksums");
+    }
+    if (!data.hasRemaining()) {
+      throw new OzoneChecksumException("Computed checksumData has no " +
+          "checksums");
+    }
+
+    final ChunkedChecksum chunkedChecksum = new ChunkedChecksum(
+        checksumData.getChecksumType(), checksumData.getBytesPerChecksum());
+    final int numChecksums = chunkedChecksum.getNumChecksums(data.remaining());
+    if (startIndex < 0 || startIndex + numChecksums > expected.size()) {
+      throw new OzoneChecksumException("Computed checksum has "
+          + numChecksums + " number of checksums. Original checksum has " +
+          (expected.size() - startIndex) + " number of checksums " +
+          "starting from index " + startIndex);
+    }
+
+    final byte[] sums = new byte[numChecksums * ChunkedChecksum.CHECKSUM_SIZE];
+    for (int index = 0; index < numChecksums; index++) {
+      final ByteString sum = expected.get(startIndex + index);
+      if (sum.size() != ChunkedChecksum.CHECKSUM_SIZE) {
+        throw new OzoneChecksumException(index);
+      }
+      sum.copyTo(sums, index * ChunkedChecksum.CHECKSUM_SIZE);
+    }
+
+    final int mismatch = chunkedChecksum.verify(data, sums, 0);
+    if (mismatch >= 0) {
+      throw new OzoneChecksumException(mismatch);
+    }
+    return true;
+  }
+
   /**
    * Returns a ChecksumData with type NONE for testing.
    */
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.common;
+
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.fs.ChecksumException;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ChecksumType;
+import org.apache.hadoop.util.DataChecksum;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Computes and verifies the CRC32 or CRC32C checksums of all the
+ * bytesPerChecksum long slices of some data in one call. The checksums are
+ * stored in a byte array, 4 bytes per checksum in big endian order, which
+ * is the format of the checksums in {@link ChecksumData}.
+ * <p>
+ * The checksums are computed by {@link DataChecksum}, which uses the native
+ * library of Hadoop if it is loaded. Otherwise it uses
+ * {@code java.util.zip.CRC32} for CRC32, and {@code java.util.zip.CRC32C} on
+ * Java 9 or later for CRC32C, both of which are intrinsics of the JVM.
+ * <p>
+ * This class is not thread safe.
+ */
+public final class ChunkedChecksum {
+
+  /**
+   * Size of a checksum in bytes.
+   */
+  public static final int CHECKSUM_SIZE = 4;
+
+  private final DataChecksum dataChecksum;
+  private final int bytesPerChecksum;
+
+  /**
+   * @param type CRC32 or CRC32C, see {@link #isSupported(ChecksumType)}.
+   * @param bytesPerChecksum number of bytes of data per checksum.
+   */
+  public ChunkedChecksum(ChecksumType type, int bytesPerChecksum) {
+    Preconditions.checkArgument(isSupported(type),
+        "Unsupported checksum type %s", type);
+    Preconditions.checkArgument(bytesPerChecksum > 0,
+        "Invalid bytesPerChecksum %s", bytesPerChecksum);
+    this.dataChecksum = DataChecksum.newDataChecksum(
+        type == ChecksumType.CRC32 ? DataChecksum.Type.CRC32
+            : DataChecksum.Type.CRC32C, bytesPerChecksum);
+    this.bytesPerChecksum = bytesPerChecksum;
+  }
+
+  /**
+   * Returns whether the checksums of the given type can be computed.
+   */
+  public static boolean isSupported(ChecksumType type) {
+    return type == ChecksumType.CRC32 || type == ChecksumType.CRC32C;
+  }
+
+  /**
+   * Returns the number of checksums of the given length of data.
+   */
+  public int getNumChecksums(int length) {
+    return (length + bytesPerChecksum - 1) / bytesPerChecksum;
+  }
+
+  /**
+   * Computes the checksums of the remaining data of the buffer, without
+   * changing its position.
+   *
+   * @param sums array to store the checksums in, with room for
+   *             {@link #getNumChecksums(int)} checksums.
+   * @param sumsOffset offset of the first checksum in the array.
+   */
+  public void compute(ByteBuffer data, byte[] sums, int sumsOffset) {
+    if (data.hasArray()) {
+      dataChecksum.calculateChunkedSums(data.array(),
+          data.arrayOffset() + data.position(), data.remaining(),
+          sums, sumsOffset);
+    } else {
+      dataChecksum.calculateChunkedSums(data.duplicate(),
+          ByteBuffer.wrap(sums, sumsOffset,
+              getNumChecksums(data.remaining()) * CHECKSUM_SIZE));
+    }
+  }
+
+  /**
+   * Verifies the checksums of the remaining data of the buffer, without
+   * changing its position.
+   *
+   * @param sums array with the expected checksums.
+   * @param sumsOffset offset of the first checksum in the array.
+   * @return the index of the first slice of the data which does not match
+   *         its checksum, or -1 if all of them match.
+   */
+  public int verify(ByteBuffer data, byte[] sums, int sumsOffset) {
+    try {
+      dataChecksum.verifyChunkedSums(data.duplicate(),
+          ByteBuffer.wrap(sums, sumsOffset,
+              getNumChecksums(data.remaining()) * CHECKSUM_SIZE), "", 0);
+      return -1;
+    } catch (ChecksumException e) {
+      return (int) (e.getPos() / bytesPerChecksum);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership.  The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.hadoop.hdds.utils;
+
+import com.google.common.primitives.Longs;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.hdds.conf.OzoneConfiguration;
+import org.apache.hadoop.hdds.utils.MetadataKeyFilters.KeyPrefixFilter;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests views of a shared metadata store.
+ */
+public class TestPrefixedMetadataStore {
+
+  private File testDir;
+  private MetadataStore store;
+  private PrefixedMetadataStore first;
+  private PrefixedMetadataStore second;
+  private PrefixedMetadataStore third;
+
+  @Before
+  public void init() throws IOException {
+    testDir = GenericTestUtils.getRandomizedTestDir();
+    store = MetadataStoreBuilder.newBuilder()
+        .setConf(new OzoneConfiguration())
+        .setCreateIfMissing(true)
+        .setDbFile(testDir)
+        .build();
+    first = new PrefixedMetadataStore(store, Longs.toByteArray(1));
+    second = new PrefixedMetadataStore(store, Longs.toByteArray(2));
+    third = new PrefixedMetadataStore(store, Longs.toByteArray(3));
+    for (int i = 0; i < 10; i++) {
+      first.put(getBytes("a" + i), getBytes("first" + i));
+      first.put(getBytes("#b" + i), getBytes("first" + i));
+      third.put(getBytes("a" + i), getBytes("third" + i));
+    }
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    store.close();
+    FileUtils.deleteDirectory(testDir);
+  }
+
+  @Test
+  public void testKeysAreSeparated() throws IOException {
+    assertEquals("first1", getString(first.get(getBytes("a1"))));
+    assertEquals("third1", getString(third.get(getBytes("a1"))));
+    assertNull(second.get(getBytes("a1")));
+    assertFalse(first.isEmpty());
+    assertTrue(second.isEmpty());
+
+    first.delete(getBytes("a1"));
+    assertNull(first.get(getBytes("a1")));
+    assertEquals("third1", getString(third.get(getBytes("a1"))));
+  }
+
+  @Test
+  public void testRangeStaysInView() throws IOException {
+    List<Map.Entry<byte[], byte[]>> all =
+        first.getRangeKVs(null, Integer.MAX_VALUE);
+    assertEquals(20, all.size());
+    assertEquals("#b0", getString(all.get(0).getKey()));
+
+    List<Map.Entry<byte[], byte[]>> range =
+        first.getRangeKVs(getBytes("a5"), 100);
+    assertEquals(5, range.size());
+    assertEquals("a5", getString(range.get(0).getKey()));
+
+    List<Map.Entry<byte[], byte[]>> limited =
+        first.getRangeKVs(null, 3, new KeyPrefixFilter().addFilter("a"));
+    assertEquals(3, limited.size());
+    assertEquals("a2", getString(limited.get(2).getKey()));
+
+    assertTrue(second.getRangeKVs(null, 10).isEmpty());
+    assertTrue(first.getRangeKVs(getBytes("missing"), 10).isEmpty());
+  }
+
+  @Test
+  public void testSequentialRange() throws IOException {
+    first.put(getBytes("c0"), getBytes("first"));
+    List<Map.Entry<byte[], byte[]>> range = first.getSequentialRangeKVs(
+        null, 100, new KeyPrefixFilter().addFilter("#"));
+    assertEquals(10, range.size());
+  }
+
+  @Test
+  public void testIterator() {
+    MetaStoreIterator<MetadataStore.KeyValue> it = third.iterator();
+    int count = 0;
+    while (it.hasNext()) {
+      MetadataStore.KeyValue kv = it.next();
+      assertEquals("a" + count, getString(kv.getKey()));
+      count++;
+    }
+    assertEquals(10, count);
+
+    it.seekToLast();
+    assertTrue(it.hasNext());
+    assertEquals("a9", getString(it.next().getKey()));
+    assertFalse(it.hasNext());
+
+    it.seekToFirst();
+    assertEquals("a0", getString(it.next().getKey()));
+    assertFalse(second.iterator().hasNext());
+  }
+
+  @Test
+  public void testBatchAndDestroy() throws IOException {
+    BatchOperation batch = new BatchOperation();
+    batch.put(getBytes("x"), getBytes("second"));
+    batch.delete(getBytes("a0"));
+    second.writeBatch(batch);
+    assertArrayEquals(getBytes("second"), second.get(getBytes("x")));
+    assertNull(store.get(getBytes("x")));
+    assertEquals("first0", getString(first.get(getBytes("a0"))));
+
+    first.destroy();
+    assertTrue(first.isEmpty());
+    assertFalse(second.isEmpty());
+    assertEquals(10, third.getRangeKVs(null, 100).size());
+  }
+
+  private static byte[] getBytes(String str) {
+    return str.getBytes(UTF_8);
+  }
+
+  private static String getString(byte[] bytes) {
+    return new String(bytes, UTF_8);
+  }
+}
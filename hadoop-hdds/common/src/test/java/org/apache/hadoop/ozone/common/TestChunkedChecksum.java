@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.ozone.common;
+
+import org.apache.commons.lang3.RandomUtils;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ChecksumType;
+import org.apache.hadoop.test.LambdaTestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link ChunkedChecksum} class.
+ */
+public class TestChunkedChecksum {
+
+  private static final int BYTES_PER_CHECKSUM = 10;
+  private static final int DATA_SIZE = 55;
+
+  @Test
+  public void testCrc32() throws Exception {
+    testChecksums(ChecksumType.CRC32, new PureJavaCrc32ByteBuffer());
+  }
+
+  @Test
+  public void testCrc32C() throws Exception {
+    testChecksums(ChecksumType.CRC32C, new PureJavaCrc32CByteBuffer());
+  }
+
+  private static void testChecksums(ChecksumType type,
+      ChecksumByteBuffer expected) throws Exception {
+    byte[] data = RandomUtils.nextBytes(DATA_SIZE);
+    byte[] expectedSums = new byte[6 * ChunkedChecksum.CHECKSUM_SIZE];
+    ByteBuffer expectedBuffer = ByteBuffer.wrap(expectedSums);
+    for (int off = 0; off < DATA_SIZE; off += BYTES_PER_CHECKSUM) {
+      expected.reset();
+      expected.update(data, off, Math.min(BYTES_PER_CHECKSUM,
+          DATA_SIZE - off));
+      expectedBuffer.putInt((int) expected.getValue());
+    }
+
+    ChunkedChecksum checksum = new ChunkedChecksum(type, BYTES_PER_CHECKSUM);
+    Assert.assertEquals(6, checksum.getNumChecksums(DATA_SIZE));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(DATA_SIZE);
+    direct.put(data).flip();
+    ByteBuffer[] buffers = {ByteBuffer.wrap(data),
+        ByteBuffer.wrap(data).asReadOnlyBuffer(), direct};
+    for (ByteBuffer buffer : buffers) {
+      // checksums are stored at an offset of the array.
+      byte[] sums = new byte[expectedSums.length + 1];
+      checksum.compute(buffer, sums, 1);
+      Assert.assertArrayEquals(expectedSums,
+          Arrays.copyOfRange(sums, 1, sums.length));
+      Assert.assertEquals(0, buffer.position());
+      Assert.assertEquals(-1, checksum.verify(buffer, sums, 1));
+    }
+
+    // Checksum computes the same checksums.
+    ChecksumData checksumData =
+        new Checksum(type, BYTES_PER_CHECKSUM).computeChecksum(data);
+    Assert.assertEquals(6, checksumData.getChecksums().size());
+    for (int i = 0; i < 6; i++) {
+      Assert.assertArrayEquals(
+          Arrays.copyOfRange(expectedSums, 4 * i, 4 * i + 4),
+          checksumData.getChecksums().get(i).toByteArray());
+    }
+    Assert.assertTrue(Checksum.verifyChecksum(data, checksumData));
+
+    // the first corrupted slice is reported.
+    data[35]++;
+    data[52]++;
+    direct.put(35, data[35]).put(52, data[52]);
+    for (ByteBuffer buffer : buffers) {
+      Assert.assertEquals(3, checksum.verify(buffer, expectedSums, 0));
+    }
+    LambdaTestUtils.intercept(OzoneChecksumException.class,
+        "Checksum mismatch at index 3",
+        () -> Checksum.verifyChecksum(data, checksumData));
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.ozone.container.common.helpers;
+
+import org.apache.hadoop.util.CleanerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the memory mappings of chunk data created while serving a
+ * request. The mapped data is put into the response without being copied,
+ * so the mappings must stay valid until the response has been sent. They
+ * are unmapped by {@link #close()} afterwards, instead of holding address
+ * space and open files until the buffers are garbage collected.
+ *
+ * Chunks are only read from mappings if the request has a MappedBuffers,
+ * the buffers must not be accessed after it has been closed.
+ */
+public final class MappedBuffers implements Closeable {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(MappedBuffers.class);
+
+  private final List<MappedByteBuffer> buffers = new ArrayList<>();
+
+  /**
+   * Adds a mapping to be unmapped when this is closed.
+   */
+  public synchronized void add(MappedByteBuffer buffer) {
+    buffers.add(buffer);
+  }
+
+  /**
+   * Returns the number of mappings which have not been unmapped yet.
+   */
+  public synchronized int size() {
+    return buffers.size();
+  }
+
+  /**
+   * Unmaps all mappings added so far.
+   */
+  @Override
+  public synchronized void close() {
+    for (MappedByteBuffer buffer : buffers) {
+      unmap(buffer);
+    }
+    buffers.clear();
+  }
+
+  private static void unmap(MappedByteBuffer buffer) {
+    if (!CleanerUtil.UNMAP_SUPPORTED) {
+      // the mapping is released once the buffer is garbage collected.
+      return;
+    }
+    try {
+      CleanerUtil.getCleaner().freeBuffer(buffer);
+    } catch (IOException e) {
+      LOG.warn("Failed to unmap chunk data", e);
+    }
+  }
+}
@@ -26,8 +26,21 @@
 
 public final class ChunkLayOutVersion {
 
+  /**
+   * Each chunk of a block is stored in its own file.
+   */
+  public static final ChunkLayOutVersion FILE_PER_CHUNK =
+      new ChunkLayOutVersion(1, "Data without checksums.");
+
+  /**
+   * All chunks of a block are stored in a single block file, each chunk at
+   * its offset within the block.
+   */
+  public static final ChunkLayOutVersion FILE_PER_BLOCK =
+      new ChunkLayOutVersion(2, "One data file per block.");
+
   private final static ChunkLayOutVersion[] CHUNK_LAYOUT_VERSION_INFOS =
-      {new ChunkLayOutVersion(1, "Data without checksums.")};
+      {FILE_PER_CHUNK, FILE_PER_BLOCK};
 
   private int version;
   private String description;
@@ -60,6 +73,16 @@ public static ChunkLayOutVersion getChunkLayOutVersion(int chunkVersion) {
     return null;
   }
 
+  /**
+   * Returns true if the given layout version stores all chunks of a block in
+   * a single file.
+   * @param chunkVersion
+   * @return boolean
+   */
+  public static boolean isFilePerBlock(int chunkVersion) {
+    return chunkVersion == FILE_PER_BLOCK.getVersion();
+  }
+
   /**
    * Returns all versions.
    *
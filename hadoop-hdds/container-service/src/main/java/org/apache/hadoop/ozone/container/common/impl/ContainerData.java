@@ -44,6 +44,7 @@
 import static org.apache.hadoop.ozone.OzoneConsts.CHECKSUM;
 import static org.apache.hadoop.ozone.OzoneConsts.CONTAINER_ID;
 import static org.apache.hadoop.ozone.OzoneConsts.CONTAINER_TYPE;
+import static org.apache.hadoop.ozone.OzoneConsts.DATA_SCAN_BCS_ID;
 import static org.apache.hadoop.ozone.OzoneConsts.DATA_SCAN_TIMESTAMP;
 import static org.apache.hadoop.ozone.OzoneConsts.LAYOUTVERSION;
 import static org.apache.hadoop.ozone.OzoneConsts.MAX_SIZE;
@@ -66,7 +67,7 @@ public abstract class ContainerData {
   private final long containerID;
 
   // Layout version of the container data
-  private final int layOutVersion;
+  private int layOutVersion;
 
   // Metadata of the container will be a key value pair.
   // This can hold information like volume name, owner etc.,
@@ -102,6 +103,10 @@ public abstract class ContainerData {
   private Long dataScanTimestamp; // for serialization
   private transient Optional<Instant> lastDataScanTime = Optional.empty();
 
+  /** Block commit sequence ID of the container at its last data scan.
+   * {@code null} if not yet scanned or not recorded. */
+  private Long dataScanBcsId; // for serialization
+
   public static final Charset CHARSET_ENCODING = StandardCharsets.UTF_8;
   private static final String DUMMY_CHECKSUM = new String(new byte[64],
       CHARSET_ENCODING);
@@ -117,6 +122,7 @@ public abstract class ContainerData {
       MAX_SIZE,
       CHECKSUM,
       DATA_SCAN_TIMESTAMP,
+      DATA_SCAN_BCS_ID,
       ORIGIN_PIPELINE_ID,
       ORIGIN_NODE_ID));
 
@@ -130,7 +136,7 @@ public abstract class ContainerData {
    */
   protected ContainerData(ContainerType type, long containerId, long size,
                           String originPipelineId, String originNodeId) {
-    this(type, containerId, ChunkLayOutVersion.getLatestVersion().getVersion(),
+    this(type, containerId, ChunkLayOutVersion.FILE_PER_CHUNK.getVersion(),
         size, originPipelineId, originNodeId);
   }
 
@@ -235,6 +241,18 @@ public int getLayOutVersion() {
     return ChunkLayOutVersion.getChunkLayOutVersion(layOutVersion).getVersion();
   }
 
+  /**
+   * Sets the layOutVersion of the container data format. This should be
+   * called only while importing a container, before any chunk is accessed.
+   * @param version - Container layOutVersion
+   */
+  public void setLayOutVersion(int version) {
+    Preconditions.checkNotNull(
+        ChunkLayOutVersion.getChunkLayOutVersion(version),
+        "Unknown layOutVersion " + version);
+    this.layOutVersion = version;
+  }
+
   /**
    * Add/Update metadata.
    * We should hold the container lock before updating the metadata as this
@@ -528,9 +546,15 @@ public Optional<Instant> lastDataScanTime() {
     return lastDataScanTime;
   }
 
+  /**
+   * Records the time of the last data scan, along with the current block
+   * commit sequence ID, so that later scans can tell whether the container
+   * has changed since.
+   */
   public void updateDataScanTime(@Nullable Instant time) {
     lastDataScanTime = Optional.ofNullable(time);
     dataScanTimestamp = time != null ? time.toEpochMilli() : null;
+    dataScanBcsId = time != null ? getBlockCommitSequenceId() : null;
   }
 
   // for deserialization
@@ -545,6 +569,24 @@ public Long getDataScanTimestamp() {
     return dataScanTimestamp;
   }
 
+  // for deserialization
+  public void setDataScanBcsId(Long bcsId) {
+    dataScanBcsId = bcsId;
+  }
+
+  public Long getDataScanBcsId() {
+    return dataScanBcsId;
+  }
+
+  /**
+   * @return true if the block commit sequence ID of the container has
+   * changed since its last data scan, or the container was never scanned.
+   */
+  public boolean isModifiedSinceDataScan() {
+    return dataScanBcsId == null
+        || dataScanBcsId != getBlockCommitSequenceId();
+  }
+
   /**
    * Returns the origin pipeline Id of this container.
    * @return origin node Id
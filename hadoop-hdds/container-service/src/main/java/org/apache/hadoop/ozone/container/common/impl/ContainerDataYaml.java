@@ -273,6 +273,8 @@ public Object construct(Node node) {
         kvData.setChecksum((String) nodes.get(OzoneConsts.CHECKSUM));
         Long timestamp = (Long) nodes.get(OzoneConsts.DATA_SCAN_TIMESTAMP);
         kvData.setDataScanTimestamp(timestamp);
+        kvData.setDataScanBcsId(
+            (Long) nodes.get(OzoneConsts.DATA_SCAN_BCS_ID));
         String state = (String) nodes.get(OzoneConsts.STATE);
         kvData
             .setState(ContainerProtos.ContainerDataProto.State.valueOf(state));
@@ -182,6 +182,14 @@ public abstract void closeContainer(Container container)
   public abstract void deleteContainer(Container container, boolean force)
       throws IOException;
 
+  /**
+   * Loads the metadata of the container in the background, ahead of the
+   * requests which are queued for it.
+   *
+   * @param container container whose metadata is about to be used
+   */
+  public abstract void prefetchMetadata(Container container);
+
   public void setScmID(String scmId) {
     this.scmID = scmId;
   }
@@ -23,6 +23,7 @@
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdds.HddsConfigKeys;
 import org.apache.hadoop.hdds.conf.OzoneConfiguration;
 import org.apache.hadoop.hdds.protocol.DatanodeDetails;
 import org.apache.hadoop.hdds.protocol.proto
@@ -49,9 +50,12 @@
 import org.apache.hadoop.ozone.container.keyvalue.TarContainerPacker;
 import org.apache.hadoop.ozone.container.ozoneimpl.OzoneContainer;
 import org.apache.hadoop.ozone.container.replication.ContainerReplicator;
+import org.apache.hadoop.ozone.container.replication.CopyContainerCompression;
 import org.apache.hadoop.ozone.container.replication.DownloadAndImportReplicator;
+import org.apache.hadoop.ozone.container.replication.ParallelContainerDownloader;
 import org.apache.hadoop.ozone.container.replication.ReplicationSupervisor;
 import org.apache.hadoop.ozone.container.replication.SimpleContainerDownloader;
+import org.apache.hadoop.ozone.container.replication.StreamingImportReplicator;
 import org.apache.hadoop.ozone.protocol.commands.SCMCommand;
 import org.apache.hadoop.util.JvmPauseMonitor;
 import org.apache.hadoop.util.Time;
@@ -110,10 +114,24 @@ public DatanodeStateMachine(DatanodeDetails datanodeDetails,
     dnCertClient = certClient;
     nextHB = new AtomicLong(Time.monotonicNow());
 
-    ContainerReplicator replicator =
-        new DownloadAndImportReplicator(container.getContainerSet(),
-            container.getController(),
-            new SimpleContainerDownloader(conf), new TarContainerPacker());
+    ContainerReplicator replicator;
+    if (conf.getBoolean(
+        HddsConfigKeys.HDDS_CONTAINER_REPLICATION_STREAMING_ENABLED,
+        HddsConfigKeys.HDDS_CONTAINER_REPLICATION_STREAMING_ENABLED_DEFAULT)) {
+      replicator = new StreamingImportReplicator(container.getContainerSet(),
+          container.getController(), CopyContainerCompression.getConf(conf));
+    } else if (conf.getBoolean(
+        HddsConfigKeys.HDDS_CONTAINER_REPLICATION_PARALLEL_DOWNLOAD_ENABLED,
+        HddsConfigKeys
+            .HDDS_CONTAINER_REPLICATION_PARALLEL_DOWNLOAD_ENABLED_DEFAULT)) {
+      replicator = new DownloadAndImportReplicator(container.getContainerSet(),
+          container.getController(), new ParallelContainerDownloader(conf),
+          new TarContainerPacker(CopyContainerCompression.NO_COMPRESSION));
+    } else {
+      replicator = new DownloadAndImportReplicator(container.getContainerSet(),
+          container.getController(),
+          new SimpleContainerDownloader(conf), new TarContainerPacker());
+    }
 
     supervisor =
         new ReplicationSupervisor(container.getContainerSet(), replicator, 10);
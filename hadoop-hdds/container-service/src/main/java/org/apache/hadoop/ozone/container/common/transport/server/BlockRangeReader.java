@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.transport.server;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdds.HddsConfigKeys;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ChunkRangeProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerCommandRequestProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerCommandResponseProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ReadBlockRangeRequestProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ReadChunkRequestProto;
+import org.apache.hadoop.hdds.scm.container.common.helpers
+    .StorageContainerException;
+import org.apache.hadoop.ozone.container.common.helpers.ContainerUtils;
+import org.apache.hadoop.ozone.container.common.helpers.MappedBuffers;
+import org.apache.hadoop.ozone.container.common.interfaces.ContainerDispatcher;
+import org.apache.hadoop.ozone.container.common.transport.server.ratis
+    .DispatcherContext;
+import org.apache.ratis.thirdparty.io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves ReadBlockRange requests, which read consecutive chunks of a block
+ * with a single request. Each chunk is read by dispatching a ReadChunk
+ * request for it, so that the chunks are checked and read exactly as if the
+ * client had requested them one by one. The chunks are read in parallel, up
+ * to the number of threads at a time to bound the memory held by a request,
+ * and their responses are sent back in order.
+ */
+public class BlockRangeReader implements Closeable {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(BlockRangeReader.class);
+
+  private final ContainerDispatcher dispatcher;
+  private final ExecutorService executor;
+  private final int maxChunksInFlight;
+
+  public BlockRangeReader(Configuration conf, ContainerDispatcher dispatcher) {
+    this(dispatcher, conf.getInt(
+        HddsConfigKeys.HDDS_CONTAINER_READ_BLOCK_RANGE_THREADS,
+        HddsConfigKeys.HDDS_CONTAINER_READ_BLOCK_RANGE_THREADS_DEFAULT));
+  }
+
+  public BlockRangeReader(ContainerDispatcher dispatcher, int threads) {
+    this.dispatcher = dispatcher;
+    this.maxChunksInFlight = threads;
+    this.executor = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("BlockRangeReader-%d").build());
+  }
+
+  /**
+   * Returns true if the request reads a range of a block.
+   */
+  public static boolean isBlockRangeRead(
+      ContainerCommandRequestProto request) {
+    return request.getCmdType() == ContainerProtos.Type.ReadBlockRange;
+  }
+
+  /**
+   * Reads the chunks of a ReadBlockRange request and sends one ReadChunk
+   * response per chunk, in the order of the request. No more responses are
+   * sent after the first one which is not successful.
+   *
+   * @param request ReadBlockRange request
+   * @param responseObserver observer the responses are sent to
+   */
+  public void read(ContainerCommandRequestProto request,
+      StreamObserver<ContainerCommandResponseProto> responseObserver) {
+    List<ContainerCommandRequestProto> chunkRequests =
+        getChunkRequests(request);
+    List<CompletableFuture<ContainerCommandResponseProto>> responses =
+        new ArrayList<>(chunkRequests.size());
+    // the mappings of the chunk data read for each response.
+    List<MappedBuffers> mappings = new ArrayList<>(chunkRequests.size());
+    for (int i = 0; i < Math.min(maxChunksInFlight, chunkRequests.size());
+         i++) {
+      responses.add(readChunk(chunkRequests.get(i), mappings));
+    }
+    try {
+      for (int i = 0; i < chunkRequests.size(); i++) {
+        ContainerCommandResponseProto response =
+            getResponse(chunkRequests.get(i), responses.get(i));
+        // release the data of the chunk once it has been sent.
+        responses.set(i, null);
+        try {
+          responseObserver.onNext(response);
+        } finally {
+          mappings.get(i).close();
+        }
+        if (response.getResult() != ContainerProtos.Result.SUCCESS) {
+          LOG.debug("Stopped reading range of block {} at chunk {}: {}",
+              request.getReadBlockRange().getBlockID(),
+              chunkRequests.get(i).getReadChunk().getChunkData()
+                  .getChunkName(), response.getResult());
+          return;
+        }
+        int next = i + maxChunksInFlight;
+        if (next < chunkRequests.size()) {
+          responses.add(readChunk(chunkRequests.get(next), mappings));
+        }
+      }
+    } finally {
+      // chunks which are still read are not sent anymore.
+      for (int i = 0; i < responses.size(); i++) {
+        if (responses.get(i) != null) {
+          MappedBuffers mapped = mappings.get(i);
+          responses.get(i).whenComplete((response, t) -> mapped.close());
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits a ReadBlockRange request into ReadChunk requests for each chunk.
+   */
+  static List<ContainerCommandRequestProto> getChunkRequests(
+      ContainerCommandRequestProto request) {
+    ReadBlockRangeRequestProto range = request.getReadBlockRange();
+    List<ContainerCommandRequestProto> chunkRequests =
+        new ArrayList<>(range.getChunksCount());
+    for (ChunkRangeProto chunk : range.getChunksList()) {
+      ReadChunkRequestProto readChunk = ReadChunkRequestProto.newBuilder()
+          .setBlockID(range.getBlockID())
+          .setChunkData(chunk.getChunkData())
+          .setReadOffset(chunk.getReadOffset())
+          .setReadLength(chunk.getReadLength())
+          .build();
+      chunkRequests.add(request.toBuilder()
+          .clearReadBlockRange()
+          .setCmdType(ContainerProtos.Type.ReadChunk)
+          .setReadChunk(readChunk)
+          .build());
+    }
+    return chunkRequests;
+  }
+
+  private CompletableFuture<ContainerCommandResponseProto> readChunk(
+      ContainerCommandRequestProto chunkRequest,
+      List<MappedBuffers> mappings) {
+    MappedBuffers mappedBuffers = new MappedBuffers();
+    mappings.add(mappedBuffers);
+    DispatcherContext context = new DispatcherContext.Builder()
+        .setMappedBuffers(mappedBuffers)
+        .build();
+    return CompletableFuture.supplyAsync(
+        () -> dispatcher.dispatch(chunkRequest, context), executor);
+  }
+
+  private static ContainerCommandResponseProto getResponse(
+      ContainerCommandRequestProto chunkRequest,
+      CompletableFuture<ContainerCommandResponseProto> response) {
+    try {
+      return response.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return readFailure(chunkRequest, e);
+    } catch (ExecutionException e) {
+      return readFailure(chunkRequest, e.getCause());
+    }
+  }
+
+  private static ContainerCommandResponseProto readFailure(
+      ContainerCommandRequestProto chunkRequest, Throwable t) {
+    return ContainerUtils.logAndReturnError(LOG,
+        new StorageContainerException("Failed to read chunk "
+            + chunkRequest.getReadChunk().getChunkData().getChunkName()
+            + ": " + t, ContainerProtos.Result.IO_EXCEPTION), chunkRequest);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
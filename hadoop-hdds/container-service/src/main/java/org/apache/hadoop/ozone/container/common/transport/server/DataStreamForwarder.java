@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.transport.server;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerCommandRequestProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerCommandResponseProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .StreamTargetProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .WriteChunkRequestProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto
+    .XceiverClientProtocolServiceGrpc;
+import org.apache.hadoop.hdds.scm.container.common.helpers
+    .StorageContainerException;
+import org.apache.hadoop.hdds.security.x509.SecurityConfig;
+import org.apache.hadoop.hdds.security.x509.certificate.client.CertificateClient;
+import org.apache.hadoop.ozone.OzoneConfigKeys;
+import org.apache.hadoop.ozone.OzoneConsts;
+import org.apache.ratis.thirdparty.io.grpc.ManagedChannel;
+import org.apache.ratis.thirdparty.io.grpc.netty.GrpcSslContexts;
+import org.apache.ratis.thirdparty.io.grpc.netty.NettyChannelBuilder;
+import org.apache.ratis.thirdparty.io.grpc.stub.StreamObserver;
+import org.apache.ratis.thirdparty.io.netty.handler.ssl.SslContextBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passes chunk data streamed by clients on to the next datanode of the
+ * pipeline. A streamed WriteChunk request lists the datanodes it still has
+ * to be written to; the first one of them receives the request with the
+ * remaining ones.
+ *
+ * The datanodes are only identified by the request. Chunk data is only
+ * passed on to datanodes of the pipeline of the container, and their host is
+ * taken from the pipeline rather than from the request.
+ */
+public class DataStreamForwarder implements Closeable {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(DataStreamForwarder.class);
+
+  /**
+   * Looks up the datanodes of the pipelines of this datanode.
+   */
+  @FunctionalInterface
+  public interface PipelineMembers {
+    /**
+     * Returns the host of a datanode of the pipeline the container was
+     * created in.
+     *
+     * @param containerID container the chunk data is written to
+     * @param datanodeId datanode to look up
+     * @return host of the datanode, or null if it is not a member of the
+     * pipeline of the container
+     * @throws IOException if the pipeline cannot be looked up
+     */
+    String getHost(long containerID, UUID datanodeId) throws IOException;
+  }
+
+  private final SecurityConfig secConfig;
+  private final CertificateClient caClient;
+  private final PipelineMembers pipelineMembers;
+  private final long timeout;
+  // channels by the address they are connected to.
+  private final Map<String, ManagedChannel> channels =
+      new ConcurrentHashMap<>();
+
+  /**
+   * @param conf configuration
+   * @param caClient certificate client for TLS, may be null
+   * @param pipelineMembers looks up the datanodes chunk data may be passed
+   *                        on to. If null, streamed requests are rejected.
+   */
+  public DataStreamForwarder(Configuration conf, CertificateClient caClient,
+      PipelineMembers pipelineMembers) {
+    this.secConfig = new SecurityConfig(conf);
+    this.caClient = caClient;
+    this.pipelineMembers = pipelineMembers;
+    this.timeout = conf.getTimeDuration(
+        OzoneConfigKeys.DFS_CONTAINER_DATASTREAM_FORWARD_TIMEOUT,
+        OzoneConfigKeys.DFS_CONTAINER_DATASTREAM_FORWARD_TIMEOUT_DEFAULT,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns how long to wait for the next datanode to write a chunk, in
+   * milliseconds.
+   */
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Returns true if the request is a streamed WriteChunk which has to be
+   * passed on to other datanodes.
+   */
+  public static boolean isForwarded(ContainerCommandRequestProto request) {
+    return request.getCmdType() == ContainerProtos.Type.WriteChunk
+        && request.getWriteChunk().getStreamTargetsCount() > 0;
+  }
+
+  /**
+   * Sends the request to the next datanode of its stream targets. The
+   * returned future fails right away if the datanode is not a member of the
+   * pipeline of the container, and the call fails if the datanode does not
+   * reply within the timeout.
+   *
+   * @param request streamed WriteChunk request
+   * @return response of the next datanode, which covers the writes of all
+   * datanodes after it
+   */
+  public CompletableFuture<ContainerCommandResponseProto> forward(
+      ContainerCommandRequestProto request) {
+    CompletableFuture<ContainerCommandResponseProto> response =
+        new CompletableFuture<>();
+    List<StreamTargetProto> targets =
+        request.getWriteChunk().getStreamTargetsList();
+    StreamTargetProto next = targets.get(0);
+    WriteChunkRequestProto writeChunk = request.getWriteChunk().toBuilder()
+        .clearStreamTargets()
+        .addAllStreamTargets(targets.subList(1, targets.size()))
+        .build();
+    ContainerCommandRequestProto forwarded = request.toBuilder()
+        .setWriteChunk(writeChunk)
+        .build();
+    try {
+      String host = resolve(request.getContainerID(), next);
+      StreamObserver<ContainerCommandRequestProto> requestObserver =
+          XceiverClientProtocolServiceGrpc.newStub(
+              getChannel(host, next.getPort()))
+              .withDeadlineAfter(timeout, TimeUnit.MILLISECONDS)
+              .send(new StreamObserver<ContainerCommandResponseProto>() {
+                @Override
+                public void onNext(ContainerCommandResponseProto value) {
+                  response.complete(value);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                  response.completeExceptionally(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                  if (!response.isDone()) {
+                    response.completeExceptionally(new IOException(
+                        "Stream completed but no reply from datanode "
+                            + next.getUuid()));
+                  }
+                }
+              });
+      requestObserver.onNext(forwarded);
+      requestObserver.onCompleted();
+    } catch (Exception e) {
+      response.completeExceptionally(e);
+    }
+    return response;
+  }
+
+  private String resolve(long containerID, StreamTargetProto target)
+      throws IOException {
+    String host = null;
+    if (pipelineMembers != null) {
+      UUID datanodeId;
+      try {
+        datanodeId = UUID.fromString(target.getUuid());
+      } catch (IllegalArgumentException e) {
+        throw new StorageContainerException("Invalid datanode "
+            + target.getUuid() + " to pass chunk data on to",
+            ContainerProtos.Result.INVALID_ARGUMENT);
+      }
+      host = pipelineMembers.getHost(containerID, datanodeId);
+    }
+    if (host == null) {
+      throw new StorageContainerException("Datanode " + target.getUuid()
+          + " is not a member of the pipeline of container " + containerID,
+          ContainerProtos.Result.INVALID_ARGUMENT);
+    }
+    return host;
+  }
+
+  private ManagedChannel getChannel(String host, int port)
+      throws IOException {
+    String address = host + ":" + port;
+    ManagedChannel channel = channels.get(address);
+    if (channel == null || channel.isShutdown() || channel.isTerminated()) {
+      synchronized (channels) {
+        channel = channels.get(address);
+        if (channel == null || channel.isShutdown()
+            || channel.isTerminated()) {
+          channel = connect(host, port);
+          channels.put(address, channel);
+        }
+      }
+    }
+    return channel;
+  }
+
+  private ManagedChannel connect(String host, int port) throws IOException {
+    NettyChannelBuilder channelBuilder = NettyChannelBuilder
+        .forAddress(host, port)
+        .maxInboundMessageSize(OzoneConsts.OZONE_SCM_CHUNK_MAX_SIZE);
+    if (secConfig.isGrpcTlsEnabled()) {
+      SslContextBuilder sslContextBuilder = GrpcSslContexts.forClient();
+      if (caClient != null && caClient.getCACertificate() != null) {
+        sslContextBuilder.trustManager(caClient.getCACertificate());
+      }
+      if (secConfig.useTestCert()) {
+        channelBuilder.overrideAuthority("localhost");
+      }
+      channelBuilder.useTransportSecurity()
+          .sslContext(sslContextBuilder.build());
+    } else {
+      channelBuilder.usePlaintext();
+    }
+    LOG.debug("Connecting to datanode at {}:{} to forward chunk data",
+        host, port);
+    return channelBuilder.build();
+  }
+
+  @Override
+  public void close() {
+    for (ManagedChannel channel : channels.values()) {
+      channel.shutdown();
+      try {
+        channel.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        LOG.error("failed to shutdown data stream channel", e);
+      }
+    }
+    channels.clear();
+  }
+}
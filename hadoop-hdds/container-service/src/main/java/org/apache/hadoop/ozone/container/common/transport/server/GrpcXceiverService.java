@@ -17,17 +17,30 @@
  */
 
 package org.apache.hadoop.ozone.container.common.transport.server;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .ContainerCommandRequestProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .ContainerCommandResponseProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto
     .XceiverClientProtocolServiceGrpc;
+import org.apache.hadoop.hdds.scm.container.common.helpers
+    .StorageContainerException;
+import org.apache.hadoop.ozone.container.common.helpers.ContainerUtils;
+import org.apache.hadoop.ozone.container.common.helpers.MappedBuffers;
 import org.apache.hadoop.ozone.container.common.interfaces.ContainerDispatcher;
+import org.apache.hadoop.ozone.container.common.transport.server.ratis
+    .DispatcherContext;
 import org.apache.ratis.thirdparty.io.grpc.stub.StreamObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -39,9 +52,23 @@ public class GrpcXceiverService extends
       LOG = LoggerFactory.getLogger(GrpcXceiverService.class);
 
   private final ContainerDispatcher dispatcher;
+  private final DataStreamForwarder forwarder;
+  private final BlockRangeReader rangeReader;
 
   public GrpcXceiverService(ContainerDispatcher dispatcher) {
+    this(dispatcher, null);
+  }
+
+  public GrpcXceiverService(ContainerDispatcher dispatcher,
+      DataStreamForwarder forwarder) {
+    this(dispatcher, forwarder, null);
+  }
+
+  public GrpcXceiverService(ContainerDispatcher dispatcher,
+      DataStreamForwarder forwarder, BlockRangeReader rangeReader) {
     this.dispatcher = dispatcher;
+    this.forwarder = forwarder;
+    this.rangeReader = rangeReader;
   }
 
   @Override
@@ -53,8 +80,21 @@ public StreamObserver<ContainerCommandRequestProto> send(
       @Override
       public void onNext(ContainerCommandRequestProto request) {
         try {
-          ContainerCommandResponseProto resp =
-              dispatcher.dispatch(request, null);
+          if (rangeReader != null
+              && BlockRangeReader.isBlockRangeRead(request)) {
+            rangeReader.read(request, responseObserver);
+            return;
+          }
+          if (isChunkRead(request)) {
+            dispatchRead(request, responseObserver);
+            return;
+          }
+          ContainerCommandResponseProto resp;
+          if (forwarder != null && DataStreamForwarder.isForwarded(request)) {
+            resp = dispatchStreamed(request);
+          } else {
+            resp = dispatcher.dispatch(request, null);
+          }
           responseObserver.onNext(resp);
         } catch (Throwable e) {
           LOG.error("{} got exception when processing"
@@ -78,4 +118,83 @@ public void onCompleted() {
       }
     };
   }
+
+  private static boolean isChunkRead(ContainerCommandRequestProto request) {
+    return request.getCmdType() == ContainerProtos.Type.ReadChunk
+        || request.getCmdType() == ContainerProtos.Type.GetSmallFile;
+  }
+
+  /**
+   * Serves a read of chunk data, which may be read from memory mapped
+   * files. gRPC serializes the response into its own buffers while it is
+   * passed to onNext, so the mappings are released right after that.
+   *
+   * The chunk data is therefore copied once, from the page cache into the
+   * buffers gRPC sends from. gRPC always serializes messages into its own
+   * buffers, so sending the data from the file without this copy, e.g. with
+   * FileChannel#transferTo, is not possible over the gRPC service.
+   */
+  private void dispatchRead(ContainerCommandRequestProto request,
+      StreamObserver<ContainerCommandResponseProto> responseObserver) {
+    try (MappedBuffers mappedBuffers = new MappedBuffers()) {
+      DispatcherContext context = new DispatcherContext.Builder()
+          .setMappedBuffers(mappedBuffers)
+          .build();
+      responseObserver.onNext(dispatcher.dispatch(request, context));
+    }
+  }
+
+  /**
+   * Writes a streamed chunk locally while passing it on to the next datanode
+   * of the pipeline. The chunk is only acknowledged once it has been written
+   * by all datanodes after this one, too. If the chunk cannot be passed on,
+   * e.g. as the next datanode is not a member of the pipeline, it is not
+   * written locally either.
+   */
+  private ContainerCommandResponseProto dispatchStreamed(
+      ContainerCommandRequestProto request) {
+    CompletableFuture<ContainerCommandResponseProto> downstream =
+        forwarder.forward(request);
+    if (downstream.isCompletedExceptionally()) {
+      return streamFailure(request, getCause(downstream));
+    }
+    ContainerCommandResponseProto resp = dispatcher.dispatch(request, null);
+    try {
+      ContainerCommandResponseProto downstreamResp =
+          downstream.get(forwarder.getTimeout(), TimeUnit.MILLISECONDS);
+      return resp.getResult() == ContainerProtos.Result.SUCCESS ?
+          downstreamResp : resp;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      downstream.cancel(true);
+      return streamFailure(request, e);
+    } catch (ExecutionException e) {
+      return streamFailure(request, e.getCause());
+    } catch (TimeoutException e) {
+      downstream.cancel(true);
+      return streamFailure(request, e);
+    }
+  }
+
+  private static Throwable getCause(
+      CompletableFuture<ContainerCommandResponseProto> failed) {
+    try {
+      failed.join();
+      return null;
+    } catch (CompletionException | CancellationException e) {
+      return e.getCause() != null ? e.getCause() : e;
+    }
+  }
+
+  private static ContainerCommandResponseProto streamFailure(
+      ContainerCommandRequestProto request, Throwable t) {
+    ContainerProtos.Result result = t instanceof StorageContainerException ?
+        ((StorageContainerException) t).getResult() :
+        ContainerProtos.Result.IO_EXCEPTION;
+    return ContainerUtils.logAndReturnError(LOG,
+        new StorageContainerException("Failed to pass chunk "
+            + request.getWriteChunk().getChunkData().getChunkName()
+            + " on to datanode " + request.getWriteChunk()
+            .getStreamTargets(0).getUuid() + ": " + t, result), request);
+  }
 }
@@ -70,15 +70,33 @@ public final class XceiverServerGrpc implements XceiverServerSpi {
   private final ContainerDispatcher storageContainer;
   private boolean isStarted;
   private DatanodeDetails datanodeDetails;
+  private final DataStreamForwarder forwarder;
+  private final BlockRangeReader rangeReader;
 
 
+  /**
+   * Constructs a Grpc server class, which rejects chunk data streamed along
+   * the pipeline.
+   *
+   * @param conf - Configuration
+   */
+  public XceiverServerGrpc(DatanodeDetails datanodeDetails, Configuration conf,
+      ContainerDispatcher dispatcher, CertificateClient caClient,
+      BindableService... additionalServices) {
+    this(datanodeDetails, conf, dispatcher, caClient, null,
+        additionalServices);
+  }
+
   /**
    * Constructs a Grpc server class.
    *
    * @param conf - Configuration
+   * @param pipelineMembers - datanodes streamed chunk data may be passed on
+   *                        to
    */
   public XceiverServerGrpc(DatanodeDetails datanodeDetails, Configuration conf,
       ContainerDispatcher dispatcher, CertificateClient caClient,
+      DataStreamForwarder.PipelineMembers pipelineMembers,
       BindableService... additionalServices) {
     Preconditions.checkNotNull(conf);
 
@@ -96,9 +114,12 @@ public XceiverServerGrpc(DatanodeDetails datanodeDetails, Configuration conf,
         ((NettyServerBuilder) ServerBuilder.forPort(port))
             .maxInboundMessageSize(OzoneConsts.OZONE_SCM_CHUNK_MAX_SIZE);
 
+    forwarder = new DataStreamForwarder(conf, caClient, pipelineMembers);
+    rangeReader = new BlockRangeReader(conf, dispatcher);
     GrpcServerInterceptor tracingInterceptor = new GrpcServerInterceptor();
     nettyServerBuilder.addService(ServerInterceptors.intercept(
-        new GrpcXceiverService(dispatcher), tracingInterceptor));
+        new GrpcXceiverService(dispatcher, forwarder, rangeReader),
+        tracingInterceptor));
 
     for (BindableService service : additionalServices) {
       nettyServerBuilder.addService(service);
@@ -165,6 +186,8 @@ public void stop() {
       } catch (Exception e) {
         LOG.error("failed to shutdown XceiverServerGrpc", e);
       }
+      forwarder.close();
+      rangeReader.close();
       isStarted = false;
     }
   }
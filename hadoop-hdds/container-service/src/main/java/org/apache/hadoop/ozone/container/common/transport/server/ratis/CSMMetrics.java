@@ -20,21 +20,30 @@
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.MetricsSource;
 import org.apache.hadoop.metrics2.MetricsSystem;
 import org.apache.hadoop.metrics2.annotation.Metric;
 import org.apache.hadoop.metrics2.annotation.Metrics;
 import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
+import org.apache.hadoop.metrics2.lib.MutableQuantiles;
 import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.metrics2.lib.MutableStat;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
 import org.apache.ratis.protocol.RaftGroupId;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * This class is for maintaining Container State Machine statistics.
  */
 @InterfaceAudience.Private
 @Metrics(about="Container State Machine Metrics", context="dfs")
-public class CSMMetrics {
+public class CSMMetrics implements MetricsSource {
   public static final String SOURCE_NAME =
       CSMMetrics.class.getSimpleName();
 
@@ -57,13 +66,27 @@ public class CSMMetrics {
   private @Metric MutableCounterLong numApplyTransactionFails;
   private @Metric MutableCounterLong numReadStateMachineFails;
   private @Metric MutableCounterLong numReadStateMachineMissCount;
+  private @Metric MutableCounterLong numReadStateMachineHitCount;
+  private @Metric MutableGaugeLong stateMachineDataCacheBytes;
   private @Metric MutableCounterLong numStartTransactionVerifyFailures;
   private @Metric MutableCounterLong numContainerNotOpenVerifyFailures;
 
   private @Metric MutableRate applyTransaction;
   private @Metric MutableRate writeStateMachineData;
 
+  // time the applied ops wait to be executed, in total and per open
+  // container.
+  private @Metric MutableRate applyTransactionQueueLatency;
+  private final int[] quantileIntervals;
+  private final Map<Long, ContainerQueueLatency> containerQueueLatency =
+      new ConcurrentHashMap<>();
+
   public CSMMetrics() {
+    this(new int[0]);
+  }
+
+  public CSMMetrics(int[] quantileIntervals) {
+    this.quantileIntervals = quantileIntervals.clone();
     int numCmdTypes = ContainerProtos.Type.values().length;
     this.opsLatency = new MutableRate[numCmdTypes];
     this.registry = new MetricsRegistry(CSMMetrics.class.getSimpleName());
@@ -75,10 +98,19 @@ public CSMMetrics() {
   }
 
   public static CSMMetrics create(RaftGroupId gid) {
+    return create(gid, new int[0]);
+  }
+
+  /**
+   * Creates the metrics of a pipeline, with the quantiles of the queue
+   * latency of the applied ops of its containers measured over the given
+   * intervals in seconds.
+   */
+  public static CSMMetrics create(RaftGroupId gid, int[] quantileIntervals) {
     MetricsSystem ms = DefaultMetricsSystem.instance();
     return ms.register(SOURCE_NAME + gid.toString(),
         "Container State Machine",
-        new CSMMetrics());
+        new CSMMetrics(quantileIntervals));
   }
 
   public void incNumWriteStateMachineOps() {
@@ -125,6 +157,18 @@ public void incNumReadStateMachineMissCount() {
     numReadStateMachineMissCount.incr();
   }
 
+  public void incNumReadStateMachineHitCount() {
+    numReadStateMachineHitCount.incr();
+  }
+
+  public void incStateMachineDataCacheBytes(long bytes) {
+    stateMachineDataCacheBytes.incr(bytes);
+  }
+
+  public void decStateMachineDataCacheBytes(long bytes) {
+    stateMachineDataCacheBytes.decr(bytes);
+  }
+
   public void incNumApplyTransactionsFails() {
     numApplyTransactionFails.incr();
   }
@@ -174,6 +218,16 @@ public long getNumReadStateMachineMissCount() {
     return numReadStateMachineMissCount.value();
   }
 
+  @VisibleForTesting
+  public long getNumReadStateMachineHitCount() {
+    return numReadStateMachineHitCount.value();
+  }
+
+  @VisibleForTesting
+  public long getStateMachineDataCacheBytes() {
+    return stateMachineDataCacheBytes.value();
+  }
+
   @VisibleForTesting
   public long getNumReadStateMachineOps() {
     return numReadStateMachineOps.value();
@@ -214,6 +268,91 @@ public void recordWriteStateMachineCompletion(long latencyNanos) {
     writeStateMachineData.add(latencyNanos);
   }
 
+  /**
+   * Records the time an applied op of a container waited to be executed.
+   */
+  public void recordApplyQueueLatency(long containerID, long latencyNanos) {
+    applyTransactionQueueLatency.add(latencyNanos);
+    containerQueueLatency.computeIfAbsent(containerID,
+        ContainerQueueLatency::new).add(latencyNanos);
+  }
+
+  /**
+   * Removes the queue latency metrics of a container, once no more ops of
+   * the container are applied.
+   */
+  public void removeContainer(long containerID) {
+    ContainerQueueLatency latency = containerQueueLatency.remove(containerID);
+    if (latency != null) {
+      latency.stop();
+    }
+  }
+
+  /**
+   * Removes the queue latency metrics of all containers.
+   */
+  public void removeContainers() {
+    for (Long containerID : containerQueueLatency.keySet()) {
+      removeContainer(containerID);
+    }
+  }
+
+  @VisibleForTesting
+  public MutableStat getApplyQueueLatency(long containerID) {
+    ContainerQueueLatency latency = containerQueueLatency.get(containerID);
+    return latency == null ? null : latency.rate;
+  }
+
+  @Override
+  public void getMetrics(MetricsCollector collector, boolean all) {
+    MetricsRecordBuilder recordBuilder = collector.addRecord(registry.info());
+    registry.snapshot(recordBuilder, all);
+    containerQueueLatency.values()
+        .forEach(latency -> latency.snapshot(recordBuilder, all));
+  }
+
+  /**
+   * Queue latency of the applied ops of a container. It is not part of the
+   * registry, so that it can be removed with the container.
+   */
+  private final class ContainerQueueLatency {
+    private final MutableStat rate;
+    private final MutableQuantiles[] quantiles;
+
+    private ContainerQueueLatency(long containerID) {
+      String name = "ApplyQueueLatencyContainer" + containerID;
+      String description = "queue latency of container " + containerID
+          + " ops";
+      rate = new MutableStat(name, description, "Ops", "Time");
+      quantiles = new MutableQuantiles[quantileIntervals.length];
+      for (int i = 0; i < quantileIntervals.length; i++) {
+        quantiles[i] = new MutableQuantiles(
+            name + "Nanos" + quantileIntervals[i] + "s", description, "ops",
+            "latency", quantileIntervals[i]);
+      }
+    }
+
+    private void add(long latencyNanos) {
+      rate.add(latencyNanos);
+      for (MutableQuantiles q : quantiles) {
+        q.add(latencyNanos);
+      }
+    }
+
+    private void snapshot(MetricsRecordBuilder recordBuilder, boolean all) {
+      rate.snapshot(recordBuilder, all);
+      for (MutableQuantiles q : quantiles) {
+        q.snapshot(recordBuilder, all);
+      }
+    }
+
+    private void stop() {
+      for (MutableQuantiles q : quantiles) {
+        q.stop();
+      }
+    }
+  }
+
   public void unRegister() {
     MetricsSystem ms = DefaultMetricsSystem.instance();
     ms.unregisterSource(SOURCE_NAME);
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.ozone.container.common.transport.server.ratis;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.util.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes the container ops applied by {@link ContainerStateMachine}.
+ * <p>
+ * The ops of a container are executed one at a time, in the order they are
+ * submitted, but the ops of different containers are executed by any idle
+ * thread of a shared pool, so a few busy containers do not hold up the ops
+ * of the other containers behind them.
+ * <p>
+ * The pool keeps a thread per container with ops waiting to be executed,
+ * between the given minimum and maximum number of threads. The threads
+ * above the minimum exit after being idle for a minute. The time the ops
+ * wait to be executed is recorded per container in {@link CSMMetrics}.
+ */
+public class ContainerOpExecutor {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ContainerOpExecutor.class);
+
+  // ops of a container executed by a thread before it moves on to the
+  // containers waiting for a thread.
+  private static final int MAX_OPS_PER_RUN = 16;
+
+  private final ThreadPoolExecutor pool;
+  private final int minThreads;
+  private final int maxThreads;
+  private final CSMMetrics metrics;
+  private final ConcurrentHashMap<Long, ContainerQueue> queues =
+      new ConcurrentHashMap<>();
+  // containers with ops waiting for or being executed.
+  private final AtomicInteger activeContainers = new AtomicInteger();
+
+  public ContainerOpExecutor(String name, int minThreads, int maxThreads,
+      CSMMetrics metrics) {
+    Preconditions.checkArgument(minThreads > 0,
+        "Invalid minThreads %s", minThreads);
+    this.minThreads = minThreads;
+    this.maxThreads = Math.max(minThreads, maxThreads);
+    this.metrics = metrics;
+    this.pool = new ThreadPoolExecutor(minThreads, this.maxThreads,
+        60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder()
+            .setNameFormat(name.replace("%", "%%") + "-%d")
+            .build());
+  }
+
+  /**
+   * Returns an executor which executes the ops of the given container in
+   * order.
+   */
+  public Executor getExecutor(long containerID) {
+    return op -> execute(containerID, op);
+  }
+
+  /**
+   * Executes an op of the given container after the ops of the container
+   * submitted before.
+   */
+  public void execute(long containerID, Runnable op) {
+    Preconditions.checkNotNull(op);
+    QueuedOp queuedOp = new QueuedOp(op, Time.monotonicNowNanos());
+    // the op is added to the queue of the container while it is in the map,
+    // see ContainerQueue#run.
+    ContainerQueue queue = queues.compute(containerID, (id, q) -> {
+      ContainerQueue containerQueue = q != null ? q : new ContainerQueue(id);
+      containerQueue.ops.add(queuedOp);
+      return containerQueue;
+    });
+    queue.schedule();
+  }
+
+  /**
+   * Sets the number of threads of the pool to the number of containers with
+   * ops waiting to be executed, bounded by the minimum and maximum number of
+   * threads.
+   */
+  private void resize(int containers) {
+    int threads = Math.max(minThreads, Math.min(maxThreads, containers));
+    if (threads != pool.getCorePoolSize()) {
+      pool.setCorePoolSize(threads);
+    }
+  }
+
+  @VisibleForTesting
+  int getPoolSize() {
+    return pool.getCorePoolSize();
+  }
+
+  @VisibleForTesting
+  int getNumContainers() {
+    return queues.size();
+  }
+
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  public boolean awaitTermination(long timeout, TimeUnit unit)
+      throws InterruptedException {
+    return pool.awaitTermination(timeout, unit);
+  }
+
+  /**
+   * An op waiting to be executed.
+   */
+  private static final class QueuedOp {
+    private final Runnable op;
+    private final long queuedNanos;
+
+    private QueuedOp(Runnable op, long queuedNanos) {
+      this.op = op;
+      this.queuedNanos = queuedNanos;
+    }
+  }
+
+  /**
+   * The ops of a container waiting to be executed. The queue is run by at
+   * most one thread of the pool at a time.
+   */
+  private final class ContainerQueue implements Runnable {
+    private final long containerID;
+    private final Queue<QueuedOp> ops = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private ContainerQueue(long containerID) {
+      this.containerID = containerID;
+    }
+
+    /**
+     * Submits the queue to the pool unless it is empty or already submitted.
+     */
+    private void schedule() {
+      if (!ops.isEmpty() && scheduled.compareAndSet(false, true)) {
+        resize(activeContainers.incrementAndGet());
+        pool.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (int i = 0; i < MAX_OPS_PER_RUN; i++) {
+          QueuedOp queuedOp = ops.poll();
+          if (queuedOp == null) {
+            break;
+          }
+          if (metrics != null) {
+            metrics.recordApplyQueueLatency(containerID,
+                Time.monotonicNowNanos() - queuedOp.queuedNanos);
+          }
+          try {
+            queuedOp.op.run();
+          } catch (RuntimeException e) {
+            LOG.error("Failed to execute op of container {}", containerID, e);
+          }
+        }
+      } finally {
+        scheduled.set(false);
+        resize(activeContainers.decrementAndGet());
+        // the queue is removed only if no op was added to it since it was
+        // found empty, ops added afterwards go to a new queue.
+        queues.computeIfPresent(containerID,
+            (id, q) -> q == this && ops.isEmpty() && !scheduled.get()
+                ? null : q);
+        schedule();
+      }
+    }
+  }
+}
@@ -22,12 +22,15 @@
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.StorageUnit;
 import org.apache.hadoop.hdds.HddsUtils;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
 
 import org.apache.hadoop.hdds.ratis.ContainerCommandRequestMessage;
 import org.apache.hadoop.hdds.scm.ScmConfigKeys;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
 import org.apache.hadoop.hdds.scm.container.common.helpers.ContainerNotOpenException;
 import org.apache.hadoop.hdds.scm.container.common.helpers.StorageContainerException;
 import org.apache.hadoop.ozone.OzoneConfigKeys;
@@ -79,13 +82,12 @@
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
-import java.util.concurrent.Executors;
 import java.io.FileOutputStream;
 import java.io.FileInputStream;
 import java.io.OutputStream;
@@ -142,7 +144,7 @@ public class ContainerStateMachine extends BaseStateMachine {
 
   // keeps track of the containers created per pipeline
   private final Map<Long, Long> container2BCSIDMap;
-  private ExecutorService[] executors;
+  private final ContainerOpExecutor containerOpExecutor;
   private final Map<Long, Long> applyTransactionCompletionMap;
   private final Cache<Long, ByteString> stateMachineDataCache;
   private final AtomicBoolean stateMachineHealthy;
@@ -162,19 +164,32 @@ public ContainerStateMachine(RaftGroupId gid, ContainerDispatcher dispatcher,
     this.containerController = containerController;
     this.chunkExecutor = chunkExecutor;
     this.ratisServer = ratisServer;
-    metrics = CSMMetrics.create(gid);
+    metrics = CSMMetrics.create(gid,
+        conf.getInts(DFSConfigKeys.DFS_METRICS_PERCENTILES_INTERVALS_KEY));
     this.writeChunkFutureMap = new ConcurrentHashMap<>();
     applyTransactionCompletionMap = new ConcurrentHashMap<>();
+    final long cacheSize = (long) conf.getStorageSize(
+        OzoneConfigKeys.DFS_CONTAINER_RATIS_STATEMACHINEDATA_CACHE_SIZE,
+        OzoneConfigKeys.DFS_CONTAINER_RATIS_STATEMACHINEDATA_CACHE_SIZE_DEFAULT,
+        StorageUnit.BYTES);
     stateMachineDataCache = CacheBuilder.newBuilder()
         .expireAfterAccess(expiryInterval, TimeUnit.MILLISECONDS)
-        // set the limit on no of cached entries equal to no of max threads
-        // executing writeStateMachineData
-        .maximumSize(chunkExecutor.getCorePoolSize()).build();
+        // limit the cache by the size of the cached data, as a burst of large
+        // chunks would otherwise keep a lot of data on the heap.
+        .maximumWeight(cacheSize)
+        .weigher((Long index, ByteString data) -> data.size())
+        .removalListener((RemovalNotification<Long, ByteString> removed) ->
+            metrics.decStateMachineDataCacheBytes(removed.getValue().size()))
+        .build();
     this.container2BCSIDMap = new ConcurrentHashMap<>();
 
     final int numContainerOpExecutors = conf.getInt(
         OzoneConfigKeys.DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_KEY,
         OzoneConfigKeys.DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_DEFAULT);
+    final int maxContainerOpExecutors = conf.getInt(
+        OzoneConfigKeys.DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_MAX_KEY,
+        OzoneConfigKeys
+            .DFS_CONTAINER_RATIS_NUM_CONTAINER_OP_EXECUTORS_MAX_DEFAULT);
     int maxPendingApplyTransactions = conf.getInt(
         ScmConfigKeys.
             DFS_CONTAINER_RATIS_STATEMACHINE_MAX_PENDING_APPLY_TXNS,
@@ -182,15 +197,9 @@ public ContainerStateMachine(RaftGroupId gid, ContainerDispatcher dispatcher,
             DFS_CONTAINER_RATIS_STATEMACHINE_MAX_PENDING_APPLY_TXNS_DEFAULT);
     applyTransactionSemaphore = new Semaphore(maxPendingApplyTransactions);
     stateMachineHealthy = new AtomicBoolean(true);
-    this.executors = new ExecutorService[numContainerOpExecutors];
-    for (int i = 0; i < numContainerOpExecutors; i++) {
-      final int index = i;
-      this.executors[index] = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r);
-        t.setName("RatisApplyTransactionExecutor " + index);
-        return t;
-      });
-    }
+    this.containerOpExecutor = new ContainerOpExecutor(
+        "RatisApplyTransactionExecutor", numContainerOpExecutors,
+        maxContainerOpExecutors, metrics);
   }
 
   @Override
@@ -399,10 +408,9 @@ private ContainerCommandResponseProto runCommand(
     return dispatchCommand(requestProto, context);
   }
 
-  private ExecutorService getCommandExecutor(
+  private Executor getCommandExecutor(
       ContainerCommandRequestProto requestProto) {
-    int executorId = (int)(requestProto.getContainerID() % executors.length);
-    return executors[executorId];
+    return containerOpExecutor.getExecutor(requestProto.getContainerID());
   }
 
   private CompletableFuture<Message> handleWriteChunk(
@@ -414,6 +422,7 @@ private CompletableFuture<Message> handleWriteChunk(
     try {
       if (((RaftServerProxy) server).getImpl(gid).isLeader()) {
         stateMachineDataCache.put(entryIndex, write.getData());
+        metrics.incStateMachineDataCacheBytes(write.getData().size());
       }
     } catch (IOException ioe) {
       return completeExceptionally(ioe);
@@ -549,7 +558,9 @@ private ByteString readStateMachineData(
     ReadChunkRequestProto.Builder readChunkRequestProto =
         ReadChunkRequestProto.newBuilder()
             .setBlockID(writeChunkRequestProto.getBlockID())
-            .setChunkData(chunkInfo);
+            .setChunkData(chunkInfo)
+            .setReadOffset(0)
+            .setReadLength(chunkInfo.getLen());
     ContainerCommandRequestProto dataContainerCommandProto =
         ContainerCommandRequestProto.newBuilder(requestProto)
             .setCmdType(Type.ReadChunk).setReadChunk(readChunkRequestProto)
@@ -588,8 +599,16 @@ private ByteString readStateMachineData(
    */
   private ByteString getCachedStateMachineData(Long logIndex, long term,
       ContainerCommandRequestProto requestProto) throws ExecutionException {
-    return stateMachineDataCache.get(logIndex,
-        () -> readStateMachineData(requestProto, term, logIndex));
+    ByteString data = stateMachineDataCache.getIfPresent(logIndex);
+    if (data != null) {
+      metrics.incNumReadStateMachineHitCount();
+      return data;
+    }
+    return stateMachineDataCache.get(logIndex, () -> {
+      ByteString loaded = readStateMachineData(requestProto, term, logIndex);
+      metrics.incStateMachineDataCacheBytes(loaded.size());
+      return loaded;
+    });
   }
 
   /**
@@ -711,6 +730,10 @@ public CompletableFuture<Message> applyTransaction(TransactionContext trx) {
           || cmdType == Type.PutBlock || cmdType == Type.CreateContainer) {
         builder.setContainer2BCSIDMap(container2BCSIDMap);
       }
+      if (cmdType == Type.PutBlock || cmdType == Type.PutSmallFile) {
+        // open the container DB while the command waits for its executor.
+        containerController.prefetchMetadata(requestProto.getContainerID());
+      }
       CompletableFuture<Message> applyTransactionFuture =
           new CompletableFuture<>();
       // Ensure the command gets executed in a separate thread than
@@ -762,6 +785,11 @@ public CompletableFuture<Message> applyTransaction(TransactionContext trx) {
                 r.getMessage(), r.getResult());
           }
           applyTransactionFuture.complete(r::toByteString);
+          if (cmdType == Type.CloseContainer
+              || r.getResult() != ContainerProtos.Result.SUCCESS) {
+            // no more ops of the container are applied once it is closed.
+            metrics.removeContainer(requestProto.getContainerID());
+          }
           if (cmdType == Type.WriteChunk || cmdType == Type.PutSmallFile) {
             metrics.incNumBytesCommittedCount(
                 requestProto.getWriteChunk().getChunkData().getLen());
@@ -850,8 +878,7 @@ public void notifyGroupRemove() {
   @Override
   public void close() throws IOException {
     evictStateMachineCache();
-    for (ExecutorService executor : executors) {
-      executor.shutdown();
-    }
+    containerOpExecutor.shutdown();
+    metrics.removeContainers();
   }
 }
@@ -19,6 +19,7 @@
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.ozone.container.common.helpers.MappedBuffers;
 
 import java.util.Map;
 
@@ -47,13 +48,19 @@ public enum WriteChunkStage {
 
   private final Map<Long, Long> container2BCSIDMap;
 
+  // collects the mappings of chunk data read for the request, null if the
+  // chunk data must not be mapped
+  private final MappedBuffers mappedBuffers;
+
   private DispatcherContext(long term, long index, WriteChunkStage stage,
-      boolean readFromTmpFile, Map<Long, Long> container2BCSIDMap) {
+      boolean readFromTmpFile, Map<Long, Long> container2BCSIDMap,
+      MappedBuffers mappedBuffers) {
     this.term = term;
     this.logIndex = index;
     this.stage = stage;
     this.readFromTmpFile = readFromTmpFile;
     this.container2BCSIDMap = container2BCSIDMap;
+    this.mappedBuffers = mappedBuffers;
   }
 
   public long getLogIndex() {
@@ -76,6 +83,10 @@ public Map<Long, Long> getContainer2BCSIDMap() {
     return container2BCSIDMap;
   }
 
+  public MappedBuffers getMappedBuffers() {
+    return mappedBuffers;
+  }
+
   /**
    * Builder class for building DispatcherContext.
    */
@@ -85,6 +96,7 @@ public static final class Builder {
     private long term;
     private long logIndex;
     private Map<Long, Long> container2BCSIDMap;
+    private MappedBuffers mappedBuffers;
 
     /**
      * Sets the WriteChunkStage.
@@ -140,6 +152,19 @@ public Builder setContainer2BCSIDMap(Map<Long, Long> map) {
       this.container2BCSIDMap = map;
       return this;
     }
+
+    /**
+     * Sets the collector of the mappings of chunk data read for the
+     * request, which unmaps them once the response has been sent. Chunk
+     * data is only read from mappings if this is set.
+     * @param buffers collector of the mappings
+     * @return Builder
+     */
+    public Builder setMappedBuffers(MappedBuffers buffers) {
+      this.mappedBuffers = buffers;
+      return this;
+    }
+
     /**
      * Builds and returns DispatcherContext instance.
      *
@@ -147,7 +172,7 @@ public Builder setContainer2BCSIDMap(Map<Long, Long> map) {
      */
     public DispatcherContext build() {
       return new DispatcherContext(term, logIndex, stage, readFromTmpFile,
-          container2BCSIDMap);
+          container2BCSIDMap, mappedBuffers);
     }
 
   }
@@ -601,6 +601,34 @@ public List<PipelineReport> getPipelineReport() {
     }
   }
 
+  /**
+   * Returns the host of a datanode of the given pipeline.
+   *
+   * @param pipelineID pipeline of this datanode
+   * @param datanodeId datanode to look up
+   * @return host of the datanode, or null if the pipeline does not exist on
+   * this datanode or the datanode is not a member of it
+   * @throws IOException if the pipelines cannot be read
+   */
+  public String getPeerHost(PipelineID pipelineID, UUID datanodeId)
+      throws IOException {
+    RaftGroupId groupId = RaftGroupId.valueOf(pipelineID.getId());
+    for (RaftGroup group : server.getGroups()) {
+      if (group.getGroupId().equals(groupId)) {
+        RaftPeer peer =
+            group.getPeer(RaftPeerId.valueOf(datanodeId.toString()));
+        if (peer == null || peer.getAddress() == null) {
+          return null;
+        }
+        // the address of a peer is the Ratis endpoint of the datanode.
+        String address = peer.getAddress();
+        int portIndex = address.lastIndexOf(':');
+        return portIndex < 0 ? address : address.substring(0, portIndex);
+      }
+    }
+    return null;
+  }
+
   @VisibleForTesting
   public List<PipelineID> getPipelineIds() {
     Iterable<RaftGroupId> gids = server.getGroupIds();
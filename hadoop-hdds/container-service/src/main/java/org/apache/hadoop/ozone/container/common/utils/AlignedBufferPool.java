@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.utils;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of off-heap buffers of a fixed size whose memory address is aligned,
+ * as required by direct I/O.
+ *
+ * Aligned buffers are sliced from larger direct buffers with
+ * ByteBuffer#alignedSlice, which is only available on Java 9 and later. Up
+ * to a maximum number of released buffers are kept for reuse, as allocating
+ * direct memory is expensive.
+ */
+public class AlignedBufferPool {
+
+  private static final MethodHandle ALIGNED_SLICE = findAlignedSlice();
+
+  private final int bufferSize;
+  private final int alignment;
+  private final int maxPooled;
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooled = new AtomicInteger();
+
+  /**
+   * @param bufferSize - size of the buffers, a multiple of the alignment.
+   * @param alignment - alignment of the buffers, a power of two.
+   * @param maxPooled - maximum number of released buffers kept for reuse.
+   */
+  public AlignedBufferPool(int bufferSize, int alignment, int maxPooled) {
+    Preconditions.checkState(isSupported(),
+        "Aligned buffers are not supported by this JVM");
+    Preconditions.checkArgument(Integer.bitCount(alignment) == 1,
+        "Alignment must be a power of two: %s", alignment);
+    Preconditions.checkArgument(bufferSize > 0 && bufferSize % alignment == 0,
+        "Buffer size %s must be a multiple of the alignment %s", bufferSize,
+        alignment);
+    this.bufferSize = bufferSize;
+    this.alignment = alignment;
+    this.maxPooled = maxPooled;
+  }
+
+  /**
+   * Returns whether the JVM can create aligned buffers.
+   */
+  public static boolean isSupported() {
+    return ALIGNED_SLICE != null;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public int getAlignment() {
+    return alignment;
+  }
+
+  /**
+   * Returns a cleared buffer, which should be released after use.
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = buffers.poll();
+    if (buffer == null) {
+      return allocate();
+    }
+    pooled.decrementAndGet();
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Returns a buffer acquired from this pool to the pool.
+   */
+  public void release(ByteBuffer buffer) {
+    Preconditions.checkArgument(buffer.isDirect()
+        && buffer.capacity() == bufferSize, "Buffer is not from this pool");
+    if (pooled.incrementAndGet() <= maxPooled) {
+      buffers.offer(buffer);
+    } else {
+      pooled.decrementAndGet();
+    }
+  }
+
+  @VisibleForTesting
+  int getPooledCount() {
+    return pooled.get();
+  }
+
+  private ByteBuffer allocate() {
+    ByteBuffer raw = ByteBuffer.allocateDirect(bufferSize + alignment);
+    ByteBuffer aligned;
+    try {
+      aligned = (ByteBuffer) ALIGNED_SLICE.invoke(raw, alignment);
+    } catch (Throwable t) {
+      throw new IllegalStateException("Failed to align buffer", t);
+    }
+    aligned.limit(bufferSize);
+    return aligned.slice();
+  }
+
+  private static MethodHandle findAlignedSlice() {
+    try {
+      return MethodHandles.publicLookup().findVirtual(ByteBuffer.class,
+          "alignedSlice", MethodType.methodType(ByteBuffer.class, int.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+}
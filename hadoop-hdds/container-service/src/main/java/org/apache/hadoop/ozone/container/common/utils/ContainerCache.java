@@ -18,36 +18,92 @@
 
 package org.apache.hadoop.ozone.container.common.utils;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import org.apache.commons.collections.MapIterator;
-import org.apache.commons.collections.map.LRUMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.ozone.OzoneConfigKeys;
 import org.apache.hadoop.hdds.utils.MetadataStore;
 import org.apache.hadoop.hdds.utils.MetadataStoreBuilder;
+import org.apache.hadoop.util.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 /**
- * container cache is a LRUMap that maintains the DB handles.
+ * container cache maintains the DB handles of the containers.
+ *
+ * Handles which are already open are looked up and referenced without
+ * taking a lock. Opening and closing a DB only locks the stripe its path
+ * belongs to, so DBs of different containers are opened and closed
+ * concurrently. Once the cache holds more handles than its size,
+ * unreferenced handles are closed by a background thread, least recently
+ * used first, instead of by the request which opened the new DB.
+ *
+ * DBs can also be opened ahead of their use by prefetching them in the
+ * background. A prefetch only opens the DB if, once it holds the lock, its
+ * container is still live and the DB has not been removed since the
+ * prefetch was requested, so it cannot reopen the DB of a deleted container.
  */
-public final class ContainerCache extends LRUMap {
+public final class ContainerCache {
   private static final Logger LOG =
       LoggerFactory.getLogger(ContainerCache.class);
-  private final Lock lock = new ReentrantLock();
-  private static ContainerCache cache;
-  private static final float LOAD_FACTOR = 0.75f;
+  private static final int LOCK_STRIPES = 64;
+  private static final int PREFETCH_THREADS = 4;
+  private static final int PREFETCH_QUEUE_SIZE = 1024;
+  private static volatile ContainerCache cache;
+
+  private final int maxSize;
+  private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+  // the latest prefetch requested per DB path, a prefetch which is no longer
+  // in here has been cancelled.
+  private final Map<String, Prefetch> prefetches = new ConcurrentHashMap<>();
+  private final Lock[] locks = new Lock[LOCK_STRIPES];
+  private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+  private final ExecutorService evictionExecutor;
+  private final ExecutorService prefetchExecutor;
+  private final ContainerCacheMetrics metrics;
+
   /**
    * Constructs a cache that holds DBHandle references.
    */
-  private ContainerCache(int maxSize, float loadFactor, boolean
-      scanUntilRemovable) {
-    super(maxSize, loadFactor, scanUntilRemovable);
+  private ContainerCache(int maxSize) {
+    this.maxSize = maxSize;
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      locks[i] = new ReentrantLock();
+    }
+    this.evictionExecutor = Executors.newSingleThreadExecutor(
+        newThreadFactory("ContainerCacheEvictor"));
+    // prefetching is best effort, requests which do not fit in the queue
+    // are dropped.
+    this.prefetchExecutor = new ThreadPoolExecutor(PREFETCH_THREADS,
+        PREFETCH_THREADS, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(PREFETCH_QUEUE_SIZE),
+        newThreadFactory("ContainerCachePrefetcher-%d"),
+        (task, executor) -> ((Prefetch) task).skip());
+    this.metrics = ContainerCacheMetrics.create();
+  }
+
+  private static ThreadFactory newThreadFactory(String nameFormat) {
+    return new ThreadFactoryBuilder().setDaemon(true)
+        .setNameFormat(nameFormat).build();
   }
 
   /**
@@ -57,47 +113,29 @@ private ContainerCache(int maxSize, float loadFactor, boolean
    * @param conf - Configuration.
    * @return A instance of {@link ContainerCache}.
    */
-  public synchronized static ContainerCache getInstance(Configuration conf) {
-    if (cache == null) {
-      int cacheSize = conf.getInt(OzoneConfigKeys.OZONE_CONTAINER_CACHE_SIZE,
-          OzoneConfigKeys.OZONE_CONTAINER_CACHE_DEFAULT);
-      cache = new ContainerCache(cacheSize, LOAD_FACTOR, true);
+  public static ContainerCache getInstance(Configuration conf) {
+    ContainerCache instance = cache;
+    if (instance == null) {
+      synchronized (ContainerCache.class) {
+        if (cache == null) {
+          int cacheSize = conf.getInt(
+              OzoneConfigKeys.OZONE_CONTAINER_CACHE_SIZE,
+              OzoneConfigKeys.OZONE_CONTAINER_CACHE_DEFAULT);
+          cache = new ContainerCache(cacheSize);
+        }
+        instance = cache;
+      }
     }
-    return cache;
+    return instance;
   }
 
   /**
    * Closes all the db instances and resets the cache.
    */
   public void shutdownCache() {
-    lock.lock();
-    try {
-      // iterate the cache and close each db
-      MapIterator iterator = cache.mapIterator();
-      while (iterator.hasNext()) {
-        iterator.next();
-        ReferenceCountedDB db = (ReferenceCountedDB) iterator.getValue();
-        Preconditions.checkArgument(db.cleanup(), "refCount:",
-            db.getReferenceCount());
-      }
-      // reset the cache
-      cache.clear();
-    } finally {
-      lock.unlock();
-    }
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  protected boolean removeLRU(LinkEntry entry) {
-    ReferenceCountedDB db = (ReferenceCountedDB) entry.getValue();
-    lock.lock();
-    try {
-      return db.cleanup();
-    } finally {
-      lock.unlock();
+    prefetches.clear();
+    for (String path : new ArrayList<>(entries.keySet())) {
+      removeDB(path);
     }
   }
 
@@ -115,11 +153,101 @@ public ReferenceCountedDB getDB(long containerID, String containerDBType,
       throws IOException {
     Preconditions.checkState(containerID >= 0,
         "Container ID cannot be negative.");
+    CacheEntry entry = entries.get(containerDBPath);
+    // the reference fails if the DB is being closed concurrently, in which
+    // case it is opened again below.
+    if (entry != null && entry.getDB().tryIncrementReference()) {
+      entry.touch();
+      metrics.incNumCacheHits();
+      return entry.getDB();
+    }
+    metrics.incNumCacheMisses();
+    return openDB(containerID, containerDBType, containerDBPath, conf, true);
+  }
+
+  /**
+   * Opens the DB of a container in the background, unless it is already
+   * open, so that the requests which are about to use it do not have to
+   * wait for it to be opened.
+   *
+   * @param containerID - ID of the container.
+   * @param containerDBType - DB type of the container.
+   * @param containerDBPath - DB path of the container.
+   * @param conf - Hadoop Configuration.
+   * @param isLive - whether the container still exists, checked right
+   *               before the DB is opened.
+   */
+  public void prefetchDB(long containerID, String containerDBType,
+      String containerDBPath, Configuration conf, BooleanSupplier isLive) {
+    if (entries.containsKey(containerDBPath)) {
+      return;
+    }
+    Prefetch prefetch = new Prefetch(containerID, containerDBType,
+        containerDBPath, conf, isLive);
+    // supersedes a prefetch of the DB which is still queued.
+    prefetches.put(containerDBPath, prefetch);
+    prefetchExecutor.execute(prefetch);
+  }
+
+  /**
+   * Remove a DB handler from cache.
+   *
+   * @param containerDBPath - path of the container db file.
+   */
+  public void removeDB(String containerDBPath) {
+    Lock lock = getLock(containerDBPath);
     lock.lock();
     try {
-      ReferenceCountedDB db = (ReferenceCountedDB) this.get(containerDBPath);
+      // prefetches requested before are not run anymore.
+      prefetches.remove(containerDBPath);
+      CacheEntry entry = entries.get(containerDBPath);
+      if (entry != null) {
+        ReferenceCountedDB db = entry.getDB();
+        Preconditions.checkArgument(db.cleanup(), "refCount:",
+            db.getReferenceCount());
+      }
+      entries.remove(containerDBPath);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  public ReferenceCountedDB get(String containerDBPath) {
+    CacheEntry entry = entries.get(containerDBPath);
+    return entry == null ? null : entry.getDB();
+  }
+
+  @VisibleForTesting
+  public int size() {
+    return entries.size();
+  }
 
-      if (db == null) {
+  @VisibleForTesting
+  public boolean isFull() {
+    return entries.size() >= maxSize;
+  }
+
+  @VisibleForTesting
+  public ContainerCacheMetrics getMetrics() {
+    return metrics;
+  }
+
+  private ReferenceCountedDB openDB(long containerID, String containerDBType,
+      String containerDBPath, Configuration conf, boolean reference)
+      throws IOException {
+    ReferenceCountedDB db;
+    Lock lock = getLock(containerDBPath);
+    lock.lock();
+    try {
+      // DBs are only closed while holding the lock of their stripe, an
+      // entry found here is open.
+      CacheEntry entry = entries.get(containerDBPath);
+      if (entry != null) {
+        db = entry.getDB();
+        entry.touch();
+      } else {
+        long start = Time.monotonicNow();
         MetadataStore metadataStore =
             MetadataStoreBuilder.newBuilder()
             .setDbFile(new File(containerDBPath))
@@ -127,12 +255,14 @@ public ReferenceCountedDB getDB(long containerID, String containerDBType,
             .setConf(conf)
             .setDBType(containerDBType)
             .build();
+        metrics.addDbOpenLatency(Time.monotonicNow() - start);
         db = new ReferenceCountedDB(metadataStore, containerDBPath);
-        this.put(containerDBPath, db);
+        entries.put(containerDBPath, new CacheEntry(db));
+      }
+      if (reference) {
+        // increment the reference before returning the object
+        db.incrementReference();
       }
-      // increment the reference before returning the object
-      db.incrementReference();
-      return db;
     } catch (Exception e) {
       LOG.error("Error opening DB. Container:{} ContainerPath:{}",
           containerID, containerDBPath, e);
@@ -140,24 +270,146 @@ public ReferenceCountedDB getDB(long containerID, String containerDBType,
     } finally {
       lock.unlock();
     }
+    if (entries.size() > maxSize
+        && evictionScheduled.compareAndSet(false, true)) {
+      evictionExecutor.execute(this::evict);
+    }
+    return db;
   }
 
   /**
-   * Remove a DB handler from cache.
-   *
-   * @param containerDBPath - path of the container db file.
+   * Closes unreferenced DBs, least recently used first, until the cache is
+   * back to its size.
    */
-  public void removeDB(String containerDBPath) {
+  private void evict() {
+    evictionScheduled.set(false);
+    int excess = entries.size() - maxSize;
+    if (excess <= 0) {
+      return;
+    }
+    // the access times keep changing, sort a snapshot of them.
+    List<EvictionCandidate> candidates = new ArrayList<>(entries.size());
+    for (Map.Entry<String, CacheEntry> e : entries.entrySet()) {
+      candidates.add(new EvictionCandidate(e.getKey(), e.getValue()));
+    }
+    candidates.sort(Comparator.comparingLong(c -> c.lastAccess));
+    for (EvictionCandidate candidate : candidates) {
+      if (excess <= 0) {
+        break;
+      }
+      if (evict(candidate.path, candidate.entry)) {
+        excess--;
+      }
+    }
+  }
+
+  private boolean evict(String path, CacheEntry entry) {
+    Lock lock = getLock(path);
     lock.lock();
     try {
-      ReferenceCountedDB db = (ReferenceCountedDB)this.get(containerDBPath);
-      if (db != null) {
-        Preconditions.checkArgument(db.cleanup(), "refCount:",
-            db.getReferenceCount());
+      if (entries.get(path) != entry) {
+        return false;
+      }
+      long start = Time.monotonicNow();
+      if (!entry.getDB().cleanup()) {
+        return false;
       }
-      this.remove(containerDBPath);
+      metrics.addDbCloseLatency(Time.monotonicNow() - start);
+      metrics.incNumEvictions();
+      entries.remove(path);
+      return true;
     } finally {
       lock.unlock();
     }
   }
+
+  private Lock getLock(String containerDBPath) {
+    return locks[(containerDBPath.hashCode() & Integer.MAX_VALUE)
+        % LOCK_STRIPES];
+  }
+
+  /**
+   * Opens a DB in the background.
+   */
+  private final class Prefetch implements Runnable {
+    private final long containerID;
+    private final String containerDBType;
+    private final String containerDBPath;
+    private final Configuration conf;
+    private final BooleanSupplier isLive;
+
+    Prefetch(long containerID, String containerDBType,
+        String containerDBPath, Configuration conf, BooleanSupplier isLive) {
+      this.containerID = containerID;
+      this.containerDBType = containerDBType;
+      this.containerDBPath = containerDBPath;
+      this.conf = conf;
+      this.isLive = isLive;
+    }
+
+    @Override
+    public void run() {
+      Lock lock = getLock(containerDBPath);
+      lock.lock();
+      try {
+        // removeDB cancels the prefetch while holding the same lock.
+        if (!prefetches.remove(containerDBPath, this)
+            || entries.containsKey(containerDBPath)
+            || !isLive.getAsBoolean()) {
+          metrics.incNumPrefetchesSkipped();
+          return;
+        }
+        openDB(containerID, containerDBType, containerDBPath, conf, false);
+        metrics.incNumPrefetches();
+      } catch (IOException e) {
+        LOG.warn("Failed to prefetch DB of container {}", containerID, e);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Drops the prefetch, e.g. as too many prefetches are queued.
+     */
+    void skip() {
+      prefetches.remove(containerDBPath, this);
+      metrics.incNumPrefetchesSkipped();
+    }
+  }
+
+  /**
+   * A cached DB handle along with the time it was last used.
+   */
+  private static final class CacheEntry {
+    private final ReferenceCountedDB db;
+    private volatile long lastAccess;
+
+    CacheEntry(ReferenceCountedDB db) {
+      this.db = db;
+      touch();
+    }
+
+    ReferenceCountedDB getDB() {
+      return db;
+    }
+
+    void touch() {
+      lastAccess = Time.monotonicNowNanos();
+    }
+  }
+
+  /**
+   * Snapshot of a cache entry considered for eviction.
+   */
+  private static final class EvictionCandidate {
+    private final String path;
+    private final CacheEntry entry;
+    private final long lastAccess;
+
+    EvictionCandidate(String path, CacheEntry entry) {
+      this.path = path;
+      this.entry = entry;
+      this.lastAccess = entry.lastAccess;
+    }
+  }
 }
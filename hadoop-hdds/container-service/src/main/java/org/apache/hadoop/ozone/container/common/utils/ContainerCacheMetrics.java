@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.utils;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.lib.MutableRate;
+
+/**
+ * This class is for maintaining the statistics of the container DB handle
+ * cache.
+ */
+@InterfaceAudience.Private
+@Metrics(about="Container DB Cache Metrics", context="dfs")
+public class ContainerCacheMetrics {
+  public static final String SOURCE_NAME =
+      ContainerCacheMetrics.class.getSimpleName();
+
+  private @Metric MutableCounterLong numCacheHits;
+  private @Metric MutableCounterLong numCacheMisses;
+  private @Metric MutableCounterLong numEvictions;
+  private @Metric MutableCounterLong numPrefetches;
+  private @Metric MutableCounterLong numPrefetchesSkipped;
+
+  private @Metric MutableRate dbOpenLatency;
+  private @Metric MutableRate dbCloseLatency;
+
+  public static ContainerCacheMetrics create() {
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    return ms.register(SOURCE_NAME, "Container DB Cache",
+        new ContainerCacheMetrics());
+  }
+
+  public void incNumCacheHits() {
+    numCacheHits.incr();
+  }
+
+  public void incNumCacheMisses() {
+    numCacheMisses.incr();
+  }
+
+  public void incNumEvictions() {
+    numEvictions.incr();
+  }
+
+  public void incNumPrefetches() {
+    numPrefetches.incr();
+  }
+
+  public void incNumPrefetchesSkipped() {
+    numPrefetchesSkipped.incr();
+  }
+
+  public void addDbOpenLatency(long latencyMillis) {
+    dbOpenLatency.add(latencyMillis);
+  }
+
+  public void addDbCloseLatency(long latencyMillis) {
+    dbCloseLatency.add(latencyMillis);
+  }
+
+  @VisibleForTesting
+  public long getNumCacheHits() {
+    return numCacheHits.value();
+  }
+
+  @VisibleForTesting
+  public long getNumCacheMisses() {
+    return numCacheMisses.value();
+  }
+
+  @VisibleForTesting
+  public long getNumEvictions() {
+    return numEvictions.value();
+  }
+
+  @VisibleForTesting
+  public long getNumPrefetches() {
+    return numPrefetches.value();
+  }
+
+  @VisibleForTesting
+  public long getNumPrefetchesSkipped() {
+    return numPrefetchesSkipped.value();
+  }
+}
@@ -38,6 +38,10 @@
 public class ReferenceCountedDB implements Closeable {
   private static final Logger LOG =
       LoggerFactory.getLogger(ReferenceCountedDB.class);
+  /**
+   * Reference count of a closed DB, which can not be referenced any more.
+   */
+  private static final int CLOSED = Integer.MIN_VALUE;
   private final AtomicInteger referenceCount;
   private final MetadataStore store;
   private final String containerDBPath;
@@ -49,7 +53,27 @@ public ReferenceCountedDB(MetadataStore store, String containerDBPath) {
   }
 
   public long getReferenceCount() {
-    return referenceCount.get();
+    return Math.max(referenceCount.get(), 0);
+  }
+
+  /**
+   * Increments the reference count unless the DB has been closed.
+   * @return true if a reference was taken, false if the DB is closed.
+   */
+  public boolean tryIncrementReference() {
+    while (true) {
+      int refCount = referenceCount.get();
+      if (refCount == CLOSED) {
+        return false;
+      }
+      if (referenceCount.compareAndSet(refCount, refCount + 1)) {
+        if (LOG.isTraceEnabled()) {
+          LOG.trace("IncRef {} to refCnt {}, stackTrace: {}", containerDBPath,
+              refCount + 1, ExceptionUtils.getStackTrace(new Throwable()));
+        }
+        return true;
+      }
+    }
   }
 
   public void incrementReference() {
@@ -69,19 +93,22 @@ public void decrementReference() {
     }
   }
 
+  /**
+   * Closes the DB if it is not referenced. Once closed, no new references
+   * can be taken by {@link #tryIncrementReference()}.
+   * @return true if the DB was closed.
+   */
   public boolean cleanup() {
-    if (referenceCount.get() == 0 && store != null) {
+    if (store != null && referenceCount.compareAndSet(0, CLOSED)) {
       if (LOG.isDebugEnabled()) {
-        LOG.debug("Close {} refCnt {}", containerDBPath,
-            referenceCount.get());
+        LOG.debug("Close {}", containerDBPath);
       }
       try {
         store.close();
-        return true;
       } catch (Exception e) {
         LOG.error("Error closing DB. Container: " + containerDBPath, e);
-        return false;
       }
+      return true;
     } else {
       return false;
     }
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.utils;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdds.utils.MetadataStore;
+import org.apache.hadoop.hdds.utils.MetadataStoreBuilder;
+import org.apache.hadoop.ozone.OzoneConfigKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the DBs shared by all containers of a volume. Unlike the DBs in
+ * {@link ContainerCache}, a volume DB stays open until its volume is shut
+ * down, the containers keep their metadata in it under keys prefixed by
+ * their container ID.
+ */
+public final class VolumeDBCache {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(VolumeDBCache.class);
+  private static final VolumeDBCache INSTANCE = new VolumeDBCache();
+
+  private final Map<String, MetadataStore> stores = new HashMap<>();
+
+  private VolumeDBCache() {
+  }
+
+  /**
+   * Return the singleton instance of {@link VolumeDBCache}.
+   */
+  public static VolumeDBCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the DB of a volume, opening or creating it if needed.
+   *
+   * @param dbFile - path of the volume DB.
+   * @param conf - Hadoop Configuration.
+   * @return MetadataStore, which must not be closed by the caller.
+   */
+  public synchronized MetadataStore getDB(File dbFile, Configuration conf)
+      throws IOException {
+    Preconditions.checkNotNull(dbFile);
+    String path = dbFile.getAbsolutePath();
+    MetadataStore store = stores.get(path);
+    if (store == null) {
+      // The volume DB holds the metadata of all containers of the volume,
+      // it is always a RocksDB.
+      store = MetadataStoreBuilder.newBuilder()
+          .setDbFile(dbFile)
+          .setCreateIfMissing(true)
+          .setConf(conf)
+          .setDBType(OzoneConfigKeys.OZONE_METADATA_STORE_IMPL_ROCKSDB)
+          .build();
+      stores.put(path, store);
+      LOG.info("Opened volume container DB {}", path);
+    }
+    return store;
+  }
+
+  /**
+   * Closes the DB of a volume, if it is open.
+   *
+   * @param dbFile - path of the volume DB.
+   */
+  public synchronized void closeDB(File dbFile) {
+    MetadataStore store = stores.remove(dbFile.getAbsolutePath());
+    if (store != null) {
+      close(dbFile.getAbsolutePath(), store);
+    }
+  }
+
+  /**
+   * Closes all the volume DBs.
+   */
+  public synchronized void shutdown() {
+    for (Map.Entry<String, MetadataStore> entry : stores.entrySet()) {
+      close(entry.getKey(), entry.getValue());
+    }
+    stores.clear();
+  }
+
+  private static void close(String path, MetadataStore store) {
+    try {
+      store.close();
+    } catch (IOException e) {
+      LOG.error("Error closing volume container DB {}", path, e);
+    }
+  }
+}
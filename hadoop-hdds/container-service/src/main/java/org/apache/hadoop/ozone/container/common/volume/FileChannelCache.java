@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.volume;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdds.HddsConfigKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of open {@link FileChannel}s for the chunk and block files of
+ * a volume.
+ *
+ * Handles are reference counted: a handle which is evicted while it is in use
+ * is closed only after it is released by its last user. Callers are expected
+ * to serialize the use of a handle with any rename or delete of its file, and
+ * to invalidate the handle when the file is renamed or deleted.
+ */
+public class FileChannelCache implements Closeable {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(FileChannelCache.class);
+
+  private final Cache<Path, Handle> handles;
+  private final VolumeIOStats volumeIOStats;
+
+  public FileChannelCache(int maxSize, long idleTimeoutMillis,
+      VolumeIOStats volumeIOStats) {
+    Preconditions.checkArgument(maxSize > 0, "Cache size must be positive");
+    this.volumeIOStats = volumeIOStats;
+    this.handles = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterAccess(idleTimeoutMillis, TimeUnit.MILLISECONDS)
+        .removalListener((RemovalListener<Path, Handle>) notification ->
+            notification.getValue().release())
+        .build();
+  }
+
+  /**
+   * Creates the cache of a volume as per the configuration.
+   *
+   * @param conf - configuration, may be null to use the defaults.
+   * @param volumeIOStats - stats of the volume.
+   * @return the cache, or null if caching of handles is disabled.
+   */
+  public static FileChannelCache newInstance(Configuration conf,
+      VolumeIOStats volumeIOStats) {
+    Configuration config = conf != null ? conf : new Configuration(false);
+    int size = config.getInt(
+        HddsConfigKeys.HDDS_CONTAINER_CHUNK_FILE_HANDLE_CACHE_SIZE,
+        HddsConfigKeys.HDDS_CONTAINER_CHUNK_FILE_HANDLE_CACHE_SIZE_DEFAULT);
+    long idleTimeout = config.getTimeDuration(
+        HddsConfigKeys.HDDS_CONTAINER_CHUNK_FILE_HANDLE_CACHE_IDLE_TIMEOUT,
+        HddsConfigKeys
+            .HDDS_CONTAINER_CHUNK_FILE_HANDLE_CACHE_IDLE_TIMEOUT_DEFAULT,
+        TimeUnit.MILLISECONDS);
+    if (size <= 0) {
+      return null;
+    }
+    return new FileChannelCache(size, idleTimeout, volumeIOStats);
+  }
+
+  /**
+   * Returns an open handle for the file, opening the file if it is not
+   * cached. The handle must be released after use.
+   *
+   * @param path - path of the file.
+   * @param create - whether the file should be created if it does not exist.
+   * @return the handle.
+   * @throws IOException if the file cannot be opened.
+   */
+  public Handle acquire(Path path, boolean create) throws IOException {
+    for (;;) {
+      Handle handle = handles.getIfPresent(path);
+      if (handle != null) {
+        if (handle.retain()) {
+          volumeIOStats.incFileHandleCacheHits();
+          return handle;
+        }
+        // closed by a concurrent eviction, load it again.
+        continue;
+      }
+      volumeIOStats.incFileHandleCacheMisses();
+      try {
+        handle = handles.get(path, () -> open(path, create));
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException("Failed to open " + path, e.getCause());
+      }
+      if (handle.retain()) {
+        return handle;
+      }
+    }
+  }
+
+  /**
+   * Closes the cached handle of the file, if any. Must be called before the
+   * file is renamed or deleted.
+   *
+   * @param path - path of the file.
+   */
+  public void invalidate(Path path) {
+    handles.invalidate(path);
+  }
+
+  /**
+   * Closes the cached handles of all files under the given directory, e.g.
+   * when the container owning the directory is closed or deleted.
+   *
+   * @param dir - the directory.
+   */
+  public void invalidateAll(Path dir) {
+    List<Path> paths = new ArrayList<>();
+    for (Path path : handles.asMap().keySet()) {
+      if (path.startsWith(dir)) {
+        paths.add(path);
+      }
+    }
+    handles.invalidateAll(paths);
+  }
+
+  @VisibleForTesting
+  public long size() {
+    handles.cleanUp();
+    return handles.size();
+  }
+
+  @Override
+  public void close() {
+    handles.invalidateAll();
+    handles.cleanUp();
+  }
+
+  private Handle open(Path path, boolean create) throws IOException {
+    OpenOption[] options = create ?
+        new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.SPARSE} :
+        new OpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE};
+    FileChannel channel = FileChannel.open(path, options);
+    volumeIOStats.incOpenFileHandles();
+    return new Handle(path, channel);
+  }
+
+  /**
+   * A reference counted open file. The cache holds one reference to the
+   * handles it contains.
+   */
+  public final class Handle {
+
+    private final Path path;
+    private final FileChannel channel;
+    private int refCount = 1;
+
+    private Handle(Path path, FileChannel channel) {
+      this.path = path;
+      this.channel = channel;
+    }
+
+    public FileChannel getChannel() {
+      return channel;
+    }
+
+    private synchronized boolean retain() {
+      if (refCount == 0) {
+        return false;
+      }
+      refCount++;
+      return true;
+    }
+
+    /**
+     * Releases a reference to the handle, the file is closed when the last
+     * reference is released.
+     */
+    public void release() {
+      synchronized (this) {
+        Preconditions.checkState(refCount > 0, "Handle already closed");
+        if (--refCount > 0) {
+          return;
+        }
+      }
+      volumeIOStats.decOpenFileHandles();
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close {}", path, e);
+      }
+    }
+  }
+}
@@ -31,8 +31,9 @@
 import org.apache.hadoop.ozone.common.InconsistentStorageStateException;
 import org.apache.hadoop.ozone.container.common.DataNodeLayoutVersion;
 import org.apache.hadoop.ozone.container.common.helpers.DatanodeVersionFile;
-import org.apache.hadoop.ozone.container.common.impl.ChunkLayOutVersion;
+import org.apache.hadoop.ozone.OzoneConsts;
 import org.apache.hadoop.ozone.container.common.utils.HddsVolumeUtil;
+import org.apache.hadoop.ozone.container.common.utils.VolumeDBCache;
 
 import org.apache.hadoop.util.DiskChecker;
 import org.apache.hadoop.util.Time;
@@ -80,6 +81,9 @@
   private final VolumeInfo volumeInfo;
   private VolumeState state;
   private final VolumeIOStats volumeIOStats;
+  private final FileChannelCache fileChannelCache;
+  private final VolumeSyncCoordinator syncCoordinator;
+  private final VolumeIOScheduler ioScheduler;
 
   // VERSION file properties
   private String storageID;       // id of the file system
@@ -165,6 +169,12 @@ private HddsVolume(Builder b) throws IOException {
       this.clusterID = b.clusterID;
       this.datanodeUuid = b.datanodeUuid;
       this.volumeIOStats = new VolumeIOStats();
+      this.fileChannelCache = FileChannelCache.newInstance(b.conf,
+          volumeIOStats);
+      this.syncCoordinator = VolumeSyncCoordinator.newInstance(b.conf,
+          hddsRootDir.getPath(), volumeIOStats);
+      this.ioScheduler = VolumeIOScheduler.newInstance(b.conf,
+          hddsRootDir.getPath());
 
       VolumeInfo.Builder volumeBuilder =
           new VolumeInfo.Builder(b.volumeRootStr, b.conf)
@@ -182,6 +192,9 @@ private HddsVolume(Builder b) throws IOException {
       // HddsVolumeObject.
       hddsRootDir = new File(b.volumeRootStr);
       volumeIOStats = null;
+      fileChannelCache = null;
+      syncCoordinator = null;
+      ioScheduler = null;
       volumeInfo = null;
       storageID = UUID.randomUUID().toString();
       state = VolumeState.FAILED;
@@ -265,7 +278,7 @@ public void format(String cid) throws IOException {
   private void createVersionFile() throws IOException {
     this.storageID = HddsVolumeUtil.generateUuid();
     this.cTime = Time.now();
-    this.layoutVersion = ChunkLayOutVersion.getLatestVersion().getVersion();
+    this.layoutVersion = DataNodeLayoutVersion.getLatestVersion().getVersion();
 
     if (this.clusterID == null || datanodeUuid == null) {
       // HddsDatanodeService does not have the cluster information yet. Wait
@@ -391,11 +404,54 @@ public VolumeIOStats getVolumeIOStats() {
     return volumeIOStats;
   }
 
+  /**
+   * Returns the cache of open chunk and block files of this volume.
+   * @return the cache, or null if caching of open files is disabled.
+   */
+  public FileChannelCache getFileChannelCache() {
+    return fileChannelCache;
+  }
+
+  /**
+   * Returns the coordinator syncing the chunk and block files written to
+   * this volume in batches.
+   * @return the coordinator, or null if writes are synced one by one.
+   */
+  public VolumeSyncCoordinator getSyncCoordinator() {
+    return syncCoordinator;
+  }
+
+  /**
+   * Returns the scheduler of the I/O done on this volume.
+   * @return the scheduler, or null if the I/O of volumes is not scheduled.
+   */
+  public VolumeIOScheduler getIOScheduler() {
+    return ioScheduler;
+  }
+
+  /**
+   * Returns the DB holding the metadata of all containers of this volume,
+   * which is only used if hdds.container.db.per.volume.enabled is set.
+   */
+  public File getContainerDBFile() {
+    return new File(hddsRootDir, OzoneConsts.DN_VOLUME_CONTAINER_DB);
+  }
+
   public void failVolume() {
     setState(VolumeState.FAILED);
     if (volumeInfo != null) {
       volumeInfo.shutdownUsageThread();
     }
+    if (fileChannelCache != null) {
+      fileChannelCache.close();
+    }
+    if (syncCoordinator != null) {
+      syncCoordinator.close();
+    }
+    if (ioScheduler != null) {
+      ioScheduler.close();
+    }
+    VolumeDBCache.getInstance().closeDB(getContainerDBFile());
   }
 
   public void shutdown() {
@@ -403,6 +459,16 @@ public void shutdown() {
     if (volumeInfo != null) {
       volumeInfo.shutdownUsageThread();
     }
+    if (fileChannelCache != null) {
+      fileChannelCache.close();
+    }
+    if (syncCoordinator != null) {
+      syncCoordinator.close();
+    }
+    if (ioScheduler != null) {
+      ioScheduler.close();
+    }
+    VolumeDBCache.getInstance().closeDB(getContainerDBFile());
   }
 
   /**
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.ozone.container.common.volume;
+
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler
+    .IOClass;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Reads a file of a volume as an operation of the given class of the
+ * volume's I/O scheduler. Each read of a buffer holds an operation of the
+ * scheduler while the data is read from the disk, so the reads only get
+ * the share of the volume given to their class.
+ *
+ * Reads of single bytes are scheduled one by one, the stream should be
+ * read into buffers.
+ */
+public class ScheduledInputStream extends FilterInputStream {
+  private final VolumeIOScheduler ioScheduler;
+  private final IOClass ioClass;
+
+  public ScheduledInputStream(InputStream in, VolumeIOScheduler ioScheduler,
+      IOClass ioClass) {
+    super(in);
+    this.ioScheduler = ioScheduler;
+    this.ioClass = ioClass;
+  }
+
+  /**
+   * Wraps the stream if the I/O of the volume is scheduled.
+   *
+   * @param in - stream reading a file of the volume.
+   * @param ioScheduler - scheduler of the volume, may be null.
+   * @param ioClass - kind of the reads.
+   * @return the scheduled stream, or the given stream if the scheduler is
+   * null.
+   */
+  public static InputStream wrap(InputStream in,
+      VolumeIOScheduler ioScheduler, IOClass ioClass) {
+    return ioScheduler != null
+        ? new ScheduledInputStream(in, ioScheduler, ioClass) : in;
+  }
+
+  @Override
+  public int read() throws IOException {
+    acquire(1);
+    try {
+      return in.read();
+    } finally {
+      ioScheduler.release(ioClass);
+    }
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    acquire(len);
+    try {
+      return in.read(b, off, len);
+    } finally {
+      ioScheduler.release(ioClass);
+    }
+  }
+
+  private void acquire(long bytes) throws IOException {
+    try {
+      ioScheduler.acquire(ioClass, bytes);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+          "Interrupted while waiting to read from the volume");
+    }
+  }
+}
@@ -0,0 +1,335 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.volume;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdds.HddsConfigKeys;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Schedules the I/O of a volume among the different kinds of work done on
+ * it, so that background work, e.g. re-replication after the loss of a
+ * node, does not ruin the latency of client reads and writes.
+ *
+ * At most a fixed number of I/O operations are outstanding on the volume,
+ * some of which are reserved for client I/O. Operations beyond that wait in
+ * a queue per {@link IOClass}. Whenever an operation completes, the next
+ * one is taken from the queues by start-time fair queuing: each class is
+ * charged the bytes of its operations divided by its weight, and the class
+ * which has been charged least goes first. A class which was idle does not
+ * build up credit, so background work gets the bandwidth left over by
+ * client I/O, but cannot be starved completely.
+ */
+public class VolumeIOScheduler implements Closeable {
+
+  /**
+   * Kinds of I/O done on a volume, with their share of the bandwidth.
+   */
+  public enum IOClass {
+    CLIENT(8),
+    REPLICATION(2),
+    DELETION(1),
+    SCRUB(1);
+
+    private final int weight;
+
+    IOClass(int weight) {
+      this.weight = weight;
+    }
+
+    public int getWeight() {
+      return weight;
+    }
+
+    boolean isBackground() {
+      return this != CLIENT;
+    }
+  }
+
+  /**
+   * Minimum cost of an operation, which accounts for the seek of small
+   * operations like deleting a file.
+   */
+  private static final long MIN_COST = 64 * 1024;
+
+  private final int maxOutstanding;
+  private final int maxBackgroundOutstanding;
+  private final VolumeIOSchedulerMetrics metrics;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition granted = lock.newCondition();
+  private final Deque<Waiter>[] queues;
+  // virtual time at which the last scheduled operation of each class ends.
+  private final double[] finishTimes;
+  private double virtualTime;
+  private int outstanding;
+  private int backgroundOutstanding;
+  private boolean closed;
+
+  @SuppressWarnings("unchecked")
+  public VolumeIOScheduler(String name, int maxOutstanding,
+      int clientReserved) {
+    Preconditions.checkArgument(maxOutstanding > 0,
+        "Maximum number of outstanding I/O operations must be positive: %s",
+        maxOutstanding);
+    Preconditions.checkArgument(clientReserved >= 0
+            && clientReserved < maxOutstanding,
+        "Reserved client I/O operations %s must be less than the maximum "
+            + "number of outstanding operations %s", clientReserved,
+        maxOutstanding);
+    this.maxOutstanding = maxOutstanding;
+    this.maxBackgroundOutstanding = maxOutstanding - clientReserved;
+    this.queues = new Deque[IOClass.values().length];
+    for (int i = 0; i < queues.length; i++) {
+      queues[i] = new ArrayDeque<>();
+    }
+    this.finishTimes = new double[IOClass.values().length];
+    this.metrics = VolumeIOSchedulerMetrics.create(name);
+  }
+
+  /**
+   * Creates the I/O scheduler of a volume as per the configuration.
+   *
+   * @param conf - configuration, may be null to use the defaults.
+   * @param name - name of the volume, used to name its metrics.
+   * @return the scheduler, or null if the I/O of volumes is not scheduled.
+   */
+  public static VolumeIOScheduler newInstance(Configuration conf,
+      String name) {
+    Configuration config = conf != null ? conf : new Configuration(false);
+    if (!config.getBoolean(
+        HddsConfigKeys.HDDS_DATANODE_VOLUME_IO_SCHEDULER_ENABLED,
+        HddsConfigKeys.HDDS_DATANODE_VOLUME_IO_SCHEDULER_ENABLED_DEFAULT)) {
+      return null;
+    }
+    return new VolumeIOScheduler(name, config.getInt(
+        HddsConfigKeys.HDDS_DATANODE_VOLUME_IO_SCHEDULER_MAX_OUTSTANDING,
+        HddsConfigKeys
+            .HDDS_DATANODE_VOLUME_IO_SCHEDULER_MAX_OUTSTANDING_DEFAULT),
+        config.getInt(
+            HddsConfigKeys.HDDS_DATANODE_VOLUME_IO_SCHEDULER_CLIENT_RESERVED,
+            HddsConfigKeys
+                .HDDS_DATANODE_VOLUME_IO_SCHEDULER_CLIENT_RESERVED_DEFAULT));
+  }
+
+  /**
+   * Waits until an operation may be done on the volume. Every call must be
+   * followed by a call to {@link #release(IOClass)} once the operation is
+   * done.
+   *
+   * @param ioClass - kind of the operation.
+   * @param bytes - number of bytes read or written by the operation.
+   * @throws InterruptedException if interrupted while waiting, in which
+   * case the operation must not be released.
+   */
+  public void acquire(IOClass ioClass, long bytes)
+      throws InterruptedException {
+    long start = System.nanoTime();
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      Deque<Waiter> queue = queues[ioClass.ordinal()];
+      if (queue.isEmpty() && canStart(ioClass)
+          && isFirstInLine(ioClass)) {
+        start(ioClass, bytes);
+      } else {
+        Waiter waiter = new Waiter(bytes);
+        queue.add(waiter);
+        metrics.incQueued(ioClass);
+        try {
+          while (!waiter.granted && !closed) {
+            granted.await();
+          }
+        } catch (InterruptedException e) {
+          if (waiter.granted) {
+            finish(ioClass);
+          } else {
+            queue.remove(waiter);
+            metrics.decQueued(ioClass);
+          }
+          throw e;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    metrics.addWaitTime(ioClass, System.nanoTime() - start);
+  }
+
+  /**
+   * Marks an operation started with {@link #acquire(IOClass, long)} as
+   * done, which lets the next waiting operation start.
+   */
+  public void release(IOClass ioClass) {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      finish(ioClass);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Lets all waiting and future operations proceed without scheduling.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (IOClass ioClass : IOClass.values()) {
+        for (int i = 0; i < queues[ioClass.ordinal()].size(); i++) {
+          metrics.decQueued(ioClass);
+        }
+        queues[ioClass.ordinal()].clear();
+      }
+      granted.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    metrics.unregister();
+  }
+
+  @VisibleForTesting
+  int getQueued(IOClass ioClass) {
+    lock.lock();
+    try {
+      return queues[ioClass.ordinal()].size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  int getOutstanding() {
+    lock.lock();
+    try {
+      return outstanding;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public VolumeIOSchedulerMetrics getMetrics() {
+    return metrics;
+  }
+
+  private void finish(IOClass ioClass) {
+    outstanding--;
+    if (ioClass.isBackground()) {
+      backgroundOutstanding--;
+    }
+    metrics.decOutstanding(ioClass);
+    scheduleWaiting();
+  }
+
+  /**
+   * Starts waiting operations while there is room for them.
+   */
+  private void scheduleWaiting() {
+    boolean started = false;
+    while (outstanding < maxOutstanding) {
+      IOClass next = null;
+      double nextStart = Double.MAX_VALUE;
+      for (IOClass ioClass : IOClass.values()) {
+        if (!queues[ioClass.ordinal()].isEmpty() && canStart(ioClass)) {
+          double startTime = getStartTime(ioClass);
+          if (startTime < nextStart) {
+            next = ioClass;
+            nextStart = startTime;
+          }
+        }
+      }
+      if (next == null) {
+        break;
+      }
+      Waiter waiter = queues[next.ordinal()].poll();
+      metrics.decQueued(next);
+      start(next, waiter.bytes);
+      waiter.granted = true;
+      started = true;
+    }
+    if (started) {
+      granted.signalAll();
+    }
+  }
+
+  /**
+   * Returns whether an operation of the class would be scheduled before
+   * the operations waiting in other queues.
+   */
+  private boolean isFirstInLine(IOClass ioClass) {
+    double startTime = getStartTime(ioClass);
+    for (IOClass other : IOClass.values()) {
+      if (!queues[other.ordinal()].isEmpty() && canStart(other)
+          && getStartTime(other) < startTime) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean canStart(IOClass ioClass) {
+    return outstanding < maxOutstanding && (!ioClass.isBackground()
+        || backgroundOutstanding < maxBackgroundOutstanding);
+  }
+
+  private double getStartTime(IOClass ioClass) {
+    return Math.max(virtualTime, finishTimes[ioClass.ordinal()]);
+  }
+
+  private void start(IOClass ioClass, long bytes) {
+    double startTime = getStartTime(ioClass);
+    virtualTime = startTime;
+    finishTimes[ioClass.ordinal()] = startTime
+        + (double) Math.max(bytes, MIN_COST) / ioClass.getWeight();
+    outstanding++;
+    if (ioClass.isBackground()) {
+      backgroundOutstanding++;
+    }
+    metrics.incOutstanding(ioClass);
+  }
+
+  /**
+   * An operation waiting to be started.
+   */
+  private static final class Waiter {
+    private final long bytes;
+    private boolean granted;
+
+    Waiter(long bytes) {
+      this.bytes = bytes;
+    }
+  }
+}
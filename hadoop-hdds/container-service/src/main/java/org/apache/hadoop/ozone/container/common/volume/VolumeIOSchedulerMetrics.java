@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.volume;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
+import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler
+    .IOClass;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Queue depth and wait time per I/O class of the I/O scheduler of a volume.
+ */
+@InterfaceAudience.Private
+@Metrics(about = "DataNode volume I/O scheduler metrics", context = "dfs")
+public final class VolumeIOSchedulerMetrics {
+  private final String name;
+  private final MetricsSystem ms;
+  private final MetricsRegistry registry;
+  @Metric("number of I/O operations waiting")
+  private MutableGaugeInt numQueued;
+  @Metric("number of I/O operations in progress")
+  private MutableGaugeInt numOutstanding;
+  private final MutableGaugeInt[] queued;
+  private final MutableGaugeInt[] outstanding;
+  private final MutableCounterLong[] ops;
+  private final MutableRate[] waitTime;
+
+  private VolumeIOSchedulerMetrics(String name, MetricsSystem ms) {
+    this.name = name;
+    this.ms = ms;
+    this.registry = new MetricsRegistry(name);
+    int numClasses = IOClass.values().length;
+    this.queued = new MutableGaugeInt[numClasses];
+    this.outstanding = new MutableGaugeInt[numClasses];
+    this.ops = new MutableCounterLong[numClasses];
+    this.waitTime = new MutableRate[numClasses];
+    for (IOClass ioClass : IOClass.values()) {
+      int i = ioClass.ordinal();
+      queued[i] = registry.newGauge("numQueued" + ioClass,
+          "number of " + ioClass + " I/O operations waiting", 0);
+      outstanding[i] = registry.newGauge("numOutstanding" + ioClass,
+          "number of " + ioClass + " I/O operations in progress", 0);
+      ops[i] = registry.newCounter("opCount" + ioClass,
+          "number of " + ioClass + " I/O operations", 0L);
+      waitTime[i] = registry.newRate(ioClass + "WaitTime",
+          "time " + ioClass + " I/O operations waited to start, in "
+              + "nanoseconds");
+    }
+  }
+
+  public static VolumeIOSchedulerMetrics create(final String volumeName) {
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    String name = "VolumeIOScheduler-" + (volumeName.isEmpty()
+        ? "UndefinedDataNodeVolume" + ThreadLocalRandom.current().nextInt()
+        : volumeName.replace(':', '-'));
+
+    return ms.register(name, null, new VolumeIOSchedulerMetrics(name, ms));
+  }
+
+  void incQueued(IOClass ioClass) {
+    numQueued.incr();
+    queued[ioClass.ordinal()].incr();
+  }
+
+  void decQueued(IOClass ioClass) {
+    numQueued.decr();
+    queued[ioClass.ordinal()].decr();
+  }
+
+  void incOutstanding(IOClass ioClass) {
+    numOutstanding.incr();
+    outstanding[ioClass.ordinal()].incr();
+    ops[ioClass.ordinal()].incr();
+  }
+
+  void decOutstanding(IOClass ioClass) {
+    numOutstanding.decr();
+    outstanding[ioClass.ordinal()].decr();
+  }
+
+  void addWaitTime(IOClass ioClass, long nanos) {
+    waitTime[ioClass.ordinal()].add(nanos);
+  }
+
+  @VisibleForTesting
+  public int getQueued(IOClass ioClass) {
+    return queued[ioClass.ordinal()].value();
+  }
+
+  @VisibleForTesting
+  public int getOutstanding(IOClass ioClass) {
+    return outstanding[ioClass.ordinal()].value();
+  }
+
+  @VisibleForTesting
+  public long getOpCount(IOClass ioClass) {
+    return ops[ioClass.ordinal()].value();
+  }
+
+  public void unregister() {
+    ms.unregisterSource(name);
+  }
+}
@@ -31,6 +31,12 @@ public class VolumeIOStats {
   private final AtomicLong writeOpCount;
   private final AtomicLong readTime;
   private final AtomicLong writeTime;
+  private final AtomicLong fileHandleCacheHits;
+  private final AtomicLong fileHandleCacheMisses;
+  private final AtomicLong openFileHandles;
+  private final AtomicLong syncBatchCount;
+  private final AtomicLong syncedWriteCount;
+  private final AtomicLong syncTime;
 
   public VolumeIOStats() {
     readBytes = new AtomicLong(0);
@@ -39,6 +45,12 @@ public VolumeIOStats() {
     writeOpCount = new AtomicLong(0);
     readTime = new AtomicLong(0);
     writeTime = new AtomicLong(0);
+    fileHandleCacheHits = new AtomicLong(0);
+    fileHandleCacheMisses = new AtomicLong(0);
+    openFileHandles = new AtomicLong(0);
+    syncBatchCount = new AtomicLong(0);
+    syncedWriteCount = new AtomicLong(0);
+    syncTime = new AtomicLong(0);
   }
 
   /**
@@ -87,6 +99,57 @@ public void incWriteTime(long time) {
     writeTime.addAndGet(time);
   }
 
+  /**
+   * Increment the number of file accesses served by a cached open handle.
+   */
+  public void incFileHandleCacheHits() {
+    fileHandleCacheHits.incrementAndGet();
+  }
+
+  /**
+   * Increment the number of file accesses which had to open the file.
+   */
+  public void incFileHandleCacheMisses() {
+    fileHandleCacheMisses.incrementAndGet();
+  }
+
+  /**
+   * Increment the number of files held open by the handle cache.
+   */
+  public void incOpenFileHandles() {
+    openFileHandles.incrementAndGet();
+  }
+
+  /**
+   * Decrement the number of files held open by the handle cache.
+   */
+  public void decOpenFileHandles() {
+    openFileHandles.decrementAndGet();
+  }
+
+  /**
+   * Increment the number of batches of files synced on the volume.
+   */
+  public void incSyncBatchCount() {
+    syncBatchCount.incrementAndGet();
+  }
+
+  /**
+   * Increment the number of writes made durable by batched syncs.
+   * @param writes
+   */
+  public void incSyncedWriteCount(long writes) {
+    syncedWriteCount.addAndGet(writes);
+  }
+
+  /**
+   * Increment the time taken by batched syncs.
+   * @param time
+   */
+  public void incSyncTime(long time) {
+    syncTime.addAndGet(time);
+  }
+
   /**
    * Returns total number of bytes read from the volume.
    * @return long
@@ -135,5 +198,53 @@ public long getWriteTime() {
     return writeTime.get();
   }
 
+  /**
+   * Returns number of file accesses served by a cached open handle.
+   * @return long
+   */
+  public long getFileHandleCacheHits() {
+    return fileHandleCacheHits.get();
+  }
+
+  /**
+   * Returns number of file accesses which had to open the file.
+   * @return long
+   */
+  public long getFileHandleCacheMisses() {
+    return fileHandleCacheMisses.get();
+  }
+
+  /**
+   * Returns number of files currently held open by the handle cache.
+   * @return long
+   */
+  public long getOpenFileHandles() {
+    return openFileHandles.get();
+  }
+
+  /**
+   * Returns number of batches of files synced on the volume.
+   * @return long
+   */
+  public long getSyncBatchCount() {
+    return syncBatchCount.get();
+  }
+
+  /**
+   * Returns number of writes made durable by batched syncs, divided by the
+   * number of batches this gives the average batch size.
+   * @return long
+   */
+  public long getSyncedWriteCount() {
+    return syncedWriteCount.get();
+  }
+
+  /**
+   * Returns total time taken by batched syncs on the volume.
+   * @return long
+   */
+  public long getSyncTime() {
+    return syncTime.get();
+  }
 
 }
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.volume;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.StorageUnit;
+import org.apache.hadoop.hdds.HddsConfigKeys;
+import org.apache.hadoop.util.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Syncs the chunk and block files written to a volume in batches.
+ *
+ * Instead of syncing each file right after it is written, writers register
+ * the file here and wait for the returned future. A single thread per volume
+ * collects the registered files until the oldest one has waited for the
+ * configured delay, or until enough bytes are pending, and then syncs each
+ * distinct file of the batch once. Writes to the same file from many
+ * requests, e.g. the chunks of a block file, share a single fsync, and
+ * writes of different containers share the wait for the disk.
+ */
+public class VolumeSyncCoordinator implements Closeable {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(VolumeSyncCoordinator.class);
+
+  private final long maxDelayNanos;
+  private final long maxBatchBytes;
+  private final VolumeIOStats volumeIOStats;
+  private final Thread syncThread;
+
+  private final Object lock = new Object();
+  private List<PendingSync> pending = new ArrayList<>();
+  private long pendingBytes;
+  private long firstPendingNanos;
+  private boolean running = true;
+
+  public VolumeSyncCoordinator(String name, long maxDelayNanos,
+      long maxBatchBytes, VolumeIOStats volumeIOStats) {
+    Preconditions.checkArgument(maxDelayNanos >= 0,
+        "Sync delay cannot be negative");
+    this.maxDelayNanos = maxDelayNanos;
+    this.maxBatchBytes = maxBatchBytes;
+    this.volumeIOStats = volumeIOStats;
+    this.syncThread = new Thread(this::run, "VolumeSync-" + name);
+    this.syncThread.setDaemon(true);
+    this.syncThread.start();
+  }
+
+  /**
+   * Creates the sync coordinator of a volume as per the configuration.
+   *
+   * @param conf - configuration, may be null to use the defaults.
+   * @param name - name of the volume, used to name the sync thread.
+   * @param volumeIOStats - stats of the volume.
+   * @return the coordinator, or null if writes are synced individually.
+   */
+  public static VolumeSyncCoordinator newInstance(Configuration conf,
+      String name, VolumeIOStats volumeIOStats) {
+    Configuration config = conf != null ? conf : new Configuration(false);
+    if (!config.getBoolean(
+        HddsConfigKeys.HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_ENABLED,
+        HddsConfigKeys.HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_ENABLED_DEFAULT)) {
+      return null;
+    }
+    long maxDelay = config.getTimeDuration(
+        HddsConfigKeys.HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_DELAY,
+        HddsConfigKeys.HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_DELAY_DEFAULT,
+        TimeUnit.MICROSECONDS);
+    long maxBytes = (long) config.getStorageSize(
+        HddsConfigKeys.HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_BYTES,
+        HddsConfigKeys.HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_BYTES_DEFAULT,
+        StorageUnit.BYTES);
+    return new VolumeSyncCoordinator(name,
+        TimeUnit.MICROSECONDS.toNanos(maxDelay), maxBytes, volumeIOStats);
+  }
+
+  /**
+   * Registers a file which has been written and needs to be synced.
+   *
+   * @param path - path of the file.
+   * @param bytes - number of bytes written to the file.
+   * @return future completed once the file has been synced, or completed
+   * exceptionally if it could not be synced.
+   */
+  public CompletableFuture<Void> sync(Path path, long bytes) {
+    PendingSync sync = new PendingSync(path);
+    synchronized (lock) {
+      if (!running) {
+        sync.future.completeExceptionally(
+            new IOException("Volume sync coordinator is closed"));
+        return sync.future;
+      }
+      if (pending.isEmpty()) {
+        firstPendingNanos = System.nanoTime();
+      }
+      pending.add(sync);
+      pendingBytes += bytes;
+      if (pending.size() == 1 || pendingBytes >= maxBatchBytes) {
+        lock.notifyAll();
+      }
+    }
+    return sync.future;
+  }
+
+  /**
+   * Syncs the pending files and stops the sync thread. Files registered
+   * afterwards are not synced.
+   */
+  @Override
+  public void close() {
+    synchronized (lock) {
+      running = false;
+      lock.notifyAll();
+    }
+    try {
+      syncThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    for (;;) {
+      List<PendingSync> batch;
+      synchronized (lock) {
+        try {
+          waitForBatch();
+        } catch (InterruptedException e) {
+          running = false;
+        }
+        if (pending.isEmpty() && !running) {
+          return;
+        }
+        batch = pending;
+        pending = new ArrayList<>();
+        pendingBytes = 0;
+      }
+      syncBatch(batch);
+    }
+  }
+
+  /**
+   * Waits until the pending files are due to be synced or the coordinator is
+   * closed. Must be called holding the lock.
+   */
+  private void waitForBatch() throws InterruptedException {
+    while (running) {
+      if (pending.isEmpty()) {
+        lock.wait();
+        continue;
+      }
+      long remaining =
+          maxDelayNanos - (System.nanoTime() - firstPendingNanos);
+      if (remaining <= 0 || pendingBytes >= maxBatchBytes) {
+        return;
+      }
+      TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+    }
+  }
+
+  private void syncBatch(List<PendingSync> batch) {
+    long startTime = Time.monotonicNow();
+    Set<Path> paths = new LinkedHashSet<>();
+    for (PendingSync sync : batch) {
+      paths.add(sync.path);
+    }
+    Map<Path, IOException> failures = new HashMap<>();
+    for (Path path : paths) {
+      // fsync applies to the file and not to the descriptor, so this also
+      // flushes writes done through handles cached elsewhere.
+      try (FileChannel file = FileChannel.open(path,
+          StandardOpenOption.WRITE)) {
+        // ensure data and metadata is persisted
+        file.force(true);
+      } catch (IOException e) {
+        LOG.error("Failed to sync {}", path, e);
+        failures.put(path, e);
+      }
+    }
+    // the stats include the batch once the writes of the batch return.
+    volumeIOStats.incSyncBatchCount();
+    volumeIOStats.incSyncedWriteCount(batch.size());
+    volumeIOStats.incSyncTime(Time.monotonicNow() - startTime);
+    for (PendingSync sync : batch) {
+      IOException failure = failures.get(sync.path);
+      if (failure == null) {
+        sync.future.complete(null);
+      } else {
+        sync.future.completeExceptionally(failure);
+      }
+    }
+  }
+
+  /**
+   * A file waiting to be synced, along with the writer waiting for it.
+   */
+  private static final class PendingSync {
+    private final Path path;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    PendingSync(Path path) {
+      this.path = path;
+    }
+  }
+}
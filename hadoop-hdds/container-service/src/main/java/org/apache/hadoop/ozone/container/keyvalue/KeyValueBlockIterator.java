@@ -19,6 +19,7 @@
 package org.apache.hadoop.ozone.container.keyvalue;
 
 import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hdds.conf.OzoneConfiguration;
 import org.apache.hadoop.ozone.OzoneConsts;
 import org.apache.hadoop.ozone.container.common.helpers.BlockData;
@@ -84,6 +85,19 @@ public KeyValueBlockIterator(long id, File path)
    */
   public KeyValueBlockIterator(long id, File path, KeyPrefixFilter filter)
       throws IOException {
+    this(id, path, filter, new OzoneConfiguration());
+  }
+
+  /**
+   * KeyValueBlockIterator to iterate blocks in a container.
+   * @param id - container id
+   * @param path - container base path
+   * @param filter - Block filter, filter to be applied for blocks
+   * @param conf - configuration used to open the container DB
+   * @throws IOException
+   */
+  public KeyValueBlockIterator(long id, File path, KeyPrefixFilter filter,
+      Configuration conf) throws IOException {
     containerId = id;
     File metdataPath = new File(path, OzoneConsts.METADATA);
     File containerFile = ContainerUtils.getContainerFile(metdataPath
@@ -94,8 +108,7 @@ public KeyValueBlockIterator(long id, File path, KeyPrefixFilter filter)
         containerData;
     keyValueContainerData.setDbFile(KeyValueContainerLocationUtil
         .getContainerDBFile(metdataPath, containerId));
-    db = BlockUtils.getDB(keyValueContainerData, new
-        OzoneConfiguration());
+    db = BlockUtils.getDB(keyValueContainerData, conf);
     blockIterator = db.getStore().iterator();
     blockFilter = filter;
   }
@@ -23,6 +23,7 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.util.Map;
@@ -50,8 +51,10 @@
 import org.apache.hadoop.ozone.container.common.interfaces.Container;
 import org.apache.hadoop.ozone.container.common.interfaces.ContainerPacker;
 import org.apache.hadoop.ozone.container.common.interfaces.VolumeChoosingPolicy;
+import org.apache.hadoop.ozone.container.common.volume.FileChannelCache;
 import org.apache.hadoop.ozone.container.common.volume.HddsVolume;
 import org.apache.hadoop.ozone.container.common.volume.VolumeSet;
+import org.apache.hadoop.hdds.utils.MetadataKeyFilters;
 import org.apache.hadoop.ozone.container.keyvalue.helpers.BlockUtils;
 import org.apache.hadoop.ozone.container.keyvalue.helpers
     .KeyValueContainerLocationUtil;
@@ -59,6 +62,7 @@
 import org.apache.hadoop.util.DiskChecker.DiskOutOfSpaceException;
 
 import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
 import org.apache.commons.io.FileUtils;
 import static org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .Result.CONTAINER_ALREADY_EXISTS;
@@ -264,6 +268,7 @@ private void updateContainerFile(File containerFile)
   @Override
   public void delete() throws StorageContainerException {
     long containerId = containerData.getContainerID();
+    releaseChunkFileHandles();
     try {
       KeyValueContainerUtil.removeContainer(containerData, config);
     } catch (StorageContainerException ex) {
@@ -319,6 +324,7 @@ public void quasiClose() throws StorageContainerException {
     } finally {
       writeUnlock();
     }
+    releaseChunkFileHandles();
   }
 
   @Override
@@ -335,11 +341,28 @@ public void close() throws StorageContainerException {
     } finally {
       writeUnlock();
     }
+    releaseChunkFileHandles();
     LOG.info("Container {} is closed with bcsId {}.",
         containerData.getContainerID(),
         containerData.getBlockCommitSequenceId());
   }
 
+  /**
+   * Closes the open handles of the chunk files of this container, which are
+   * cached by its volume.
+   */
+  private void releaseChunkFileHandles() {
+    HddsVolume volume = containerData.getVolume();
+    String chunksPath = containerData.getChunksPath();
+    if (volume == null || chunksPath == null) {
+      return;
+    }
+    FileChannelCache handleCache = volume.getFileChannelCache();
+    if (handleCache != null) {
+      handleCache.invalidateAll(Paths.get(chunksPath));
+    }
+  }
+
   @Override
   public void updateDataScanTimestamp(Instant time)
       throws StorageContainerException {
@@ -470,7 +493,8 @@ public void updateDeleteTransactionId(long deleteTransactionId) {
   @Override
   public KeyValueBlockIterator blockIterator() throws IOException{
     return new KeyValueBlockIterator(containerData.getContainerID(), new File(
-        containerData.getContainerPath()));
+        containerData.getContainerPath()), MetadataKeyFilters
+        .getNormalKeyFilter(), config);
   }
 
   @Override
@@ -502,6 +526,8 @@ public void importContainerData(InputStream input,
               .readContainer(descriptorContent);
 
 
+      // the chunks are stored as per the layout of the source container.
+      containerData.setLayOutVersion(originalContainerData.getLayOutVersion());
       containerData.setState(originalContainerData.getState());
       containerData
           .setContainerDBType(originalContainerData.getContainerDBType());
@@ -546,7 +572,22 @@ public void exportContainerData(OutputStream destination,
               + getContainerData().getContainerID() + " is in state " + state);
     }
     compactDB();
-    packer.pack(this, destination);
+    if (BlockUtils.isVolumeDBEnabled(config)) {
+      // the container has no DB of its own, so one is written for the
+      // duration of the export. Exports only hold the read lock, concurrent
+      // exports of the container have to wait for each other.
+      synchronized (this) {
+        File dbFile = containerData.getDbFile();
+        KeyValueContainerUtil.writeContainerDB(containerData, dbFile, config);
+        try {
+          packer.pack(this, destination);
+        } finally {
+          FileUtils.deleteDirectory(dbFile);
+        }
+      }
+    } else {
+      packer.pack(this, destination);
+    }
   }
 
   /**
@@ -639,6 +680,21 @@ public long getBlockCommitSequenceId() {
     return containerData.getBlockCommitSequenceId();
   }
 
+  /**
+   * Returns the sequence ID of the last commit of a block of the container.
+   *
+   * @param localID - local ID of the block.
+   * @return the sequence ID, 0 if the block has not been committed.
+   * @throws IOException if the DB of the container cannot be read.
+   */
+  public long getBlockCommitSequenceId(long localID) throws IOException {
+    try (ReferenceCountedDB db = BlockUtils.getDB(containerData, config)) {
+      byte[] blockData = db.getStore().get(Longs.toByteArray(localID));
+      return blockData == null ? 0
+          : BlockUtils.getBlockData(blockData).getBlockCommitSequenceId();
+    }
+  }
+
 
   /**
    * Returns KeyValueContainerReport for the KeyValueContainer.
@@ -724,9 +780,10 @@ public boolean scanData(DataTransferThrottler throttler, Canceler canceler) {
     }
 
     long containerId = containerData.getContainerID();
+    HddsVolume volume = containerData.getVolume();
     KeyValueContainerCheck checker =
         new KeyValueContainerCheck(containerData.getMetadataPath(), config,
-            containerId);
+            containerId, volume != null ? volume.getIOScheduler() : null);
 
     return checker.fullCheck(throttler, canceler);
   }
@@ -21,6 +21,7 @@
 import com.google.common.base.Preconditions;
 import com.google.common.primitives.Longs;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdds.conf.OzoneConfiguration;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
 import org.apache.hadoop.hdfs.util.Canceler;
 import org.apache.hadoop.hdfs.util.DataTransferThrottler;
@@ -32,10 +33,17 @@
 import org.apache.hadoop.ozone.container.common.helpers.ContainerUtils;
 import org.apache.hadoop.ozone.container.common.impl.ContainerDataYaml;
 import org.apache.hadoop.ozone.container.common.interfaces.Container;
+import org.apache.hadoop.hdds.utils.MetadataKeyFilters;
 import org.apache.hadoop.ozone.container.keyvalue.helpers.BlockUtils;
 import org.apache.hadoop.ozone.container.keyvalue.helpers.ChunkUtils;
+import org.apache.hadoop.ozone.container.keyvalue.helpers.DirectIOUtils;
 import org.apache.hadoop.ozone.container.keyvalue.helpers.KeyValueContainerLocationUtil;
 import org.apache.hadoop.ozone.container.common.utils.ReferenceCountedDB;
+import org.apache.hadoop.ozone.container.common.volume.ScheduledInputStream;
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler;
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler
+    .IOClass;
+import org.apache.hadoop.ozone.container.ozoneimpl.ContainerScrubberConfiguration;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -65,14 +73,26 @@ public class KeyValueContainerCheck {
 
   private String metadataPath;
 
+  private final VolumeIOScheduler ioScheduler;
+
   public KeyValueContainerCheck(String metadataPath, Configuration conf,
       long containerID) {
+    this(metadataPath, conf, containerID, null);
+  }
+
+  /**
+   * @param ioScheduler - I/O scheduler of the volume of the container, the
+   * chunk files are read as scrub operations of it. May be null.
+   */
+  public KeyValueContainerCheck(String metadataPath, Configuration conf,
+      long containerID, VolumeIOScheduler ioScheduler) {
     Preconditions.checkArgument(metadataPath != null);
 
     this.checkConfig = conf;
     this.containerID = containerID;
     this.onDiskContainerData = null;
     this.metadataPath = metadataPath;
+    this.ioScheduler = ioScheduler;
   }
 
   /**
@@ -219,7 +239,8 @@ private void scanData(DataTransferThrottler throttler, Canceler canceler)
     dbFile = KeyValueContainerLocationUtil
         .getContainerDBFile(metaDir, containerID);
 
-    if (!dbFile.exists() || !dbFile.canRead()) {
+    if (!BlockUtils.isVolumeDBEnabled(checkConfig)
+        && (!dbFile.exists() || !dbFile.canRead())) {
       String dbFileErrorMsg = "Unable to access DB File [" + dbFile.toString()
           + "] for Container [" + containerID + "] metadata path ["
           + metadataPath + "]";
@@ -227,16 +248,20 @@ private void scanData(DataTransferThrottler throttler, Canceler canceler)
     }
 
     onDiskContainerData.setDbFile(dbFile);
+    boolean directRead = OzoneConfiguration.of(checkConfig)
+        .getObject(ContainerScrubberConfiguration.class)
+        .isDirectReadEnabled();
     try(ReferenceCountedDB db =
             BlockUtils.getDB(onDiskContainerData, checkConfig);
         KeyValueBlockIterator kvIter = new KeyValueBlockIterator(containerID,
-            new File(onDiskContainerData.getContainerPath()))) {
+            new File(onDiskContainerData.getContainerPath()),
+            MetadataKeyFilters.getNormalKeyFilter(), checkConfig)) {
 
       while(kvIter.hasNext()) {
         BlockData block = kvIter.nextBlock();
         for(ContainerProtos.ChunkInfo chunk : block.getChunks()) {
           File chunkFile = ChunkUtils.getChunkFile(onDiskContainerData,
-              ChunkInfo.getFromProtoBuf(chunk));
+              block.getBlockID(), ChunkInfo.getFromProtoBuf(chunk));
           if (!chunkFile.exists()) {
             // concurrent mutation in Block DB? lookup the block again.
             byte[] bdata = db.getStore().get(
@@ -256,10 +281,18 @@ private void scanData(DataTransferThrottler throttler, Canceler canceler)
                 cData.getBytesPerChecksum());
             long bytesRead = 0;
             byte[] buffer = new byte[cData.getBytesPerChecksum()];
-            try (InputStream fs = new FileInputStream(chunkFile)) {
+            // with one file per block, the chunk starts at its offset in
+            // the block file and is followed by the next chunk, packed
+            // chunks start at their offset in the pack file.
+            long offset = ChunkUtils.getChunkFileOffset(onDiskContainerData,
+                ChunkInfo.getFromProtoBuf(chunk));
+            try (InputStream fs = ScheduledInputStream.wrap(
+                openChunkFile(chunkFile, offset, directRead), ioScheduler,
+                IOClass.SCRUB)) {
               for (int i = 0; i < length; i++) {
-                int v = fs.read(buffer);
-                if (v == -1) {
+                int v = fs.read(buffer, 0, (int) Math.min(buffer.length,
+                    chunk.getLen() - bytesRead));
+                if (v <= 0) {
                   break;
                 }
                 bytesRead += v;
@@ -292,6 +325,25 @@ private void scanData(DataTransferThrottler throttler, Canceler canceler)
     }
   }
 
+  /**
+   * Opens a chunk file for reading from the given offset. Reading it with
+   * direct I/O keeps the scanned data out of the page cache.
+   */
+  private static InputStream openChunkFile(File chunkFile, long offset,
+      boolean directRead) throws IOException {
+    if (directRead) {
+      return DirectIOUtils.newInputStream(chunkFile, offset);
+    }
+    FileInputStream fs = new FileInputStream(chunkFile);
+    try {
+      fs.getChannel().position(offset);
+    } catch (IOException e) {
+      fs.close();
+      throw e;
+    }
+    return fs;
+  }
+
   private void loadContainerData() throws IOException {
     File containerFile = KeyValueContainer
         .getContainerFile(metadataPath, containerID);
@@ -71,6 +71,13 @@ public class KeyValueContainerData extends ContainerData {
 
   private long blockCommitSequenceId;
 
+  // length of the pack file including the space reserved for data being
+  // appended to it.
+  private long packFileLength;
+
+  // length of the pack file referred to by committed blocks.
+  private long committedPackFileLength;
+
   static {
     // Initialize YAML fields
     KV_YAML_FIELDS = Lists.newArrayList();
@@ -167,6 +174,52 @@ public void updateBlockCommitSequenceId(long id) {
     this.blockCommitSequenceId = id;
   }
 
+  /**
+   * Reserves the given number of bytes at the end of the pack file of the
+   * container.
+   *
+   * @param len - number of bytes to reserve.
+   * @return offset of the reserved bytes in the pack file.
+   */
+  public synchronized long reservePackFileSpace(long len) {
+    long offset = packFileLength;
+    packFileLength += len;
+    return offset;
+  }
+
+  /**
+   * Records that a block referring to the pack file up to the given length
+   * is being committed.
+   *
+   * @param length - end of the data of the block in the pack file.
+   * @return length of the pack file referred to by committed blocks, to be
+   * stored with the block.
+   */
+  public synchronized long commitPackFileLength(long length) {
+    committedPackFileLength = max(committedPackFileLength, length);
+    return committedPackFileLength;
+  }
+
+  /**
+   * Sets the length of the pack file when the container is loaded, to the
+   * length referred to by its committed blocks. Data appended after it has
+   * not been committed and is overwritten.
+   *
+   * @param length - length stored with the committed blocks.
+   */
+  public synchronized void setPackFileLength(long length) {
+    packFileLength = length;
+    committedPackFileLength = length;
+  }
+
+  public synchronized long getPackFileLength() {
+    return packFileLength;
+  }
+
+  public synchronized long getCommittedPackFileLength() {
+    return committedPackFileLength;
+  }
+
   /**
    * Get chunks path.
    * @return - Path where chunks are stored
@@ -22,6 +22,7 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -52,6 +53,7 @@
 import org.apache.hadoop.hdds.scm.container.common.helpers
     .StorageContainerException;
 import org.apache.hadoop.ozone.OzoneConfigKeys;
+import org.apache.hadoop.ozone.OzoneConsts;
 import org.apache.hadoop.ozone.container.common.helpers.BlockData;
 import org.apache.hadoop.ozone.container.common.helpers.ChunkInfo;
 import org.apache.hadoop.ozone.container.common.helpers.ContainerMetrics;
@@ -83,6 +85,15 @@
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
+import static org.apache.hadoop.hdds.HddsConfigKeys
+    .HDDS_CONTAINER_SMALL_FILE_PACK_ENABLED;
+import static org.apache.hadoop.hdds.HddsConfigKeys
+    .HDDS_CONTAINER_SMALL_FILE_PACK_ENABLED_DEFAULT;
+import static org.apache.hadoop.hdds.HddsConfigKeys
+    .HDDS_CONTAINER_SMALL_FILE_PACK_MAX_SIZE;
+import static org.apache.hadoop.hdds.HddsConfigKeys
+    .HDDS_CONTAINER_SMALL_FILE_PACK_MAX_SIZE_DEFAULT;
 import static org.apache.hadoop.hdds.HddsConfigKeys
     .HDDS_DATANODE_VOLUME_CHOOSING_POLICY;
 import static org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.
@@ -108,6 +119,10 @@ public class KeyValueHandler extends Handler {
   // A lock that is held during container creation.
   private final AutoCloseableLock containerCreationLock;
   private final boolean doSyncWrite;
+  private final int chunkLayOutVersion;
+  // largest small file appended to the pack file of the container, -1 if
+  // small files are not packed.
+  private final long maxPackedFileSize;
 
   public KeyValueHandler(Configuration config, StateContext context,
       ContainerSet contSet, VolumeSet volSet, ContainerMetrics metrics) {
@@ -118,6 +133,7 @@ public KeyValueHandler(Configuration config, StateContext context,
         conf.getBoolean(OzoneConfigKeys.DFS_CONTAINER_CHUNK_WRITE_SYNC_KEY,
             OzoneConfigKeys.DFS_CONTAINER_CHUNK_WRITE_SYNC_DEFAULT);
     chunkManager = ChunkManagerFactory.getChunkManager(config, doSyncWrite);
+    chunkLayOutVersion = ChunkManagerFactory.getChunkLayOutVersion(config);
     volumeChoosingPolicy = ReflectionUtils.newInstance(conf.getClass(
         HDDS_DATANODE_VOLUME_CHOOSING_POLICY, RoundRobinVolumeChoosingPolicy
             .class, VolumeChoosingPolicy.class), conf);
@@ -127,6 +143,12 @@ public KeyValueHandler(Configuration config, StateContext context,
     // this handler lock is used for synchronizing createContainer Requests,
     // so using a fair lock here.
     containerCreationLock = new AutoCloseableLock(new ReentrantLock(true));
+    maxPackedFileSize = config.getBoolean(
+        HDDS_CONTAINER_SMALL_FILE_PACK_ENABLED,
+        HDDS_CONTAINER_SMALL_FILE_PACK_ENABLED_DEFAULT)
+        ? (long) config.getStorageSize(HDDS_CONTAINER_SMALL_FILE_PACK_MAX_SIZE,
+            HDDS_CONTAINER_SMALL_FILE_PACK_MAX_SIZE_DEFAULT, StorageUnit.BYTES)
+        : -1;
     byteBufferToByteString =
         ByteStringConversion.createByteBufferConversion(conf);
   }
@@ -181,7 +203,7 @@ public ContainerCommandResponseProto handle(
     case PutSmallFile:
       return handlePutSmallFile(request, kvContainer, dispatcherContext);
     case GetSmallFile:
-      return handleGetSmallFile(request, kvContainer);
+      return handleGetSmallFile(request, kvContainer, dispatcherContext);
     case GetCommittedBlockLength:
       return handleGetCommittedBlockLength(request, kvContainer);
     default:
@@ -219,8 +241,8 @@ ContainerCommandResponseProto handleCreateContainer(
     long containerID = request.getContainerID();
 
     KeyValueContainerData newContainerData = new KeyValueContainerData(
-        containerID, maxContainerSize, request.getPipelineID(),
-        getDatanodeDetails().getUuidString());
+        containerID, chunkLayOutVersion, maxContainerSize,
+        request.getPipelineID(), getDatanodeDetails().getUuidString());
     // TODO: Add support to add metadataList to ContainerData. Add metadata
     // to container during creation.
     KeyValueContainer newContainer = new KeyValueContainer(
@@ -405,6 +427,15 @@ ContainerCommandResponseProto handlePutBlock(
       long bcsId =
           dispatcherContext == null ? 0 : dispatcherContext.getLogIndex();
       blockData.setBlockCommitSequenceId(bcsId);
+      if (request.getPutBlock().getChunksStreamed()) {
+        // streamed chunks are not in the Ratis log. If their data has been
+        // lost, failing here marks the replica unhealthy, so that it is
+        // replaced by a copy of a healthy replica.
+        for (ContainerProtos.ChunkInfo chunk : blockData.getChunks()) {
+          chunkManager.checkChunkPresent(kvContainer, blockData.getBlockID(),
+              ChunkInfo.getFromProtoBuf(chunk));
+        }
+      }
       final long numBytes = blockData.getSerializedSize();
       blockManager.putBlock(kvContainer, blockData);
       metrics.incContainerBytesStats(Type.PutBlock, numBytes);
@@ -566,9 +597,17 @@ ContainerCommandResponseProto handleReadChunk(
         dispatcherContext = new DispatcherContext.Builder().build();
       }
 
-      data = chunkManager
-          .readChunk(kvContainer, blockID, chunkInfo, dispatcherContext);
-      metrics.incContainerBytesStats(Type.ReadChunk, chunkInfo.getLen());
+      ContainerProtos.ReadChunkRequestProto readChunk =
+          request.getReadChunk();
+      if (readChunk.hasReadOffset() && readChunk.hasReadLength()) {
+        data = chunkManager.readChunk(kvContainer, blockID, chunkInfo,
+            readChunk.getReadOffset(), readChunk.getReadLength(),
+            dispatcherContext);
+      } else {
+        data = chunkManager
+            .readChunk(kvContainer, blockID, chunkInfo, dispatcherContext);
+      }
+      metrics.incContainerBytesStats(Type.ReadChunk, data.remaining());
     } catch (StorageContainerException ex) {
       return ContainerUtils.logAndReturnError(LOG, ex, request);
     } catch (IOException ex) {
@@ -582,7 +621,7 @@ ContainerCommandResponseProto handleReadChunk(
     ContainerProtos.ReadChunkResponseProto.Builder response =
         ContainerProtos.ReadChunkResponseProto.newBuilder();
     response.setChunkData(chunkInfo.getProtoBufMessage());
-    response.setData(byteBufferToByteString.apply(data));
+    response.setData(toByteString(data));
     response.setBlockID(request.getReadChunk().getBlockID());
 
     ContainerCommandResponseProto.Builder builder =
@@ -591,6 +630,18 @@ ContainerCommandResponseProto handleReadChunk(
     return builder.build();
   }
 
+  /**
+   * Converts chunk data read by the ChunkManager to a ByteString. Memory
+   * mapped buffers are read only and never reused, so they are wrapped
+   * without copying the data to the heap.
+   */
+  private ByteString toByteString(ByteBuffer data) {
+    if (data instanceof MappedByteBuffer) {
+      return UnsafeByteOperations.unsafeWrap(data);
+    }
+    return byteBufferToByteString.apply(data);
+  }
+
   /**
    * Throw an exception if the container is unhealthy.
    *
@@ -714,7 +765,8 @@ ContainerCommandResponseProto handleWriteChunk(
   /**
    * Handle Put Small File operation. Writes the chunk and associated key
    * using a single RPC. Calls BlockManager and ChunkManager to process the
-   * request.
+   * request. Small enough files are appended to the pack file of the
+   * container if small files are packed.
    */
   ContainerCommandResponseProto handlePutSmallFile(
       ContainerCommandRequestProto request, KeyValueContainer kvContainer,
@@ -750,8 +802,18 @@ ContainerCommandResponseProto handlePutSmallFile(
 
       // chunks will be committed as a part of handling putSmallFile
       // here. There is no need to maintain this info in openContainerBlockMap.
-      chunkManager
-          .writeChunk(kvContainer, blockID, chunkInfo, data, dispatcherContext);
+      if (chunkInfo.getLen() <= maxPackedFileSize) {
+        chunkManager.writePackedChunk(kvContainer, blockID, chunkInfo, data,
+            dispatcherContext);
+      } else {
+        // the small file is the only chunk of its block.
+        if (!chunkInfo.getMetadata().containsKey(
+            OzoneConsts.CHUNK_BLOCK_OFFSET)) {
+          chunkInfo.addMetadata(OzoneConsts.CHUNK_BLOCK_OFFSET, "0");
+        }
+        chunkManager.writeChunk(kvContainer, blockID, chunkInfo, data,
+            dispatcherContext);
+      }
 
       List<ContainerProtos.ChunkInfo> chunks = new LinkedList<>();
       chunks.add(chunkInfo.getProtoBufMessage());
@@ -778,7 +840,8 @@ ContainerCommandResponseProto handlePutSmallFile(
    * ChunkManager to process the request.
    */
   ContainerCommandResponseProto handleGetSmallFile(
-      ContainerCommandRequestProto request, KeyValueContainer kvContainer) {
+      ContainerCommandRequestProto request, KeyValueContainer kvContainer,
+      DispatcherContext dispatcherContext) {
 
     if (!request.hasGetSmallFile()) {
       if (LOG.isDebugEnabled()) {
@@ -805,14 +868,16 @@ ContainerCommandResponseProto handleGetSmallFile(
 
       ContainerProtos.ChunkInfo chunkInfo = null;
       ByteString dataBuf = ByteString.EMPTY;
-      DispatcherContext dispatcherContext =
-          new DispatcherContext.Builder().build();
+      if (dispatcherContext == null) {
+        dispatcherContext = new DispatcherContext.Builder().build();
+      }
       for (ContainerProtos.ChunkInfo chunk : responseData.getChunks()) {
         // if the block is committed, all chunks must have been committed.
         // Tmp chunk files won't exist here.
         ByteBuffer data = chunkManager.readChunk(kvContainer, blockID,
-            ChunkInfo.getFromProtoBuf(chunk), dispatcherContext);
-        ByteString current = byteBufferToByteString.apply(data);
+            ChunkInfo.getFromProtoBuf(chunk), 0, chunk.getLen(),
+            dispatcherContext);
+        ByteString current = toByteString(data);
         dataBuf = dataBuf.concat(current);
         chunkInfo = chunk;
       }
@@ -887,7 +952,7 @@ public Container importContainer(final long containerID,
       final TarContainerPacker packer)
       throws IOException {
 
-    // TODO: Add layout version!
+    // The layout version is set from the imported container descriptor.
     KeyValueContainerData containerData =
         new KeyValueContainerData(containerID,
             maxSize, originPipelineId, originNodeId);
@@ -1018,6 +1083,15 @@ public void deleteContainer(Container container, boolean force)
     deleteInternal(container, force);
   }
 
+  @Override
+  public void prefetchMetadata(Container container) {
+    KeyValueContainerData containerData =
+        (KeyValueContainerData) container.getContainerData();
+    // deleting a container removes it from the set before closing its DB.
+    BlockUtils.prefetchDB(containerData, conf, () -> containerSet
+        .getContainer(containerData.getContainerID()) == container);
+  }
+
   private void deleteInternal(Container container, boolean force)
       throws StorageContainerException {
     container.writeLock();
@@ -21,6 +21,7 @@
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -28,12 +29,30 @@
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
 
 import org.apache.hadoop.hdds.HddsUtils;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .CopyContainerPart;
 import org.apache.hadoop.ozone.OzoneConsts;
 import org.apache.hadoop.ozone.container.common.interfaces.Container;
 import org.apache.hadoop.ozone.container.common.interfaces.ContainerPacker;
+import org.apache.hadoop.ozone.container.common.volume.ScheduledInputStream;
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler;
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler
+    .IOClass;
+import org.apache.hadoop.ozone.container.replication.CopyContainerCompression;
+import org.apache.hadoop.util.PureJavaCrc32C;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
@@ -41,13 +60,28 @@
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.compress.compressors.CompressorException;
-import org.apache.commons.compress.compressors.CompressorInputStream;
-import org.apache.commons.compress.compressors.CompressorOutputStream;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.io.IOUtils;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * Compress/uncompress KeyValueContainer data to a tar.gz archive.
+ * <p>
+ * If created with a {@link CopyContainerCompression}, the archive is
+ * compressed with it instead of gzip, and it ends with a list of the CRC32C
+ * checksums of all files in the archive, which are verified when the archive
+ * is unpacked. In both formats the container descriptor is the first entry
+ * of the archive, and the other files are in the order of their names, so
+ * that a container which is not modified is always packed to the same
+ * bytes and can be unpacked while it is being received.
+ * <p>
+ * A container can also be packed in parts, see {@link #metadataPart()} and
+ * {@link #chunkFilesPart(Collection)}, which are not compressed. The archive
+ * of each part ends with the checksums of its files, and the archives of the
+ * parts, without their last {@link #PART_TRAILER_SIZE} bytes, add up to one
+ * archive of the whole container, which can be unpacked by a packer with
+ * {@link CopyContainerCompression#NO_COMPRESSION}.
  */
 public class TarContainerPacker
     implements ContainerPacker<KeyValueContainerData> {
@@ -58,7 +92,123 @@
 
   private static final String CONTAINER_FILE_NAME = "container.yaml";
 
+  static final String CHECKSUMS_FILE_NAME = "container.checksums";
+
+  static final String CHUNK_LIST_FILE_NAME = "container.chunks";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int RECORD_SIZE = 512;
+
+  /**
+   * Size of the end of archive records of the archive of a part.
+   */
+  public static final int PART_TRAILER_SIZE = 2 * RECORD_SIZE;
+
+  private final CopyContainerCompression compression;
+
+  private final CopyContainerPart part;
+
+  private final SortedSet<String> chunkFiles;
+
+  /**
+   * Creates a packer of gzip compressed archives without checksums.
+   */
+  public TarContainerPacker() {
+    this(null);
+  }
+
+  /**
+   * Creates a packer of archives compressed with the given compression,
+   * which include the checksums of the files.
+   */
+  public TarContainerPacker(CopyContainerCompression compression) {
+    this(compression, CopyContainerPart.FULL_ARCHIVE, null);
+  }
+
+  private TarContainerPacker(CopyContainerCompression compression,
+      CopyContainerPart part, Collection<String> chunkFiles) {
+    this.compression = compression;
+    this.part = part;
+    this.chunkFiles = chunkFiles != null ? new TreeSet<>(chunkFiles) : null;
+  }
+
+  /**
+   * Creates a packer of the container descriptor, the container DB and the
+   * list of the chunk files of the container, which can be read with
+   * {@link #readChunkFileList(InputStream)}.
+   */
+  public static TarContainerPacker metadataPart() {
+    return new TarContainerPacker(CopyContainerCompression.NO_COMPRESSION,
+        CopyContainerPart.METADATA, null);
+  }
+
+  /**
+   * Creates a packer of the given chunk files of the container.
+   *
+   * @param chunkFiles names of the files in the chunks directory.
+   */
+  public static TarContainerPacker chunkFilesPart(
+      Collection<String> chunkFiles) {
+    return new TarContainerPacker(CopyContainerCompression.NO_COMPRESSION,
+        CopyContainerPart.CHUNK_FILES, chunkFiles);
+  }
+
+  /**
+   * Returns the size of the archive of the part with the given chunk files.
+   *
+   * @param chunkFiles sizes of the chunk files by name.
+   */
+  public static long getChunkFilesPartSize(Map<String, Long> chunkFiles) {
+    long size = PART_TRAILER_SIZE;
+    long checksumsSize = 0;
+    for (Map.Entry<String, Long> file : chunkFiles.entrySet()) {
+      String entryName = CHUNKS_DIR_NAME + "/" + file.getKey();
+      size += RECORD_SIZE + roundUpToRecord(file.getValue());
+      checksumsSize += checksumLine(0, entryName).getBytes(UTF_8).length;
+    }
+    return size + RECORD_SIZE + roundUpToRecord(checksumsSize);
+  }
+
+  /**
+   * Reads the list of chunk files from the archive of the metadata part.
+   *
+   * @return sizes of the chunk files by name.
+   */
+  public static SortedMap<String, Long> readChunkFileList(
+      InputStream metadataPart) throws IOException {
+    TarArchiveInputStream tarInput = new TarArchiveInputStream(metadataPart);
+    TarArchiveEntry entry = tarInput.getNextTarEntry();
+    while (entry != null) {
+      if (entry.getName().equals(CHUNK_LIST_FILE_NAME)) {
+        SortedMap<String, Long> chunkFileList = new TreeMap<>();
+        String content = new String(readEntry(tarInput, entry, null), UTF_8);
+        for (String line : content.split("\n")) {
+          if (line.isEmpty()) {
+            continue;
+          }
+          int separator = line.indexOf(' ');
+          if (separator < 0) {
+            throw new IOException("Invalid chunk file list entry: " + line);
+          }
+          chunkFileList.put(line.substring(separator + 1),
+              Long.parseLong(line.substring(0, separator)));
+        }
+        return chunkFileList;
+      }
+      entry = tarInput.getNextTarEntry();
+    }
+    throw new IOException(
+        "Chunk file list is missing from the container archive.");
+  }
 
+  /**
+   * Returns the compression of the archives, or null if they are gzip
+   * compressed and have no checksums.
+   */
+  public CopyContainerCompression getCompression() {
+    return compression;
+  }
 
   /**
    * Given an input stream (tar file) extract the data to the specified
@@ -74,37 +224,53 @@ public byte[] unpackContainerData(Container<KeyValueContainerData> container,
     byte[] descriptorFileContent = null;
     try {
       KeyValueContainerData containerData = container.getContainerData();
-      CompressorInputStream compressorInputStream =
-          new CompressorStreamFactory()
-              .createCompressorInputStream(CompressorStreamFactory.GZIP,
-                  inputStream);
-
       TarArchiveInputStream tarInput =
-          new TarArchiveInputStream(compressorInputStream);
+          new TarArchiveInputStream(uncompress(inputStream));
+      // checksums of the extracted files which are not verified yet, if the
+      // archive has checksums.
+      Map<String, Long> checksums = compression != null ? new HashMap<>()
+          : null;
 
       TarArchiveEntry entry = tarInput.getNextTarEntry();
       while (entry != null) {
         String name = entry.getName();
+        Checksum checksum = checksums != null ? new PureJavaCrc32C() : null;
         if (name.startsWith(DB_DIR_NAME + "/")) {
           Path dbRoot = containerData.getDbFile().toPath();
           Path destinationPath = dbRoot
               .resolve(name.substring(DB_DIR_NAME.length() + 1));
-          extractEntry(tarInput, entry.getSize(), dbRoot, destinationPath);
+          extractEntry(tarInput, entry.getSize(), dbRoot, destinationPath,
+              checksum);
         } else if (name.startsWith(CHUNKS_DIR_NAME + "/")) {
           Path chunksRoot = Paths.get(containerData.getChunksPath());
           Path destinationPath = chunksRoot
               .resolve(name.substring(CHUNKS_DIR_NAME.length() + 1));
-          extractEntry(tarInput, entry.getSize(), chunksRoot, destinationPath);
+          extractEntry(tarInput, entry.getSize(), chunksRoot, destinationPath,
+              checksum);
         } else if (name.equals(CONTAINER_FILE_NAME)) {
           //Don't do anything. Container file should be unpacked in a
           //separated step by unpackContainerDescriptor call.
-          descriptorFileContent = readEntry(tarInput, entry);
+          descriptorFileContent = readEntry(tarInput, entry, checksum);
+        } else if (checksums != null && name.equals(CHUNK_LIST_FILE_NAME)) {
+          // only used to download the parts of the container.
+          readEntry(tarInput, entry, checksum);
+        } else if (checksums != null && name.equals(CHECKSUMS_FILE_NAME)) {
+          verifyChecksums(checksums, readEntry(tarInput, entry, null),
+              containerData.getContainerID());
+          checksum = null;
         } else {
           throw new IllegalArgumentException(
               "Unknown entry in the tar file: " + "" + name);
         }
+        if (checksum != null) {
+          checksums.put(name, checksum.getValue());
+        }
         entry = tarInput.getNextTarEntry();
       }
+      if (checksums != null && !checksums.isEmpty()) {
+        throw new IOException("Checksums are missing from the archive of " +
+            "container " + containerData.getContainerID());
+      }
       return descriptorFileContent;
 
     } catch (CompressorException e) {
@@ -116,7 +282,7 @@ public byte[] unpackContainerData(Container<KeyValueContainerData> container,
   }
 
   private void extractEntry(TarArchiveInputStream tarInput, long size,
-                            Path ancestor, Path path) throws IOException {
+      Path ancestor, Path path, Checksum checksum) throws IOException {
     HddsUtils.validatePath(path, ancestor);
     Path parent = path.getParent();
     if (parent != null) {
@@ -124,15 +290,17 @@ private void extractEntry(TarArchiveInputStream tarInput, long size,
     }
     try (BufferedOutputStream bos = new BufferedOutputStream(
         new FileOutputStream(path.toAbsolutePath().toString()))) {
-      int bufferSize = 1024;
-      byte[] buffer = new byte[bufferSize + 1];
+      byte[] buffer = new byte[BUFFER_SIZE];
       long remaining = size;
       while (remaining > 0) {
         int read =
-            tarInput.read(buffer, 0, (int) Math.min(remaining, bufferSize));
+            tarInput.read(buffer, 0, (int) Math.min(remaining, BUFFER_SIZE));
         if (read >= 0) {
           remaining -= read;
           bos.write(buffer, 0, read);
+          if (checksum != null) {
+            checksum.update(buffer, 0, read);
+          }
         } else {
           remaining = 0;
         }
@@ -141,6 +309,35 @@ private void extractEntry(TarArchiveInputStream tarInput, long size,
 
   }
 
+  /**
+   * Compares the checksums of the extracted files with the checksums listed
+   * in the archive, and removes the verified files from the checksums.
+   */
+  private static void verifyChecksums(Map<String, Long> checksums,
+      byte[] checksumsFileContent, long containerId) throws IOException {
+    String content = new String(checksumsFileContent, UTF_8);
+    for (String line : content.split("\n")) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      int separator = line.indexOf(' ');
+      if (separator < 0) {
+        throw new IOException("Invalid checksum of container " + containerId
+            + ": " + line);
+      }
+      String name = line.substring(separator + 1);
+      Long checksum = checksums.remove(name);
+      if (checksum == null) {
+        throw new IOException("File " + name + " is missing from the archive "
+            + "of container " + containerId);
+      }
+      if (checksum != Long.parseLong(line.substring(0, separator), 16)) {
+        throw new IOException("Checksum mismatch of file " + name
+            + " of container " + containerId);
+      }
+    }
+  }
+
   /**
    * Given a containerData include all the required container data/metadata
    * in a tar file.
@@ -154,23 +351,48 @@ public void pack(Container<KeyValueContainerData> container,
       throws IOException {
 
     KeyValueContainerData containerData = container.getContainerData();
+    // the files are read as replication operations of the volume, the
+    // writes to the destination are not paced.
+    VolumeIOScheduler ioScheduler = containerData.getVolume() != null
+        ? containerData.getVolume().getIOScheduler() : null;
+
+    try (OutputStream compressedOut = compress(destination)) {
+
+      // the archives of parts have no padding after the end of archive
+      // records, so that they can be concatenated.
+      try (ArchiveOutputStream archiveOutputStream =
+               part == CopyContainerPart.FULL_ARCHIVE
+                   ? new TarArchiveOutputStream(compressedOut)
+                   : new TarArchiveOutputStream(compressedOut, RECORD_SIZE)) {
+        StringBuilder checksums = compression != null ? new StringBuilder()
+            : null;
+
+        if (part != CopyContainerPart.CHUNK_FILES) {
+          // the descriptor goes first, so that the receiver can create the
+          // container before the rest of the archive is received.
+          includeFile(container.getContainerFile(),
+              CONTAINER_FILE_NAME,
+              archiveOutputStream, checksums, ioScheduler);
+
+          includePath(containerData.getDbFile().toString(), DB_DIR_NAME,
+              archiveOutputStream, checksums, ioScheduler);
+        }
 
-    try (CompressorOutputStream gzippedOut = new CompressorStreamFactory()
-          .createCompressorOutputStream(CompressorStreamFactory.GZIP,
-              destination)) {
-
-      try (ArchiveOutputStream archiveOutputStream = new TarArchiveOutputStream(
-          gzippedOut)) {
-
-        includePath(containerData.getDbFile().toString(), DB_DIR_NAME,
-            archiveOutputStream);
-
-        includePath(containerData.getChunksPath(), CHUNKS_DIR_NAME,
-            archiveOutputStream);
+        if (part == CopyContainerPart.FULL_ARCHIVE) {
+          includePath(containerData.getChunksPath(), CHUNKS_DIR_NAME,
+              archiveOutputStream, checksums, ioScheduler);
+        } else if (part == CopyContainerPart.METADATA) {
+          includeBytes(listChunkFiles(containerData), CHUNK_LIST_FILE_NAME,
+              archiveOutputStream, checksums);
+        } else {
+          includeChunkFiles(containerData, archiveOutputStream, checksums,
+              ioScheduler);
+        }
 
-        includeFile(container.getContainerFile(),
-            CONTAINER_FILE_NAME,
-            archiveOutputStream);
+        if (checksums != null) {
+          includeBytes(checksums.toString().getBytes(UTF_8),
+              CHECKSUMS_FILE_NAME, archiveOutputStream, null);
+        }
       }
     } catch (CompressorException e) {
       throw new IOException(
@@ -184,19 +406,14 @@ public void pack(Container<KeyValueContainerData> container,
   public byte[] unpackContainerDescriptor(InputStream inputStream)
       throws IOException {
     try {
-      CompressorInputStream compressorInputStream =
-          new CompressorStreamFactory()
-              .createCompressorInputStream(CompressorStreamFactory.GZIP,
-                  inputStream);
-
       TarArchiveInputStream tarInput =
-          new TarArchiveInputStream(compressorInputStream);
+          new TarArchiveInputStream(uncompress(inputStream));
 
       TarArchiveEntry entry = tarInput.getNextTarEntry();
       while (entry != null) {
         String name = entry.getName();
         if (name.equals(CONTAINER_FILE_NAME)) {
-          return readEntry(tarInput, entry);
+          return readEntry(tarInput, entry, null);
         }
         entry = tarInput.getNextTarEntry();
       }
@@ -210,8 +427,8 @@ public byte[] unpackContainerDescriptor(InputStream inputStream)
         "Container descriptor is missing from the container archive.");
   }
 
-  private byte[] readEntry(TarArchiveInputStream tarInput,
-      TarArchiveEntry entry) throws IOException {
+  private static byte[] readEntry(TarArchiveInputStream tarInput,
+      TarArchiveEntry entry, Checksum checksum) throws IOException {
     ByteArrayOutputStream bos = new ByteArrayOutputStream();
     int bufferSize = 1024;
     byte[] buffer = new byte[bufferSize + 1];
@@ -219,32 +436,139 @@ private byte[] readEntry(TarArchiveInputStream tarInput,
     while (remaining > 0) {
       int read =
           tarInput.read(buffer, 0, (int) Math.min(remaining, bufferSize));
+      if (read < 0) {
+        throw new IOException("Unexpected end of entry " + entry.getName());
+      }
       remaining -= read;
       bos.write(buffer, 0, read);
+      if (checksum != null) {
+        checksum.update(buffer, 0, read);
+      }
     }
     return bos.toByteArray();
   }
 
   private void includePath(String containerPath, String subdir,
-      ArchiveOutputStream archiveOutputStream) throws IOException {
+      ArchiveOutputStream archiveOutputStream, StringBuilder checksums,
+      VolumeIOScheduler ioScheduler) throws IOException {
 
-    for (Path path : Files.list(Paths.get(containerPath))
-        .collect(Collectors.toList())) {
+    try (Stream<Path> files = Files.list(Paths.get(containerPath))) {
+      for (Path path : files.sorted().collect(Collectors.toList())) {
+        includeFile(path.toFile(), subdir + "/" + path.getFileName(),
+            archiveOutputStream, checksums, ioScheduler);
+      }
+    }
+  }
 
-      includeFile(path.toFile(), subdir + "/" + path.getFileName(),
-          archiveOutputStream);
+  /**
+   * Lists the files in the chunks directory of the container, with their
+   * sizes.
+   */
+  private static byte[] listChunkFiles(KeyValueContainerData containerData)
+      throws IOException {
+    StringBuilder chunkFileList = new StringBuilder();
+    try (Stream<Path> files = Files.list(
+        Paths.get(containerData.getChunksPath()))) {
+      for (Path path : files.sorted().collect(Collectors.toList())) {
+        chunkFileList.append(Files.size(path)).append(' ')
+            .append(path.getFileName()).append('\n');
+      }
+    }
+    return chunkFileList.toString().getBytes(UTF_8);
+  }
+
+  private void includeChunkFiles(KeyValueContainerData containerData,
+      ArchiveOutputStream archiveOutputStream, StringBuilder checksums,
+      VolumeIOScheduler ioScheduler) throws IOException {
+    Path chunksRoot = Paths.get(containerData.getChunksPath());
+    for (String chunkFile : chunkFiles) {
+      Path path = chunksRoot.resolve(chunkFile);
+      HddsUtils.validatePath(path, chunksRoot);
+      if (!Files.isRegularFile(path)) {
+        throw new FileNotFoundException("Chunk file " + chunkFile
+            + " of container " + containerData.getContainerID()
+            + " is not found");
+      }
+      includeFile(path.toFile(), CHUNKS_DIR_NAME + "/" + chunkFile,
+          archiveOutputStream, checksums, ioScheduler);
     }
   }
 
   static void includeFile(File file, String entryName,
       ArchiveOutputStream archiveOutputStream) throws IOException {
+    includeFile(file, entryName, archiveOutputStream, null, null);
+  }
+
+  /**
+   * Adds a file to the archive, and if checksums are collected, appends the
+   * checksum of the file to them. If the scheduler is given, the file is
+   * read as replication operations of it.
+   */
+  private static void includeFile(File file, String entryName,
+      ArchiveOutputStream archiveOutputStream, StringBuilder checksums,
+      VolumeIOScheduler ioScheduler) throws IOException {
     ArchiveEntry archiveEntry =
         archiveOutputStream.createArchiveEntry(file, entryName);
     archiveOutputStream.putArchiveEntry(archiveEntry);
-    try (FileInputStream fis = new FileInputStream(file)) {
-      IOUtils.copy(fis, archiveOutputStream);
+    try (InputStream fis = ScheduledInputStream.wrap(
+        new FileInputStream(file), ioScheduler, IOClass.REPLICATION)) {
+      if (checksums == null) {
+        IOUtils.copyLarge(fis, archiveOutputStream, new byte[BUFFER_SIZE]);
+      } else {
+        CheckedInputStream checked =
+            new CheckedInputStream(fis, new PureJavaCrc32C());
+        IOUtils.copyLarge(checked, archiveOutputStream,
+            new byte[BUFFER_SIZE]);
+        checksums.append(checksumLine(checked.getChecksum().getValue(),
+            entryName));
+      }
     }
     archiveOutputStream.closeArchiveEntry();
   }
 
+  private static void includeBytes(byte[] content, String entryName,
+      ArchiveOutputStream archiveOutputStream, StringBuilder checksums)
+      throws IOException {
+    TarArchiveEntry entry = new TarArchiveEntry(entryName);
+    entry.setSize(content.length);
+    archiveOutputStream.putArchiveEntry(entry);
+    archiveOutputStream.write(content);
+    archiveOutputStream.closeArchiveEntry();
+    if (checksums != null) {
+      Checksum checksum = new PureJavaCrc32C();
+      checksum.update(content, 0, content.length);
+      checksums.append(checksumLine(checksum.getValue(), entryName));
+    }
+  }
+
+  /**
+   * Formats the checksum of a file in the list of checksums, with a fixed
+   * number of digits so that the size of the list is known in advance.
+   */
+  private static String checksumLine(long checksum, String entryName) {
+    return String.format("%08x %s", checksum, entryName) + '\n';
+  }
+
+  private static long roundUpToRecord(long size) {
+    return (size + RECORD_SIZE - 1) / RECORD_SIZE * RECORD_SIZE;
+  }
+
+  private OutputStream compress(OutputStream out)
+      throws IOException, CompressorException {
+    if (compression == null) {
+      return new CompressorStreamFactory()
+          .createCompressorOutputStream(CompressorStreamFactory.GZIP, out);
+    }
+    return compression.wrap(out);
+  }
+
+  private InputStream uncompress(InputStream in)
+      throws IOException, CompressorException {
+    if (compression == null) {
+      return new CompressorStreamFactory()
+          .createCompressorInputStream(CompressorStreamFactory.GZIP, in);
+    }
+    return compression.wrap(in);
+  }
+
 }
@@ -19,7 +19,9 @@
 package org.apache.hadoop.ozone.container.keyvalue.helpers;
 
 import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdds.HddsConfigKeys;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .ContainerCommandRequestProto;
@@ -38,8 +40,13 @@
 import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainerData;
 import org.apache.hadoop.ozone.container.common.utils.ContainerCache;
 import org.apache.hadoop.ozone.container.common.utils.ReferenceCountedDB;
+import org.apache.hadoop.ozone.container.common.utils.VolumeDBCache;
+import org.apache.hadoop.hdds.utils.MetadataStore;
+import org.apache.hadoop.hdds.utils.PrefixedMetadataStore;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.function.BooleanSupplier;
 
 import static org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .Result.NO_SUCH_BLOCK;
@@ -70,6 +77,9 @@ public static ReferenceCountedDB getDB(KeyValueContainerData containerData,
                                     Configuration conf) throws
       StorageContainerException {
     Preconditions.checkNotNull(containerData);
+    if (isVolumeDBEnabled(conf)) {
+      return getVolumeDB(containerData, conf);
+    }
     ContainerCache cache = ContainerCache.getInstance(conf);
     Preconditions.checkNotNull(cache);
     Preconditions.checkNotNull(containerData.getDbFile());
@@ -84,6 +94,70 @@ public static ReferenceCountedDB getDB(KeyValueContainerData containerData,
       throw new StorageContainerException(message, UNABLE_TO_READ_METADATA_DB);
     }
   }
+  /**
+   * Opens the DB of a container in the background, if it is not open yet.
+   *
+   * @param containerData containerData.
+   * @param conf configuration.
+   * @param isLive whether the container still exists, checked right before
+   *               the DB is opened.
+   */
+  public static void prefetchDB(KeyValueContainerData containerData,
+      Configuration conf, BooleanSupplier isLive) {
+    // volume DBs stay open as long as their volume.
+    if (isVolumeDBEnabled(conf) || containerData.getDbFile() == null) {
+      return;
+    }
+    ContainerCache.getInstance(conf).prefetchDB(
+        containerData.getContainerID(), containerData.getContainerDBType(),
+        containerData.getDbFile().getAbsolutePath(), conf, isLive);
+  }
+
+  /**
+   * Returns true if the metadata of the containers is kept in a DB shared by
+   * all containers of a volume, instead of a DB per container.
+   */
+  public static boolean isVolumeDBEnabled(Configuration conf) {
+    return conf.getBoolean(
+        HddsConfigKeys.HDDS_CONTAINER_DB_PER_VOLUME_ENABLED,
+        HddsConfigKeys.HDDS_CONTAINER_DB_PER_VOLUME_ENABLED_DEFAULT);
+  }
+
+  /**
+   * Returns the DB shared by all containers of the volume the container is
+   * stored on.
+   */
+  public static File getVolumeDBFile(KeyValueContainerData containerData) {
+    if (containerData.getVolume() != null) {
+      return containerData.getVolume().getContainerDBFile();
+    }
+    return KeyValueContainerLocationUtil.getVolumeDBFile(
+        new File(containerData.getMetadataPath()));
+  }
+
+  /**
+   * Returns the part of the volume DB which belongs to the container. The
+   * volume DB stays open when the returned handle is closed.
+   */
+  public static ReferenceCountedDB getVolumeDB(
+      KeyValueContainerData containerData, Configuration conf)
+      throws StorageContainerException {
+    File dbFile = getVolumeDBFile(containerData);
+    try {
+      MetadataStore store = VolumeDBCache.getInstance().getDB(dbFile, conf);
+      ReferenceCountedDB db = new ReferenceCountedDB(
+          new PrefixedMetadataStore(store,
+              Longs.toByteArray(containerData.getContainerID())),
+          dbFile.getAbsolutePath());
+      db.incrementReference();
+      return db;
+    } catch (IOException ex) {
+      String message = String.format("Error opening volume DB. Container:%s " +
+          "VolumePath:%s", containerData.getContainerID(), dbFile.getPath());
+      throw new StorageContainerException(message, UNABLE_TO_READ_METADATA_DB);
+    }
+  }
+
   /**
    * Remove a DB handler from cache.
    *
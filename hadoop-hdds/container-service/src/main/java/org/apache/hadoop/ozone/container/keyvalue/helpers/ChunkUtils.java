@@ -20,6 +20,8 @@
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import org.apache.hadoop.hdds.client.BlockID;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .ContainerCommandRequestProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
@@ -28,19 +30,24 @@
     .StorageContainerException;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.ozone.OzoneConsts;
+import org.apache.hadoop.ozone.container.common.helpers.BlockData;
 import org.apache.hadoop.ozone.container.common.helpers.ChunkInfo;
 import org.apache.hadoop.ozone.container.common.helpers.ContainerUtils;
+import org.apache.hadoop.ozone.container.common.impl.ChunkLayOutVersion;
 import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainerData;
 import org.apache.hadoop.ozone.container.keyvalue.impl.ChunkManagerImpl;
+import org.apache.hadoop.ozone.container.common.volume.FileChannelCache;
 import org.apache.hadoop.ozone.container.common.volume.VolumeIOStats;
 import org.apache.hadoop.util.Time;
 import org.apache.ratis.util.function.CheckedSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.file.Path;
@@ -77,23 +84,80 @@ public static void writeData(File chunkFile, ChunkInfo chunkInfo,
       ByteBuffer data, VolumeIOStats volumeIOStats, boolean sync)
       throws StorageContainerException, ExecutionException,
       InterruptedException, NoSuchAlgorithmException {
+    writeData(chunkFile, chunkInfo, chunkInfo.getOffset(), data,
+        volumeIOStats, null, sync);
+  }
+
+  /**
+   * Writes the data in chunk Info to the given offset in the file.
+   *
+   * @param chunkFile - File to write data to.
+   * @param chunkInfo - Data stream to write.
+   * @param offset - offset in the file where the data is written.
+   * @param data - The data buffer.
+   * @param volumeIOStats statistics collector
+   * @param handleCache cache of open files of the volume, null to open and
+   *                    close the file for this write only.
+   * @param sync whether to do fsync or not
+   */
+  public static void writeData(File chunkFile, ChunkInfo chunkInfo,
+      long offset, ByteBuffer data, VolumeIOStats volumeIOStats,
+      FileChannelCache handleCache, boolean sync)
+      throws StorageContainerException, ExecutionException,
+      InterruptedException, NoSuchAlgorithmException {
+    writeData(chunkFile, chunkInfo, offset, data, volumeIOStats, handleCache,
+        sync, false);
+  }
+
+  /**
+   * Writes the data in chunk Info to the given offset in the file.
+   *
+   * @param chunkFile - File to write data to.
+   * @param chunkInfo - Data stream to write.
+   * @param offset - offset in the file where the data is written.
+   * @param data - The data buffer.
+   * @param volumeIOStats statistics collector
+   * @param handleCache cache of open files of the volume, null to open and
+   *                    close the file for this write only.
+   * @param sync whether to do fsync or not
+   * @param direct whether to bypass the page cache if the write allows it,
+   *               see {@link DirectIOUtils}.
+   */
+  public static void writeData(File chunkFile, ChunkInfo chunkInfo,
+      long offset, ByteBuffer data, VolumeIOStats volumeIOStats,
+      FileChannelCache handleCache, boolean sync, boolean direct)
+      throws StorageContainerException, ExecutionException,
+      InterruptedException, NoSuchAlgorithmException {
     Logger log = LoggerFactory.getLogger(ChunkManagerImpl.class);
     final int bufferSize = validateBufferSize(chunkInfo, data, log);
 
     Path path = chunkFile.toPath();
     long startTime = Time.monotonicNow();
     processFileExclusively(path, () -> {
+      FileChannelCache.Handle handle = null;
       FileChannel file = null;
       try {
-        // skip SYNC and DSYNC to reduce contention on file.lock
-        file = FileChannel.open(path,
-            StandardOpenOption.CREATE,
-            StandardOpenOption.WRITE,
-            StandardOpenOption.SPARSE);
-
         int size;
-        try (FileLock ignored = file.lock()) {
-          size = file.write(data, chunkInfo.getOffset());
+        if (direct && DirectIOUtils.canWrite(path, offset, bufferSize)) {
+          // the file is opened with direct I/O for this write only, any
+          // cached handle of it stays valid.
+          size = DirectIOUtils.write(path, data, offset, sync);
+        } else if (handleCache != null) {
+          // access to the path is exclusive within the datanode, which owns
+          // the cached handle, so there is no need for a file lock.
+          handle = handleCache.acquire(path, true);
+          file = handle.getChannel();
+          size = file.write(data, offset);
+        } else {
+          // skip SYNC and DSYNC to reduce contention on file.lock
+          file = FileChannel.open(path,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.SPARSE);
+
+          try (FileLock ignored = file.lock()) {
+            size = file.write(data, offset);
+          }
         }
 
         // Increment volumeIO stats here.
@@ -111,7 +175,15 @@ public static void writeData(File chunkFile, ChunkInfo chunkInfo,
       } catch (IOException e) {
         throw new StorageContainerException(e, IO_EXCEPTION);
       } finally {
-        closeFile(file, sync);
+        if (handle != null) {
+          try {
+            syncFile(file, sync);
+          } finally {
+            handle.release();
+          }
+        } else {
+          closeFile(file, sync);
+        }
       }
 
       return null;
@@ -147,6 +219,56 @@ public static int validateBufferSize(
    */
   public static ByteBuffer readData(File chunkFile, ChunkInfo data,
       VolumeIOStats volumeIOStats) throws StorageContainerException {
+    return readData(chunkFile, data, data.getOffset(), data.getLen(),
+        volumeIOStats, null);
+  }
+
+  /**
+   * Reads len bytes from the given offset of an existing chunk file.
+   *
+   * @param chunkFile - file where data lives.
+   * @param data - chunk definition.
+   * @param offset - offset in the file to read from.
+   * @param len - number of bytes to read.
+   * @param volumeIOStats statistics collector
+   * @param handleCache cache of open files of the volume, null to open and
+   *                    close the file for this read only.
+   * @return ByteBuffer
+   */
+  public static ByteBuffer readData(File chunkFile, ChunkInfo data,
+      long offset, long len, VolumeIOStats volumeIOStats,
+      FileChannelCache handleCache) throws StorageContainerException {
+    return readData(chunkFile, data, offset, len, volumeIOStats, handleCache,
+        false);
+  }
+
+  /**
+   * Maps len bytes from the given offset of an existing chunk file into
+   * memory. The returned buffer is read only and its content is not copied
+   * to the heap, it remains valid after the file is closed. The caller has
+   * to unmap the buffer once it is not used anymore, see
+   * {@link org.apache.hadoop.ozone.container.common.helpers.MappedBuffers}.
+   *
+   * @param chunkFile - file where data lives.
+   * @param data - chunk definition.
+   * @param offset - offset in the file to read from.
+   * @param len - number of bytes to read.
+   * @param volumeIOStats statistics collector
+   * @param handleCache cache of open files of the volume, null to open and
+   *                    close the file for this read only.
+   * @return MappedByteBuffer
+   */
+  public static MappedByteBuffer mapData(File chunkFile, ChunkInfo data,
+      long offset, long len, VolumeIOStats volumeIOStats,
+      FileChannelCache handleCache) throws StorageContainerException {
+    return (MappedByteBuffer) readData(chunkFile, data, offset, len,
+        volumeIOStats, handleCache, true);
+  }
+
+  private static ByteBuffer readData(File chunkFile, ChunkInfo data,
+      long offset, long len, VolumeIOStats volumeIOStats,
+      FileChannelCache handleCache, boolean mapped)
+      throws StorageContainerException {
     Logger log = LoggerFactory.getLogger(ChunkManagerImpl.class);
 
     if (!chunkFile.exists()) {
@@ -157,21 +279,24 @@ public static ByteBuffer readData(File chunkFile, ChunkInfo data,
           data.toString(), UNABLE_TO_FIND_CHUNK);
     }
 
-    long offset = data.getOffset();
-    long len = data.getLen();
-    ByteBuffer buf = ByteBuffer.allocate((int) len);
-
     Path path = chunkFile.toPath();
     long startTime = Time.monotonicNow();
     return processFileExclusively(path, () -> {
+      FileChannelCache.Handle handle = null;
       FileChannel file = null;
 
       try {
-        file = FileChannel.open(path, StandardOpenOption.READ);
-
-        try (FileLock ignored = file.lock(offset, len, true)) {
-          file.read(buf, offset);
-          buf.flip();
+        ByteBuffer buf;
+        if (handleCache != null) {
+          handle = handleCache.acquire(path, false);
+          file = handle.getChannel();
+          buf = readFromChannel(file, offset, len, mapped);
+        } else {
+          file = FileChannel.open(path, StandardOpenOption.READ);
+
+          try (FileLock ignored = file.lock(offset, len, true)) {
+            buf = readFromChannel(file, offset, len, mapped);
+          }
         }
 
         // Increment volumeIO stats here.
@@ -183,13 +308,31 @@ public static ByteBuffer readData(File chunkFile, ChunkInfo data,
       } catch (IOException e) {
         throw new StorageContainerException(e, IO_EXCEPTION);
       } finally {
-        if (file != null) {
+        if (handle != null) {
+          handle.release();
+        } else if (file != null) {
           IOUtils.closeStream(file);
         }
       }
     });
   }
 
+  private static ByteBuffer readFromChannel(FileChannel file, long offset,
+      long len, boolean mapped) throws IOException {
+    if (mapped) {
+      // accessing a mapping beyond the end of the file is undefined.
+      if (offset + len > file.size()) {
+        throw new EOFException("Read of " + len + " bytes at offset " +
+            offset + " is beyond the end of the file of size " + file.size());
+      }
+      return file.map(FileChannel.MapMode.READ_ONLY, offset, len);
+    }
+    ByteBuffer buf = ByteBuffer.allocate((int) len);
+    file.read(buf, offset);
+    buf.flip();
+    return buf;
+  }
+
   /**
    * Validates chunk data and returns a file object to Chunk File that we are
    * expected to write data to.
@@ -201,10 +344,25 @@ public static ByteBuffer readData(File chunkFile, ChunkInfo data,
    */
   public static boolean validateChunkForOverwrite(File chunkFile,
       ChunkInfo info) {
+    return validateChunkForOverwrite(chunkFile, info, info.getOffset());
+  }
+
+  /**
+   * Validates chunk data which is written to the given offset of the
+   * chunkFile.
+   *
+   * @param chunkFile - chunkFile to write data into.
+   * @param info - chunk info.
+   * @param offset - offset in the chunkFile where the chunk is written.
+   * @return true if the chunkFile exists and offset &lt; chunkFile length,
+   *         false otherwise.
+   */
+  public static boolean validateChunkForOverwrite(File chunkFile,
+      ChunkInfo info, long offset) {
 
     Logger log = LoggerFactory.getLogger(ChunkManagerImpl.class);
 
-    if (isOverWriteRequested(chunkFile, info)) {
+    if (isOverWriteRequested(chunkFile, offset)) {
       if (!isOverWritePermitted(info)) {
         log.warn("Duplicate write chunk request. Chunk overwrite " +
             "without explicit request. {}", info.toString());
@@ -225,7 +383,172 @@ public static boolean validateChunkForOverwrite(File chunkFile,
   public static File getChunkFile(KeyValueContainerData containerData,
                                   ChunkInfo info) throws
       StorageContainerException {
+    return getChunksLocation(containerData).toPath()
+        .resolve(info.getChunkName()).toFile();
+  }
+
+  /**
+   * Returns the file which holds the data of the given chunk, as per the
+   * chunk layout of the container. For FILE_PER_CHUNK this is the chunk file,
+   * for FILE_PER_BLOCK it is the block file shared by all chunks of the
+   * block. Packed small files are in the pack file of the container with
+   * either layout.
+   *
+   * @param containerData - Container Data
+   * @param blockID - ID of the block the chunk belongs to
+   * @param info - Chunk info
+   * @return - File.
+   * @throws StorageContainerException
+   */
+  public static File getChunkFile(KeyValueContainerData containerData,
+      BlockID blockID, ChunkInfo info) throws StorageContainerException {
+    if (isPacked(info)) {
+      return getPackFile(containerData);
+    }
+    if (ChunkLayOutVersion.isFilePerBlock(containerData.getLayOutVersion())) {
+      return getBlockFile(containerData, blockID);
+    }
+    return getChunkFile(containerData, info);
+  }
 
+  /**
+   * Returns the block file for FILE_PER_BLOCK containers.
+   *
+   * @param containerData - Container Data
+   * @param blockID - ID of the block
+   * @return - File.
+   * @throws StorageContainerException
+   */
+  public static File getBlockFile(KeyValueContainerData containerData,
+      BlockID blockID) throws StorageContainerException {
+    Preconditions.checkNotNull(blockID, "Block ID cannot be null.");
+    return getChunksLocation(containerData).toPath()
+        .resolve(blockID.getLocalID() + OzoneConsts
+            .CONTAINER_BLOCK_FILE_EXTENSION).toFile();
+  }
+
+  /**
+   * Returns the offset at which the data of the given chunk starts in the
+   * file returned by {@link #getChunkFile(KeyValueContainerData, BlockID,
+   * ChunkInfo)}.
+   *
+   * @param containerData - Container Data
+   * @param info - Chunk info
+   * @return - offset in the file.
+   * @throws StorageContainerException if the pack or block offset is
+   * missing or malformed.
+   */
+  public static long getChunkFileOffset(KeyValueContainerData containerData,
+      ChunkInfo info) throws StorageContainerException {
+    if (isPacked(info)) {
+      return getPackOffset(info);
+    }
+    return ChunkLayOutVersion.isFilePerBlock(containerData.getLayOutVersion())
+        ? getBlockOffset(info) : 0;
+  }
+
+  /**
+   * Returns the offset of a chunk in its block, which is where the chunk is
+   * written in the block file of a FILE_PER_BLOCK container. The offset of
+   * the chunk itself is relative to the start of the chunk data, as
+   * FILE_PER_CHUNK datanodes use it as the position in the chunk file.
+   *
+   * @param info - Chunk info
+   * @return - offset in the block.
+   * @throws StorageContainerException if the chunk has no block offset, e.g.
+   * as it is written by a client which does not support FILE_PER_BLOCK, or
+   * if the offset is malformed.
+   */
+  public static long getBlockOffset(ChunkInfo info)
+      throws StorageContainerException {
+    String offset = info.getMetadata().get(OzoneConsts.CHUNK_BLOCK_OFFSET);
+    if (offset == null) {
+      throw new StorageContainerException("Chunk " + info.getChunkName()
+          + " has no " + OzoneConsts.CHUNK_BLOCK_OFFSET + ", it can not be "
+          + "stored in a block file", INVALID_ARGUMENT);
+    }
+    try {
+      return Long.parseLong(offset);
+    } catch (NumberFormatException e) {
+      throw new StorageContainerException("Invalid block offset " + offset
+          + " of chunk " + info.getChunkName(), INVALID_ARGUMENT);
+    }
+  }
+
+  /**
+   * Returns the pack file, which holds the data of the small files of the
+   * container written as a single chunk each.
+   *
+   * @param containerData - Container Data
+   * @return - File.
+   * @throws StorageContainerException
+   */
+  public static File getPackFile(KeyValueContainerData containerData)
+      throws StorageContainerException {
+    return getChunksLocation(containerData).toPath()
+        .resolve(OzoneConsts.CONTAINER_PACK_FILE_NAME).toFile();
+  }
+
+  /**
+   * Returns whether the data of the chunk is in the pack file of the
+   * container.
+   */
+  public static boolean isPacked(ChunkInfo info) {
+    return info.getMetadata().containsKey(OzoneConsts.CHUNK_PACK_OFFSET);
+  }
+
+  /**
+   * Returns whether the data of the chunk is in the pack file of the
+   * container.
+   */
+  public static boolean isPacked(ContainerProtos.ChunkInfo info) {
+    for (ContainerProtos.KeyValue keyValue : info.getMetadataList()) {
+      if (OzoneConsts.CHUNK_PACK_OFFSET.equals(keyValue.getKey())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the offset of a packed chunk in the pack file of the container.
+   *
+   * @param info - Chunk info of a packed chunk
+   * @return - offset in the pack file.
+   * @throws StorageContainerException if the offset is malformed.
+   */
+  public static long getPackOffset(ChunkInfo info)
+      throws StorageContainerException {
+    String offset = info.getMetadata().get(OzoneConsts.CHUNK_PACK_OFFSET);
+    try {
+      return Long.parseLong(offset);
+    } catch (NumberFormatException e) {
+      throw new StorageContainerException("Invalid pack offset " + offset
+          + " of chunk " + info.getChunkName(), INVALID_ARGUMENT);
+    }
+  }
+
+  /**
+   * Returns the end of the data of the packed chunks of a block in the pack
+   * file of the container.
+   *
+   * @param blockData - Block data
+   * @return - end offset in the pack file, 0 if no chunk is packed.
+   * @throws IOException if the chunk info is malformed.
+   */
+  public static long getPackFileEnd(BlockData blockData) throws IOException {
+    long end = 0;
+    for (ContainerProtos.ChunkInfo chunk : blockData.getChunks()) {
+      if (isPacked(chunk)) {
+        ChunkInfo info = ChunkInfo.getFromProtoBuf(chunk);
+        end = Math.max(end, getPackOffset(info) + info.getLen());
+      }
+    }
+    return end;
+  }
+
+  private static File getChunksLocation(KeyValueContainerData containerData)
+      throws StorageContainerException {
     Preconditions.checkNotNull(containerData, "Container data can't be null");
     Logger log = LoggerFactory.getLogger(ChunkManagerImpl.class);
 
@@ -241,8 +564,7 @@ public static File getChunkFile(KeyValueContainerData containerData,
       throw new StorageContainerException("Unable to get Chunks directory.",
           UNABLE_TO_FIND_DATA_DIR);
     }
-
-    return chunksLoc.toPath().resolve(info.getChunkName()).toFile();
+    return chunksLoc;
   }
 
   /**
@@ -255,12 +577,23 @@ public static File getChunkFile(KeyValueContainerData containerData,
    */
   public static boolean isOverWriteRequested(File chunkFile, ChunkInfo
       chunkInfo) {
+    return isOverWriteRequested(chunkFile, chunkInfo.getOffset());
+  }
+
+  /**
+   * Checks if we are getting a request to overwrite an existing range of
+   * the file starting at the given offset.
+   *
+   * @param chunkFile - File
+   * @param offset - offset in the file
+   * @return bool
+   */
+  public static boolean isOverWriteRequested(File chunkFile, long offset) {
 
     if (!chunkFile.exists()) {
       return false;
     }
 
-    long offset = chunkInfo.getOffset();
     return offset < chunkFile.length();
   }
 
@@ -308,6 +641,19 @@ static <T, E extends Exception> T processFileExclusively(
     }
   }
 
+  private static void syncFile(FileChannel file, boolean sync)
+      throws StorageContainerException {
+    if (sync) {
+      try {
+        // ensure data and metadata is persisted
+        file.force(true);
+      } catch (IOException e) {
+        throw new StorageContainerException("Error syncing chunk file",
+            e, CONTAINER_INTERNAL_ERROR);
+      }
+    }
+  }
+
   private static void closeFile(FileChannel file, boolean sync)
       throws StorageContainerException {
     if (file != null) {
@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.keyvalue.helpers;
+
+import org.apache.hadoop.ozone.container.common.utils.AlignedBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads and writes chunk data with direct I/O, bypassing the page cache, so
+ * that cold chunk data does not evict the hot pages of the datanode, e.g.
+ * those of the container DBs.
+ *
+ * Direct I/O requires the file offset, the length and the memory address of
+ * every transfer to be aligned to the block size, so data is transferred
+ * through aligned off-heap buffers of a shared pool. A write ending in the
+ * middle of a block is padded with zeros and the padding beyond the end of
+ * the file is truncated afterwards.
+ *
+ * Direct I/O needs Java 10 or later and a file system which supports it.
+ * If it is not available, or fails where buffered I/O succeeds, the data is
+ * transferred through the page cache instead and direct I/O is not tried
+ * again.
+ */
+public final class DirectIOUtils {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(DirectIOUtils.class);
+
+  /**
+   * Alignment of transfers, the logical block size of common disks.
+   */
+  public static final int ALIGNMENT = 4096;
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  private static final int MAX_POOLED_BUFFERS = 64;
+
+  private static final OpenOption DIRECT = findDirectOption();
+  private static final AlignedBufferPool BUFFER_POOL = createBufferPool();
+
+  private static volatile boolean disabled;
+
+  /** Never constructed. **/
+  private DirectIOUtils() {
+  }
+
+  /**
+   * Returns whether direct I/O is available.
+   */
+  public static boolean isSupported() {
+    return DIRECT != null && BUFFER_POOL != null && !disabled;
+  }
+
+  /**
+   * Returns whether a write can be done with direct I/O. The write has to
+   * start at a block boundary, and if it does not end at one, it must not
+   * be followed by existing data, which would be overwritten by the padding.
+   *
+   * @param path - path of the file.
+   * @param offset - offset of the write in the file.
+   * @param length - length of the write.
+   */
+  public static boolean canWrite(Path path, long offset, long length)
+      throws IOException {
+    if (!isSupported() || offset % ALIGNMENT != 0) {
+      return false;
+    }
+    long end = offset + length;
+    return end % ALIGNMENT == 0 || !Files.exists(path)
+        || Files.size(path) <= end;
+  }
+
+  /**
+   * Writes the data to the file with direct I/O, creating the file if
+   * needed. The caller must have checked the write with
+   * {@link #canWrite(Path, long, long)} and must have exclusive access to
+   * the file.
+   *
+   * @param path - path of the file.
+   * @param data - the data, which is consumed on success.
+   * @param offset - offset of the write in the file.
+   * @param sync - whether to sync the file after the write.
+   * @return the number of bytes written.
+   */
+  public static int write(Path path, ByteBuffer data, long offset,
+      boolean sync) throws IOException {
+    ByteBuffer src = data.duplicate();
+    // the data following the write is kept, only the padding is truncated.
+    long fileLength = Math.max(Files.exists(path) ? Files.size(path) : 0,
+        offset + data.remaining());
+    int written;
+    try {
+      written = write(path, src, offset, fileLength, sync, true);
+    } catch (IOException e) {
+      // a failure specific to direct I/O, e.g. a file system with a larger
+      // block size, is resolved by writing through the page cache.
+      src = data.duplicate();
+      written = write(path, src, offset, fileLength, sync, false);
+      disable(path, e);
+    }
+    data.position(src.position());
+    return written;
+  }
+
+  /**
+   * Opens a stream reading the file from the given offset with direct I/O,
+   * or through the page cache if direct I/O is not available.
+   *
+   * @param file - the file.
+   * @param offset - offset in the file to start reading at.
+   */
+  public static InputStream newInputStream(File file, long offset)
+      throws IOException {
+    return new DirectInputStream(file.toPath(), offset, isSupported());
+  }
+
+  private static int write(Path path, ByteBuffer data, long offset,
+      long fileLength, boolean sync, boolean direct) throws IOException {
+    int length = data.remaining();
+    ByteBuffer buffer = BUFFER_POOL.acquire();
+    try (FileChannel file = open(path, direct, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE)) {
+      long position = offset;
+      while (data.hasRemaining()) {
+        buffer.clear();
+        int n = Math.min(buffer.capacity(), data.remaining());
+        ByteBuffer slice = data.duplicate();
+        slice.limit(slice.position() + n);
+        buffer.put(slice);
+        data.position(data.position() + n);
+        // zero the padding up to the end of the last block.
+        while (buffer.position() % ALIGNMENT != 0) {
+          buffer.put((byte) 0);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          position += file.write(buffer, position);
+        }
+      }
+      if (file.size() > fileLength) {
+        file.truncate(fileLength);
+      }
+      if (sync) {
+        // ensure data and metadata is persisted
+        file.force(true);
+      }
+    } finally {
+      BUFFER_POOL.release(buffer);
+    }
+    return length;
+  }
+
+  private static FileChannel open(Path path, boolean direct,
+      OpenOption... options) throws IOException {
+    if (!direct) {
+      return FileChannel.open(path, options);
+    }
+    Set<OpenOption> openOptions = new HashSet<>(Arrays.asList(options));
+    openOptions.add(DIRECT);
+    return FileChannel.open(path, openOptions);
+  }
+
+  private static void disable(Path path, IOException e) {
+    if (!disabled) {
+      disabled = true;
+      LOG.warn("Direct I/O failed for {}, chunk data is read and written " +
+          "through the page cache from now on.", path, e);
+    }
+  }
+
+  private static OpenOption findDirectOption() {
+    try {
+      Class<?> options = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+      for (Object option : options.getEnumConstants()) {
+        if ("DIRECT".equals(((Enum<?>) option).name())) {
+          return (OpenOption) option;
+        }
+      }
+    } catch (ClassNotFoundException e) {
+      LOG.debug("Direct I/O is not supported by this JVM", e);
+    }
+    return null;
+  }
+
+  private static AlignedBufferPool createBufferPool() {
+    if (!AlignedBufferPool.isSupported()) {
+      return null;
+    }
+    return new AlignedBufferPool(BUFFER_SIZE, ALIGNMENT, MAX_POOLED_BUFFERS);
+  }
+
+  /**
+   * Reads a file sequentially in aligned blocks, starting at the block
+   * which holds the requested offset.
+   */
+  private static final class DirectInputStream extends InputStream {
+    private final Path path;
+    private FileChannel file;
+    private ByteBuffer buffer;
+    private boolean direct;
+    private long filePosition;
+    private boolean eof;
+
+    DirectInputStream(Path path, long offset, boolean direct)
+        throws IOException {
+      this.path = path;
+      this.direct = direct;
+      if (!Files.exists(path)) {
+        throw new NoSuchFileException(path.toString());
+      }
+      this.buffer = direct ? BUFFER_POOL.acquire()
+          : ByteBuffer.allocate(BUFFER_SIZE);
+      this.filePosition = offset - offset % ALIGNMENT;
+      try {
+        this.file = openForRead();
+        fill();
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
+      int skip = (int) (offset - (filePosition - buffer.remaining()));
+      buffer.position(Math.min(buffer.limit(), buffer.position() + skip));
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) == 1 ? b[0] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int total = 0;
+      while (total < len) {
+        if (!buffer.hasRemaining()) {
+          if (eof) {
+            break;
+          }
+          fill();
+          if (!buffer.hasRemaining()) {
+            break;
+          }
+        }
+        int n = Math.min(len - total, buffer.remaining());
+        buffer.get(b, off + total, n);
+        total += n;
+      }
+      return total == 0 && len > 0 ? -1 : total;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (buffer != null && direct) {
+        BUFFER_POOL.release(buffer);
+      }
+      buffer = null;
+      if (file != null) {
+        file.close();
+        file = null;
+      }
+    }
+
+    private FileChannel openForRead() throws IOException {
+      try {
+        return open(path, direct, StandardOpenOption.READ);
+      } catch (IOException e) {
+        if (!direct || e instanceof NoSuchFileException) {
+          throw e;
+        }
+        switchToBuffered(e);
+        return open(path, false, StandardOpenOption.READ);
+      }
+    }
+
+    /**
+     * Reads the next blocks of the file. A read shorter than the buffer can
+     * only happen at the end of the file, as reads are aligned.
+     */
+    private void fill() throws IOException {
+      buffer.clear();
+      int n;
+      try {
+        n = readFully(filePosition);
+      } catch (IOException e) {
+        if (!direct) {
+          throw e;
+        }
+        switchToBuffered(e);
+        file.close();
+        file = open(path, false, StandardOpenOption.READ);
+        buffer.clear();
+        n = readFully(filePosition);
+      }
+      buffer.flip();
+      filePosition += n;
+      if (n < buffer.capacity()) {
+        eof = true;
+      }
+    }
+
+    private int readFully(long position) throws IOException {
+      int total = 0;
+      while (buffer.hasRemaining()) {
+        int n = file.read(buffer, position + total);
+        if (n <= 0) {
+          break;
+        }
+        total += n;
+        if (direct && total % ALIGNMENT != 0) {
+          // the end of the file, the next read would not be aligned.
+          break;
+        }
+      }
+      return total;
+    }
+
+    private void switchToBuffered(IOException e) {
+      disable(path, e);
+      if (direct) {
+        direct = false;
+        ByteBuffer aligned = buffer;
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        BUFFER_POOL.release(aligned);
+      }
+    }
+  }
+}
@@ -109,4 +109,20 @@ public static File getContainerDBFile(File containerMetaDataPath,
     return new File(containerMetaDataPath, containerID + OzoneConsts
         .DN_CONTAINER_DB);
   }
+
+  /**
+   * Return the DB shared by all containers of the volume a container is
+   * stored on.
+   * @param containerMetaDataPath metadata path of the container, which is
+   *                              hddsVolumeDir/scmId/current/subDir/id/metadata
+   */
+  public static File getVolumeDBFile(File containerMetaDataPath) {
+    File hddsVolumeDir = containerMetaDataPath.getAbsoluteFile();
+    for (int i = 0; i < 5; i++) {
+      hddsVolumeDir = hddsVolumeDir.getParentFile();
+      Preconditions.checkNotNull(hddsVolumeDir,
+          "Invalid container metadata path " + containerMetaDataPath);
+    }
+    return new File(hddsVolumeDir, OzoneConsts.DN_VOLUME_CONTAINER_DB);
+  }
 }
@@ -19,8 +19,11 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -36,6 +39,7 @@
 import org.apache.hadoop.ozone.container.common.helpers.ContainerUtils;
 import org.apache.hadoop.ozone.container.common.helpers.BlockData;
 import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainerData;
+import org.apache.hadoop.hdds.utils.BatchOperation;
 import org.apache.hadoop.hdds.utils.MetadataKeyFilters;
 import org.apache.hadoop.hdds.utils.MetadataStore;
 import org.apache.hadoop.hdds.utils.MetadataStoreBuilder;
@@ -52,6 +56,12 @@
 
 public final class KeyValueContainerUtil {
 
+  /**
+   * Number of entries written at a time when moving container metadata
+   * between DBs.
+   */
+  private static final int DB_COPY_BATCH_SIZE = 1000;
+
   /* Never constructed. */
   private KeyValueContainerUtil() {
 
@@ -78,14 +88,18 @@ public static void createContainerMetaData(File containerMetaDataPath, File
       throw new IOException("Unable to create directory for metadata storage." +
           " Path: " + containerMetaDataPath);
     }
-    MetadataStore store = MetadataStoreBuilder.newBuilder().setConf(conf)
-        .setCreateIfMissing(true).setDbFile(dbFile).build();
+    // with a volume DB, the container keeps its metadata there and has no
+    // DB of its own.
+    if (!BlockUtils.isVolumeDBEnabled(conf)) {
+      MetadataStore store = MetadataStoreBuilder.newBuilder().setConf(conf)
+          .setCreateIfMissing(true).setDbFile(dbFile).build();
 
-    // we close since the SCM pre-creates containers.
-    // we will open and put Db handle into a cache when keys are being created
-    // in a container.
+      // we close since the SCM pre-creates containers.
+      // we will open and put Db handle into a cache when keys are being
+      // created in a container.
 
-    store.close();
+      store.close();
+    }
 
     if (!chunksPath.mkdirs()) {
       LOG.error("Unable to create chunks directory Container {}",
@@ -118,8 +132,15 @@ public static void removeContainer(KeyValueContainerData containerData,
         .getMetadataPath());
     File chunksPath = new File(containerData.getChunksPath());
 
-    // Close the DB connection and remove the DB handler from cache
-    BlockUtils.removeDB(containerData, conf);
+    if (BlockUtils.isVolumeDBEnabled(conf)) {
+      // Remove the keys of the container from the volume DB
+      try (ReferenceCountedDB db = BlockUtils.getDB(containerData, conf)) {
+        db.getStore().destroy();
+      }
+    } else {
+      // Close the DB connection and remove the DB handler from cache
+      BlockUtils.removeDB(containerData, conf);
+    }
 
     // Delete the Container MetaData path.
     FileUtils.deleteDirectory(containerMetaDataPath);
@@ -170,7 +191,15 @@ public static void parseKVContainerData(KeyValueContainerData kvContainerData,
 
     File dbFile = KeyValueContainerLocationUtil.getContainerDBFile(
         metadataPath, containerID);
-    if (!dbFile.exists()) {
+    if (BlockUtils.isVolumeDBEnabled(config)) {
+      if (dbFile.exists()) {
+        moveToVolumeDB(kvContainerData, dbFile, config);
+      }
+    } else if (!dbFile.exists()
+        && BlockUtils.getVolumeDBFile(kvContainerData).exists()) {
+      moveFromVolumeDB(kvContainerData, dbFile, config);
+    }
+    if (!dbFile.exists() && !BlockUtils.isVolumeDBEnabled(config)) {
       LOG.error("Container DB file is missing for ContainerID {}. " +
           "Skipping loading of this container.", containerID);
       // Don't further process this container, as it is missing db file.
@@ -201,7 +230,138 @@ public static void parseKVContainerData(KeyValueContainerData kvContainerData,
       if (bcsId != null) {
         kvContainerData.updateBlockCommitSequenceId(Longs.fromByteArray(bcsId));
       }
+      byte[] packFileLength = metadata.getStore().get(DFSUtil.string2Bytes(
+          OzoneConsts.PACK_FILE_LENGTH_PREFIX));
+      truncatePackFile(kvContainerData, packFileLength != null
+          ? Longs.fromByteArray(packFileLength) : 0);
+    }
+  }
+
+  /**
+   * Cuts the data of blocks which were not committed off the pack file of
+   * the container. The log entries of these blocks are applied again, and
+   * append their data at the same offsets as on the other replicas only if
+   * the pack file has the length referred to by the committed blocks.
+   *
+   * @param kvContainerData - data of the container
+   * @param committedLength - length of the pack file stored with the
+   *                        committed blocks
+   * @throws IOException
+   */
+  public static void truncatePackFile(KeyValueContainerData kvContainerData,
+      long committedLength) throws IOException {
+    File packFile = new File(kvContainerData.getChunksPath(),
+        OzoneConsts.CONTAINER_PACK_FILE_NAME);
+    if (packFile.length() > committedLength) {
+      LOG.info("Truncating pack file {} of container {} from {} to {} bytes",
+          packFile, kvContainerData.getContainerID(), packFile.length(),
+          committedLength);
+      try (FileChannel channel = FileChannel.open(packFile.toPath(),
+          StandardOpenOption.WRITE)) {
+        channel.truncate(committedLength);
+      }
+    }
+    kvContainerData.setPackFileLength(committedLength);
+  }
+
+  /**
+   * Writes the metadata a container keeps in its volume DB into a DB of its
+   * own, as used when volume DBs are disabled.
+   *
+   * @param kvContainerData - data of the container
+   * @param dbFile - path of the DB to create, which must not exist yet
+   * @param config - configuration
+   * @throws IOException
+   */
+  public static void writeContainerDB(KeyValueContainerData kvContainerData,
+      File dbFile, Configuration config) throws IOException {
+    Preconditions.checkState(!dbFile.exists(), "DB %s already exists",
+        dbFile);
+    // the DB is written next to its final location and renamed when
+    // complete, so that a partially written DB is never used.
+    File tmpFile = new File(dbFile.getParentFile(),
+        dbFile.getName() + ".tmp");
+    FileUtils.deleteDirectory(tmpFile);
+    MetadataStore store = MetadataStoreBuilder.newBuilder()
+        .setConf(config)
+        .setCreateIfMissing(true)
+        .setDbFile(tmpFile)
+        .setDBType(kvContainerData.getContainerDBType())
+        .build();
+    try (ReferenceCountedDB volumeDB =
+             BlockUtils.getVolumeDB(kvContainerData, config)) {
+      copyDB(volumeDB.getStore(), store);
+    } finally {
+      store.close();
+    }
+    if (!tmpFile.renameTo(dbFile)) {
+      throw new IOException("Unable to rename " + tmpFile + " to " + dbFile);
+    }
+  }
+
+  /**
+   * Moves the metadata of a container from its own DB into its volume DB.
+   */
+  private static void moveToVolumeDB(KeyValueContainerData kvContainerData,
+      File dbFile, Configuration config) throws IOException {
+    MetadataStore store = MetadataStoreBuilder.newBuilder()
+        .setConf(config)
+        .setCreateIfMissing(false)
+        .setDbFile(dbFile)
+        .setDBType(kvContainerData.getContainerDBType())
+        .build();
+    try (ReferenceCountedDB volumeDB =
+             BlockUtils.getVolumeDB(kvContainerData, config)) {
+      // drop keys left by an interrupted move or an earlier replica.
+      volumeDB.getStore().destroy();
+      copyDB(store, volumeDB.getStore());
+      volumeDB.getStore().flushDB(true);
+    } finally {
+      store.close();
+    }
+    FileUtils.deleteDirectory(dbFile);
+    LOG.info("Moved metadata of container {} into volume DB {}",
+        kvContainerData.getContainerID(),
+        BlockUtils.getVolumeDBFile(kvContainerData));
+  }
+
+  /**
+   * Moves the metadata of a container from its volume DB into a DB of its
+   * own.
+   */
+  private static void moveFromVolumeDB(KeyValueContainerData kvContainerData,
+      File dbFile, Configuration config) throws IOException {
+    writeContainerDB(kvContainerData, dbFile, config);
+    try (ReferenceCountedDB volumeDB =
+             BlockUtils.getVolumeDB(kvContainerData, config)) {
+      volumeDB.getStore().destroy();
+    }
+    LOG.info("Moved metadata of container {} out of volume DB {}",
+        kvContainerData.getContainerID(),
+        BlockUtils.getVolumeDBFile(kvContainerData));
+  }
+
+  private static void copyDB(MetadataStore from, MetadataStore to)
+      throws IOException {
+    List<MetadataStore.KeyValue> entries = new ArrayList<>();
+    from.iterate(null, (key, value) -> {
+      entries.add(MetadataStore.KeyValue.create(key, value));
+      if (entries.size() == DB_COPY_BATCH_SIZE) {
+        writeEntries(to, entries);
+      }
+      return true;
+    });
+    writeEntries(to, entries);
+  }
+
+  private static void writeEntries(MetadataStore store,
+      List<MetadataStore.KeyValue> entries) throws IOException {
+    BatchOperation batch = new BatchOperation();
+    for (MetadataStore.KeyValue entry : entries) {
+      batch.put(entry.getKey(), entry.getValue());
     }
+    store.writeBatch(batch);
+    entries.clear();
   }
 
   /**
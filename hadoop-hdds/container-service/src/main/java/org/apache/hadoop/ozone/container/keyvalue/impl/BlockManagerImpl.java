@@ -30,6 +30,7 @@
 import org.apache.hadoop.ozone.container.common.helpers.BlockData;
 import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainerData;
 import org.apache.hadoop.ozone.container.keyvalue.helpers.BlockUtils;
+import org.apache.hadoop.ozone.container.keyvalue.helpers.ChunkUtils;
 import org.apache.hadoop.ozone.container.common.interfaces.Container;
 import org.apache.hadoop.ozone.container.keyvalue.interfaces.BlockManager;
 import org.apache.hadoop.ozone.container.common.utils.ContainerCache;
@@ -56,6 +57,8 @@ public class BlockManagerImpl implements BlockManager {
   static final Logger LOG = LoggerFactory.getLogger(BlockManagerImpl.class);
   private static byte[] blockCommitSequenceIdKey =
           DFSUtil.string2Bytes(OzoneConsts.BLOCK_COMMIT_SEQUENCE_ID_PREFIX);
+  private static byte[] packFileLengthKey =
+          DFSUtil.string2Bytes(OzoneConsts.PACK_FILE_LENGTH_PREFIX);
 
   private Configuration config;
 
@@ -116,6 +119,13 @@ public long putBlock(Container container, BlockData data) throws IOException {
           data.getProtoBufMessage().toByteArray());
       batch.put(blockCommitSequenceIdKey,
           Longs.toByteArray(bcsId));
+      long packFileEnd = ChunkUtils.getPackFileEnd(data);
+      if (packFileEnd > 0) {
+        // the pack file is cut to this length when the container is loaded.
+        batch.put(packFileLengthKey, Longs.toByteArray(
+            ((KeyValueContainerData) container.getContainerData())
+                .commitPackFileLength(packFileEnd)));
+      }
       db.getStore().writeBatch(batch);
       container.updateBlockCommitSequenceId(bcsId);
       // Increment keycount here
@@ -99,6 +99,17 @@ public void writeChunk(Container container, BlockID blockID, ChunkInfo info,
     }
   }
 
+  /**
+   * Small files are not packed, their data is discarded like the data of
+   * any other chunk.
+   */
+  @Override
+  public void writePackedChunk(Container container, BlockID blockID,
+      ChunkInfo info, ByteBuffer data, DispatcherContext dispatcherContext)
+      throws StorageContainerException {
+    writeChunk(container, blockID, info, data, dispatcherContext);
+  }
+
   /**
    * return a zero-filled buffer.
    *
@@ -132,6 +143,38 @@ public ByteBuffer readChunk(Container container, BlockID blockID,
     return data;
   }
 
+  /**
+   * return a zero-filled buffer for the requested range.
+   *
+   * @param container - Container for the chunk
+   * @param blockID - ID of the block.
+   * @param info - ChunkInfo.
+   * @param offset - offset of the range within the chunk.
+   * @param len - length of the range.
+   * @param dispatcherContext dispatcher context info.
+   * @return byte array
+   */
+  @Override
+  public ByteBuffer readChunk(Container container, BlockID blockID,
+      ChunkInfo info, long offset, long len,
+      DispatcherContext dispatcherContext) {
+    return readChunk(container, blockID,
+        new ChunkInfo(info.getChunkName(), info.getOffset() + offset, len),
+        dispatcherContext);
+  }
+
+  /**
+   * Chunk data is not persisted, so there is nothing to check.
+   *
+   * @param container - Container for the chunk
+   * @param blockID - ID of the block.
+   * @param info - ChunkInfo.
+   */
+  @Override
+  public void checkChunkPresent(Container container, BlockID blockID,
+      ChunkInfo info) {
+  }
+
   /**
    * Delete a given chunk - Do nothing except stats.
    *
@@ -20,10 +20,20 @@
 
 import com.google.common.base.Preconditions;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.StorageUnit;
+import org.apache.hadoop.ozone.container.common.impl.ChunkLayOutVersion;
 import org.apache.hadoop.ozone.container.keyvalue.interfaces.ChunkManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_CONTAINER_CHUNK_LAYOUT_VERSION;
+import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_CONTAINER_CHUNK_LAYOUT_VERSION_DEFAULT;
+import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_CONTAINER_CHUNK_READ_MAPPED_ENABLED;
+import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_CONTAINER_CHUNK_READ_MAPPED_ENABLED_DEFAULT;
+import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_CONTAINER_CHUNK_READ_MAPPED_MIN_SIZE;
+import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_CONTAINER_CHUNK_READ_MAPPED_MIN_SIZE_DEFAULT;
+import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_CONTAINER_CHUNK_WRITE_DIRECT_ENABLED;
+import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_CONTAINER_CHUNK_WRITE_DIRECT_ENABLED_DEFAULT;
 import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_CONTAINER_PERSISTDATA;
 import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_CONTAINER_PERSISTDATA_DEFAULT;
 import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_CONTAINER_SCRUB_ENABLED;
@@ -58,6 +68,26 @@ public static ChunkManager getChunkManager(Configuration config,
     return instance;
   }
 
+  /**
+   * Returns the chunk layout version to be used for new containers. The
+   * ChunkManager handles each container as per the layout version recorded
+   * in its container data, so containers of all layouts can coexist.
+   */
+  public static int getChunkLayOutVersion(Configuration config) {
+    int version = config.getInt(HDDS_CONTAINER_CHUNK_LAYOUT_VERSION,
+        HDDS_CONTAINER_CHUNK_LAYOUT_VERSION_DEFAULT);
+    for (ChunkLayOutVersion layOutVersion :
+        ChunkLayOutVersion.getAllVersions()) {
+      if (layOutVersion.getVersion() == version) {
+        return version;
+      }
+    }
+    LOG.warn("Unknown value {} for {}, using chunk layout version {}.",
+        version, HDDS_CONTAINER_CHUNK_LAYOUT_VERSION,
+        HDDS_CONTAINER_CHUNK_LAYOUT_VERSION_DEFAULT);
+    return HDDS_CONTAINER_CHUNK_LAYOUT_VERSION_DEFAULT;
+  }
+
   private static ChunkManager createChunkManager(Configuration config,
       boolean sync) {
     ChunkManager manager = null;
@@ -78,7 +108,18 @@ private static ChunkManager createChunkManager(Configuration config,
     }
 
     if (persist) {
-      manager = new ChunkManagerImpl(sync);
+      boolean readMapped = config.getBoolean(
+          HDDS_CONTAINER_CHUNK_READ_MAPPED_ENABLED,
+          HDDS_CONTAINER_CHUNK_READ_MAPPED_ENABLED_DEFAULT);
+      boolean writeDirect = config.getBoolean(
+          HDDS_CONTAINER_CHUNK_WRITE_DIRECT_ENABLED,
+          HDDS_CONTAINER_CHUNK_WRITE_DIRECT_ENABLED_DEFAULT);
+      long mappedReadMinSize = (long) config.getStorageSize(
+          HDDS_CONTAINER_CHUNK_READ_MAPPED_MIN_SIZE,
+          HDDS_CONTAINER_CHUNK_READ_MAPPED_MIN_SIZE_DEFAULT,
+          StorageUnit.BYTES);
+      manager = new ChunkManagerImpl(sync, readMapped, writeDirect,
+          mappedReadMinSize);
     } else {
       LOG.warn(HDDS_CONTAINER_PERSISTDATA
           + " is set to false. This should be used only for testing."
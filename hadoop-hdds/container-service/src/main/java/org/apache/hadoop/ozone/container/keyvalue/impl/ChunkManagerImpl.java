@@ -24,10 +24,16 @@
 import org.apache.hadoop.hdds.scm.container.common.helpers.StorageContainerException;
 import org.apache.hadoop.ozone.OzoneConsts;
 import org.apache.hadoop.ozone.container.common.helpers.ChunkInfo;
+import org.apache.hadoop.ozone.container.common.helpers.MappedBuffers;
 import org.apache.hadoop.ozone.container.common.transport.server.ratis.DispatcherContext;
+import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainer;
 import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainerData;
+import org.apache.hadoop.ozone.container.common.volume.FileChannelCache;
 import org.apache.hadoop.ozone.container.common.volume.HddsVolume;
-import org.apache.hadoop.ozone.container.common.volume.VolumeIOStats;
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler;
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler
+    .IOClass;
+import org.apache.hadoop.ozone.container.common.volume.VolumeSyncCoordinator;
 import org.apache.hadoop.ozone.container.keyvalue.helpers.ChunkUtils;
 import org.apache.hadoop.ozone.container.common.impl.ChunkLayOutVersion;
 import org.apache.hadoop.ozone.container.keyvalue.interfaces.ChunkManager;
@@ -38,6 +44,7 @@
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.security.NoSuchAlgorithmException;
@@ -45,8 +52,12 @@
 
 import static org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .Result.CONTAINER_INTERNAL_ERROR;
+import static org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .Result.INVALID_ARGUMENT;
 import static org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .Result.NO_SUCH_ALGORITHM;
+import static org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .Result.UNABLE_TO_FIND_CHUNK;
 import static org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.Result.UNSUPPORTED_REQUEST;
 
 /**
@@ -55,9 +66,45 @@
 public class ChunkManagerImpl implements ChunkManager {
   static final Logger LOG = LoggerFactory.getLogger(ChunkManagerImpl.class);
   private final boolean doSyncWrite;
+  private final boolean readMapped;
+  private final long mappedReadMinSize;
+  private final boolean writeDirect;
 
   public ChunkManagerImpl(boolean sync) {
+    this(sync, false);
+  }
+
+  public ChunkManagerImpl(boolean sync, boolean readMapped) {
+    this(sync, readMapped, false);
+  }
+
+  /**
+   * @param sync whether chunk writes are synced to disk.
+   * @param readMapped whether chunks are read from memory mapped files
+   *                   instead of being copied into heap buffers.
+   * @param writeDirect whether chunks are written with direct I/O, bypassing
+   *                    the page cache.
+   */
+  public ChunkManagerImpl(boolean sync, boolean readMapped,
+      boolean writeDirect) {
+    this(sync, readMapped, writeDirect, 0);
+  }
+
+  /**
+   * @param sync whether chunk writes are synced to disk.
+   * @param readMapped whether chunks are read from memory mapped files
+   *                   instead of being copied into heap buffers.
+   * @param writeDirect whether chunks are written with direct I/O, bypassing
+   *                    the page cache.
+   * @param mappedReadMinSize reads of fewer bytes are copied into heap
+   *                          buffers even if readMapped is set.
+   */
+  public ChunkManagerImpl(boolean sync, boolean readMapped,
+      boolean writeDirect, long mappedReadMinSize) {
     doSyncWrite = sync;
+    this.readMapped = readMapped;
+    this.writeDirect = writeDirect;
+    this.mappedReadMinSize = mappedReadMinSize;
   }
 
   /**
@@ -75,17 +122,31 @@ public void writeChunk(Container container, BlockID blockID, ChunkInfo info,
       throws StorageContainerException {
     Preconditions.checkNotNull(dispatcherContext);
     DispatcherContext.WriteChunkStage stage = dispatcherContext.getStage();
+    if (ChunkUtils.isPacked(info)) {
+      // the pack offset is assigned by writePackedChunk only.
+      throw new StorageContainerException("Chunk " + info.getChunkName()
+          + " must not have metadata " + OzoneConsts.CHUNK_PACK_OFFSET,
+          INVALID_ARGUMENT);
+    }
     try {
 
       KeyValueContainerData containerData = (KeyValueContainerData) container
           .getContainerData();
       HddsVolume volume = containerData.getVolume();
-      VolumeIOStats volumeIOStats = volume.getVolumeIOStats();
+      FileChannelCache handleCache = volume.getFileChannelCache();
+
+      if (isFilePerBlock(containerData)) {
+        writeChunkToBlockFile(container, blockID, info, data,
+            dispatcherContext, handleCache);
+        return;
+      }
 
       File chunkFile = ChunkUtils.getChunkFile(containerData, info);
 
+      // Each chunk file holds exactly one chunk, so the chunk always starts
+      // at the beginning of its file irrespective of its offset in the block.
       boolean isOverwrite = ChunkUtils.validateChunkForOverwrite(
-          chunkFile, info);
+          chunkFile, info, 0);
       File tmpChunkFile = getTmpChunkFile(chunkFile, dispatcherContext);
       if (LOG.isDebugEnabled()) {
         LOG.debug(
@@ -110,6 +171,7 @@ public void writeChunk(Container container, BlockID blockID, ChunkInfo info,
           // the data to be written here which should be efficient and
           // it matches we can safely return without rewriting.
           LOG.warn("ChunkFile already exists" + chunkFile + ".Deleting it.");
+          invalidateHandle(handleCache, chunkFile);
           FileUtil.fullyDelete(chunkFile);
         }
         if (tmpChunkFile.exists()) {
@@ -121,9 +183,9 @@ public void writeChunk(Container container, BlockID blockID, ChunkInfo info,
           LOG.warn(
               "tmpChunkFile already exists" + tmpChunkFile + "Overwriting it.");
         }
-        // Initially writes to temporary chunk file.
-        ChunkUtils
-            .writeData(tmpChunkFile, info, data, volumeIOStats, doSyncWrite);
+        // Initially writes to temporary chunk file. The tmp chunk file is
+        // written only once and then renamed, so its handle is not cached.
+        writeData(tmpChunkFile, info, 0, data, volume, null);
         // No need to increment container stats here, as still data is not
         // committed here.
         break;
@@ -140,14 +202,16 @@ public void writeChunk(Container container, BlockID blockID, ChunkInfo info,
           return;
         }
         // While committing a chunk , just rename the tmp chunk file which has
-        // the same term and log index appended as the current transaction
+        // the same term and log index appended as the current transaction.
+        // The tmp chunk file may have been opened for a read meanwhile.
+        invalidateHandle(handleCache, tmpChunkFile);
         commitChunk(tmpChunkFile, chunkFile);
         // Increment container stats here, as we commit the data.
         updateContainerWriteStats(container, info, isOverwrite);
         break;
       case COMBINED:
         // directly write to the chunk file
-        ChunkUtils.writeData(chunkFile, info, data, volumeIOStats, doSyncWrite);
+        writeData(chunkFile, info, 0, data, volume, handleCache);
         updateContainerWriteStats(container, info, isOverwrite);
         break;
       default:
@@ -171,6 +235,164 @@ public void writeChunk(Container container, BlockID blockID, ChunkInfo info,
     }
   }
 
+  /**
+   * Appends the data of a small file to the pack file of the container.
+   *
+   * The space for the data is reserved at the end of the pack file, so
+   * concurrent writes never overlap. The data of a log entry which is
+   * reapplied after its block has been committed is not appended again, the
+   * committed block refers to the data appended the first time. Data of
+   * blocks which were not committed before a restart is cut off the pack
+   * file when the container is loaded, so that the log entries reapplied
+   * after the restart append their data at the same offsets as on the other
+   * replicas.
+   */
+  @Override
+  public void writePackedChunk(Container container, BlockID blockID,
+      ChunkInfo info, ByteBuffer data, DispatcherContext dispatcherContext)
+      throws StorageContainerException {
+    Preconditions.checkNotNull(dispatcherContext);
+    KeyValueContainerData containerData = (KeyValueContainerData) container
+        .getContainerData();
+    long bcsId = dispatcherContext.getLogIndex();
+    if (bcsId != 0 && bcsId <= containerData.getBlockCommitSequenceId()) {
+      LOG.warn("Block {} with bcsId {} has already been committed, " +
+          "not appending chunk {} to the pack file again.", blockID, bcsId,
+          info.getChunkName());
+      return;
+    }
+    try {
+      HddsVolume volume = containerData.getVolume();
+      File packFile = ChunkUtils.getPackFile(containerData);
+      long offset = containerData.reservePackFileSpace(info.getLen());
+      info.addMetadata(OzoneConsts.CHUNK_PACK_OFFSET, Long.toString(offset));
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("writing chunk:{} pack file:{} offset:{}",
+            info.getChunkName(), packFile, offset);
+      }
+      writeData(packFile, info, offset, data, volume,
+          volume.getFileChannelCache());
+      updateContainerWriteStats(container, info, false);
+    } catch (StorageContainerException ex) {
+      throw ex;
+    } catch (NoSuchAlgorithmException ex) {
+      LOG.error("write data failed. error: {}", ex);
+      throw new StorageContainerException("Internal error: ", ex,
+          NO_SUCH_ALGORITHM);
+    } catch (ExecutionException  | IOException ex) {
+      LOG.error("write data failed. error: {}", ex);
+      throw new StorageContainerException("Internal error: ", ex,
+          CONTAINER_INTERNAL_ERROR);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.error("write data failed. error: {}", e);
+      throw new StorageContainerException("Internal error: ", e,
+          CONTAINER_INTERNAL_ERROR);
+    }
+  }
+
+  /**
+   * Writes a chunk into the block file of a FILE_PER_BLOCK container, at the
+   * offset of the chunk within the block.
+   *
+   * Chunk data is written in place during WRITE_DATA, there is no temporary
+   * file to be renamed during COMMIT_DATA. Rewriting the same chunk, e.g.
+   * while reapplying a log entry, writes the same bytes at the same offset.
+   * Data left behind by a truncated log entry is never referenced by the
+   * block data and gets overwritten by the next chunk.
+   */
+  private void writeChunkToBlockFile(Container container, BlockID blockID,
+      ChunkInfo info, ByteBuffer data, DispatcherContext dispatcherContext,
+      FileChannelCache handleCache)
+      throws StorageContainerException,
+      ExecutionException, InterruptedException, NoSuchAlgorithmException,
+      IOException {
+    DispatcherContext.WriteChunkStage stage = dispatcherContext.getStage();
+    KeyValueContainerData containerData = (KeyValueContainerData) container
+        .getContainerData();
+    HddsVolume volume = containerData.getVolume();
+    File blockFile = ChunkUtils.getBlockFile(containerData, blockID);
+    long offset = ChunkUtils.getBlockOffset(info);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("writing chunk:{} chunk stage:{} block file:{} offset:{}",
+          info.getChunkName(), stage, blockFile, offset);
+    }
+
+    switch (stage) {
+    case WRITE_DATA:
+      writeData(blockFile, info, offset, data, volume, handleCache);
+      // No need to increment container stats here, as still data is not
+      // committed here.
+      break;
+    case COMMIT_DATA:
+      // data has already been written at its final location, only the
+      // container stats need to be updated.
+      if (isCommitted(container, blockID, dispatcherContext.getLogIndex())) {
+        // the log entry is reapplied, e.g. after a restart, and the chunk is
+        // already accounted for by the committed block.
+        LOG.warn("Chunk {} of block {} has already been committed",
+            info.getChunkName(), blockID);
+        return;
+      }
+      updateContainerWriteStats(container, info, false);
+      break;
+    case COMBINED:
+      boolean isOverwrite = ChunkUtils.validateChunkForOverwrite(
+          blockFile, info, offset);
+      writeData(blockFile, info, offset, data, volume, handleCache);
+      updateContainerWriteStats(container, info, isOverwrite);
+      break;
+    default:
+      throw new IOException("Can not identify write operation.");
+    }
+  }
+
+  /**
+   * Writes the chunk data to the file. If the writes of the volume are
+   * synced in batches, the write returns once the batch it belongs to has
+   * been synced, otherwise the file is synced by the write itself.
+   */
+  private void writeData(File file, ChunkInfo info, long offset,
+      ByteBuffer data, HddsVolume volume, FileChannelCache handleCache)
+      throws StorageContainerException, ExecutionException,
+      InterruptedException, NoSuchAlgorithmException {
+    VolumeSyncCoordinator syncCoordinator =
+        doSyncWrite ? volume.getSyncCoordinator() : null;
+    VolumeIOScheduler ioScheduler = volume.getIOScheduler();
+    if (ioScheduler != null) {
+      ioScheduler.acquire(IOClass.CLIENT, info.getLen());
+    }
+    try {
+      ChunkUtils.writeData(file, info, offset, data,
+          volume.getVolumeIOStats(), handleCache,
+          doSyncWrite && syncCoordinator == null, writeDirect);
+    } finally {
+      if (ioScheduler != null) {
+        ioScheduler.release(IOClass.CLIENT);
+      }
+    }
+    if (syncCoordinator != null) {
+      // wait outside of the exclusive access to the file, so that further
+      // writes of the file can join the same batch.
+      syncCoordinator.sync(file.toPath(), info.getLen()).get();
+    }
+  }
+
+  /**
+   * Returns whether the block has been committed by a log entry following
+   * the given one. The DB is only read while log entries which are older
+   * than the latest committed block of the container are reapplied.
+   */
+  private static boolean isCommitted(Container container, BlockID blockID,
+      long logIndex) throws IOException {
+    if (logIndex == 0 || logIndex > container.getBlockCommitSequenceId()
+        || !(container instanceof KeyValueContainer)) {
+      return false;
+    }
+    return ((KeyValueContainer) container).getBlockCommitSequenceId(
+        blockID.getLocalID()) >= logIndex;
+  }
+
   protected void updateContainerWriteStats(Container container, ChunkInfo info,
       boolean isOverwrite) {
     KeyValueContainerData containerData = (KeyValueContainerData) container
@@ -202,29 +424,141 @@ public ByteBuffer readChunk(Container container, BlockID blockID,
         .getContainerData();
     ByteBuffer data;
     HddsVolume volume = containerData.getVolume();
-    VolumeIOStats volumeIOStats = volume.getVolumeIOStats();
 
     // Checking here, which layout version the container is, and reading
     // the chunk file in that format.
     // In version1, we verify checksum if it is available and return data
     // of the chunk file.
-    if (containerData.getLayOutVersion() == ChunkLayOutVersion
-        .getLatestVersion().getVersion()) {
-      File chunkFile = ChunkUtils.getChunkFile(containerData, info);
+    // In version2, the chunk is read from its offset in the block file.
+    File chunkFile = getChunkFileForRead(containerData, blockID, info,
+        dispatcherContext);
+    // The offset of the chunk is relative to the start of the chunk data,
+    // clients without the range of the read set it for partial reads.
+    boolean packed = ChunkUtils.isPacked(info);
+    long fileOffset = ChunkUtils.getChunkFileOffset(containerData, info)
+        + info.getOffset();
+    data = readData(chunkFile, info, fileOffset, info.getLen(), volume,
+        dispatcherContext);
+    containerData.incrReadCount();
+    containerData.incrReadBytes(packed || isFilePerBlock(containerData) ?
+        info.getLen() : chunkFile.length());
+    return data;
+  }
 
-      // In case the chunk file does not exist but tmp chunk file exist,
-      // read from tmp chunk file if readFromTmpFile is set to true
-      if (!chunkFile.exists() && dispatcherContext != null
-          && dispatcherContext.isReadFromTmpFile()) {
-        chunkFile = getTmpChunkFile(chunkFile, dispatcherContext);
+  /**
+   * reads a range of the data defined by a chunk.
+   *
+   * @param container - Container for the chunk
+   * @param blockID - ID of the block.
+   * @param info - ChunkInfo, as stored in the block data, or with its
+   *             offset and len set to the range as sent by clients.
+   * @param offset - offset of the range, relative to the start of the chunk.
+   * @param len - length of the range.
+   * @param dispatcherContext dispatcher context info.
+   * @return byte array
+   * @throws StorageContainerException
+   */
+  public ByteBuffer readChunk(Container container, BlockID blockID,
+      ChunkInfo info, long offset, long len,
+      DispatcherContext dispatcherContext) throws StorageContainerException {
+    KeyValueContainerData containerData = (KeyValueContainerData) container
+        .getContainerData();
+    if (offset < 0 || len < 0
+        || offset + len > info.getOffset() + info.getLen()) {
+      throw new StorageContainerException("Read range offset=" + offset +
+          " len=" + len + " is outside of chunk " + info, INVALID_ARGUMENT);
+    }
+    HddsVolume volume = containerData.getVolume();
+
+    File chunkFile = getChunkFileForRead(containerData, blockID, info,
+        dispatcherContext);
+    long fileOffset = ChunkUtils.getChunkFileOffset(containerData, info)
+        + offset;
+    ByteBuffer data = readData(chunkFile, info, fileOffset, len, volume,
+        dispatcherContext);
+    containerData.incrReadCount();
+    containerData.incrReadBytes(len);
+    return data;
+  }
+
+  /**
+   * Reads the data from the file. The data is mapped instead of being copied
+   * into a heap buffer only if the request unmaps the mappings once its
+   * response has been sent, and if enough data is read to be worth a
+   * mapping.
+   */
+  private ByteBuffer readData(File chunkFile, ChunkInfo info, long offset,
+      long len, HddsVolume volume, DispatcherContext dispatcherContext)
+      throws StorageContainerException {
+    MappedBuffers mappedBuffers = dispatcherContext == null ? null
+        : dispatcherContext.getMappedBuffers();
+    VolumeIOScheduler ioScheduler = volume.getIOScheduler();
+    if (ioScheduler != null) {
+      try {
+        ioScheduler.acquire(IOClass.CLIENT, len);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new StorageContainerException("Interrupted while waiting to " +
+            "read chunk " + info.getChunkName(), CONTAINER_INTERNAL_ERROR);
       }
-      data = ChunkUtils.readData(chunkFile, info, volumeIOStats);
-      containerData.incrReadCount();
-      long length = chunkFile.length();
-      containerData.incrReadBytes(length);
-      return data;
     }
-    return null;
+    try {
+      if (readMapped && mappedBuffers != null && len >= mappedReadMinSize) {
+        MappedByteBuffer data = ChunkUtils.mapData(chunkFile, info, offset,
+            len, volume.getVolumeIOStats(), volume.getFileChannelCache());
+        mappedBuffers.add(data);
+        return data;
+      }
+      return ChunkUtils.readData(chunkFile, info, offset, len,
+          volume.getVolumeIOStats(), volume.getFileChannelCache());
+    } finally {
+      if (ioScheduler != null) {
+        ioScheduler.release(IOClass.CLIENT);
+      }
+    }
+  }
+
+  private File getChunkFileForRead(KeyValueContainerData containerData,
+      BlockID blockID, ChunkInfo info, DispatcherContext dispatcherContext)
+      throws StorageContainerException {
+    if (ChunkUtils.isPacked(info) || isFilePerBlock(containerData)) {
+      // chunks are written in place, there are no tmp chunk files.
+      return ChunkUtils.getChunkFile(containerData, blockID, info);
+    }
+    File chunkFile = ChunkUtils.getChunkFile(containerData, info);
+
+    // In case the chunk file does not exist but tmp chunk file exist,
+    // read from tmp chunk file if readFromTmpFile is set to true
+    if (!chunkFile.exists() && dispatcherContext != null
+        && dispatcherContext.isReadFromTmpFile()) {
+      chunkFile = getTmpChunkFile(chunkFile, dispatcherContext);
+    }
+    return chunkFile;
+  }
+
+  /**
+   * Checks that the file of a chunk holds all of its data. Data written
+   * beyond the end of the file, but not synced, is lost on a crash without
+   * leaving a hole, so the length of the file tells whether it is present.
+   *
+   * @param container - Container for the chunk
+   * @param blockID - ID of the block.
+   * @param info - ChunkInfo, as stored in the block data.
+   * @throws StorageContainerException if the data of the chunk is missing.
+   */
+  @Override
+  public void checkChunkPresent(Container container, BlockID blockID,
+      ChunkInfo info) throws StorageContainerException {
+    KeyValueContainerData containerData = (KeyValueContainerData) container
+        .getContainerData();
+    File chunkFile = ChunkUtils.getChunkFile(containerData, blockID, info);
+    long end = ChunkUtils.getChunkFileOffset(containerData, info)
+        + info.getOffset() + info.getLen();
+    if (chunkFile.length() < end) {
+      throw new StorageContainerException("Data of chunk " + info
+          + " is missing in " + chunkFile + " of length "
+          + chunkFile.length(), UNABLE_TO_FIND_CHUNK);
+    }
   }
 
   /**
@@ -243,8 +577,36 @@ public void deleteChunk(Container container, BlockID blockID, ChunkInfo info)
     // Checking here, which layout version the container is, and performing
     // deleting chunk operation.
     // In version1, we have only chunk file.
-    if (containerData.getLayOutVersion() == ChunkLayOutVersion
-        .getLatestVersion().getVersion()) {
+    // In version2, the chunk shares the block file with the other chunks of
+    // the block, so it can be deleted only if it is the only chunk.
+    // Packed chunks share the pack file with the other small files of the
+    // container, their space is reclaimed with the container.
+    if (ChunkUtils.isPacked(info)) {
+      LOG.error("Not Supported Operation. Trying to delete a " +
+          "chunk that is in the pack file. chunk info : " + info.toString());
+      throw new StorageContainerException("Not Supported Operation. " +
+          "Trying to delete a chunk that is in the pack file. chunk info : "
+          + info.toString(), UNSUPPORTED_REQUEST);
+    } else if (isFilePerBlock(containerData)) {
+      File blockFile = ChunkUtils.getBlockFile(containerData, blockID);
+      if (!blockFile.exists()) {
+        LOG.warn("Block file does not exist. chunk info :" + info.toString());
+        return;
+      }
+      if ((ChunkUtils.getBlockOffset(info) == 0)
+          && (info.getLen() == blockFile.length())) {
+        invalidateHandle(containerData.getVolume().getFileChannelCache(),
+            blockFile);
+        FileUtil.fullyDelete(blockFile);
+        containerData.decrBytesUsed(info.getLen());
+      } else {
+        LOG.error("Not Supported Operation. Trying to delete a " +
+            "chunk that is in shared file. chunk info : " + info.toString());
+        throw new StorageContainerException("Not Supported Operation. " +
+            "Trying to delete a chunk that is in shared file. chunk info : "
+            + info.toString(), UNSUPPORTED_REQUEST);
+      }
+    } else {
       File chunkFile = ChunkUtils.getChunkFile(containerData, info);
 
       // if the chunk file does not exist, it might have already been deleted.
@@ -254,7 +616,11 @@ public void deleteChunk(Container container, BlockID blockID, ChunkInfo info)
         LOG.warn("Chunk file doe not exist. chunk info :" + info.toString());
         return;
       }
-      if ((info.getOffset() == 0) && (info.getLen() == chunkFile.length())) {
+      // The offset of the chunk is its offset within the block, the chunk
+      // file holds the whole chunk.
+      if (info.getLen() == chunkFile.length()) {
+        invalidateHandle(containerData.getVolume().getFileChannelCache(),
+            chunkFile);
         FileUtil.fullyDelete(chunkFile);
         containerData.decrBytesUsed(chunkFile.length());
       } else {
@@ -267,6 +633,17 @@ public void deleteChunk(Container container, BlockID blockID, ChunkInfo info)
     }
   }
 
+  private static void invalidateHandle(FileChannelCache handleCache,
+      File file) {
+    if (handleCache != null) {
+      handleCache.invalidate(file.toPath());
+    }
+  }
+
+  private static boolean isFilePerBlock(KeyValueContainerData containerData) {
+    return ChunkLayOutVersion.isFilePerBlock(containerData.getLayOutVersion());
+  }
+
   /**
    * Shutdown the chunkManager.
    *
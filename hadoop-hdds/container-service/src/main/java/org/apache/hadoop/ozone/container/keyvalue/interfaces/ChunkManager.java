@@ -47,21 +47,70 @@ void writeChunk(Container container, BlockID blockID, ChunkInfo info,
       throws StorageContainerException;
 
   /**
-   * reads the data defined by a chunk.
+   * Appends the data of a small file, written as a single chunk, to the pack
+   * file of the container instead of a file of its own. The offset of the
+   * data in the pack file is added to the metadata of the ChunkInfo, which
+   * has to be stored with the block to read the chunk back.
    *
    * @param container - Container for the chunk
    * @param blockID - ID of the block.
    * @param info - ChunkInfo.
+   * @param data - data of the chunk.
    * @param dispatcherContext - dispatcher context info.
-   * @return  byte array
    * @throws StorageContainerException
+   */
+  void writePackedChunk(Container container, BlockID blockID, ChunkInfo info,
+      ByteBuffer data, DispatcherContext dispatcherContext)
+      throws StorageContainerException;
+
+  /**
+   * reads the data defined by a chunk. The offset of the ChunkInfo is
+   * relative to the chunk file for FILE_PER_CHUNK containers and relative to
+   * the block file for FILE_PER_BLOCK containers. Packed chunks are read from
+   * their offset in the pack file.
    *
-   * TODO: Right now we do not support partial reads and writes of chunks.
-   * TODO: Explore if we need to do that for ozone.
+   * @param container - Container for the chunk
+   * @param blockID - ID of the block.
+   * @param info - ChunkInfo.
+   * @param dispatcherContext - dispatcher context info.
+   * @return  byte array
+   * @throws StorageContainerException
    */
   ByteBuffer readChunk(Container container, BlockID blockID, ChunkInfo info,
       DispatcherContext dispatcherContext) throws StorageContainerException;
 
+  /**
+   * reads a range of the data defined by a chunk.
+   *
+   * @param container - Container for the chunk
+   * @param blockID - ID of the block.
+   * @param info - ChunkInfo, as stored in the block data.
+   * @param offset - offset of the range, relative to the start of the chunk.
+   * @param len - length of the range.
+   * @param dispatcherContext - dispatcher context info.
+   * @return  byte array
+   * @throws StorageContainerException
+   */
+  ByteBuffer readChunk(Container container, BlockID blockID, ChunkInfo info,
+      long offset, long len, DispatcherContext dispatcherContext)
+      throws StorageContainerException;
+
+  /**
+   * Checks that the data of a chunk is present on this datanode. This is
+   * used before committing a block whose chunks were streamed along the
+   * pipeline: unlike chunks written through Ratis, they cannot be written
+   * again from the Ratis log if the data has been lost, e.g. as it was not
+   * synced before a crash.
+   *
+   * @param container - Container for the chunk
+   * @param blockID - ID of the block.
+   * @param info - ChunkInfo, as stored in the block data.
+   * @throws StorageContainerException with UNABLE_TO_FIND_CHUNK if the data
+   * of the chunk is missing.
+   */
+  void checkChunkPresent(Container container, BlockID blockID,
+      ChunkInfo info) throws StorageContainerException;
+
   /**
    * Deletes a given chunk.
    *
@@ -18,16 +18,26 @@
 
 package org.apache.hadoop.ozone.container.keyvalue.statemachine.background;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.hdds.scm.ScmConfigKeys;
 import org.apache.hadoop.hdds.scm.pipeline.PipelineID;
+import org.apache.hadoop.ozone.container.common.impl.ChunkLayOutVersion;
 import org.apache.hadoop.ozone.container.common.impl.ContainerData;
 import org.apache.hadoop.ozone.container.common.impl.TopNOrderedContainerDeletionChoosingPolicy;
 import org.apache.hadoop.ozone.container.common.interfaces.Container;
 import org.apache.hadoop.ozone.container.common.interfaces.ContainerDeletionChoosingPolicy;
 import org.apache.hadoop.ozone.container.common.transport.server.ratis.XceiverServerRatis;
+import org.apache.hadoop.ozone.container.common.volume.FileChannelCache;
+import org.apache.hadoop.ozone.container.common.volume.HddsVolume;
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler;
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler
+    .IOClass;
 import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainerData;
 import org.apache.hadoop.ozone.container.keyvalue.helpers.BlockUtils;
+import org.apache.hadoop.ozone.container.keyvalue.helpers.ChunkUtils;
 import org.apache.hadoop.ozone.container.ozoneimpl.OzoneContainer;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.ratis.thirdparty.com.google.protobuf
@@ -52,10 +62,16 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -63,10 +79,18 @@
     .OZONE_BLOCK_DELETING_CONTAINER_LIMIT_PER_INTERVAL;
 import static org.apache.hadoop.ozone.OzoneConfigKeys
     .OZONE_BLOCK_DELETING_CONTAINER_LIMIT_PER_INTERVAL_DEFAULT;
+import static org.apache.hadoop.ozone.OzoneConfigKeys
+    .OZONE_BLOCK_DELETING_LIMIT_MAX_MULTIPLIER;
+import static org.apache.hadoop.ozone.OzoneConfigKeys
+    .OZONE_BLOCK_DELETING_LIMIT_MAX_MULTIPLIER_DEFAULT;
 import static org.apache.hadoop.ozone.OzoneConfigKeys
     .OZONE_BLOCK_DELETING_LIMIT_PER_CONTAINER;
 import static org.apache.hadoop.ozone.OzoneConfigKeys
     .OZONE_BLOCK_DELETING_LIMIT_PER_CONTAINER_DEFAULT;
+import static org.apache.hadoop.ozone.OzoneConfigKeys
+    .OZONE_BLOCK_DELETING_THREADS_PER_VOLUME;
+import static org.apache.hadoop.ozone.OzoneConfigKeys
+    .OZONE_BLOCK_DELETING_THREADS_PER_VOLUME_DEFAULT;
 
 /**
  * A per-datanode container block deleting service takes in charge
@@ -89,6 +113,15 @@ public class BlockDeletingService extends BackgroundService {
   // Throttle the number of containers to process concurrently at a time,
   private final int containerLimitPerInterval;
 
+  // Upper bound of the factor blockLimitPerTask is scaled by with the
+  // backlog of blocks pending deletion.
+  private final int maxLimitMultiplier;
+
+  // Threads deleting the files of the blocks, per volume.
+  private final int threadsPerVolume;
+  private final Map<HddsVolume, ExecutorService> volumeExecutors =
+      new ConcurrentHashMap<>();
+
   // Task priority is useful when a to-delete block has weight.
   private final static int TASK_PRIORITY_DEFAULT = 1;
   // Core pool size for container tasks
@@ -111,6 +144,12 @@ public BlockDeletingService(OzoneContainer ozoneContainer,
     this.containerLimitPerInterval =
         conf.getInt(OZONE_BLOCK_DELETING_CONTAINER_LIMIT_PER_INTERVAL,
             OZONE_BLOCK_DELETING_CONTAINER_LIMIT_PER_INTERVAL_DEFAULT);
+    this.maxLimitMultiplier =
+        conf.getInt(OZONE_BLOCK_DELETING_LIMIT_MAX_MULTIPLIER,
+            OZONE_BLOCK_DELETING_LIMIT_MAX_MULTIPLIER_DEFAULT);
+    this.threadsPerVolume =
+        conf.getInt(OZONE_BLOCK_DELETING_THREADS_PER_VOLUME,
+            OZONE_BLOCK_DELETING_THREADS_PER_VOLUME_DEFAULT);
   }
 
 
@@ -132,9 +171,11 @@ public BackgroundTaskQueue getTasks() {
             containerLimitPerInterval, containers.size());
       }
 
+      int blockLimit = blockLimitPerTask * getLimitMultiplier();
       for(ContainerData container : containers) {
         BlockDeletingTask containerTask =
-            new BlockDeletingTask(container, TASK_PRIORITY_DEFAULT);
+            new BlockDeletingTask(container, TASK_PRIORITY_DEFAULT,
+                blockLimit);
         queue.add(containerTask);
       }
     } catch (StorageContainerException e) {
@@ -150,6 +191,53 @@ public BackgroundTaskQueue getTasks() {
     return queue;
   }
 
+  /**
+   * Returns the factor to scale the number of blocks deleted per container
+   * in an interval by: the number of intervals needed to delete all blocks
+   * pending deletion at the configured limits, bounded by the max multiplier.
+   */
+  @VisibleForTesting
+  int getLimitMultiplier() {
+    if (maxLimitMultiplier <= 1) {
+      return 1;
+    }
+    long backlog = 0;
+    for (Container<?> container :
+        ozoneContainer.getContainerSet().getContainerMap().values()) {
+      ContainerData data = container.getContainerData();
+      if (data instanceof KeyValueContainerData) {
+        backlog += ((KeyValueContainerData) data).getNumPendingDeletionBlocks();
+      }
+    }
+    long blocksPerInterval =
+        (long) blockLimitPerTask * containerLimitPerInterval;
+    long intervals = (backlog + blocksPerInterval - 1) / blocksPerInterval;
+    return (int) Math.max(1, Math.min(maxLimitMultiplier, intervals));
+  }
+
+  /**
+   * Returns the executor deleting the files of the given volume.
+   */
+  private ExecutorService getVolumeExecutor(HddsVolume volume) {
+    if (volume == null) {
+      return MoreExecutors.sameThreadExecutor();
+    }
+    return volumeExecutors.computeIfAbsent(volume, v ->
+        Executors.newFixedThreadPool(threadsPerVolume,
+            new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("BlockDeletingService-"
+                    + v.getHddsRootDir().getPath().replace("%", "%%")
+                    + "-%d")
+                .build()));
+  }
+
+  @Override
+  public void shutdown() {
+    super.shutdown();
+    volumeExecutors.values().forEach(ExecutorService::shutdownNow);
+    volumeExecutors.clear();
+  }
+
   public List<ContainerData> chooseContainerForBlockDeletion(int count,
       ContainerDeletionChoosingPolicy deletionPolicy)
       throws StorageContainerException {
@@ -239,10 +327,13 @@ public int getSize() {
 
     private final int priority;
     private final KeyValueContainerData containerData;
+    private final int blockLimit;
 
-    BlockDeletingTask(ContainerData containerName, int priority) {
+    BlockDeletingTask(ContainerData containerName, int priority,
+        int blockLimit) {
       this.priority = priority;
       this.containerData = (KeyValueContainerData) containerName;
+      this.blockLimit = blockLimit;
     }
 
     @Override
@@ -258,7 +349,7 @@ public BackgroundTaskResult call() throws Exception {
         KeyPrefixFilter filter =
             new KeyPrefixFilter().addFilter(OzoneConsts.DELETING_KEY_PREFIX);
         List<Map.Entry<byte[], byte[]>> toDeleteBlocks =
-            meta.getStore().getSequentialRangeKVs(null, blockLimitPerTask,
+            meta.getStore().getSequentialRangeKVs(null, blockLimit,
                 filter);
         if (toDeleteBlocks.isEmpty()) {
           LOG.debug("No under deletion block found in container : {}",
@@ -274,28 +365,54 @@ public BackgroundTaskResult call() throws Exception {
               + "does not exist or not a directory", dataDir.getAbsolutePath());
           return crr;
         }
-
-        toDeleteBlocks.forEach(entry -> {
+        // open handles of the deleted files must be closed to free the space.
+        FileChannelCache handleCache = containerData.getVolume() == null ?
+            null : containerData.getVolume().getFileChannelCache();
+        VolumeIOScheduler ioScheduler = containerData.getVolume() == null ?
+            null : containerData.getVolume().getIOScheduler();
+
+        // the files of the blocks are deleted in parallel by the threads of
+        // the volume, the blocks are marked deleted once all of them are done.
+        ExecutorService executor = getVolumeExecutor(containerData.getVolume());
+        List<Future<String>> deletions = new ArrayList<>();
+        for (Map.Entry<byte[], byte[]> entry : toDeleteBlocks) {
           String blockName = DFSUtil.bytes2String(entry.getKey());
-          LOG.debug("Deleting block {}", blockName);
+          ContainerProtos.BlockData data;
           try {
-            ContainerProtos.BlockData data =
-                ContainerProtos.BlockData.parseFrom(entry.getValue());
-            for (ContainerProtos.ChunkInfo chunkInfo : data.getChunksList()) {
-              File chunkFile = dataDir.toPath()
-                  .resolve(chunkInfo.getChunkName()).toFile();
-              if (FileUtils.deleteQuietly(chunkFile)) {
-                if (LOG.isDebugEnabled()) {
-                  LOG.debug("block {} chunk {} deleted", blockName,
-                      chunkFile.getAbsolutePath());
-                }
-              }
-            }
-            succeedBlocks.add(blockName);
+            data = ContainerProtos.BlockData.parseFrom(entry.getValue());
           } catch (InvalidProtocolBufferException e) {
             LOG.error("Failed to parse block info for block {}", blockName, e);
+            continue;
           }
-        });
+          deletions.add(executor.submit(() -> {
+            LOG.debug("Deleting block {}", blockName);
+            if (ioScheduler != null) {
+              ioScheduler.acquire(IOClass.DELETION, 0);
+            }
+            try {
+              deleteBlockFiles(dataDir, data, blockName, handleCache);
+            } finally {
+              if (ioScheduler != null) {
+                ioScheduler.release(IOClass.DELETION);
+              }
+            }
+            return blockName;
+          }));
+        }
+        for (Future<String> deletion : deletions) {
+          try {
+            succeedBlocks.add(deletion.get());
+          } catch (ExecutionException e) {
+            LOG.warn("Failed to delete block files", e.getCause());
+          } catch (InterruptedException e) {
+            // the remaining blocks are deleted by a later run of the service.
+            Thread.currentThread().interrupt();
+            deletions.forEach(d -> d.cancel(false));
+            LOG.debug("Interrupted while deleting blocks of container {}",
+                containerData.getContainerID());
+            break;
+          }
+        }
 
         // Once files are deleted... replace deleting entries with deleted
         // entries
@@ -324,6 +441,50 @@ public BackgroundTaskResult call() throws Exception {
       }
     }
 
+    /**
+     * Deletes the chunk or block files holding the data of a block.
+     */
+    private void deleteBlockFiles(File dataDir,
+        ContainerProtos.BlockData data, String blockName,
+        FileChannelCache handleCache) {
+      if (ChunkLayOutVersion.isFilePerBlock(
+          containerData.getLayOutVersion())) {
+        // all chunks of the block are in the block file.
+        File blockFile = dataDir.toPath().resolve(
+            data.getBlockID().getLocalID()
+                + OzoneConsts.CONTAINER_BLOCK_FILE_EXTENSION).toFile();
+        if (handleCache != null) {
+          handleCache.invalidate(blockFile.toPath());
+        }
+        if (FileUtils.deleteQuietly(blockFile)) {
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("block {} file {} deleted", blockName,
+                blockFile.getAbsolutePath());
+          }
+        }
+      } else {
+        for (ContainerProtos.ChunkInfo chunkInfo :
+            data.getChunksList()) {
+          if (ChunkUtils.isPacked(chunkInfo)) {
+            // the space of packed small files is reclaimed with the
+            // container.
+            continue;
+          }
+          File chunkFile = dataDir.toPath()
+              .resolve(chunkInfo.getChunkName()).toFile();
+          if (handleCache != null) {
+            handleCache.invalidate(chunkFile.toPath());
+          }
+          if (FileUtils.deleteQuietly(chunkFile)) {
+            if (LOG.isDebugEnabled()) {
+              LOG.debug("block {} chunk {} deleted", blockName,
+                  chunkFile.getAbsolutePath());
+            }
+          }
+        }
+      }
+    }
+
     @Override
     public int getPriority() {
       return priority;
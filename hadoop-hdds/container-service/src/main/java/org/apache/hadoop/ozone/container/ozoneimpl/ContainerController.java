@@ -120,6 +120,19 @@ public void closeContainer(final long containerId) throws IOException {
     getHandler(container).closeContainer(container);
   }
 
+  /**
+   * Loads the metadata of a container in the background, ahead of the
+   * requests which are queued for it.
+   *
+   * @param containerId Id of the container
+   */
+  public void prefetchMetadata(final long containerId) {
+    final Container container = containerSet.getContainer(containerId);
+    if (container != null) {
+      getHandler(container).prefetchMetadata(container);
+    }
+  }
+
   public Container importContainer(final ContainerType type,
       final long containerId, final long maxSize, final String originPipelineId,
       final String originNodeId, final InputStream rawContainerStream,
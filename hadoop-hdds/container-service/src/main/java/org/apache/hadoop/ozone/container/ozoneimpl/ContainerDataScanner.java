@@ -19,7 +19,9 @@
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -49,6 +51,7 @@ public class ContainerDataScanner extends Thread {
   private final Canceler canceler;
   private final ContainerDataScrubberMetrics metrics;
   private final long dataScanInterval;
+  private final long dataRescanInterval;
 
   /**
    * True if the thread is stopping.<p/>
@@ -63,6 +66,7 @@ public ContainerDataScanner(ContainerScrubberConfiguration conf,
     this.controller = controller;
     this.volume = volume;
     dataScanInterval = conf.getDataScanInterval();
+    dataRescanInterval = conf.getDataRescanInterval();
     throttler = new HddsDataTransferThrottler(conf.getBandwidthPerVolume());
     canceler = new Canceler();
     metrics = ContainerDataScrubberMetrics.create(volume.toString());
@@ -79,6 +83,7 @@ public void run() {
       while (!stopping) {
         runIteration();
         metrics.resetNumContainersScanned();
+        metrics.resetNumContainersSkipped();
         metrics.resetNumUnhealthyContainers();
       }
       LOG.info("{} exiting.", this);
@@ -94,28 +99,26 @@ public void run() {
   @VisibleForTesting
   public void runIteration() {
     long startTime = System.nanoTime();
-    Iterator<Container<?>> itr = controller.getContainers(volume);
+    Iterator<Container<?>> itr = getContainersToScan().iterator();
     while (!stopping && itr.hasNext()) {
       Container c = itr.next();
-      if (c.shouldScanData()) {
-        ContainerData containerData = c.getContainerData();
-        long containerId = containerData.getContainerID();
-        try {
-          logScanStart(containerData);
-          if (!c.scanData(throttler, canceler)) {
-            metrics.incNumUnHealthyContainers();
-            controller.markContainerUnhealthy(containerId);
-          } else {
-            Instant now = Instant.now();
-            logScanCompleted(containerData, now);
-            controller.updateDataScanTimestamp(containerId, now);
-          }
-        } catch (IOException ex) {
-          LOG.warn("Unexpected exception while scanning container "
-              + containerId, ex);
-        } finally {
-          metrics.incNumContainersScanned();
+      ContainerData containerData = c.getContainerData();
+      long containerId = containerData.getContainerID();
+      try {
+        logScanStart(containerData);
+        if (!c.scanData(throttler, canceler)) {
+          metrics.incNumUnHealthyContainers();
+          controller.markContainerUnhealthy(containerId);
+        } else {
+          Instant now = Instant.now();
+          logScanCompleted(containerData, now);
+          controller.updateDataScanTimestamp(containerId, now);
         }
+      } catch (IOException ex) {
+        LOG.warn("Unexpected exception while scanning container "
+            + containerId, ex);
+      } finally {
+        metrics.incNumContainersScanned();
       }
     }
     long totalDuration = System.nanoTime() - startTime;
@@ -126,10 +129,12 @@ public void runIteration() {
                 " {} minutes." +
                 " Number of iterations (since the data-node restart) : {}" +
                 ", Number of containers scanned in this iteration : {}" +
+                ", Number of containers skipped in this iteration : {}" +
                 ", Number of unhealthy containers found in this iteration : {}",
             TimeUnit.NANOSECONDS.toMinutes(totalDuration),
             metrics.getNumScanIterations(),
             metrics.getNumContainersScanned(),
+            metrics.getNumContainersSkipped(),
             metrics.getNumUnHealthyContainers());
       }
       long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(totalDuration);
@@ -143,6 +148,40 @@ public void runIteration() {
     }
   }
 
+  /**
+   * Returns the containers of the volume which are due for a data scan.
+   * Containers which were never scanned or changed since their last scan
+   * come first, followed by the unchanged ones whose last scan is older
+   * than the rescan interval, least recently scanned first. Containers
+   * scanned more recently are skipped, which also makes the scanner resume
+   * where it stopped after a restart, as the scan times are persisted.
+   */
+  private List<Container<?>> getContainersToScan() {
+    Instant rescanBefore = Instant.now().minusMillis(dataRescanInterval);
+    List<Container<?>> modified = new ArrayList<>();
+    List<Container<?>> unmodified = new ArrayList<>();
+    Iterator<Container<?>> itr = controller.getContainers(volume);
+    while (itr.hasNext()) {
+      Container<?> c = itr.next();
+      if (!c.shouldScanData()) {
+        continue;
+      }
+      ContainerData containerData = c.getContainerData();
+      Optional<Instant> lastScanTime = containerData.lastDataScanTime();
+      if (!lastScanTime.isPresent()
+          || containerData.isModifiedSinceDataScan()) {
+        modified.add(c);
+      } else if (lastScanTime.get().isBefore(rescanBefore)) {
+        unmodified.add(c);
+      } else {
+        metrics.incNumContainersSkipped();
+      }
+    }
+    // the containers are already ordered by their last scan time.
+    modified.addAll(unmodified);
+    return modified;
+  }
+
   private static void logScanStart(ContainerData containerData) {
     if (LOG.isDebugEnabled()) {
       Optional<Instant> scanTimestamp = containerData.lastDataScanTime();
@@ -183,6 +222,11 @@ public String toString() {
         ", " + volume.getStorageID() + ")";
   }
 
+  /**
+   * Throttles the scanner to its bandwidth. If the I/O of the volume is
+   * scheduled, the reads of the scanner are scheduled by the container
+   * check, which holds a scrub operation of the volume while reading.
+   */
   private class HddsDataTransferThrottler extends DataTransferThrottler {
     HddsDataTransferThrottler(long bandwidthPerSec) {
       super(bandwidthPerSec);
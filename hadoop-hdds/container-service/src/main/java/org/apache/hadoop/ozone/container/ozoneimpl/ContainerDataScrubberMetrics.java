@@ -38,6 +38,9 @@ public final class ContainerDataScrubberMetrics {
   private final MetricsSystem ms;
   @Metric("number of containers scanned in the current iteration")
   private MutableGaugeInt numContainersScanned;
+  @Metric("number of containers skipped in the current iteration, as they"
+      + " are unchanged since their last recent scan")
+  private MutableGaugeInt numContainersSkipped;
   @Metric("number of unhealthy containers found in the current iteration")
   private MutableGaugeInt numUnHealthyContainers;
   @Metric("number of iterations of scanner completed since the restart")
@@ -57,6 +60,18 @@ public void resetNumContainersScanned() {
     numContainersScanned.decr(getNumContainersScanned());
   }
 
+  public int getNumContainersSkipped() {
+    return numContainersSkipped.value();
+  }
+
+  public void incNumContainersSkipped() {
+    numContainersSkipped.incr();
+  }
+
+  public void resetNumContainersSkipped() {
+    numContainersSkipped.decr(getNumContainersSkipped());
+  }
+
   public int getNumUnHealthyContainers() {
     return numUnHealthyContainers.value();
   }
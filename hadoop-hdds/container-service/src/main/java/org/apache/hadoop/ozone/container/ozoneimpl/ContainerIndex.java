@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.ozone.container.ozoneimpl;
+
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerIndexEntryProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerIndexProto;
+import org.apache.hadoop.ozone.container.common.impl.ContainerData;
+import org.apache.hadoop.ozone.container.common.interfaces.Container;
+import org.apache.hadoop.ozone.container.common.volume.HddsVolume;
+import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainerData;
+import org.apache.hadoop.ozone.container.keyvalue.helpers
+    .KeyValueContainerLocationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the containers of a volume, which keeps the metadata and the
+ * usage counters of the containers, so that the datanode can load them
+ * without parsing their .container files and reading their DBs.
+ * <p>
+ * The index is written to the hdds directory of the volume when the
+ * datanode stops, as the header {@link ContainerIndexProto} followed by a
+ * {@link ContainerIndexEntryProto} per container. It is removed when it is
+ * loaded, so a datanode which did not stop cleanly loads its containers
+ * from their .container files and DBs.
+ */
+public final class ContainerIndex {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ContainerIndex.class);
+
+  public static final String INDEX_FILE_NAME = "container.index";
+
+  private ContainerIndex() {
+  }
+
+  /**
+   * Returns the index file of the volume.
+   */
+  public static File getIndexFile(HddsVolume volume) {
+    return new File(volume.getHddsRootDir(), INDEX_FILE_NAME);
+  }
+
+  /**
+   * Writes the index of the containers of a volume, replacing the existing
+   * index of the volume.
+   *
+   * @param volume the volume of the containers
+   * @param containers the containers of the volume
+   * @param volumeDBEnabled whether the containers keep their metadata in
+   *                        the DB of the volume
+   */
+  public static void write(HddsVolume volume,
+      Iterator<Container<?>> containers, boolean volumeDBEnabled)
+      throws IOException {
+    List<ContainerIndexEntryProto> entries = new ArrayList<>();
+    while (containers.hasNext()) {
+      ContainerData data = containers.next().getContainerData();
+      if (data instanceof KeyValueContainerData) {
+        entries.add(toProto((KeyValueContainerData) data));
+      }
+    }
+
+    File indexFile = getIndexFile(volume);
+    File tmpFile = new File(indexFile.getParentFile(),
+        INDEX_FILE_NAME + ".tmp");
+    try (FileOutputStream fos = new FileOutputStream(tmpFile);
+         OutputStream out = new BufferedOutputStream(fos)) {
+      ContainerIndexProto.newBuilder()
+          .setContainerCount(entries.size())
+          .setVolumeDBEnabled(volumeDBEnabled)
+          .build()
+          .writeDelimitedTo(out);
+      for (ContainerIndexEntryProto entry : entries) {
+        entry.writeDelimitedTo(out);
+      }
+      out.flush();
+      fos.getFD().sync();
+    }
+    Files.move(tmpFile.toPath(), indexFile.toPath(),
+        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    LOG.info("Saved the index of {} containers of volume {}",
+        entries.size(), volume.getHddsRootDir());
+  }
+
+  /**
+   * Loads the index of a volume and removes it.
+   *
+   * @param volume the volume to load the index of
+   * @param volumeDBEnabled whether the containers keep their metadata in
+   *                        the DB of the volume, the index is ignored if it
+   *                        was written with a different setting
+   * @return the data of the containers in the index by container ID, empty
+   *         if the volume has no index or it could not be read
+   */
+  public static Map<Long, KeyValueContainerData> load(HddsVolume volume,
+      boolean volumeDBEnabled) {
+    File indexFile = getIndexFile(volume);
+    if (!indexFile.exists()) {
+      return Collections.emptyMap();
+    }
+    try {
+      Map<Long, KeyValueContainerData> containers = new HashMap<>();
+      try (InputStream in = new BufferedInputStream(
+          new FileInputStream(indexFile))) {
+        ContainerIndexProto header = ContainerIndexProto.parseDelimitedFrom(in);
+        if (header == null
+            || header.getVolumeDBEnabled() != volumeDBEnabled) {
+          LOG.info("Ignoring the container index of volume {}, which was" +
+              " written with a different container DB layout",
+              volume.getHddsRootDir());
+          return Collections.emptyMap();
+        }
+        for (long i = 0; i < header.getContainerCount(); i++) {
+          ContainerIndexEntryProto entry =
+              ContainerIndexEntryProto.parseDelimitedFrom(in);
+          if (entry == null) {
+            throw new IOException("Expected " + header.getContainerCount()
+                + " containers but found " + i);
+          }
+          containers.put(entry.getContainerID(), fromProto(entry));
+        }
+      }
+      return containers;
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Ignoring the container index of volume {}, which could not" +
+          " be read", volume.getHddsRootDir(), e);
+      return Collections.emptyMap();
+    } finally {
+      if (!indexFile.delete()) {
+        LOG.warn("Failed to delete the container index {}", indexFile);
+      }
+    }
+  }
+
+  private static ContainerIndexEntryProto toProto(KeyValueContainerData data) {
+    ContainerIndexEntryProto.Builder builder =
+        ContainerIndexEntryProto.newBuilder()
+            .setContainerID(data.getContainerID())
+            .setContainerType(data.getContainerType())
+            .setLayOutVersion(data.getLayOutVersion())
+            .setState(data.getState())
+            .setMaxSize(data.getMaxSize())
+            .setMetadataPath(data.getMetadataPath())
+            .setChunksPath(data.getChunksPath())
+            .setBytesUsed(data.getBytesUsed())
+            .setKeyCount(data.getKeyCount())
+            .setBlockCommitSequenceId(data.getBlockCommitSequenceId())
+            .setNumPendingDeletionBlocks(data.getNumPendingDeletionBlocks())
+            .setDeleteTransactionId(data.getDeleteTransactionId())
+            .setPackFileLength(data.getCommittedPackFileLength());
+    for (Map.Entry<String, String> entry : data.getMetadata().entrySet()) {
+      builder.addMetadata(ContainerProtos.KeyValue.newBuilder()
+          .setKey(entry.getKey())
+          .setValue(entry.getValue()));
+    }
+    if (data.getContainerDBType() != null) {
+      builder.setContainerDBType(data.getContainerDBType());
+    }
+    if (data.getChecksum() != null) {
+      builder.setChecksum(data.getChecksum());
+    }
+    if (data.getOriginPipelineId() != null) {
+      builder.setOriginPipelineId(data.getOriginPipelineId());
+    }
+    if (data.getOriginNodeId() != null) {
+      builder.setOriginNodeId(data.getOriginNodeId());
+    }
+    if (data.getDataScanTimestamp() != null) {
+      builder.setDataScanTimestamp(data.getDataScanTimestamp());
+    }
+    if (data.getDataScanBcsId() != null) {
+      builder.setDataScanBcsId(data.getDataScanBcsId());
+    }
+    return builder.build();
+  }
+
+  private static KeyValueContainerData fromProto(
+      ContainerIndexEntryProto entry) {
+    KeyValueContainerData data = new KeyValueContainerData(
+        entry.getContainerID(), entry.getLayOutVersion(), entry.getMaxSize(),
+        entry.hasOriginPipelineId() ? entry.getOriginPipelineId() : null,
+        entry.hasOriginNodeId() ? entry.getOriginNodeId() : null);
+    data.setState(entry.getState());
+    data.setMetadataPath(entry.getMetadataPath());
+    data.setChunksPath(entry.getChunksPath());
+    data.setDbFile(KeyValueContainerLocationUtil.getContainerDBFile(
+        new File(entry.getMetadataPath()), entry.getContainerID()));
+    if (entry.hasContainerDBType()) {
+      data.setContainerDBType(entry.getContainerDBType());
+    }
+    Map<String, String> metadata = new HashMap<>();
+    for (ContainerProtos.KeyValue keyValue : entry.getMetadataList()) {
+      metadata.put(keyValue.getKey(), keyValue.getValue());
+    }
+    data.setMetadata(metadata);
+    if (entry.hasChecksum()) {
+      data.setChecksum(entry.getChecksum());
+    }
+    data.setDataScanTimestamp(
+        entry.hasDataScanTimestamp() ? entry.getDataScanTimestamp() : null);
+    data.setDataScanBcsId(
+        entry.hasDataScanBcsId() ? entry.getDataScanBcsId() : null);
+    data.setBytesUsed(entry.getBytesUsed());
+    data.setKeyCount(entry.getKeyCount());
+    data.updateBlockCommitSequenceId(entry.getBlockCommitSequenceId());
+    data.incrPendingDeletionBlocks(
+        (int) entry.getNumPendingDeletionBlocks());
+    data.updateDeleteTransactionId(entry.getDeleteTransactionId());
+    data.setPackFileLength(entry.getPackFileLength());
+    return data;
+  }
+}
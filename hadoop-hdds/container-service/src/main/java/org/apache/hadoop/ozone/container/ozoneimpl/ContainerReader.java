@@ -20,6 +20,7 @@
 
 import com.google.common.base.Preconditions;
 import com.google.common.primitives.Longs;
+import org.apache.hadoop.hdds.HddsConfigKeys;
 import org.apache.hadoop.hdds.conf.OzoneConfiguration;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
 import org.apache.hadoop.hdds.scm.container.common.helpers
@@ -48,7 +49,9 @@
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class used to read .container files from Volume and build container map.
@@ -130,6 +133,13 @@ public boolean accept(File pathname) {
       return;
     }
 
+    Map<Long, KeyValueContainerData> index = config.getBoolean(
+        HddsConfigKeys.HDDS_DATANODE_CONTAINER_INDEX_ENABLED,
+        HddsConfigKeys.HDDS_DATANODE_CONTAINER_INDEX_ENABLED_DEFAULT)
+        ? ContainerIndex.load(hddsVolume, BlockUtils.isVolumeDBEnabled(config))
+        : Collections.emptyMap();
+    int indexedContainers = index.size();
+
     for (File scmLoc : scmDir) {
       File currentDir = new File(scmLoc, Storage.STORAGE_DIR_CURRENT);
       File[] containerTopDirs = currentDir.listFiles();
@@ -142,7 +152,11 @@ public boolean accept(File pathname) {
                 File containerFile = ContainerUtils.getContainerFile(
                     containerDir);
                 long containerID = ContainerUtils.getContainerID(containerDir);
-                if (containerFile.exists()) {
+                KeyValueContainerData indexed = index.remove(containerID);
+                if (indexed != null && containerDir.equals(
+                    new File(indexed.getMetadataPath()).getParentFile())) {
+                  loadIndexedContainer(indexed);
+                } else if (containerFile.exists()) {
                   verifyContainerFile(containerID, containerFile);
                 } else {
                   LOG.error("Missing .container file for ContainerID: {}",
@@ -154,6 +168,28 @@ public boolean accept(File pathname) {
         }
       }
     }
+
+    if (indexedContainers > 0) {
+      LOG.info("Loaded {} containers of volume {} from its index, {} indexed" +
+          " containers were not found", indexedContainers - index.size(),
+          hddsVolumeRootDir, index.size());
+    }
+  }
+
+  /**
+   * Adds a container loaded from the index of the volume. Its DB is not
+   * opened until the container is accessed.
+   */
+  private void loadIndexedContainer(KeyValueContainerData containerData) {
+    try {
+      containerData.setVolume(hddsVolume);
+      KeyValueContainerUtil.truncatePackFile(containerData,
+          containerData.getCommittedPackFileLength());
+      containerSet.addContainer(new KeyValueContainer(containerData, config));
+    } catch (IOException ex) {
+      LOG.error("Failed to load ContainerID: {} from the container index",
+          containerData.getContainerID(), ex);
+    }
   }
 
   private void verifyContainerFile(long containerID, File containerFile) {
@@ -239,7 +275,8 @@ private void initializeUsedBytes(KeyValueContainer container)
       throws IOException {
     try (KeyValueBlockIterator blockIter = new KeyValueBlockIterator(
         container.getContainerData().getContainerID(),
-        new File(container.getContainerData().getContainerPath()))) {
+        new File(container.getContainerData().getContainerPath()),
+        MetadataKeyFilters.getNormalKeyFilter(), config)) {
       long usedBytes = 0;
 
       while (blockIter.hasNext()) {
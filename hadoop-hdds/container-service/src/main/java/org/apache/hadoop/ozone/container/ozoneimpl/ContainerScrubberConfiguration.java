@@ -30,7 +30,9 @@ public class ContainerScrubberConfiguration {
   private boolean enabled;
   private long metadataScanInterval;
   private long dataScanInterval;
+  private long dataRescanInterval;
   private long bandwidthPerVolume;
+  private boolean directReadEnabled;
 
   @Config(key = "enabled",
       type = ConfigType.BOOLEAN,
@@ -75,6 +77,26 @@ public long getDataScanInterval() {
     return dataScanInterval;
   }
 
+  @Config(key = "data.rescan.interval",
+      type = ConfigType.TIME,
+      defaultValue = "7d",
+      tags = { ConfigTag.STORAGE },
+      description = "Minimum time between two data scans of a container which"
+          + " has not changed since its last successful scan. Containers"
+          + " which were never scanned, or whose block commit sequence ID"
+          + " changed since their last scan, are scanned first in each"
+          + " iteration, followed by the ones last scanned longest ago. Since"
+          + " the time of the last scan is persisted, the scanner continues"
+          + " where it stopped after a restart."
+  )
+  public void setDataRescanInterval(long dataRescanInterval) {
+    this.dataRescanInterval = dataRescanInterval;
+  }
+
+  public long getDataRescanInterval() {
+    return dataRescanInterval;
+  }
+
   @Config(key = "volume.bytes.per.second",
       type = ConfigType.LONG,
       defaultValue = "1048576",
@@ -88,4 +110,20 @@ public void setBandwidthPerVolume(long bandwidthPerVolume) {
   public long getBandwidthPerVolume() {
     return bandwidthPerVolume;
   }
+
+  @Config(key = "direct.read.enabled",
+      type = ConfigType.BOOLEAN,
+      defaultValue = "false",
+      tags = {ConfigTag.STORAGE, ConfigTag.PERFORMANCE},
+      description = "Config parameter to read chunk data with direct I/O"
+          + " while scanning containers, so that scanning does not evict the"
+          + " hot pages of the datanode from the page cache. Requires Java 10"
+          + " or later and a file system which supports direct I/O.")
+  public void setDirectReadEnabled(boolean directReadEnabled) {
+    this.directReadEnabled = directReadEnabled;
+  }
+
+  public boolean isDirectReadEnabled() {
+    return directReadEnabled;
+  }
 }
@@ -28,12 +28,14 @@
     .StorageContainerDatanodeProtocolProtos;
 import org.apache.hadoop.hdds.protocol.proto
         .StorageContainerDatanodeProtocolProtos.PipelineReportsProto;
+import org.apache.hadoop.hdds.scm.pipeline.PipelineID;
 import org.apache.hadoop.hdds.security.token.BlockTokenVerifier;
 import org.apache.hadoop.hdds.security.x509.SecurityConfig;
 import org.apache.hadoop.hdds.security.x509.certificate.client.CertificateClient;
 import org.apache.hadoop.ozone.container.common.helpers.ContainerMetrics;
 import org.apache.hadoop.ozone.container.common.impl.ContainerSet;
 import org.apache.hadoop.ozone.container.common.impl.HddsDispatcher;
+import org.apache.hadoop.ozone.container.common.interfaces.Container;
 import org.apache.hadoop.ozone.container.common.interfaces.ContainerDispatcher;
 import org.apache.hadoop.ozone.container.common.interfaces.Handler;
 import org.apache.hadoop.ozone.container.common.statemachine.StateContext;
@@ -43,6 +45,7 @@
 import org.apache.hadoop.ozone.container.common.volume.HddsVolume;
 import org.apache.hadoop.ozone.container.common.volume.VolumeSet;
 
+import org.apache.hadoop.ozone.container.keyvalue.helpers.BlockUtils;
 import org.apache.hadoop.ozone.container.keyvalue.statemachine.background.BlockDeletingService;
 import org.apache.hadoop.ozone.container.replication.GrpcReplicationService;
 import org.apache.hadoop.ozone.container.replication
@@ -56,8 +59,11 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
+import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_DATANODE_CONTAINER_INDEX_ENABLED;
+import static org.apache.hadoop.hdds.HddsConfigKeys.HDDS_DATANODE_CONTAINER_INDEX_ENABLED_DEFAULT;
 import static org.apache.hadoop.ozone.OzoneConfigKeys.*;
 
 /**
@@ -117,11 +123,14 @@ public OzoneContainer(DatanodeDetails datanodeDetails, OzoneConfiguration
      * XceiverServerGrpc is the read channel
      */
     this.controller = new ContainerController(containerSet, handlers);
-    this.writeChannel = XceiverServerRatis.newXceiverServerRatis(
+    XceiverServerRatis ratisServer = XceiverServerRatis.newXceiverServerRatis(
         datanodeDetails, config, hddsDispatcher, controller, certClient,
         context);
+    this.writeChannel = ratisServer;
     this.readChannel = new XceiverServerGrpc(
         datanodeDetails, config, hddsDispatcher, certClient,
+        (containerID, datanodeId) ->
+            getPipelineMemberHost(ratisServer, containerID, datanodeId),
         createReplicationService());
     long svcInterval = config
         .getTimeDuration(OZONE_BLOCK_DELETING_SERVICE_INTERVAL,
@@ -235,11 +244,51 @@ public void stop() {
     readChannel.stop();
     this.handlers.values().forEach(Handler::stop);
     hddsDispatcher.shutdown();
-    volumeSet.shutdown();
     blockDeletingService.shutdown();
+    if (config.getBoolean(HDDS_DATANODE_CONTAINER_INDEX_ENABLED,
+        HDDS_DATANODE_CONTAINER_INDEX_ENABLED_DEFAULT)) {
+      writeContainerIndex();
+    }
+    volumeSet.shutdown();
     ContainerMetrics.remove();
   }
 
+  /**
+   * Saves the containers of each volume in the index of the volume, to load
+   * them from on the next start. The containers no longer change, as the
+   * services which modify them are stopped.
+   */
+  private void writeContainerIndex() {
+    boolean volumeDBEnabled = BlockUtils.isVolumeDBEnabled(config);
+    for (HddsVolume volume : volumeSet.getVolumesList()) {
+      try {
+        ContainerIndex.write(volume,
+            containerSet.getContainerIterator(volume), volumeDBEnabled);
+      } catch (IOException e) {
+        LOG.warn("Failed to save the container index of volume {}",
+            volume.getHddsRootDir(), e);
+      }
+    }
+  }
+
+
+  /**
+   * Returns the host of a datanode of the pipeline the container was created
+   * in, or null if the datanode is not a member of that pipeline.
+   */
+  private String getPipelineMemberHost(XceiverServerRatis ratisServer,
+      long containerID, UUID datanodeId) throws IOException {
+    Container container = containerSet.getContainer(containerID);
+    if (container == null) {
+      return null;
+    }
+    String pipelineId = container.getContainerData().getOriginPipelineId();
+    if (pipelineId == null || pipelineId.isEmpty()) {
+      return null;
+    }
+    return ratisServer.getPeerHost(
+        PipelineID.valueOf(UUID.fromString(pipelineId)), datanodeId);
+  }
 
   @VisibleForTesting
   public ContainerSet getContainerSet() {
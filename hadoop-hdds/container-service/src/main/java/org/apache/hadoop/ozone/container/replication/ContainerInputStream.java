@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.replication;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.hdds.protocol.DatanodeDetails;
+import org.apache.hadoop.hdds.protocol.DatanodeDetails.Port.Name;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .CopyContainerResponseProto;
+import org.apache.ratis.thirdparty.io.grpc.StatusRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads the archive of a container while it is downloaded from one of its
+ * replicas. If a download fails before any data is received, it is started
+ * from the next replica.
+ * <p>
+ * A download which fails after data has been received is not resumed: the
+ * replicas do not pack the container to the same bytes, and a replica packs
+ * the container again for each download, so the rest of the archive can
+ * not be downloaded from any replica. The stream fails instead, and the
+ * archive has to be read again from the start with a new stream, see
+ * {@link #hasFailed()}.
+ */
+public class ContainerInputStream extends InputStream {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ContainerInputStream.class);
+
+  private final long containerId;
+  private final List<DatanodeDetails> sources;
+  private final CopyContainerCompression requestedCompression;
+  private final int maxFailures;
+
+  private int sourceIndex;
+  private int failures;
+  private GrpcReplicationClient client;
+  private Iterator<CopyContainerResponseProto> responses;
+  private ByteBuffer data = ByteBuffer.allocate(0);
+  private long position;
+  private boolean eof;
+  private boolean started;
+  private boolean failed;
+  private CopyContainerCompression compression;
+
+  /**
+   * @param containerId container to download.
+   * @param sources datanodes with replicas of the container.
+   * @param compression compression to request for the archive.
+   * @param maxFailures number of downloads failing before any data is
+   * received to start again from the next replica.
+   */
+  public ContainerInputStream(long containerId,
+      List<DatanodeDetails> sources, CopyContainerCompression compression,
+      int maxFailures) {
+    Preconditions.checkArgument(!sources.isEmpty(),
+        "No source to download container %s from", containerId);
+    this.containerId = containerId;
+    this.sources = sources;
+    this.requestedCompression = compression;
+    this.maxFailures = maxFailures;
+  }
+
+  /**
+   * Returns the compression of the archive, which may differ from the
+   * requested one if the replica does not support it, or null if the replica
+   * sent the archive in the gzip format without checksums.
+   */
+  public CopyContainerCompression getCompression() throws IOException {
+    if (!started && !nextResponse()) {
+      throw new IOException("No data received for container " + containerId);
+    }
+    return compression;
+  }
+
+  /**
+   * Returns the number of bytes of the archive received.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * Returns the replica the archive is downloaded from.
+   */
+  public DatanodeDetails getSource() {
+    return sources.get(sourceIndex);
+  }
+
+  /**
+   * Returns whether the download of the archive failed after data was
+   * received from the current replica, in which case the archive may be
+   * downloaded from another replica with a new stream.
+   */
+  public boolean hasFailed() {
+    return failed;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] b = new byte[1];
+    return read(b, 0, 1) == 1 ? b[0] & 0xFF : -1;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (!data.hasRemaining()) {
+      if (!nextResponse()) {
+        return -1;
+      }
+    }
+    int n = Math.min(len, data.remaining());
+    data.get(b, off, n);
+    return n;
+  }
+
+  @Override
+  public void close() {
+    disconnect(!eof);
+  }
+
+  /**
+   * Opens a download of the archive of the container from a replica.
+   */
+  protected Iterator<CopyContainerResponseProto> connect(
+      DatanodeDetails source) throws IOException {
+    client = new GrpcReplicationClient(source.getIpAddress(),
+        source.getPort(Name.STANDALONE).getValue(), null);
+    return client.stream(containerId, 0, requestedCompression);
+  }
+
+  /**
+   * Receives the next part of the archive, starting the download from
+   * another replica if the download fails before any data is received.
+   *
+   * @return false at the end of the archive.
+   */
+  private boolean nextResponse() throws IOException {
+    if (failed) {
+      throw new IOException("Download of container " + containerId
+          + " from " + getSource() + " failed");
+    }
+    while (!eof) {
+      DatanodeDetails source = sources.get(sourceIndex);
+      try {
+        if (responses == null) {
+          responses = connect(source);
+        }
+        if (!responses.hasNext()) {
+          eof = true;
+          disconnect(false);
+          break;
+        }
+        CopyContainerResponseProto response = responses.next();
+        if (response.getReadOffset() != position) {
+          throw new IOException("Received data of container " + containerId
+              + " at offset " + response.getReadOffset() + " instead of "
+              + position);
+        }
+        CopyContainerCompression responseCompression =
+            response.hasCompression()
+                ? CopyContainerCompression.fromName(response.getCompression())
+                : null;
+        if (!started) {
+          compression = responseCompression;
+          started = true;
+        } else if (responseCompression != compression) {
+          throw new IOException("Compression of container " + containerId
+              + " changed from " + compression + " to "
+              + responseCompression);
+        }
+        data = response.getData().asReadOnlyByteBuffer();
+        position += data.remaining();
+        return true;
+      } catch (IOException | StatusRuntimeException e) {
+        disconnect(true);
+        if (position > 0) {
+          failed = true;
+          throw new IOException("Download of container " + containerId
+              + " from " + source + " failed at offset " + position, e);
+        }
+        failures++;
+        if (failures > maxFailures) {
+          throw new IOException("Failed to download container " + containerId
+              + " from " + sources, e);
+        }
+        sourceIndex = (sourceIndex + 1) % sources.size();
+        LOG.warn("Download of container {} from {} failed, starting it from "
+            + "{}", containerId, source, sources.get(sourceIndex), e);
+      }
+    }
+    return false;
+  }
+
+  private void disconnect(boolean cancel) {
+    responses = null;
+    if (client != null) {
+      if (cancel) {
+        client.shutdownNow();
+      } else {
+        client.shutdown();
+      }
+      client = null;
+    }
+  }
+}
@@ -20,6 +20,8 @@
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.apache.hadoop.ozone.container.keyvalue.TarContainerPacker;
+
 /**
  * Contract to prepare provide the container in binary form..
  * <p>
@@ -41,9 +43,11 @@ public interface ContainerReplicationSource {
    *
    * @param containerId Container to replicate
    * @param destination   The destination stream to copy all the container data.
+   * @param packer Packer of the container data, which defines its format.
    * @throws IOException
    */
-  void copyData(long containerId, OutputStream destination)
+  void copyData(long containerId, OutputStream destination,
+      TarContainerPacker packer)
       throws IOException;
 
 }
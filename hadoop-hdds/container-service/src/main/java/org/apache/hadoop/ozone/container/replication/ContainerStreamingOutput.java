@@ -22,6 +22,8 @@
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.apache.hadoop.ozone.container.keyvalue.TarContainerPacker;
+
 /**
  * JAX-RS streaming output to return the binary container data.
  */
@@ -40,6 +42,7 @@ public ContainerStreamingOutput(long containerId,
   @Override
   public void write(OutputStream outputStream)
       throws IOException, WebApplicationException {
-    containerReplicationSource.copyData(containerId, outputStream);
+    containerReplicationSource.copyData(containerId, outputStream,
+        new TarContainerPacker());
   }
 }
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.replication;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdds.HddsConfigKeys;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.Lz4Codec;
+import org.apache.hadoop.io.compress.SnappyCodec;
+import org.apache.hadoop.io.compress.ZStandardCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of the container data copied between datanodes during
+ * replication. LZ4, Snappy and Zstandard use the native codecs of Hadoop,
+ * and are only available if the native library of Hadoop is loaded.
+ */
+public enum CopyContainerCompression {
+  NO_COMPRESSION(null),
+  GZIP(null),
+  LZ4(Lz4Codec.class),
+  SNAPPY(SnappyCodec.class),
+  ZSTD(ZStandardCodec.class);
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(CopyContainerCompression.class);
+
+  private final Class<? extends CompressionCodec> codecClass;
+  private volatile CompressionCodec codec;
+  private volatile Boolean available;
+
+  CopyContainerCompression(Class<? extends CompressionCodec> codecClass) {
+    this.codecClass = codecClass;
+  }
+
+  /**
+   * Returns the compression to request for replicated containers as per the
+   * configuration. Falls back to no compression if the configured codec is
+   * not available.
+   */
+  public static CopyContainerCompression getConf(Configuration conf) {
+    String name = conf.get(HddsConfigKeys.HDDS_CONTAINER_REPLICATION_COMPRESSION,
+        HddsConfigKeys.HDDS_CONTAINER_REPLICATION_COMPRESSION_DEFAULT);
+    CopyContainerCompression compression = fromName(name);
+    if (compression == null || !compression.isAvailable()) {
+      LOG.warn("Compression {} of replicated containers is not available, "
+          + "containers are replicated without compression.", name);
+      return NO_COMPRESSION;
+    }
+    return compression;
+  }
+
+  /**
+   * Returns the compression with the given name, or null if there is no
+   * such compression.
+   */
+  public static CopyContainerCompression fromName(String name) {
+    try {
+      return valueOf(name.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns whether data can be compressed and uncompressed with this
+   * compression on this node.
+   */
+  public boolean isAvailable() {
+    if (codecClass == null) {
+      return true;
+    }
+    if (available == null) {
+      try {
+        getCodec().createCompressor();
+        getCodec().createDecompressor();
+        available = true;
+      } catch (RuntimeException | LinkageError e) {
+        LOG.debug("Codec {} is not available", codecClass.getSimpleName(), e);
+        available = false;
+      }
+    }
+    return available;
+  }
+
+  /**
+   * Wraps a stream to compress the data written to it. Closing the returned
+   * stream closes the wrapped stream.
+   */
+  public OutputStream wrap(OutputStream out) throws IOException {
+    switch (this) {
+    case NO_COMPRESSION:
+      return out;
+    case GZIP:
+      return new GZIPOutputStream(out, 64 * 1024);
+    default:
+      return getCodec().createOutputStream(out);
+    }
+  }
+
+  /**
+   * Wraps a stream to uncompress the data read from it. Closing the returned
+   * stream closes the wrapped stream.
+   */
+  public InputStream wrap(InputStream in) throws IOException {
+    switch (this) {
+    case NO_COMPRESSION:
+      return in;
+    case GZIP:
+      return new GZIPInputStream(in, 64 * 1024);
+    default:
+      return getCodec().createInputStream(in);
+    }
+  }
+
+  private CompressionCodec getCodec() {
+    if (codec == null) {
+      codec = ReflectionUtils.newInstance(codecClass, new Configuration());
+    }
+    return codec;
+  }
+}
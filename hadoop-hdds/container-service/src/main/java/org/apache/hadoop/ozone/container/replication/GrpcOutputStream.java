@@ -30,6 +30,9 @@
 /**
  * Adapter from {@code OutputStream} to gRPC {@code StreamObserver}.
  * Data is buffered in a limited buffer of the specified size.
+ * <p>
+ * If the receiver resumes an interrupted download, the data it has already
+ * received is skipped, and the rest is sent with its offset in the stream.
  */
 class GrpcOutputStream extends OutputStream {
 
@@ -44,19 +47,42 @@ class GrpcOutputStream extends OutputStream {
 
   private final int bufferSize;
 
-  private int writtenBytes;
+  private final String compression;
+
+  private long writtenBytes;
+
+  private long bytesToSkip;
 
   GrpcOutputStream(
       StreamObserver<CopyContainerResponseProto> responseObserver,
       long containerId, int bufferSize) {
+    this(responseObserver, containerId, bufferSize, 0, null);
+  }
+
+  /**
+   * @param readOffset offset in the stream to start sending the data from.
+   * @param compression compression of the data sent to the receiver, or
+   *                    null if the receiver did not request one.
+   */
+  GrpcOutputStream(
+      StreamObserver<CopyContainerResponseProto> responseObserver,
+      long containerId, int bufferSize, long readOffset,
+      CopyContainerCompression compression) {
     this.responseObserver = responseObserver;
     this.containerId = containerId;
     this.bufferSize = bufferSize;
+    this.writtenBytes = readOffset;
+    this.bytesToSkip = readOffset;
+    this.compression = compression != null ? compression.name() : null;
     buffer = ByteString.newOutput(bufferSize);
   }
 
   @Override
   public void write(int b) {
+    if (bytesToSkip > 0) {
+      bytesToSkip--;
+      return;
+    }
     try {
       buffer.write(b);
       if (buffer.size() >= bufferSize) {
@@ -75,6 +101,15 @@ public void write(@Nonnull byte[] data, int offset, int length) {
     } else if (length == 0) {
       return;
     }
+    if (bytesToSkip > 0) {
+      int skipped = (int) Math.min(bytesToSkip, length);
+      bytesToSkip -= skipped;
+      offset += skipped;
+      length -= skipped;
+      if (length == 0) {
+        return;
+      }
+    }
 
     try {
       if (buffer.size() >= bufferSize) {
@@ -113,15 +148,17 @@ private void flushBuffer(boolean eof) {
       ByteString data = buffer.toByteString();
       LOG.debug("Sending {} bytes (of type {}) for container {}",
           length, data.getClass().getSimpleName(), containerId);
-      CopyContainerResponseProto response =
+      CopyContainerResponseProto.Builder response =
           CopyContainerResponseProto.newBuilder()
               .setContainerID(containerId)
               .setData(data)
               .setEof(eof)
               .setReadOffset(writtenBytes)
-              .setLen(length)
-              .build();
-      responseObserver.onNext(response);
+              .setLen(length);
+      if (compression != null) {
+        response.setCompression(compression);
+      }
+      responseObserver.onNext(response.build());
       writtenBytes += length;
       buffer.reset();
     }
@@ -23,15 +23,21 @@
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .CopyContainerPart;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .CopyContainerRequestProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
     .CopyContainerResponseProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto
     .IntraDatanodeProtocolServiceGrpc;
+import org.apache.hadoop.hdds.protocol.datanode.proto
+    .IntraDatanodeProtocolServiceGrpc.IntraDatanodeProtocolServiceBlockingStub;
 import org.apache.hadoop.hdds.protocol.datanode.proto
     .IntraDatanodeProtocolServiceGrpc.IntraDatanodeProtocolServiceStub;
 
@@ -55,6 +61,8 @@ public class GrpcReplicationClient {
 
   private final IntraDatanodeProtocolServiceStub client;
 
+  private final IntraDatanodeProtocolServiceBlockingStub blockingClient;
+
   private final Path workingDirectory;
 
   public GrpcReplicationClient(String host,
@@ -65,9 +73,47 @@ public GrpcReplicationClient(String host,
         .maxInboundMessageSize(OzoneConsts.OZONE_SCM_CHUNK_MAX_SIZE)
         .build();
     client = IntraDatanodeProtocolServiceGrpc.newStub(channel);
+    blockingClient = IntraDatanodeProtocolServiceGrpc.newBlockingStub(channel);
     workingDirectory = workingDir;
   }
 
+  /**
+   * Requests the archive of a container, compressed with the given
+   * compression, starting at the given offset of the archive. The archive is
+   * received as it is read from the returned iterator, which throws a
+   * {@code StatusRuntimeException} if the download fails.
+   */
+  public Iterator<CopyContainerResponseProto> stream(long containerId,
+      long readOffset, CopyContainerCompression compression) {
+    CopyContainerRequestProto request =
+        CopyContainerRequestProto.newBuilder()
+            .setContainerID(containerId)
+            .setLen(-1)
+            .setReadOffset(readOffset)
+            .setCompression(compression.name())
+            .build();
+    return blockingClient.download(request);
+  }
+
+  /**
+   * Requests a part of the archive of a container, see
+   * {@link #stream(long, long, CopyContainerCompression)}.
+   *
+   * @param chunkFiles chunk files to request in the CHUNK_FILES part.
+   */
+  public Iterator<CopyContainerResponseProto> streamPart(long containerId,
+      CopyContainerPart part, Collection<String> chunkFiles) {
+    CopyContainerRequestProto request =
+        CopyContainerRequestProto.newBuilder()
+            .setContainerID(containerId)
+            .setLen(-1)
+            .setReadOffset(0)
+            .setPart(part)
+            .addAllChunkFiles(chunkFiles)
+            .build();
+    return blockingClient.download(request);
+  }
+
   public CompletableFuture<Path> download(long containerId) {
     CopyContainerRequestProto request =
         CopyContainerRequestProto.newBuilder()
@@ -91,6 +137,13 @@ private Path getWorkingDirectory() {
     return workingDirectory;
   }
 
+  /**
+   * Closes the connection, cancelling the downloads in progress.
+   */
+  public void shutdownNow() {
+    channel.shutdownNow();
+  }
+
   public void shutdown() {
     channel.shutdown();
     try {
@@ -20,9 +20,11 @@
 
 import java.io.IOException;
 
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.CopyContainerPart;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.CopyContainerRequestProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos.CopyContainerResponseProto;
 import org.apache.hadoop.hdds.protocol.datanode.proto.IntraDatanodeProtocolServiceGrpc;
+import org.apache.hadoop.ozone.container.keyvalue.TarContainerPacker;
 
 import org.apache.ratis.thirdparty.io.grpc.stub.StreamObserver;
 import org.slf4j.Logger;
@@ -49,11 +51,33 @@ public GrpcReplicationService(ContainerReplicationSource source) {
   public void download(CopyContainerRequestProto request,
       StreamObserver<CopyContainerResponseProto> responseObserver) {
     long containerID = request.getContainerID();
-    LOG.info("Streaming container data ({}) to other datanode", containerID);
+    CopyContainerCompression compression = null;
+    TarContainerPacker packer;
+    if (request.getPart() == CopyContainerPart.METADATA) {
+      compression = CopyContainerCompression.NO_COMPRESSION;
+      packer = TarContainerPacker.metadataPart();
+    } else if (request.getPart() == CopyContainerPart.CHUNK_FILES) {
+      compression = CopyContainerCompression.NO_COMPRESSION;
+      packer = TarContainerPacker.chunkFilesPart(request.getChunkFilesList());
+    } else if (request.hasCompression()) {
+      // fall back to no compression if the requested one is not available.
+      compression = CopyContainerCompression.fromName(
+          request.getCompression());
+      if (compression == null || !compression.isAvailable()) {
+        compression = CopyContainerCompression.NO_COMPRESSION;
+      }
+      packer = new TarContainerPacker(compression);
+    } else {
+      packer = new TarContainerPacker();
+    }
+    LOG.info("Streaming {} of container data ({}) to other datanode from "
+            + "offset {} with compression {}", request.getPart(), containerID,
+        request.getReadOffset(), compression);
     try {
       GrpcOutputStream outputStream =
-          new GrpcOutputStream(responseObserver, containerID, BUFFER_SIZE);
-      source.copyData(containerID, outputStream);
+          new GrpcOutputStream(responseObserver, containerID, BUFFER_SIZE,
+              request.getReadOffset(), compression);
+      source.copyData(containerID, outputStream, packer);
     } catch (IOException e) {
       LOG.error("Error streaming container {}", containerID, e);
       responseObserver.onError(e);
@@ -40,8 +40,6 @@
 
   private ContainerController controller;
 
-  private TarContainerPacker packer = new TarContainerPacker();
-
   public OnDemandContainerReplicationSource(
       ContainerController controller) {
     this.controller = controller;
@@ -53,7 +51,8 @@ public void prepare(long containerId) {
   }
 
   @Override
-  public void copyData(long containerId, OutputStream destination)
+  public void copyData(long containerId, OutputStream destination,
+      TarContainerPacker packer)
       throws IOException {
 
     Container container = controller.getContainer(containerId);
@@ -0,0 +1,478 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.replication;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.StorageUnit;
+import org.apache.hadoop.hdds.HddsConfigKeys;
+import org.apache.hadoop.hdds.protocol.DatanodeDetails;
+import org.apache.hadoop.hdds.protocol.DatanodeDetails.Port.Name;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .CopyContainerPart;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .CopyContainerResponseProto;
+import org.apache.hadoop.ozone.container.keyvalue.TarContainerPacker;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.ratis.thirdparty.io.grpc.StatusRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads a container from all of its replicas at once.
+ * <p>
+ * The container descriptor and the container DB are downloaded from one
+ * replica, as they differ between the replicas, together with the list of
+ * the chunk files of that replica. The chunk files, which are the same on
+ * all replicas, are split into parts of about
+ * {@link HddsConfigKeys#HDDS_CONTAINER_REPLICATION_DOWNLOAD_PART_SIZE}, which
+ * are downloaded from all replicas, each replica taking the next part when
+ * it is done with the previous one. So faster replicas download more parts,
+ * the parts of a failed download are downloaded again from the other
+ * replicas, and when no part is left, the parts still downloaded from slow
+ * replicas are also downloaded from an idle one.
+ * <p>
+ * The parts are written to one archive of the container, at the offsets
+ * given by the sizes of the chunk files, which is unpacked by a
+ * {@link TarContainerPacker} with
+ * {@link CopyContainerCompression#NO_COMPRESSION}.
+ */
+public class ParallelContainerDownloader implements ContainerDownloader {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ParallelContainerDownloader.class);
+
+  /**
+   * Number of failed downloads after which a replica is not used any more.
+   */
+  private static final int MAX_FAILURES_PER_SOURCE = 3;
+
+  private final Path workingDirectory;
+
+  private final long partSize;
+
+  private final ExecutorService executor;
+
+  public ParallelContainerDownloader(Configuration conf) {
+    workingDirectory = SimpleContainerDownloader.getWorkingDirectory(conf);
+    partSize = (long) conf.getStorageSize(
+        HddsConfigKeys.HDDS_CONTAINER_REPLICATION_DOWNLOAD_PART_SIZE,
+        HddsConfigKeys.HDDS_CONTAINER_REPLICATION_DOWNLOAD_PART_SIZE_DEFAULT,
+        StorageUnit.BYTES);
+    executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("ContainerDownloader-%d")
+        .build());
+  }
+
+  @Override
+  public CompletableFuture<Path> getContainerDataFromReplicas(long containerId,
+      List<DatanodeDetails> sources) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return download(containerId, sources);
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Opens a connection to a replica of the container.
+   */
+  @VisibleForTesting
+  protected GrpcReplicationClient connect(DatanodeDetails source) {
+    return new GrpcReplicationClient(source.getIpAddress(),
+        source.getPort(Name.STANDALONE).getValue(), null);
+  }
+
+  @VisibleForTesting
+  Path download(long containerId, List<DatanodeDetails> sources)
+      throws IOException {
+    Files.createDirectories(workingDirectory);
+    Path archive = workingDirectory.resolve("container-" + containerId
+        + ".tar");
+    boolean success = false;
+    try (FileChannel channel = FileChannel.open(archive,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE)) {
+      long offset = downloadMetadata(containerId, sources, channel)
+          - TarContainerPacker.PART_TRAILER_SIZE;
+
+      SortedMap<String, Long> chunkFiles;
+      try (InputStream metadata = new FileInputStream(archive.toFile())) {
+        chunkFiles = TarContainerPacker.readChunkFileList(metadata);
+      }
+      Deque<ChunkFilesPart> parts = new ArrayDeque<>();
+      SortedMap<String, Long> files = new TreeMap<>();
+      long size = 0;
+      for (Map.Entry<String, Long> file : chunkFiles.entrySet()) {
+        files.put(file.getKey(), file.getValue());
+        size += file.getValue();
+        if (size >= partSize || file.getKey().equals(chunkFiles.lastKey())) {
+          ChunkFilesPart part = new ChunkFilesPart(files, offset);
+          parts.add(part);
+          offset += part.getLength();
+          files = new TreeMap<>();
+          size = 0;
+        }
+      }
+
+      new ChunkFilesDownload(containerId, sources, channel, parts).run();
+
+      channel.write(ByteBuffer.allocate(TarContainerPacker.PART_TRAILER_SIZE),
+          offset);
+      channel.truncate(offset + TarContainerPacker.PART_TRAILER_SIZE);
+      success = true;
+      LOG.info("Container {} is downloaded to {} from {} in {} parts",
+          containerId, archive, sources, parts.size() + 1);
+      return archive;
+    } finally {
+      if (!success) {
+        Files.deleteIfExists(archive);
+      }
+    }
+  }
+
+  /**
+   * Downloads the metadata part of the container to the start of the
+   * archive from the first replica which sends it.
+   *
+   * @return size of the metadata part.
+   */
+  private long downloadMetadata(long containerId,
+      List<DatanodeDetails> sources, FileChannel channel) throws IOException {
+    IOException failure = null;
+    for (DatanodeDetails source : sources) {
+      GrpcReplicationClient client = connect(source);
+      try {
+        channel.truncate(0);
+        return receive(containerId, client.streamPart(containerId,
+            CopyContainerPart.METADATA, Collections.emptyList()), channel, 0,
+            Long.MAX_VALUE);
+      } catch (IOException | StatusRuntimeException e) {
+        LOG.warn("Download of the metadata of container {} from {} failed",
+            containerId, source, e);
+        failure = e instanceof IOException ? (IOException) e
+            : new IOException(e);
+      } finally {
+        client.shutdown();
+      }
+    }
+    throw new IOException("Failed to download the metadata of container "
+        + containerId + " from " + sources, failure);
+  }
+
+  /**
+   * Writes the received part of the archive to the given position.
+   *
+   * @param limit number of bytes to write, the rest is only counted.
+   * @return number of bytes received.
+   */
+  private static long receive(long containerId,
+      Iterator<CopyContainerResponseProto> responses, FileChannel channel,
+      long position, long limit) throws IOException {
+    long received = 0;
+    while (responses.hasNext()) {
+      CopyContainerResponseProto response = responses.next();
+      if (response.getReadOffset() != received) {
+        throw new IOException("Received data of container " + containerId
+            + " at offset " + response.getReadOffset() + " instead of "
+            + received);
+      }
+      ByteBuffer data = response.getData().asReadOnlyByteBuffer();
+      if (received < limit) {
+        data.limit((int) Math.min(data.limit(), limit - received));
+        long offset = position + received;
+        while (data.hasRemaining()) {
+          offset += channel.write(data, offset);
+        }
+      }
+      received += response.getData().size();
+    }
+    return received;
+  }
+
+  /**
+   * Chunk files downloaded in one request, which are written to the archive
+   * at the given offset.
+   */
+  private static final class ChunkFilesPart {
+    private final SortedMap<String, Long> files;
+    private final long offset;
+    private final long size;
+
+    ChunkFilesPart(SortedMap<String, Long> files, long offset) {
+      this.files = files;
+      this.offset = offset;
+      this.size = TarContainerPacker.getChunkFilesPartSize(files);
+    }
+
+    /**
+     * Returns the length of the part in the archive, without the end of
+     * archive records of the part.
+     */
+    long getLength() {
+      return size - TarContainerPacker.PART_TRAILER_SIZE;
+    }
+
+    @Override
+    public String toString() {
+      return files.firstKey() + ".." + files.lastKey();
+    }
+  }
+
+  /**
+   * Downloads the parts with the chunk files with one thread per replica.
+   */
+  private final class ChunkFilesDownload {
+    private final long containerId;
+    private final FileChannel channel;
+    private final Deque<ChunkFilesPart> pending;
+    private final List<Worker> workers = new ArrayList<>();
+    private final Map<ChunkFilesPart, List<Worker>> running =
+        new LinkedHashMap<>();
+    private int remaining;
+    private int activeWorkers;
+
+    ChunkFilesDownload(long containerId, List<DatanodeDetails> sources,
+        FileChannel channel, Deque<ChunkFilesPart> parts) {
+      this.containerId = containerId;
+      this.channel = channel;
+      this.pending = new ArrayDeque<>(parts);
+      this.remaining = parts.size();
+      for (DatanodeDetails source : sources) {
+        workers.add(new Worker(source));
+      }
+    }
+
+    void run() throws IOException {
+      if (remaining == 0) {
+        return;
+      }
+      List<Future<?>> futures = new ArrayList<>();
+      synchronized (this) {
+        activeWorkers = workers.size();
+      }
+      for (Worker worker : workers) {
+        futures.add(executor.submit(worker));
+      }
+      try {
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while downloading container "
+            + containerId, e);
+      } catch (ExecutionException e) {
+        throw new IOException("Failed to download container " + containerId,
+            e.getCause());
+      } finally {
+        for (Future<?> future : futures) {
+          future.cancel(true);
+        }
+        for (Worker worker : workers) {
+          worker.cancel();
+        }
+      }
+      synchronized (this) {
+        if (remaining > 0) {
+          throw new IOException("Failed to download " + remaining
+              + " parts of container " + containerId + " from all replicas");
+        }
+      }
+      Map<DatanodeDetails, Long> received = new HashMap<>();
+      for (Worker worker : workers) {
+        received.put(worker.source, worker.received);
+      }
+      LOG.info("Received chunk files of container {} (in bytes): {}",
+          containerId, received);
+    }
+
+    /**
+     * Returns the next part to download for the worker, waiting until there
+     * is one, or null if there is none left.
+     */
+    private synchronized ChunkFilesPart next(Worker worker)
+        throws InterruptedException {
+      while (remaining > 0) {
+        ChunkFilesPart part = pending.poll();
+        if (part == null) {
+          // download a part still downloaded by another replica only.
+          for (Map.Entry<ChunkFilesPart, List<Worker>> entry :
+              running.entrySet()) {
+            if (entry.getValue().size() == 1) {
+              part = entry.getKey();
+              break;
+            }
+          }
+        }
+        if (part != null) {
+          running.computeIfAbsent(part, p -> new ArrayList<>()).add(worker);
+          return part;
+        }
+        wait();
+      }
+      return null;
+    }
+
+    private synchronized void completed(ChunkFilesPart part, Worker worker) {
+      List<Worker> downloading = running.remove(part);
+      if (downloading != null) {
+        remaining--;
+        for (Worker other : downloading) {
+          if (other != worker) {
+            other.cancel();
+          }
+        }
+      }
+      notifyAll();
+    }
+
+    private synchronized void failed(ChunkFilesPart part, Worker worker) {
+      List<Worker> downloading = running.get(part);
+      if (downloading != null) {
+        downloading.remove(worker);
+        if (downloading.isEmpty()) {
+          running.remove(part);
+          pending.addFirst(part);
+        }
+      }
+      notifyAll();
+    }
+
+    private synchronized boolean isCompleted(ChunkFilesPart part) {
+      return !running.containsKey(part) && !pending.contains(part);
+    }
+
+    private synchronized void stopped() {
+      activeWorkers--;
+      if (activeWorkers == 0) {
+        // no replica left to download the remaining parts from.
+        pending.clear();
+        running.clear();
+        notifyAll();
+      }
+    }
+
+    /**
+     * Downloads parts from one replica until none is left, or until the
+     * downloads from the replica failed too many times.
+     */
+    private final class Worker implements Runnable {
+      private final DatanodeDetails source;
+      private volatile GrpcReplicationClient client;
+      private int failures;
+      private long received;
+
+      Worker(DatanodeDetails source) {
+        this.source = source;
+      }
+
+      @Override
+      public void run() {
+        try {
+          while (failures < MAX_FAILURES_PER_SOURCE) {
+            ChunkFilesPart part = next(this);
+            if (part == null) {
+              break;
+            }
+            download(part);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          stopped();
+        }
+      }
+
+      private void download(ChunkFilesPart part) {
+        client = connect(source);
+        try {
+          long size = receive(containerId, client.streamPart(containerId,
+              CopyContainerPart.CHUNK_FILES, part.files.keySet()), channel,
+              part.offset, part.getLength());
+          if (size != part.size) {
+            throw new IOException("Received " + size + " bytes of chunk files "
+                + part + " of container " + containerId + " instead of "
+                + part.size);
+          }
+          received += size;
+          completed(part, this);
+        } catch (IOException | StatusRuntimeException e) {
+          if (isCompleted(part)) {
+            LOG.debug("Download of chunk files {} of container {} from {} is "
+                + "cancelled", part, containerId, source);
+          } else {
+            failures++;
+            LOG.warn("Download of chunk files {} of container {} from {} "
+                + "failed", part, containerId, source, e);
+            failed(part, this);
+          }
+        } finally {
+          client.shutdown();
+        }
+      }
+
+      /**
+       * Cancels the download in progress, if its part is downloaded from
+       * another replica.
+       */
+      void cancel() {
+        GrpcReplicationClient current = client;
+        if (current != null) {
+          current.shutdownNow();
+        }
+      }
+    }
+  }
+}
@@ -47,15 +47,21 @@ public class SimpleContainerDownloader implements ContainerDownloader {
   private final Path workingDirectory;
 
   public SimpleContainerDownloader(Configuration conf) {
+    workingDirectory = getWorkingDirectory(conf);
+  }
 
+  /**
+   * Returns the directory to download the containers to.
+   */
+  static Path getWorkingDirectory(Configuration conf) {
     String workDirString =
         conf.get(OzoneConfigKeys.OZONE_CONTAINER_COPY_WORKDIR);
 
     if (workDirString == null) {
-      workingDirectory = Paths.get(System.getProperty("java.io.tmpdir"))
+      return Paths.get(System.getProperty("java.io.tmpdir"))
           .resolve("container-copy");
     } else {
-      workingDirectory = Paths.get(workDirString);
+      return Paths.get(workDirString);
     }
   }
 
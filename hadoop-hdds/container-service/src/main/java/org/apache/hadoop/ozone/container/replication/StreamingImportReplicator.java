@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.hadoop.ozone.container.replication;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hdds.protocol.DatanodeDetails;
+import org.apache.hadoop.ozone.container.common.impl.ContainerData;
+import org.apache.hadoop.ozone.container.common.impl.ContainerDataYaml;
+import org.apache.hadoop.ozone.container.common.impl.ContainerSet;
+import org.apache.hadoop.ozone.container.common.interfaces.Container;
+import org.apache.hadoop.ozone.container.keyvalue.TarContainerPacker;
+import org.apache.hadoop.ozone.container.ozoneimpl.ContainerController;
+import org.apache.hadoop.ozone.container.replication.ReplicationTask.Status;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replicates containers by importing them while they are downloaded,
+ * without storing the archive of the container in a temporary file.
+ * <p>
+ * If the download fails after part of the archive has been imported, the
+ * partially imported container is removed, and the container is imported
+ * again from the start from one of the other replicas.
+ * <p>
+ * The source datanodes must support the compression of archives, older
+ * datanodes send the archive in the gzip format, which is not accepted.
+ */
+public class StreamingImportReplicator implements ContainerReplicator {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(StreamingImportReplicator.class);
+
+  /**
+   * Number of downloads per source failing before any data is received to
+   * start again from the next source.
+   */
+  private static final int MAX_FAILURES_PER_SOURCE = 3;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Limit of the data read ahead by the decompression and the tar parser
+   * while reading the container descriptor, which is the first entry of the
+   * archive, so that the archive can be read again from the start.
+   */
+  private static final int MAX_DESCRIPTOR_READ_AHEAD = 4 * 1024 * 1024;
+
+  private final ContainerSet containerSet;
+
+  private final ContainerController controller;
+
+  private final CopyContainerCompression compression;
+
+  public StreamingImportReplicator(ContainerSet containerSet,
+      ContainerController controller, CopyContainerCompression compression) {
+    this.containerSet = containerSet;
+    this.controller = controller;
+    this.compression = compression;
+  }
+
+  @Override
+  public void replicate(ReplicationTask task) {
+    long containerID = task.getContainerId();
+    List<DatanodeDetails> sourceDatanodes = task.getSources();
+
+    LOG.info("Starting replication of container {} from {} with compression "
+        + "{}", containerID, sourceDatanodes, compression);
+
+    List<DatanodeDetails> sources = new ArrayList<>(sourceDatanodes);
+    while (true) {
+      ContainerInputStream input = new ContainerInputStream(containerID,
+          sources, compression, MAX_FAILURES_PER_SOURCE * sources.size());
+      try {
+        CopyContainerCompression archiveCompression = input.getCompression();
+        if (archiveCompression == null) {
+          throw new IOException("Source datanodes of container " + containerID
+              + " do not support streaming replication");
+        }
+        importContainer(containerID, input,
+            new TarContainerPacker(archiveCompression));
+        LOG.info("Container {} is replicated successfully, received {} "
+            + "bytes", containerID, input.getPosition());
+        task.setStatus(Status.DONE);
+        return;
+      } catch (Exception e) {
+        if (!input.hasFailed() || sources.size() == 1) {
+          LOG.error("Container replication was unsuccessful .", e);
+          task.setStatus(Status.FAILED);
+          return;
+        }
+        // the rest of the archive can't be downloaded from another source.
+        sources.remove(input.getSource());
+        LOG.warn("Download of container {} failed after {} bytes, importing "
+            + "it again from {}", containerID, input.getPosition(), sources,
+            e);
+      } finally {
+        input.close();
+      }
+    }
+  }
+
+  /**
+   * Imports a container from its archive, which starts with the container
+   * descriptor.
+   */
+  void importContainer(long containerID, InputStream archive,
+      TarContainerPacker packer) throws IOException {
+    BufferedInputStream input = new BufferedInputStream(archive, BUFFER_SIZE);
+    input.mark(MAX_DESCRIPTOR_READ_AHEAD);
+    ContainerData originalContainerData = ContainerDataYaml.readContainer(
+        packer.unpackContainerDescriptor(input));
+    input.reset();
+
+    Container container = controller.importContainer(
+        originalContainerData.getContainerType(),
+        containerID,
+        originalContainerData.getMaxSize(),
+        originalContainerData.getOriginPipelineId(),
+        originalContainerData.getOriginNodeId(),
+        input,
+        packer);
+
+    containerSet.addContainer(container);
+  }
+}
@@ -31,11 +31,18 @@ public class TestChunkLayOutVersion {
   public void testChunkLayOutVersion() {
 
     // Check Latest Version and description
-    Assert.assertEquals(1, ChunkLayOutVersion.getLatestVersion().getVersion());
-    Assert.assertEquals("Data without checksums.", ChunkLayOutVersion
+    Assert.assertEquals(2, ChunkLayOutVersion.getLatestVersion().getVersion());
+    Assert.assertEquals("One data file per block.", ChunkLayOutVersion
         .getLatestVersion().getDescription());
 
-    Assert.assertEquals(1, ChunkLayOutVersion.getAllVersions().length);
+    Assert.assertEquals(2, ChunkLayOutVersion.getAllVersions().length);
+
+    Assert.assertEquals(ChunkLayOutVersion.FILE_PER_CHUNK,
+        ChunkLayOutVersion.getChunkLayOutVersion(1));
+    Assert.assertEquals("Data without checksums.",
+        ChunkLayOutVersion.FILE_PER_CHUNK.getDescription());
+    Assert.assertFalse(ChunkLayOutVersion.isFilePerBlock(1));
+    Assert.assertTrue(ChunkLayOutVersion.isFilePerBlock(2));
 
   }
 
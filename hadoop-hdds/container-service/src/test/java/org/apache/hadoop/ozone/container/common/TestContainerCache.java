@@ -25,12 +25,21 @@
 import org.apache.hadoop.ozone.container.common.utils.ReferenceCountedDB;
 import org.apache.hadoop.hdds.utils.MetadataStore;
 import org.apache.hadoop.hdds.utils.MetadataStoreBuilder;
+import org.apache.hadoop.ozone.container.common.utils.ContainerCacheMetrics;
+import org.apache.hadoop.test.GenericTestUtils;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 
 /**
@@ -101,6 +110,8 @@ public void testContainerCacheEviction() throws Exception {
         containerDir3.getPath(), conf);
     Assert.assertEquals(1, db4.getReferenceCount());
 
+    // unreferenced DBs are closed in the background.
+    GenericTestUtils.waitFor(() -> cache.size() == 2, 10, 10000);
     Assert.assertEquals(2, cache.size());
     Assert.assertNotNull(cache.get(containerDir1.getPath()));
     Assert.assertNull(cache.get(containerDir2.getPath()));
@@ -121,8 +132,116 @@ public void testContainerCacheEviction() throws Exception {
     db4.close();
 
 
+
     // Decrementing reference count below zero should fail.
     thrown.expect(IllegalArgumentException.class);
     db5.close();
   }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    File root = new File(testRoot);
+    root.mkdirs();
+
+    OzoneConfiguration conf = new OzoneConfiguration();
+    conf.setInt(OzoneConfigKeys.OZONE_CONTAINER_CACHE_SIZE, 2);
+
+    ContainerCache cache = ContainerCache.getInstance(conf);
+    ContainerCacheMetrics metrics = cache.getMetrics();
+    File containerDir = new File(root, "cont5");
+    createContainerDB(conf, containerDir);
+    String path = containerDir.getPath();
+
+    long prefetches = metrics.getNumPrefetches();
+    long hits = metrics.getNumCacheHits();
+    cache.prefetchDB(5, "RocksDB", path, conf, () -> true);
+    GenericTestUtils.waitFor(
+        () -> metrics.getNumPrefetches() == prefetches + 1, 10, 10000);
+
+    // the prefetched DB is not referenced until it is used.
+    Assert.assertEquals(0, cache.get(path).getReferenceCount());
+    ReferenceCountedDB db = cache.getDB(5, "RocksDB", path, conf);
+    Assert.assertEquals(hits + 1, metrics.getNumCacheHits());
+    Assert.assertEquals(1, db.getReferenceCount());
+    db.close();
+    cache.shutdownCache();
+  }
+
+  @Test
+  public void testPrefetchOfDeletedContainer() throws Exception {
+    File root = new File(testRoot);
+    root.mkdirs();
+
+    OzoneConfiguration conf = new OzoneConfiguration();
+    conf.setInt(OzoneConfigKeys.OZONE_CONTAINER_CACHE_SIZE, 2);
+
+    ContainerCache cache = ContainerCache.getInstance(conf);
+    ContainerCacheMetrics metrics = cache.getMetrics();
+    File containerDir = new File(root, "cont6");
+    createContainerDB(conf, containerDir);
+    String path = containerDir.getPath();
+
+    // the container is deleted after the prefetch has been requested.
+    long skipped = metrics.getNumPrefetchesSkipped();
+    cache.prefetchDB(6, "RocksDB", path, conf, () -> false);
+    GenericTestUtils.waitFor(
+        () -> metrics.getNumPrefetchesSkipped() == skipped + 1, 10, 10000);
+    Assert.assertNull(cache.get(path));
+
+    // a DB which has been removed is not reopened by prefetches requested
+    // before, whether they ran before the removal or not.
+    long done = metrics.getNumPrefetches() + metrics.getNumPrefetchesSkipped();
+    int attempts = 50;
+    for (int i = 0; i < attempts; i++) {
+      cache.prefetchDB(6, "RocksDB", path, conf, () -> true);
+      cache.removeDB(path);
+    }
+    GenericTestUtils.waitFor(() -> metrics.getNumPrefetches()
+        + metrics.getNumPrefetchesSkipped() == done + attempts, 10, 10000);
+    Assert.assertNull(cache.get(path));
+    cache.shutdownCache();
+  }
+
+  @Test
+  public void testConcurrentAccessWithEviction() throws Exception {
+    File root = new File(testRoot);
+    root.mkdirs();
+
+    OzoneConfiguration conf = new OzoneConfiguration();
+    conf.setInt(OzoneConfigKeys.OZONE_CONTAINER_CACHE_SIZE, 2);
+
+    ContainerCache cache = ContainerCache.getInstance(conf);
+    int containers = 8;
+    for (int i = 0; i < containers; i++) {
+      createContainerDB(conf, new File(root, "concurrent" + i));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 200; i++) {
+            int container = (thread + i) % containers;
+            String path = new File(root, "concurrent" + container).getPath();
+            try (ReferenceCountedDB db =
+                     cache.getDB(container, "RocksDB", path, conf)) {
+              byte[] key = ("key" + thread).getBytes(UTF_8);
+              db.getStore().put(key, key);
+              Assert.assertArrayEquals(key, db.getStore().get(key));
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    cache.shutdownCache();
+    Assert.assertEquals(0, cache.size());
+  }
 }
@@ -34,6 +34,7 @@
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -110,6 +111,8 @@ public void testCreateContainerFile() throws IOException {
     assertEquals(SCAN_TIME, kvData.lastDataScanTime().get());
     assertEquals(SCAN_TIME.toEpochMilli(),
         kvData.getDataScanTimestamp().longValue());
+    assertEquals(0L, kvData.getDataScanBcsId().longValue());
+    assertFalse(kvData.isModifiedSinceDataScan());
 
     // Update ContainerData.
     kvData.addMetadata(OzoneConsts.VOLUME, VOLUME_OWNER);
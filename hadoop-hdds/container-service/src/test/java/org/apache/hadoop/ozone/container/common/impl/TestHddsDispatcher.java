@@ -193,6 +193,44 @@ public void testWriteChunkWithCreateContainerFailure() throws IOException {
     }
   }
 
+  @Test
+  public void testStreamedBlockWithLostChunkMarksContainerUnhealthy()
+      throws IOException {
+    String testDir = GenericTestUtils.getTempPath(
+        TestHddsDispatcher.class.getSimpleName());
+    try {
+      UUID scmId = UUID.randomUUID();
+      OzoneConfiguration conf = new OzoneConfiguration();
+      conf.set(HDDS_DATANODE_DIR_KEY, testDir);
+      DatanodeDetails dd = randomDatanodeDetails();
+      HddsDispatcher hddsDispatcher = createDispatcher(dd, scmId, conf);
+      ContainerCommandRequestProto writeChunkRequest =
+          getWriteChunkRequest(dd.getUuidString(), 1L, 1L);
+      ContainerCommandResponseProto response =
+          hddsDispatcher.dispatch(writeChunkRequest, null);
+      Assert.assertEquals(ContainerProtos.Result.SUCCESS,
+          response.getResult());
+
+      response = hddsDispatcher.dispatch(
+          getStreamedPutBlockRequest(writeChunkRequest), null);
+      Assert.assertEquals(ContainerProtos.Result.SUCCESS,
+          response.getResult());
+
+      // the data of a streamed chunk is lost before its block is committed,
+      // e.g. as it was not synced before a restart of the datanode.
+      ContainerCommandRequestProto lostChunkRequest =
+          getWriteChunkRequest(dd.getUuidString(), 1L, 2L);
+      response = hddsDispatcher.dispatch(
+          getStreamedPutBlockRequest(lostChunkRequest), null);
+      Assert.assertEquals(ContainerProtos.Result.UNABLE_TO_FIND_CHUNK,
+          response.getResult());
+      Assert.assertEquals(ContainerProtos.ContainerDataProto.State.UNHEALTHY,
+          hddsDispatcher.getContainer(1L).getContainerState());
+    } finally {
+      FileUtils.deleteDirectory(new File(testDir));
+    }
+  }
+
   /**
    * Creates HddsDispatcher instance with given infos.
    * @param dd datanode detail info.
@@ -274,6 +312,28 @@ private ContainerCommandRequestProto getWriteChunkRequest(
         .build();
   }
 
+  /**
+   * Creates a PutBlock request for the chunk of the write chunk request, as
+   * sent after streaming the chunk along the pipeline.
+   */
+  private ContainerCommandRequestProto getStreamedPutBlockRequest(
+      ContainerCommandRequestProto writeChunkRequest) {
+    WriteChunkRequestProto writeChunk = writeChunkRequest.getWriteChunk();
+    ContainerProtos.BlockData blockData = ContainerProtos.BlockData
+        .newBuilder()
+        .setBlockID(writeChunk.getBlockID())
+        .addChunks(writeChunk.getChunkData())
+        .build();
+    return ContainerCommandRequestProto.newBuilder()
+        .setCmdType(ContainerProtos.Type.PutBlock)
+        .setContainerID(writeChunk.getBlockID().getContainerID())
+        .setDatanodeUuid(writeChunkRequest.getDatanodeUuid())
+        .setPutBlock(ContainerProtos.PutBlockRequestProto.newBuilder()
+            .setBlockData(blockData)
+            .setChunksStreamed(true))
+        .build();
+  }
+
   /**
    * Creates container read chunk request using input container write chunk
    * request.
@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership.  The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.transport.server;
+
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ChunkInfo;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ChunkRangeProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerCommandRequestProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerCommandResponseProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ReadChunkRequestProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ReadChunkResponseProto;
+import org.apache.hadoop.ozone.container.common.helpers.ContainerUtils;
+import org.apache.hadoop.ozone.container.common.interfaces.ContainerDispatcher;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests reading a range of a block spanning multiple chunks.
+ */
+public class TestBlockRangeReader {
+
+  private static final int CHUNKS = 10;
+
+  private ContainerDispatcher dispatcher;
+  private BlockRangeReader reader;
+  private final Random random = new Random();
+
+  @Before
+  public void setup() {
+    dispatcher = Mockito.mock(ContainerDispatcher.class);
+    reader = new BlockRangeReader(dispatcher, 4);
+  }
+
+  @After
+  public void cleanup() {
+    reader.close();
+  }
+
+  @Test
+  public void testChunksAreReturnedInOrder() throws Exception {
+    // chunks are read in parallel, the later ones finish first.
+    CountDownLatch lastChunkRead = new CountDownLatch(1);
+    when(dispatcher.dispatch(any(), any())).thenAnswer(invocation -> {
+      ContainerCommandRequestProto request = invocation.getArgument(0);
+      String name = request.getReadChunk().getChunkData().getChunkName();
+      if (name.equals("chunk-3")) {
+        lastChunkRead.countDown();
+      } else if (name.equals("chunk-0")) {
+        assertTrue(lastChunkRead.await(10, TimeUnit.SECONDS));
+      }
+      return readChunk(request);
+    });
+
+    ContainerCommandRequestProto request = getRangeRequest();
+    assertTrue(BlockRangeReader.isBlockRangeRead(request));
+    List<ContainerCommandResponseProto> responses = read(request);
+
+    assertEquals(CHUNKS, responses.size());
+    for (int i = 0; i < CHUNKS; i++) {
+      ContainerCommandResponseProto response = responses.get(i);
+      ChunkRangeProto range = request.getReadBlockRange().getChunks(i);
+      assertEquals(ContainerProtos.Type.ReadChunk, response.getCmdType());
+      assertEquals(ContainerProtos.Result.SUCCESS, response.getResult());
+      assertEquals(range.getChunkData().getChunkName(),
+          response.getReadChunk().getChunkData().getChunkName());
+      assertEquals(range.getReadLength(),
+          response.getReadChunk().getData().size());
+    }
+  }
+
+  @Test
+  public void testReadStopsAtFailedChunk() throws Exception {
+    when(dispatcher.dispatch(any(), any())).thenAnswer(invocation -> {
+      ContainerCommandRequestProto request = invocation.getArgument(0);
+      if (request.getReadChunk().getChunkData().getChunkName()
+          .equals("chunk-5")) {
+        return ContainerUtils.getContainerCommandResponse(request,
+            ContainerProtos.Result.UNABLE_TO_FIND_CHUNK, "missing").build();
+      }
+      return readChunk(request);
+    });
+
+    List<ContainerCommandResponseProto> responses = read(getRangeRequest());
+    assertEquals(6, responses.size());
+    assertEquals(ContainerProtos.Result.UNABLE_TO_FIND_CHUNK,
+        responses.get(5).getResult());
+  }
+
+  @Test
+  public void testChunkRequests() {
+    ContainerCommandRequestProto request = getRangeRequest();
+    List<ContainerCommandRequestProto> chunkRequests =
+        BlockRangeReader.getChunkRequests(request);
+    assertEquals(CHUNKS, chunkRequests.size());
+    for (int i = 0; i < CHUNKS; i++) {
+      ContainerCommandRequestProto chunkRequest = chunkRequests.get(i);
+      ChunkRangeProto range = request.getReadBlockRange().getChunks(i);
+      // the chunks are read with the token of the range request.
+      assertEquals(request.getEncodedToken(), chunkRequest.getEncodedToken());
+      assertEquals(request.getContainerID(), chunkRequest.getContainerID());
+      ReadChunkRequestProto readChunk = chunkRequest.getReadChunk();
+      assertEquals(request.getReadBlockRange().getBlockID(),
+          readChunk.getBlockID());
+      assertEquals(range.getChunkData(), readChunk.getChunkData());
+      assertEquals(range.getReadOffset(), readChunk.getReadOffset());
+      assertEquals(range.getReadLength(), readChunk.getReadLength());
+    }
+  }
+
+  private List<ContainerCommandResponseProto> read(
+      ContainerCommandRequestProto request) {
+    List<ContainerCommandResponseProto> responses = new ArrayList<>();
+    reader.read(request, new StreamObserver<ContainerCommandResponseProto>() {
+      @Override
+      public void onNext(ContainerCommandResponseProto value) {
+        responses.add(value);
+      }
+
+      @Override
+      public void onError(Throwable t) {
+      }
+
+      @Override
+      public void onCompleted() {
+      }
+    });
+    return responses;
+  }
+
+  private ContainerCommandResponseProto readChunk(
+      ContainerCommandRequestProto request) {
+    ReadChunkRequestProto readChunk = request.getReadChunk();
+    byte[] data = new byte[(int) readChunk.getReadLength()];
+    random.nextBytes(data);
+    ReadChunkResponseProto response = ReadChunkResponseProto.newBuilder()
+        .setBlockID(readChunk.getBlockID())
+        .setChunkData(readChunk.getChunkData())
+        .setData(ByteString.copyFrom(data))
+        .build();
+    return ContainerUtils.getSuccessResponseBuilder(request)
+        .setReadChunk(response)
+        .build();
+  }
+
+  private static ContainerCommandRequestProto getRangeRequest() {
+    ContainerProtos.ReadBlockRangeRequestProto.Builder range =
+        ContainerProtos.ReadBlockRangeRequestProto.newBuilder()
+            .setBlockID(ContainerProtos.DatanodeBlockID.newBuilder()
+                .setContainerID(1).setLocalID(1));
+    for (int i = 0; i < CHUNKS; i++) {
+      range.addChunks(ChunkRangeProto.newBuilder()
+          .setChunkData(ChunkInfo.newBuilder()
+              .setChunkName("chunk-" + i).setOffset(i * 100L).setLen(100)
+              .setChecksumData(ContainerProtos.ChecksumData.newBuilder()
+                  .setType(ContainerProtos.ChecksumType.NONE)
+                  .setBytesPerChecksum(100)))
+          .setReadOffset(i == 0 ? 40 : 0)
+          .setReadLength(i == 0 ? 60 : 100));
+    }
+    return ContainerCommandRequestProto.newBuilder()
+        .setCmdType(ContainerProtos.Type.ReadBlockRange)
+        .setContainerID(1)
+        .setDatanodeUuid("datanode")
+        .setEncodedToken("token")
+        .setReadBlockRange(range)
+        .build();
+  }
+}
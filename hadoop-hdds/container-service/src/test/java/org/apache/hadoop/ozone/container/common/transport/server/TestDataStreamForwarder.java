@@ -0,0 +1,236 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership.  The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.transport.server;
+
+import org.apache.hadoop.hdds.conf.OzoneConfiguration;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerCommandRequestProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ContainerCommandResponseProto;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .StreamTargetProto;
+import org.apache.hadoop.hdds.scm.container.common.helpers
+    .StorageContainerException;
+import org.apache.hadoop.ozone.OzoneConfigKeys;
+import org.apache.hadoop.ozone.container.common.helpers.ContainerUtils;
+import org.apache.hadoop.ozone.container.common.interfaces.ContainerDispatcher;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.io.grpc.Server;
+import org.apache.ratis.thirdparty.io.grpc.netty.NettyServerBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests passing streamed chunk data along a chain of datanodes.
+ */
+public class TestDataStreamForwarder {
+
+  private final Set<String> pipelineMembers = ConcurrentHashMap.newKeySet();
+  private DataStreamForwarder forwarder;
+  private ContainerDispatcher firstDispatcher;
+  private ContainerDispatcher secondDispatcher;
+  private Server firstServer;
+  private Server secondServer;
+
+  @Before
+  public void setup() throws Exception {
+    forwarder = newForwarder(new OzoneConfiguration());
+    firstDispatcher = mockDispatcher();
+    secondDispatcher = mockDispatcher();
+    firstServer = startServer(firstDispatcher, forwarder);
+    secondServer = startServer(secondDispatcher, forwarder);
+  }
+
+  @After
+  public void cleanup() {
+    firstServer.shutdownNow();
+    secondServer.shutdownNow();
+    forwarder.close();
+  }
+
+  @Test
+  public void testChunkIsWrittenOnAllTargets() throws Exception {
+    ContainerCommandRequestProto request =
+        getStreamedRequest(firstServer, secondServer);
+    assertTrue(DataStreamForwarder.isForwarded(request));
+
+    ContainerCommandResponseProto response =
+        forwarder.forward(request).get();
+    assertEquals(ContainerProtos.Result.SUCCESS, response.getResult());
+
+    ArgumentCaptor<ContainerCommandRequestProto> first =
+        ArgumentCaptor.forClass(ContainerCommandRequestProto.class);
+    verify(firstDispatcher).dispatch(first.capture(), isNull());
+    assertEquals(1, first.getValue().getWriteChunk().getStreamTargetsCount());
+
+    // the last datanode of the chain does not pass the chunk on.
+    ArgumentCaptor<ContainerCommandRequestProto> second =
+        ArgumentCaptor.forClass(ContainerCommandRequestProto.class);
+    verify(secondDispatcher).dispatch(second.capture(), isNull());
+    assertFalse(DataStreamForwarder.isForwarded(second.getValue()));
+    assertEquals(request.getWriteChunk().getData(),
+        second.getValue().getWriteChunk().getData());
+  }
+
+  @Test
+  public void testDownstreamFailureIsReturned() throws Exception {
+    ContainerCommandRequestProto request =
+        getStreamedRequest(firstServer, secondServer);
+    doAnswer(invocation -> ContainerUtils.getContainerCommandResponse(
+        invocation.getArgument(0), ContainerProtos.Result.CONTAINER_NOT_OPEN,
+        "closed").build()).when(secondDispatcher).dispatch(any(), any());
+
+    ContainerCommandResponseProto response =
+        forwarder.forward(request).get();
+    assertEquals(ContainerProtos.Result.CONTAINER_NOT_OPEN,
+        response.getResult());
+  }
+
+  @Test
+  public void testUnreachableTargetFailsWrite() throws Exception {
+    ContainerCommandRequestProto request =
+        getStreamedRequest(firstServer, secondServer);
+    secondServer.shutdownNow().awaitTermination();
+
+    ContainerCommandResponseProto response =
+        forwarder.forward(request).get();
+    assertEquals(ContainerProtos.Result.IO_EXCEPTION, response.getResult());
+    verify(secondDispatcher, never()).dispatch(any(), any());
+  }
+
+  @Test
+  public void testTargetOutsideOfPipelineIsRejected() throws Exception {
+    ContainerCommandRequestProto request =
+        getStreamedRequest(firstServer, secondServer);
+    pipelineMembers.remove(
+        request.getWriteChunk().getStreamTargets(1).getUuid());
+
+    ContainerCommandResponseProto response =
+        forwarder.forward(request).get();
+    assertEquals(ContainerProtos.Result.INVALID_ARGUMENT,
+        response.getResult());
+    // the chunk is not written if it cannot be passed on.
+    verify(firstDispatcher, never()).dispatch(any(), any());
+    verify(secondDispatcher, never()).dispatch(any(), any());
+
+    // the first datanode is not contacted at all.
+    pipelineMembers.clear();
+    try {
+      forwarder.forward(request).get();
+      fail("Forwarding to a datanode outside of the pipeline should fail");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof StorageContainerException);
+    }
+  }
+
+  @Test
+  public void testSlowTargetFailsWrite() throws Exception {
+    OzoneConfiguration conf = new OzoneConfiguration();
+    conf.set(OzoneConfigKeys.DFS_CONTAINER_DATASTREAM_FORWARD_TIMEOUT,
+        "500ms");
+    DataStreamForwarder slowForwarder = newForwarder(conf);
+    Server server = startServer(firstDispatcher, slowForwarder);
+    CountDownLatch written = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      written.await();
+      return ContainerUtils.getSuccessResponse(invocation.getArgument(0));
+    }).when(secondDispatcher).dispatch(any(), any());
+    try {
+      ContainerCommandResponseProto response =
+          forwarder.forward(getStreamedRequest(server, secondServer)).get();
+      assertEquals(ContainerProtos.Result.IO_EXCEPTION,
+          response.getResult());
+      verify(firstDispatcher).dispatch(any(), isNull());
+    } finally {
+      written.countDown();
+      server.shutdownNow();
+      slowForwarder.close();
+    }
+  }
+
+  private DataStreamForwarder newForwarder(OzoneConfiguration conf) {
+    return new DataStreamForwarder(conf, null,
+        (containerID, datanodeId) ->
+            pipelineMembers.contains(datanodeId.toString()) ?
+                "127.0.0.1" : null);
+  }
+
+  private static ContainerDispatcher mockDispatcher() {
+    ContainerDispatcher dispatcher = Mockito.mock(ContainerDispatcher.class);
+    when(dispatcher.dispatch(any(), any())).thenAnswer(invocation ->
+        ContainerUtils.getSuccessResponse(invocation.getArgument(0)));
+    return dispatcher;
+  }
+
+  private static Server startServer(ContainerDispatcher dispatcher,
+      DataStreamForwarder forwarder) throws Exception {
+    return NettyServerBuilder.forPort(0)
+        .addService(new GrpcXceiverService(dispatcher, forwarder))
+        .build()
+        .start();
+  }
+
+  private ContainerCommandRequestProto getStreamedRequest(
+      Server... targets) {
+    ContainerProtos.WriteChunkRequestProto.Builder writeChunk =
+        ContainerProtos.WriteChunkRequestProto.newBuilder()
+            .setBlockID(ContainerProtos.DatanodeBlockID.newBuilder()
+                .setContainerID(1).setLocalID(1))
+            .setChunkData(ContainerProtos.ChunkInfo.newBuilder()
+                .setChunkName("chunk").setOffset(0).setLen(4)
+                .setChecksumData(ContainerProtos.ChecksumData.newBuilder()
+                    .setType(ContainerProtos.ChecksumType.NONE)
+                    .setBytesPerChecksum(4)))
+            .setData(ByteString.copyFromUtf8("data"));
+    for (Server target : targets) {
+      String uuid = UUID.randomUUID().toString();
+      pipelineMembers.add(uuid);
+      writeChunk.addStreamTargets(StreamTargetProto.newBuilder()
+          .setUuid(uuid)
+          .setIpAddress("127.0.0.1")
+          .setPort(target.getPort()));
+    }
+    return ContainerCommandRequestProto.newBuilder()
+        .setCmdType(ContainerProtos.Type.WriteChunk)
+        .setContainerID(1)
+        .setDatanodeUuid(UUID.randomUUID().toString())
+        .setWriteChunk(writeChunk)
+        .build();
+  }
+}
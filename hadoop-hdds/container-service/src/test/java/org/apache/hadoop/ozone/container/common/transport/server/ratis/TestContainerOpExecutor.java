@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.ozone.container.common.transport.server.ratis;
+
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsInfo;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ContainerOpExecutor}.
+ */
+public class TestContainerOpExecutor {
+
+  private static final int MIN_THREADS = 1;
+  private static final int MAX_THREADS = 4;
+
+  private RaftGroupId gid;
+  private CSMMetrics metrics;
+  private ContainerOpExecutor executor;
+
+  @Before
+  public void setUp() {
+    gid = RaftGroupId.randomId();
+    metrics = CSMMetrics.create(gid);
+    executor = new ContainerOpExecutor("TestContainerOpExecutor",
+        MIN_THREADS, MAX_THREADS, metrics);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+    DefaultMetricsSystem.instance().unregisterSource(
+        CSMMetrics.SOURCE_NAME + gid);
+  }
+
+  @Test(timeout = 30000)
+  public void testOpsOfContainerAreExecutedInOrder() throws Exception {
+    int containers = 8;
+    int opsPerContainer = 1000;
+    List<List<Integer>> executed = new ArrayList<>();
+    for (int c = 0; c < containers; c++) {
+      executed.add(Collections.synchronizedList(new ArrayList<>()));
+    }
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < opsPerContainer; i++) {
+      for (int c = 0; c < containers; c++) {
+        List<Integer> ops = executed.get(c);
+        int op = i;
+        futures.add(CompletableFuture.runAsync(() -> ops.add(op),
+            executor.getExecutor(c)));
+      }
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+
+    for (int c = 0; c < containers; c++) {
+      List<Integer> ops = executed.get(c);
+      assertEquals(opsPerContainer, ops.size());
+      for (int i = 0; i < opsPerContainer; i++) {
+        assertEquals(i, (int) ops.get(i));
+      }
+      assertNotNull(metrics.getApplyQueueLatency(c));
+    }
+    GenericTestUtils.waitFor(() -> executor.getNumContainers() == 0,
+        10, 10000);
+  }
+
+  @Test(timeout = 30000)
+  public void testBusyContainerDoesNotBlockOthers() throws Exception {
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Void> busy = CompletableFuture.runAsync(() -> {
+      blocked.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, executor.getExecutor(1));
+    blocked.await();
+    // a later op of the busy container waits for it.
+    CompletableFuture<Void> next =
+        CompletableFuture.runAsync(() -> { }, executor.getExecutor(1));
+
+    // the ops of the other containers are executed by new threads, even
+    // though their IDs would map to the same thread with a fixed pool.
+    for (long containerID = 1 + MAX_THREADS; containerID < 10 * MAX_THREADS;
+         containerID += MAX_THREADS) {
+      // the previous container is done once the pool shrinks back.
+      GenericTestUtils.waitFor(() -> executor.getPoolSize() == 1,
+          10, 10000);
+      int poolSize = CompletableFuture.supplyAsync(executor::getPoolSize,
+          executor.getExecutor(containerID)).get(10, TimeUnit.SECONDS);
+      assertEquals(2, poolSize);
+    }
+    assertFalse(busy.isDone());
+    assertFalse(next.isDone());
+
+    release.countDown();
+    next.get(10, TimeUnit.SECONDS);
+    GenericTestUtils.waitFor(() -> executor.getPoolSize() == MIN_THREADS,
+        10, 10000);
+  }
+
+  @Test(timeout = 30000)
+  public void testQueueLatencyOfRemovedContainerIsNotReported()
+      throws Exception {
+    for (long containerID = 1; containerID <= 2; containerID++) {
+      CompletableFuture.runAsync(() -> { },
+          executor.getExecutor(containerID)).get(10, TimeUnit.SECONDS);
+    }
+    assertTrue(getCounters().containsKey("ApplyQueueLatencyContainer1NumOps"));
+
+    metrics.removeContainer(1);
+
+    assertNull(metrics.getApplyQueueLatency(1));
+    Map<String, Long> counters = getCounters();
+    assertFalse(counters.containsKey("ApplyQueueLatencyContainer1NumOps"));
+    assertEquals(1L, (long) counters.get("ApplyQueueLatencyContainer2NumOps"));
+    assertEquals(2L,
+        (long) counters.get("ApplyTransactionQueueLatencyNumOps"));
+  }
+
+  /**
+   * Returns the counters reported by the metrics.
+   */
+  private Map<String, Long> getCounters() {
+    MetricsRecordBuilder rb = mock(MetricsRecordBuilder.class,
+        invocation -> invocation.getMethod().getReturnType()
+            .isInstance(invocation.getMock()) ? invocation.getMock() : null);
+    MetricsCollector collector = mock(MetricsCollector.class);
+    when(collector.addRecord(any(MetricsInfo.class))).thenReturn(rb);
+    metrics.getMetrics(collector, true);
+
+    ArgumentCaptor<MetricsInfo> names =
+        ArgumentCaptor.forClass(MetricsInfo.class);
+    ArgumentCaptor<Long> values = ArgumentCaptor.forClass(Long.class);
+    verify(rb, atLeast(0)).addCounter(names.capture(), values.capture());
+    Map<String, Long> counters = new HashMap<>();
+    for (int i = 0; i < names.getAllValues().size(); i++) {
+      counters.put(names.getAllValues().get(i).name(),
+          values.getAllValues().get(i));
+    }
+    return counters;
+  }
+}
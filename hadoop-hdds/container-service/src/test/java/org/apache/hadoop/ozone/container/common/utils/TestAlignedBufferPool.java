@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership.  The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.utils;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the pool of aligned direct buffers.
+ */
+public class TestAlignedBufferPool {
+
+  @Before
+  public void checkSupport() {
+    Assume.assumeTrue(AlignedBufferPool.isSupported());
+  }
+
+  @Test
+  public void testBuffersAreReused() {
+    AlignedBufferPool pool = new AlignedBufferPool(8192, 4096, 1);
+    ByteBuffer first = pool.acquire();
+    ByteBuffer second = pool.acquire();
+    assertTrue(first.isDirect());
+    assertEquals(8192, first.capacity());
+    assertEquals(8192, first.remaining());
+    assertNotSame(first, second);
+
+    first.put((byte) 1);
+    pool.release(first);
+    // only one buffer is kept.
+    pool.release(second);
+    assertEquals(1, pool.getPooledCount());
+
+    ByteBuffer reused = pool.acquire();
+    assertSame(first, reused);
+    assertEquals(0, reused.position());
+    assertEquals(0, pool.getPooledCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testForeignBufferIsRejected() {
+    new AlignedBufferPool(8192, 4096, 1).release(
+        ByteBuffer.allocateDirect(4096));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnalignedSizeIsRejected() {
+    new AlignedBufferPool(5000, 4096, 1);
+  }
+}
@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership.  The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.volume;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdds.HddsConfigKeys;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link FileChannelCache}.
+ */
+public class TestFileChannelCache {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private VolumeIOStats stats;
+  private FileChannelCache cache;
+
+  @Before
+  public void setup() {
+    stats = new VolumeIOStats();
+    cache = new FileChannelCache(2, TimeUnit.MINUTES.toMillis(1), stats);
+  }
+
+  @After
+  public void cleanup() {
+    cache.close();
+  }
+
+  @Test
+  public void testHandleIsReused() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("file");
+    FileChannelCache.Handle first = cache.acquire(path, true);
+    first.release();
+    FileChannelCache.Handle second = cache.acquire(path, false);
+    second.release();
+
+    assertSame(first, second);
+    assertTrue(second.getChannel().isOpen());
+    assertEquals(1, stats.getFileHandleCacheMisses());
+    assertEquals(1, stats.getFileHandleCacheHits());
+    assertEquals(1, stats.getOpenFileHandles());
+  }
+
+  @Test(expected = NoSuchFileException.class)
+  public void testMissingFileIsNotCreatedForRead() throws Exception {
+    cache.acquire(folder.getRoot().toPath().resolve("missing"), false);
+  }
+
+  @Test
+  public void testEvictedHandleIsClosedAfterRelease() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("file");
+    FileChannelCache.Handle handle = cache.acquire(path, true);
+    cache.invalidate(path);
+
+    // still in use, must not be closed by the eviction.
+    assertTrue(handle.getChannel().isOpen());
+    assertEquals(0, cache.size());
+
+    handle.release();
+    assertFalse(handle.getChannel().isOpen());
+    assertEquals(0, stats.getOpenFileHandles());
+  }
+
+  @Test
+  public void testCacheIsBounded() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      cache.acquire(folder.getRoot().toPath().resolve("file" + i), true)
+          .release();
+    }
+    // the cache may evict entries before it is full, but never holds more.
+    assertTrue(cache.size() > 0 && cache.size() <= 2);
+    assertEquals(cache.size(), stats.getOpenFileHandles());
+  }
+
+  @Test
+  public void testInvalidateDirectory() throws Exception {
+    File container1 = folder.newFolder("container1");
+    File container2 = folder.newFolder("container2");
+    cache.acquire(container1.toPath().resolve("block"), true).release();
+    cache.acquire(container2.toPath().resolve("block"), true).release();
+
+    cache.invalidateAll(container1.toPath());
+
+    assertEquals(1, cache.size());
+    assertEquals(1, stats.getOpenFileHandles());
+  }
+
+  @Test
+  public void testDisabledByConfiguration() {
+    Configuration conf = new Configuration();
+    conf.setInt(HddsConfigKeys.HDDS_CONTAINER_CHUNK_FILE_HANDLE_CACHE_SIZE, 0);
+    assertNull(FileChannelCache.newInstance(conf, stats));
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.ozone.container.common.volume;
+
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler
+    .IOClass;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests reading a file of a volume as operations of its I/O scheduler.
+ */
+public class TestScheduledInputStream {
+
+  private VolumeIOScheduler scheduler;
+
+  @After
+  public void cleanup() {
+    if (scheduler != null) {
+      scheduler.close();
+    }
+  }
+
+  @Test
+  public void testReadHoldsOperation() throws Exception {
+    scheduler = new VolumeIOScheduler("TestScheduledInputStream", 1, 0);
+    byte[] data = new byte[100];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    List<Integer> outstanding = new ArrayList<>();
+    InputStream file = new FilterInputStream(new ByteArrayInputStream(data)) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        outstanding.add(scheduler.getOutstanding());
+        return super.read(b, off, len);
+      }
+    };
+
+    byte[] read = new byte[120];
+    try (InputStream in = ScheduledInputStream.wrap(file, scheduler,
+        IOClass.SCRUB)) {
+      assertEquals(60, in.read(read, 0, 60));
+      assertEquals(40, in.read(read, 60, 60));
+      assertEquals(-1, in.read(read, 0, 60));
+    }
+
+    assertArrayEquals(data, Arrays.copyOf(read, data.length));
+    // every read of a buffer held the only operation of the volume.
+    assertEquals(3, outstanding.size());
+    for (int count : outstanding) {
+      assertEquals(1, count);
+    }
+    assertEquals(0, scheduler.getOutstanding());
+    assertEquals(3, scheduler.getMetrics().getOpCount(IOClass.SCRUB));
+  }
+
+  @Test
+  public void testFailedReadReleasesOperation() throws Exception {
+    scheduler = new VolumeIOScheduler("TestScheduledInputStream", 1, 0);
+    InputStream file = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("disk failure");
+      }
+    };
+
+    try (InputStream in = ScheduledInputStream.wrap(file, scheduler,
+        IOClass.REPLICATION)) {
+      in.read(new byte[10]);
+      fail("The read should fail");
+    } catch (IOException e) {
+      assertEquals("disk failure", e.getMessage());
+    }
+
+    assertEquals(0, scheduler.getOutstanding());
+  }
+
+  @Test
+  public void testNotScheduledWithoutScheduler() {
+    InputStream file = new ByteArrayInputStream(new byte[1]);
+    assertSame(file, ScheduledInputStream.wrap(file, null, IOClass.SCRUB));
+  }
+}
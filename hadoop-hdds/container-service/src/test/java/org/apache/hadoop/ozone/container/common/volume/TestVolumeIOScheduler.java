@@ -0,0 +1,191 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership.  The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.volume;
+
+import org.apache.hadoop.hdds.HddsConfigKeys;
+import org.apache.hadoop.hdds.conf.OzoneConfiguration;
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOScheduler
+    .IOClass;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests scheduling the I/O of a volume.
+ */
+public class TestVolumeIOScheduler {
+
+  @Rule
+  public TestName testName = new TestName();
+
+  private VolumeIOScheduler scheduler;
+
+  @After
+  public void cleanup() {
+    if (scheduler != null) {
+      scheduler.close();
+    }
+  }
+
+  @Test
+  public void testClientIOIsNotBlockedByBackgroundIO() throws Exception {
+    scheduler = newScheduler(2, 1);
+    scheduler.acquire(IOClass.SCRUB, 0);
+
+    // the other operation is reserved for clients.
+    Thread replication = startAcquire(IOClass.REPLICATION, null);
+    waitForQueued(IOClass.REPLICATION, 1);
+    scheduler.acquire(IOClass.CLIENT, 0);
+    assertEquals(2, scheduler.getOutstanding());
+    assertEquals(1, scheduler.getMetrics().getQueued(IOClass.REPLICATION));
+
+    scheduler.release(IOClass.SCRUB);
+    replication.join(10000);
+    assertFalse(replication.isAlive());
+    assertEquals(0, scheduler.getQueued(IOClass.REPLICATION));
+    assertEquals(1, scheduler.getMetrics().getOutstanding(IOClass.CLIENT));
+    assertEquals(1,
+        scheduler.getMetrics().getOutstanding(IOClass.REPLICATION));
+  }
+
+  @Test
+  public void testWaitingIOIsScheduledByWeight() throws Exception {
+    scheduler = newScheduler(1, 0);
+    scheduler.acquire(IOClass.CLIENT, 0);
+
+    List<IOClass> order = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      threads.add(startAcquire(IOClass.SCRUB, order));
+      threads.add(startAcquire(IOClass.CLIENT, order));
+    }
+    waitForQueued(IOClass.SCRUB, 4);
+    waitForQueued(IOClass.CLIENT, 4);
+
+    scheduler.release(IOClass.CLIENT);
+    for (Thread thread : threads) {
+      thread.join(10000);
+      assertFalse(thread.isAlive());
+    }
+
+    // the scrubber was idle, so it goes first, but it then has to wait for
+    // the clients, which have a larger share of the volume.
+    assertEquals(8, order.size());
+    assertEquals(IOClass.SCRUB, order.get(0));
+    for (int i = 1; i <= 4; i++) {
+      assertEquals(IOClass.CLIENT, order.get(i));
+    }
+    assertEquals(5, scheduler.getMetrics().getOpCount(IOClass.CLIENT));
+    assertEquals(4, scheduler.getMetrics().getOpCount(IOClass.SCRUB));
+    assertEquals(0, scheduler.getOutstanding());
+  }
+
+  @Test
+  public void testInterruptedWaiterIsRemoved() throws Exception {
+    scheduler = newScheduler(1, 0);
+    scheduler.acquire(IOClass.CLIENT, 0);
+
+    Thread deletion = startAcquire(IOClass.DELETION, null);
+    waitForQueued(IOClass.DELETION, 1);
+    deletion.interrupt();
+    deletion.join(10000);
+    assertFalse(deletion.isAlive());
+    assertEquals(0, scheduler.getQueued(IOClass.DELETION));
+    assertEquals(0, scheduler.getMetrics().getQueued(IOClass.DELETION));
+
+    scheduler.release(IOClass.CLIENT);
+    assertEquals(0, scheduler.getOutstanding());
+    assertEquals(0, scheduler.getMetrics().getOpCount(IOClass.DELETION));
+  }
+
+  @Test
+  public void testCloseReleasesWaiters() throws Exception {
+    scheduler = newScheduler(1, 0);
+    scheduler.acquire(IOClass.CLIENT, 0);
+
+    Thread scrub = startAcquire(IOClass.SCRUB, null);
+    waitForQueued(IOClass.SCRUB, 1);
+    scheduler.close();
+    scrub.join(10000);
+    assertFalse(scrub.isAlive());
+
+    // operations are no longer scheduled.
+    scheduler.acquire(IOClass.SCRUB, 0);
+    scheduler.acquire(IOClass.SCRUB, 0);
+    scheduler.release(IOClass.SCRUB);
+  }
+
+  @Test
+  public void testNewInstance() {
+    OzoneConfiguration conf = new OzoneConfiguration();
+    assertNull(VolumeIOScheduler.newInstance(conf, testName.getMethodName()));
+
+    conf.setBoolean(HddsConfigKeys.HDDS_DATANODE_VOLUME_IO_SCHEDULER_ENABLED,
+        true);
+    scheduler = VolumeIOScheduler.newInstance(conf,
+        testName.getMethodName());
+    assertNotNull(scheduler);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testClientReservationIsLimited() {
+    new VolumeIOScheduler(testName.getMethodName(), 4, 4);
+  }
+
+  private VolumeIOScheduler newScheduler(int maxOutstanding,
+      int clientReserved) {
+    return new VolumeIOScheduler(testName.getMethodName(), maxOutstanding,
+        clientReserved);
+  }
+
+  /**
+   * Starts a thread doing an operation of the given class, which records
+   * the class once the operation may start.
+   */
+  private Thread startAcquire(IOClass ioClass, List<IOClass> order) {
+    Thread thread = new Thread(() -> {
+      try {
+        scheduler.acquire(ioClass, 0);
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (order != null) {
+        order.add(ioClass);
+        scheduler.release(ioClass);
+      }
+    });
+    thread.start();
+    return thread;
+  }
+
+  private void waitForQueued(IOClass ioClass, int count) throws Exception {
+    GenericTestUtils.waitFor(() -> scheduler.getQueued(ioClass) == count,
+        10, 10000);
+  }
+}
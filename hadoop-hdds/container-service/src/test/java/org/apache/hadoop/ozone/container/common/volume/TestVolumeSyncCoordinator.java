@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership.  The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.hadoop.ozone.container.common.volume;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdds.HddsConfigKeys;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link VolumeSyncCoordinator}.
+ */
+public class TestVolumeSyncCoordinator {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testWritesShareBatch() throws Exception {
+    VolumeIOStats stats = new VolumeIOStats();
+    VolumeSyncCoordinator coordinator = new VolumeSyncCoordinator("test",
+        TimeUnit.MILLISECONDS.toNanos(200), Long.MAX_VALUE, stats);
+    try {
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        // several writes of the same file are synced once.
+        Path path = folder.newFile("file" + i).toPath();
+        futures.add(coordinator.sync(path, 1));
+        futures.add(coordinator.sync(path, 1));
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+          .get();
+      assertEquals(1, stats.getSyncBatchCount());
+      assertEquals(20, stats.getSyncedWriteCount());
+    } finally {
+      coordinator.close();
+    }
+  }
+
+  @Test
+  public void testByteThresholdEndsBatch() throws Exception {
+    VolumeIOStats stats = new VolumeIOStats();
+    VolumeSyncCoordinator coordinator = new VolumeSyncCoordinator("test",
+        TimeUnit.HOURS.toNanos(1), 100, stats);
+    try {
+      CompletableFuture<Void> first =
+          coordinator.sync(folder.newFile("first").toPath(), 60);
+      Thread.sleep(100);
+      assertFalse(first.isDone());
+      coordinator.sync(folder.newFile("second").toPath(), 60).get();
+      assertTrue(first.isDone());
+      assertEquals(1, stats.getSyncBatchCount());
+    } finally {
+      coordinator.close();
+    }
+  }
+
+  @Test
+  public void testFailedSync() throws Exception {
+    VolumeIOStats stats = new VolumeIOStats();
+    VolumeSyncCoordinator coordinator =
+        new VolumeSyncCoordinator("test", 0, Long.MAX_VALUE, stats);
+    try {
+      Path missing = folder.getRoot().toPath().resolve("missing");
+      CompletableFuture<Void> failed = coordinator.sync(missing, 1);
+      CompletableFuture<Void> synced =
+          coordinator.sync(folder.newFile("file").toPath(), 1);
+      try {
+        failed.get();
+        fail("Sync of a missing file should fail");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof NoSuchFileException);
+      }
+      // a failed file does not fail the rest of its batch.
+      synced.get();
+    } finally {
+      coordinator.close();
+    }
+  }
+
+  @Test
+  public void testCloseSyncsPendingFiles() throws Exception {
+    VolumeSyncCoordinator coordinator = new VolumeSyncCoordinator("test",
+        TimeUnit.HOURS.toNanos(1), Long.MAX_VALUE, new VolumeIOStats());
+    CompletableFuture<Void> pending =
+        coordinator.sync(folder.newFile("file").toPath(), 1);
+    coordinator.close();
+    assertTrue(pending.isDone());
+    pending.get();
+
+    CompletableFuture<Void> rejected =
+        coordinator.sync(folder.newFile("other").toPath(), 1);
+    assertTrue(rejected.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    Configuration conf = new Configuration(false);
+    assertNull(VolumeSyncCoordinator.newInstance(conf, "test",
+        new VolumeIOStats()));
+
+    conf.setBoolean(
+        HddsConfigKeys.HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_ENABLED, true);
+    VolumeSyncCoordinator coordinator = VolumeSyncCoordinator.newInstance(
+        conf, "test", new VolumeIOStats());
+    assertNotNull(coordinator);
+    coordinator.close();
+  }
+}
@@ -19,18 +19,23 @@
 package org.apache.hadoop.ozone.container.keyvalue;
 
 import org.apache.hadoop.conf.StorageUnit;
+import org.apache.hadoop.hdds.HddsConfigKeys;
 import org.apache.hadoop.hdds.client.BlockID;
 import org.apache.hadoop.hdds.conf.OzoneConfiguration;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
 import org.apache.hadoop.hdds.scm.container.common.helpers.StorageContainerException;
 import org.apache.hadoop.ozone.OzoneConsts;
+import org.apache.hadoop.ozone.container.common.helpers.BlockData;
 import org.apache.hadoop.ozone.container.common.helpers.ChunkInfo;
+import org.apache.hadoop.ozone.container.common.helpers.MappedBuffers;
+import org.apache.hadoop.ozone.container.common.impl.ChunkLayOutVersion;
 import org.apache.hadoop.ozone.container.common.transport.server.ratis.DispatcherContext;
 import org.apache.hadoop.ozone.container.keyvalue.helpers.ChunkUtils;
 import org.apache.hadoop.ozone.container.common.volume.HddsVolume;
 import org.apache.hadoop.ozone.container.common.volume.RoundRobinVolumeChoosingPolicy;
 import org.apache.hadoop.ozone.container.common.volume.VolumeIOStats;
 import org.apache.hadoop.ozone.container.common.volume.VolumeSet;
+import org.apache.hadoop.ozone.container.keyvalue.impl.BlockManagerImpl;
 import org.apache.hadoop.ozone.container.keyvalue.impl.ChunkManagerDummyImpl;
 import org.apache.hadoop.ozone.container.keyvalue.impl.ChunkManagerImpl;
 import org.apache.hadoop.ozone.container.keyvalue.interfaces.ChunkManager;
@@ -42,8 +47,12 @@
 import org.mockito.Mockito;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.UUID;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -202,6 +211,59 @@ public void testReadChunk() throws Exception {
     checkReadIOStats(expectedData.capacity(), 1);
   }
 
+  @Test
+  public void testReadChunkMapped() throws Exception {
+    chunkManager.writeChunk(keyValueContainer, blockID, chunkInfo, data,
+        getDispatcherContext());
+    ChunkManagerImpl mappingManager =
+        new ChunkManagerImpl(true, true, false, chunkInfo.getLen());
+
+    // without a MappedBuffers the mapping could not be released.
+    assertFalse(mappingManager.readChunk(keyValueContainer, blockID,
+        chunkInfo, getDispatcherContext()) instanceof MappedByteBuffer);
+
+    MappedBuffers mappedBuffers = new MappedBuffers();
+    ByteBuffer read = mappingManager.readChunk(keyValueContainer, blockID,
+        chunkInfo, new DispatcherContext.Builder()
+            .setMappedBuffers(mappedBuffers).build());
+    assertTrue(read instanceof MappedByteBuffer);
+    assertEquals(1, mappedBuffers.size());
+    rewindBufferToDataStart();
+    assertEquals(data, read);
+    mappedBuffers.close();
+    assertEquals(0, mappedBuffers.size());
+
+    // chunks smaller than the minimum size are not mapped.
+    mappingManager =
+        new ChunkManagerImpl(true, true, false, chunkInfo.getLen() + 1);
+    read = mappingManager.readChunk(keyValueContainer, blockID, chunkInfo,
+        new DispatcherContext.Builder()
+            .setMappedBuffers(mappedBuffers).build());
+    assertFalse(read instanceof MappedByteBuffer);
+    assertEquals(0, mappedBuffers.size());
+  }
+
+  @Test
+  public void testCheckChunkPresent() throws Exception {
+    chunkManager.writeChunk(keyValueContainer, blockID, chunkInfo, data,
+        getDispatcherContext());
+    chunkManager.checkChunkPresent(keyValueContainer, blockID, chunkInfo);
+
+    ChunkInfo truncated = new ChunkInfo(chunkInfo.getChunkName(), 0,
+        chunkInfo.getLen() + 1);
+    ChunkInfo missing = new ChunkInfo(String.format("%d.data.%d",
+        blockID.getLocalID(), 1), 0, chunkInfo.getLen());
+    for (ChunkInfo info : Arrays.asList(truncated, missing)) {
+      try {
+        chunkManager.checkChunkPresent(keyValueContainer, blockID, info);
+        fail("Data of chunk " + info + " should be missing");
+      } catch (StorageContainerException e) {
+        assertEquals(ContainerProtos.Result.UNABLE_TO_FIND_CHUNK,
+            e.getResult());
+      }
+    }
+  }
+
   @Test
   public void testDeleteChunk() throws Exception {
     chunkManager.writeChunk(keyValueContainer, blockID, chunkInfo, data,
@@ -267,6 +329,259 @@ public void testWriteAndReadChunkMultipleTimes() throws Exception {
     assertTrue(hddsVolume.getVolumeIOStats().getReadTime() > 0);
   }
 
+  @Test
+  public void testWriteAndReadChunksFilePerBlock() throws Exception {
+    KeyValueContainer container = createContainer(2L,
+        ChunkLayOutVersion.FILE_PER_BLOCK.getVersion());
+    BlockID block = new BlockID(2L, 1L);
+    byte[] first = "first chunk".getBytes(UTF_8);
+    byte[] second = "second chunk".getBytes(UTF_8);
+    ChunkInfo firstChunk = createBlockChunk(
+        String.format("%d_chunk_%d", block.getLocalID(), 1), 0, first.length);
+    ChunkInfo secondChunk = createBlockChunk(
+        String.format("%d_chunk_%d", block.getLocalID(), 2), first.length,
+        second.length);
+
+    // WRITE_DATA writes in place, COMMIT_DATA does not need a tmp file.
+    chunkManager.writeChunk(container, block, firstChunk,
+        ByteBuffer.wrap(first), new DispatcherContext.Builder()
+            .setStage(DispatcherContext.WriteChunkStage.WRITE_DATA).build());
+    chunkManager.writeChunk(container, block, firstChunk, null,
+        new DispatcherContext.Builder()
+            .setStage(DispatcherContext.WriteChunkStage.COMMIT_DATA).build());
+    chunkManager.writeChunk(container, block, secondChunk,
+        ByteBuffer.wrap(second), getDispatcherContext());
+
+    File[] files = new File(container.getContainerData().getChunksPath())
+        .listFiles();
+    assertNotNull(files);
+    assertEquals(1, files.length);
+    File blockFile = ChunkUtils.getBlockFile(
+        (KeyValueContainerData) container.getContainerData(), block);
+    assertEquals(blockFile, files[0]);
+    assertEquals(first.length + second.length, blockFile.length());
+    assertEquals(first.length + second.length,
+        container.getContainerData().getBytesUsed());
+
+    assertEquals(ByteBuffer.wrap(second), chunkManager.readChunk(container,
+        block, secondChunk, getDispatcherContext()));
+    assertEquals(ByteBuffer.wrap(second, 7, 5), chunkManager.readChunk(
+        container, block, secondChunk, 7, 5, getDispatcherContext()));
+    assertEquals(ByteBuffer.wrap(first), chunkManager.readChunk(container,
+        block, firstChunk, 0, first.length, getDispatcherContext()));
+
+    // clients send the range as the offset and len of the chunk too, which
+    // is all that requests without the range fields have.
+    ChunkInfo range = ChunkInfo.getFromProtoBuf(secondChunk
+        .getProtoBufMessage().toBuilder().setOffset(7).setLen(5).build());
+    assertEquals(ByteBuffer.wrap(second, 7, 5), chunkManager.readChunk(
+        container, block, range, getDispatcherContext()));
+    assertEquals(ByteBuffer.wrap(second, 7, 5), chunkManager.readChunk(
+        container, block, range, 7, 5, getDispatcherContext()));
+
+    chunkManager.deleteChunk(container, block,
+        createBlockChunk(firstChunk.getChunkName(), 0, blockFile.length()));
+    assertFalse(blockFile.exists());
+  }
+
+  @Test
+  public void testReappliedChunkOfCommittedBlockIsNotCounted()
+      throws Exception {
+    KeyValueContainer container = createContainer(2L,
+        ChunkLayOutVersion.FILE_PER_BLOCK.getVersion());
+    byte[] bytes = "chunk".getBytes(UTF_8);
+    BlockID committed = new BlockID(2L, 1L);
+    BlockID open = new BlockID(2L, 2L);
+    ChunkInfo first = createBlockChunk("1_chunk_1", 0, bytes.length);
+    ChunkInfo second = createBlockChunk("2_chunk_1", 0, bytes.length);
+
+    writeAndCommitChunk(container, committed, first, bytes, 5);
+    writeAndCommitChunk(container, open, second, bytes, 6);
+    BlockData blockData = new BlockData(committed);
+    blockData.setChunks(Collections.singletonList(first.getProtoBufMessage()));
+    blockData.setBlockCommitSequenceId(7);
+    new BlockManagerImpl(config).putBlock(container, blockData);
+    assertEquals(2 * bytes.length, container.getContainerData().getBytesUsed());
+    assertEquals(2, container.getContainerData().getWriteCount());
+
+    // after a restart, the log entries are applied again. Only the chunk of
+    // the block which has not been committed is counted again.
+    writeAndCommitChunk(container, committed, first, bytes, 5);
+    writeAndCommitChunk(container, open, second, bytes, 6);
+    assertEquals(3 * bytes.length, container.getContainerData().getBytesUsed());
+    assertEquals(3, container.getContainerData().getWriteCount());
+  }
+
+  private void writeAndCommitChunk(KeyValueContainer container,
+      BlockID block, ChunkInfo info, byte[] bytes, long logIndex)
+      throws Exception {
+    chunkManager.writeChunk(container, block, info, ByteBuffer.wrap(bytes),
+        new DispatcherContext.Builder().setLogIndex(logIndex)
+            .setStage(DispatcherContext.WriteChunkStage.WRITE_DATA).build());
+    chunkManager.writeChunk(container, block, info, null,
+        new DispatcherContext.Builder().setLogIndex(logIndex)
+            .setStage(DispatcherContext.WriteChunkStage.COMMIT_DATA).build());
+  }
+
+  @Test
+  public void testWriteChunksDirect() throws Exception {
+    ChunkManagerImpl directManager = new ChunkManagerImpl(true, false, true);
+    KeyValueContainer container = createContainer(2L,
+        ChunkLayOutVersion.FILE_PER_BLOCK.getVersion());
+    BlockID block = new BlockID(2L, 1L);
+    byte[] first = new byte[8192];
+    Arrays.fill(first, (byte) 1);
+    byte[] second = "second chunk".getBytes(UTF_8);
+    ChunkInfo firstChunk = createBlockChunk("first", 0, first.length);
+    ChunkInfo secondChunk = createBlockChunk("second", first.length,
+        second.length);
+
+    directManager.writeChunk(container, block, firstChunk,
+        ByteBuffer.wrap(first), getDispatcherContext());
+    directManager.writeChunk(container, block, secondChunk,
+        ByteBuffer.wrap(second), getDispatcherContext());
+
+    File blockFile = ChunkUtils.getBlockFile(
+        (KeyValueContainerData) container.getContainerData(), block);
+    assertEquals(first.length + second.length, blockFile.length());
+    assertEquals(ByteBuffer.wrap(first), directManager.readChunk(container,
+        block, firstChunk, getDispatcherContext()));
+    assertEquals(ByteBuffer.wrap(second), directManager.readChunk(container,
+        block, secondChunk, getDispatcherContext()));
+  }
+
+  @Test
+  public void testWriteChunkWithBatchedSync() throws Exception {
+    OzoneConfiguration conf = new OzoneConfiguration(config);
+    conf.setBoolean(
+        HddsConfigKeys.HDDS_CONTAINER_CHUNK_WRITE_SYNC_BATCH_ENABLED, true);
+    HddsVolume volume = new HddsVolume.Builder(folder.newFolder()
+        .getAbsolutePath()).conf(conf).datanodeUuid(UUID.randomUUID()
+        .toString()).build();
+    try {
+      Mockito.when(volumeChoosingPolicy.chooseVolume(anyList(), anyLong()))
+          .thenReturn(volume);
+      KeyValueContainer container = createContainer(2L,
+          ChunkLayOutVersion.FILE_PER_BLOCK.getVersion());
+      BlockID block = new BlockID(2L, 1L);
+      byte[] bytes = "chunk".getBytes(UTF_8);
+      ChunkInfo first = createBlockChunk("first", 0, bytes.length);
+      ChunkInfo second = createBlockChunk("second", bytes.length,
+          bytes.length);
+
+      chunkManager.writeChunk(container, block, first, ByteBuffer.wrap(bytes),
+          new DispatcherContext.Builder()
+              .setStage(DispatcherContext.WriteChunkStage.WRITE_DATA).build());
+      chunkManager.writeChunk(container, block, second,
+          ByteBuffer.wrap(bytes), getDispatcherContext());
+
+      // the writes returned after their batches were synced.
+      VolumeIOStats stats = volume.getVolumeIOStats();
+      assertEquals(2, stats.getSyncedWriteCount());
+      assertTrue(stats.getSyncBatchCount() > 0);
+      assertEquals(0, hddsVolume.getVolumeIOStats().getSyncedWriteCount());
+    } finally {
+      volume.shutdown();
+    }
+  }
+
+  @Test
+  public void testReadChunkRangeFilePerChunk() throws Exception {
+    // the offset of the chunk within the block does not affect the chunk
+    // file, which always holds the chunk from its start.
+    ChunkInfo info = createBlockChunk(chunkInfo.getChunkName(), 1024,
+        chunkInfo.getLen());
+    chunkManager.writeChunk(keyValueContainer, blockID, info, data,
+        getDispatcherContext());
+    File chunkFile = ChunkUtils.getChunkFile(keyValueContainerData, info);
+    assertEquals(info.getLen(), chunkFile.length());
+
+    ByteBuffer expected = ByteBuffer.wrap(
+        "testing write chunks".getBytes(UTF_8), 3, 4);
+    assertEquals(expected, chunkManager.readChunk(keyValueContainer, blockID,
+        info, 3, 4, getDispatcherContext()));
+  }
+
+  @Test
+  public void testWriteAndReadPackedChunks() throws Exception {
+    byte[] first = "first small file".getBytes(UTF_8);
+    byte[] second = "second small file".getBytes(UTF_8);
+    ChunkInfo firstChunk = new ChunkInfo("1_chunk_1", 0, first.length);
+    ChunkInfo secondChunk = new ChunkInfo("2_chunk_1", 0, second.length);
+
+    chunkManager.writePackedChunk(keyValueContainer, new BlockID(1L, 1L),
+        firstChunk, ByteBuffer.wrap(first), getDispatcherContext());
+    chunkManager.writePackedChunk(keyValueContainer, new BlockID(1L, 2L),
+        secondChunk, ByteBuffer.wrap(second), getDispatcherContext());
+
+    // both files are appended to the pack file.
+    File packFile = ChunkUtils.getPackFile(keyValueContainerData);
+    checkChunkFileCount(1);
+    assertTrue(packFile.exists());
+    assertEquals(first.length + second.length, packFile.length());
+    assertEquals(0, ChunkUtils.getPackOffset(firstChunk));
+    assertEquals(first.length, ChunkUtils.getPackOffset(secondChunk));
+    assertEquals(first.length + second.length,
+        keyValueContainerData.getBytesUsed());
+
+    // the chunks are read through the offset stored with the block.
+    ChunkInfo stored = ChunkInfo.getFromProtoBuf(
+        secondChunk.getProtoBufMessage());
+    assertEquals(ByteBuffer.wrap(second), chunkManager.readChunk(
+        keyValueContainer, new BlockID(1L, 2L), stored,
+        getDispatcherContext()));
+    assertEquals(ByteBuffer.wrap(second, 7, 5), chunkManager.readChunk(
+        keyValueContainer, new BlockID(1L, 2L), stored, 7, 5,
+        getDispatcherContext()));
+    assertEquals(ByteBuffer.wrap(first), chunkManager.readChunk(
+        keyValueContainer, new BlockID(1L, 1L), firstChunk, 0, first.length,
+        getDispatcherContext()));
+  }
+
+  @Test
+  public void testPackedChunkOfCommittedBlockIsNotAppendedAgain()
+      throws Exception {
+    keyValueContainer.updateBlockCommitSequenceId(10);
+    ChunkInfo info = new ChunkInfo("1_chunk_1", 0, chunkInfo.getLen());
+    chunkManager.writePackedChunk(keyValueContainer, blockID, info, data,
+        new DispatcherContext.Builder().setLogIndex(10).build());
+
+    assertFalse(ChunkUtils.isPacked(info));
+    assertFalse(ChunkUtils.getPackFile(keyValueContainerData).exists());
+  }
+
+  @Test
+  public void testWriteChunkRejectsPackOffset() throws Exception {
+    chunkInfo.addMetadata(OzoneConsts.CHUNK_PACK_OFFSET, "0");
+    try {
+      chunkManager.writeChunk(keyValueContainer, blockID, chunkInfo, data,
+          getDispatcherContext());
+      fail("testWriteChunkRejectsPackOffset");
+    } catch (StorageContainerException ex) {
+      assertEquals(ContainerProtos.Result.INVALID_ARGUMENT, ex.getResult());
+    }
+    checkChunkFileCount(0);
+  }
+
+  @Test
+  public void testWriteChunkWithoutBlockOffsetToBlockFile() throws Exception {
+    // a client which sends no block offsets can not write to a block file,
+    // as all its chunks would be written to the start of the file.
+    KeyValueContainer container = createContainer(2L,
+        ChunkLayOutVersion.FILE_PER_BLOCK.getVersion());
+    BlockID block = new BlockID(2L, 1L);
+    try {
+      chunkManager.writeChunk(container, block, chunkInfo, data,
+          getDispatcherContext());
+      fail("testWriteChunkWithoutBlockOffsetToBlockFile");
+    } catch (StorageContainerException ex) {
+      assertEquals(ContainerProtos.Result.INVALID_ARGUMENT, ex.getResult());
+    }
+    assertFalse(ChunkUtils.getBlockFile(
+        (KeyValueContainerData) container.getContainerData(), block)
+        .exists());
+  }
+
   @Test
   public void dummyManagerDoesNotWriteToFile() throws Exception {
     ChunkManager dummy = new ChunkManagerDummyImpl(true);
@@ -288,6 +603,25 @@ public void dummyManagerReadsAnyChunk() throws Exception {
     assertNotNull(dataRead);
   }
 
+  private KeyValueContainer createContainer(long containerID,
+      int layOutVersion) throws Exception {
+    KeyValueContainerData containerData = new KeyValueContainerData(
+        containerID, layOutVersion, (long) StorageUnit.GB.toBytes(5),
+        UUID.randomUUID().toString(), UUID.randomUUID().toString());
+    KeyValueContainer container = new KeyValueContainer(containerData,
+        config);
+    container.create(volumeSet, volumeChoosingPolicy, scmId);
+    return container;
+  }
+
+  private static ChunkInfo createBlockChunk(String name, long blockOffset,
+      long len) throws IOException {
+    ChunkInfo info = new ChunkInfo(name, 0, len);
+    info.addMetadata(OzoneConsts.CHUNK_BLOCK_OFFSET,
+        Long.toString(blockOffset));
+    return info;
+  }
+
   private Buffer rewindBufferToDataStart() {
     return data.position(header.length);
   }
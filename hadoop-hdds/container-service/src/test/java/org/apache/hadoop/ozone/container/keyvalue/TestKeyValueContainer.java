@@ -20,6 +20,7 @@
 
 import com.google.common.primitives.Longs;
 import org.apache.hadoop.conf.StorageUnit;
+import org.apache.hadoop.hdds.HddsConfigKeys;
 import org.apache.hadoop.hdds.client.BlockID;
 import org.apache.hadoop.hdds.conf.OzoneConfiguration;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
@@ -31,14 +32,22 @@
 import org.apache.hadoop.ozone.container.common.helpers.BlockData;
 import org.apache.hadoop.ozone.container.common.helpers.ChunkInfo;
 import org.apache.hadoop.ozone.container.common.impl.ContainerDataYaml;
+import org.apache.hadoop.ozone.container.common.transport.server.ratis
+    .DispatcherContext;
 import org.apache.hadoop.ozone.container.common.volume.HddsVolume;
 import org.apache.hadoop.ozone.container.common.volume
     .RoundRobinVolumeChoosingPolicy;
 import org.apache.hadoop.ozone.container.common.volume.VolumeSet;
 import org.apache.hadoop.ozone.container.keyvalue.helpers.BlockUtils;
+import org.apache.hadoop.ozone.container.keyvalue.helpers.ChunkUtils;
+import org.apache.hadoop.ozone.container.keyvalue.helpers
+    .KeyValueContainerUtil;
+import org.apache.hadoop.ozone.container.keyvalue.impl.BlockManagerImpl;
+import org.apache.hadoop.ozone.container.keyvalue.impl.ChunkManagerImpl;
 import org.apache.hadoop.test.GenericTestUtils;
 import org.apache.hadoop.util.DiskChecker;
 import org.apache.hadoop.ozone.container.common.utils.ReferenceCountedDB;
+import org.apache.hadoop.ozone.container.common.utils.VolumeDBCache;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -54,7 +63,9 @@
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
@@ -261,6 +272,140 @@ public void testContainerImportExport() throws Exception {
 
   }
 
+  @Test
+  public void testMoveToVolumeDBAndBack() throws Exception {
+    keyValueContainer.create(volumeSet, volumeChoosingPolicy, scmId);
+    addBlocks(5);
+    BlockUtils.removeDB(keyValueContainerData, conf);
+    File dbFile = keyValueContainer.getContainerDBFile();
+    File volumeDBFile = BlockUtils.getVolumeDBFile(keyValueContainerData);
+
+    try {
+      conf.setBoolean(HddsConfigKeys.HDDS_CONTAINER_DB_PER_VOLUME_ENABLED,
+          true);
+      KeyValueContainerData containerData = readContainerData();
+      KeyValueContainerUtil.parseKVContainerData(containerData, conf);
+      assertFalse(dbFile.exists());
+      assertTrue(volumeDBFile.exists());
+      assertEquals(5, containerData.getKeyCount());
+      assertEquals(5, countBlocks());
+
+      conf.setBoolean(HddsConfigKeys.HDDS_CONTAINER_DB_PER_VOLUME_ENABLED,
+          false);
+      containerData = readContainerData();
+      KeyValueContainerUtil.parseKVContainerData(containerData, conf);
+      assertTrue(dbFile.exists());
+      assertEquals(5, containerData.getKeyCount());
+      assertEquals(5, countBlocks());
+      try (ReferenceCountedDB db =
+               BlockUtils.getVolumeDB(containerData, conf)) {
+        assertTrue(db.getStore().isEmpty());
+      }
+    } finally {
+      VolumeDBCache.getInstance().closeDB(volumeDBFile);
+    }
+  }
+
+  @Test
+  public void testContainerWithVolumeDB() throws Exception {
+    conf.setBoolean(HddsConfigKeys.HDDS_CONTAINER_DB_PER_VOLUME_ENABLED,
+        true);
+    keyValueContainer.create(volumeSet, volumeChoosingPolicy, scmId);
+    File volumeDBFile = BlockUtils.getVolumeDBFile(keyValueContainerData);
+    try {
+      assertFalse(keyValueContainer.getContainerDBFile().exists());
+      addBlocks(3);
+      assertEquals(3, countBlocks());
+
+      keyValueContainerData.setState(
+          ContainerProtos.ContainerDataProto.State.CLOSED);
+      File exported = folder.newFile("exported.tar.gz");
+      TarContainerPacker packer = new TarContainerPacker();
+      try (FileOutputStream fos = new FileOutputStream(exported)) {
+        keyValueContainer.exportContainerData(fos, packer);
+      }
+      assertFalse(keyValueContainer.getContainerDBFile().exists());
+
+      keyValueContainer.delete();
+      try (ReferenceCountedDB db =
+               BlockUtils.getDB(keyValueContainerData, conf)) {
+        assertTrue(db.getStore().isEmpty());
+      }
+
+      KeyValueContainerData containerData = new KeyValueContainerData(
+          keyValueContainerData.getContainerID(), 1,
+          keyValueContainerData.getMaxSize(), UUID.randomUUID().toString(),
+          datanodeId.toString());
+      KeyValueContainer container = new KeyValueContainer(containerData, conf);
+      HddsVolume containerVolume = volumeChoosingPolicy.chooseVolume(
+          volumeSet.getVolumesList(), 1);
+      container.populatePathFields(scmId, containerVolume,
+          containerVolume.getHddsRootDir().toString());
+      try (FileInputStream fis = new FileInputStream(exported)) {
+        container.importContainerData(fis, packer);
+      }
+      assertEquals(3, containerData.getKeyCount());
+      assertFalse(container.getContainerDBFile().exists());
+    } finally {
+      VolumeDBCache.getInstance().closeDB(volumeDBFile);
+    }
+  }
+
+  @Test
+  public void testUncommittedPackedDataIsTruncatedOnLoad() throws Exception {
+    keyValueContainer.create(volumeSet, volumeChoosingPolicy, scmId);
+    ChunkManagerImpl chunkManager = new ChunkManagerImpl(true);
+    BlockManagerImpl blockManager = new BlockManagerImpl(conf);
+    DispatcherContext context = new DispatcherContext.Builder().build();
+    byte[] first = "committed small file".getBytes(UTF_8);
+    byte[] second = "small file of an orphan".getBytes(UTF_8);
+
+    BlockID blockID = new BlockID(1L, 1L);
+    ChunkInfo info = new ChunkInfo("1_chunk_1", 0, first.length);
+    chunkManager.writePackedChunk(keyValueContainer, blockID, info,
+        ByteBuffer.wrap(first), context);
+    BlockData blockData = new BlockData(blockID);
+    blockData.setChunks(Collections.singletonList(info.getProtoBufMessage()));
+    blockManager.putBlock(keyValueContainer, blockData);
+    // the data of the second block is written, but its block is not.
+    chunkManager.writePackedChunk(keyValueContainer, new BlockID(1L, 2L),
+        new ChunkInfo("2_chunk_1", 0, second.length),
+        ByteBuffer.wrap(second), context);
+    File packFile = ChunkUtils.getPackFile(keyValueContainerData);
+    assertEquals(first.length + second.length, packFile.length());
+
+    KeyValueContainerData containerData = readContainerData();
+    containerData.setVolume(keyValueContainerData.getVolume());
+    KeyValueContainerUtil.parseKVContainerData(containerData, conf);
+    assertEquals(first.length, packFile.length());
+    assertEquals(first.length, containerData.getPackFileLength());
+
+    // the data is appended at the same offset once the entry is reapplied.
+    KeyValueContainer reloaded = new KeyValueContainer(containerData, conf);
+    ChunkInfo reapplied = new ChunkInfo("2_chunk_1", 0, second.length);
+    chunkManager.writePackedChunk(reloaded, new BlockID(1L, 2L), reapplied,
+        ByteBuffer.wrap(second), context);
+    assertEquals(first.length, ChunkUtils.getPackOffset(reapplied));
+    assertEquals(first.length + second.length, packFile.length());
+  }
+
+  private KeyValueContainerData readContainerData() throws IOException {
+    return (KeyValueContainerData) ContainerDataYaml.readContainerFile(
+        keyValueContainer.getContainerFile());
+  }
+
+  private int countBlocks() throws IOException {
+    int count = 0;
+    try (KeyValueBlockIterator blockIterator =
+             keyValueContainer.blockIterator()) {
+      while (blockIterator.hasNext()) {
+        blockIterator.nextBlock();
+        count++;
+      }
+    }
+    return count;
+  }
+
   @Test
   public void testDuplicateContainer() throws Exception {
     try {
@@ -133,6 +133,27 @@ public void testKeyValueContainerCheckNoCorruption() throws Exception {
     assertTrue(valid);
   }
 
+  /**
+   * Sanity test of a scan reading chunk data with direct I/O.
+   */
+  @Test
+  public void testKeyValueContainerCheckDirectRead() throws Exception {
+    long containerID = 103;
+    conf.setBoolean("hdds.containerscrub.direct.read.enabled", true);
+    ContainerScrubberConfiguration c = conf.getObject(
+        ContainerScrubberConfiguration.class);
+    assertTrue(c.isDirectReadEnabled());
+
+    createContainerWithBlocks(containerID, 3, 1, 4);
+    container.close();
+
+    KeyValueContainerCheck kvCheck =
+        new KeyValueContainerCheck(containerData.getMetadataPath(), conf,
+            containerID);
+    assertTrue(kvCheck.fullCheck(new DataTransferThrottler(
+        c.getBandwidthPerVolume()), null));
+  }
+
   /**
    * Sanity test, when there are corruptions induced.
    */
@@ -223,7 +223,7 @@ public void testHandlerCommandHandling() throws Exception {
         getDummyCommandRequestProto(ContainerProtos.Type.GetSmallFile);
     dispatcher.dispatch(getSmallFileRequest, context);
     Mockito.verify(handler, times(1)).handleGetSmallFile(
-        any(ContainerCommandRequestProto.class), any());
+        any(ContainerCommandRequestProto.class), any(), any());
   }
 
   @Test
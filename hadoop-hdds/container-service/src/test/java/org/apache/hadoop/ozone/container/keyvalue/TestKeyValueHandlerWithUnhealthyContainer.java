@@ -125,7 +125,7 @@ public void testGetSmallFile() throws IOException {
         handler.handleGetSmallFile(
             getDummyCommandRequestProto(
                 ContainerProtos.Type.GetSmallFile),
-            container);
+            container, null);
     assertThat(response.getResult(), is(CONTAINER_UNHEALTHY));
   }
 
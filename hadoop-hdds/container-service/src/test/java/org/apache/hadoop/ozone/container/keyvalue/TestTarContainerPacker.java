@@ -18,6 +18,9 @@
 
 package org.apache.hadoop.ozone.container.keyvalue;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -27,6 +30,7 @@
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +42,7 @@
 import org.apache.commons.compress.compressors.CompressorOutputStream;
 import org.apache.hadoop.hdds.conf.OzoneConfiguration;
 import org.apache.hadoop.ozone.container.common.interfaces.ContainerPacker;
+import org.apache.hadoop.ozone.container.replication.CopyContainerCompression;
 
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
@@ -277,6 +282,139 @@ public void unpackContainerDataWithInvalidRelativeChunkFilePath()
         () -> unpackContainerData(containerFile));
   }
 
+  @Test
+  public void packWithCompression() throws Exception {
+    OzoneConfiguration conf = new OzoneConfiguration();
+    for (CopyContainerCompression compression :
+        CopyContainerCompression.values()) {
+      if (!compression.isAvailable()) {
+        continue;
+      }
+      TarContainerPacker compressedPacker =
+          new TarContainerPacker(compression);
+      KeyValueContainerData sourceContainerData =
+          createContainer(SOURCE_CONTAINER_ROOT);
+      KeyValueContainer sourceContainer =
+          new KeyValueContainer(sourceContainerData, conf);
+      writeDbFile(sourceContainerData, TEST_DB_FILE_NAME);
+      writeChunkFile(sourceContainerData, TEST_CHUNK_FILE_NAME);
+      writeDescriptor(sourceContainer);
+
+      ByteArrayOutputStream archive = new ByteArrayOutputStream();
+      compressedPacker.pack(sourceContainer, archive);
+      // the same container is always packed to the same bytes.
+      ByteArrayOutputStream again = new ByteArrayOutputStream();
+      compressedPacker.pack(sourceContainer, again);
+      Assert.assertArrayEquals(compression.name(), archive.toByteArray(),
+          again.toByteArray());
+
+      // the descriptor is read from the start of the archive, which is then
+      // unpacked from the beginning, as done while receiving it.
+      BufferedInputStream input = new BufferedInputStream(
+          new ByteArrayInputStream(archive.toByteArray()), 1024);
+      input.mark(1024 * 1024);
+      Assert.assertEquals(TEST_DESCRIPTOR_FILE_CONTENT,
+          new String(compressedPacker.unpackContainerDescriptor(input),
+              UTF_8));
+      input.reset();
+
+      KeyValueContainerData destinationContainerData =
+          createContainer(DEST_CONTAINER_ROOT);
+      KeyValueContainer destinationContainer =
+          new KeyValueContainer(destinationContainerData, conf);
+      String descriptor = new String(compressedPacker.unpackContainerData(
+          destinationContainer, input), UTF_8);
+
+      Assert.assertEquals(TEST_DESCRIPTOR_FILE_CONTENT, descriptor);
+      assertExampleMetadataDbIsGood(
+          destinationContainerData.getDbFile().toPath(), TEST_DB_FILE_NAME);
+      assertExampleChunkFileIsGood(
+          Paths.get(destinationContainerData.getChunksPath()),
+          TEST_CHUNK_FILE_NAME);
+    }
+  }
+
+  @Test
+  public void packInParts() throws Exception {
+    KeyValueContainerData sourceContainerData =
+        createContainer(SOURCE_CONTAINER_ROOT);
+    KeyValueContainer sourceContainer =
+        new KeyValueContainer(sourceContainerData, new OzoneConfiguration());
+    writeDbFile(sourceContainerData, TEST_DB_FILE_NAME);
+    writeChunkFile(sourceContainerData, TEST_CHUNK_FILE_NAME);
+    writeChunkFile(sourceContainerData, "chunk2");
+    writeDescriptor(sourceContainer);
+
+    ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+    TarContainerPacker.metadataPart().pack(sourceContainer, metadata);
+    Map<String, Long> chunkFiles = TarContainerPacker.readChunkFileList(
+        new ByteArrayInputStream(metadata.toByteArray()));
+    Assert.assertEquals(2, chunkFiles.size());
+    Assert.assertEquals(Long.valueOf(TEST_CHUNK_FILE_CONTENT.length()),
+        chunkFiles.get(TEST_CHUNK_FILE_NAME));
+
+    // the parts without their end of archive records add up to one archive.
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    archive.write(metadata.toByteArray(), 0,
+        metadata.size() - TarContainerPacker.PART_TRAILER_SIZE);
+    for (String chunkFile : chunkFiles.keySet()) {
+      ByteArrayOutputStream part = new ByteArrayOutputStream();
+      TarContainerPacker.chunkFilesPart(Collections.singleton(chunkFile))
+          .pack(sourceContainer, part);
+      Assert.assertEquals(part.size(), TarContainerPacker
+          .getChunkFilesPartSize(Collections.singletonMap(chunkFile,
+              chunkFiles.get(chunkFile))));
+      archive.write(part.toByteArray(), 0,
+          part.size() - TarContainerPacker.PART_TRAILER_SIZE);
+    }
+    archive.write(new byte[TarContainerPacker.PART_TRAILER_SIZE]);
+
+    KeyValueContainerData destinationContainerData =
+        createContainer(DEST_CONTAINER_ROOT);
+    KeyValueContainer destinationContainer = new KeyValueContainer(
+        destinationContainerData, new OzoneConfiguration());
+    String descriptor = new String(
+        new TarContainerPacker(CopyContainerCompression.NO_COMPRESSION)
+            .unpackContainerData(destinationContainer,
+                new ByteArrayInputStream(archive.toByteArray())), UTF_8);
+
+    Assert.assertEquals(TEST_DESCRIPTOR_FILE_CONTENT, descriptor);
+    assertExampleMetadataDbIsGood(
+        destinationContainerData.getDbFile().toPath(), TEST_DB_FILE_NAME);
+    assertExampleChunkFileIsGood(
+        Paths.get(destinationContainerData.getChunksPath()), "chunk2");
+  }
+
+  @Test
+  public void unpackContainerDataWithWrongChecksum() throws Exception {
+    KeyValueContainerData sourceContainerData =
+        createContainer(SOURCE_CONTAINER_ROOT);
+    File file = writeChunkFile(sourceContainerData, TEST_CHUNK_FILE_NAME);
+    byte[] checksums = ("0 " + TarContainerPacker.CHUNKS_DIR_NAME + "/"
+        + TEST_CHUNK_FILE_NAME + "\n").getBytes(UTF_8);
+
+    ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    try (ArchiveOutputStream tar = new TarArchiveOutputStream(archive)) {
+      TarContainerPacker.includeFile(file,
+          TarContainerPacker.CHUNKS_DIR_NAME + "/" + TEST_CHUNK_FILE_NAME,
+          tar);
+      TarArchiveEntry entry =
+          new TarArchiveEntry(TarContainerPacker.CHECKSUMS_FILE_NAME);
+      entry.setSize(checksums.length);
+      tar.putArchiveEntry(entry);
+      tar.write(checksums);
+      tar.closeArchiveEntry();
+    }
+
+    KeyValueContainerData data = createContainer(DEST_CONTAINER_ROOT);
+    KeyValueContainer container =
+        new KeyValueContainer(data, new OzoneConfiguration());
+    LambdaTestUtils.intercept(IOException.class, "Checksum mismatch",
+        () -> new TarContainerPacker(CopyContainerCompression.NO_COMPRESSION)
+            .unpackContainerData(container,
+                new ByteArrayInputStream(archive.toByteArray())));
+  }
+
   private KeyValueContainerData unpackContainerData(File containerFile)
       throws IOException {
     try (FileInputStream input = new FileInputStream(containerFile)) {
@@ -18,7 +18,11 @@
 package org.apache.hadoop.ozone.container.keyvalue.helpers;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
+import org.apache.hadoop.hdds.scm.container.common.helpers
+    .StorageContainerException;
 import org.apache.hadoop.ozone.container.common.helpers.ChunkInfo;
+import org.apache.hadoop.ozone.container.common.volume.FileChannelCache;
 import org.apache.hadoop.ozone.container.common.volume.VolumeIOStats;
 import org.apache.hadoop.test.GenericTestUtils;
 import org.junit.Test;
@@ -27,6 +31,7 @@
 
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
@@ -42,6 +47,8 @@
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for {@link ChunkUtils}.
@@ -161,4 +168,64 @@ public void serialRead() throws Exception {
     }
   }
 
+  @Test
+  public void readAndWriteWithHandleCache() throws Exception {
+    byte[] array = "Hello World".getBytes();
+    Path tempFile = Files.createTempFile(PREFIX, "cached");
+    VolumeIOStats stats = new VolumeIOStats();
+    FileChannelCache handleCache = new FileChannelCache(4,
+        TimeUnit.MINUTES.toMillis(1), stats);
+    try {
+      File file = tempFile.toFile();
+      ChunkInfo first = new ChunkInfo("first", 0, array.length);
+      ChunkInfo second = new ChunkInfo("second", array.length, array.length);
+      ChunkUtils.writeData(file, first, first.getOffset(),
+          ByteBuffer.wrap(array), stats, handleCache, false);
+      ChunkUtils.writeData(file, second, second.getOffset(),
+          ByteBuffer.wrap(array), stats, handleCache, true);
+      ByteBuffer readBuffer = ChunkUtils.readData(file, second,
+          second.getOffset(), second.getLen(), stats, handleCache);
+      assertArrayEquals(array, readBuffer.array());
+      assertEquals(2 * array.length, file.length());
+
+      assertEquals(1, stats.getFileHandleCacheMisses());
+      assertEquals(2, stats.getFileHandleCacheHits());
+      assertEquals(1, stats.getOpenFileHandles());
+    } finally {
+      handleCache.close();
+      Files.deleteIfExists(tempFile);
+    }
+    assertEquals(0, stats.getOpenFileHandles());
+  }
+
+  @Test
+  public void mappedRead() throws Exception {
+    byte[] array = "Hello World".getBytes();
+    Path tempFile = Files.createTempFile(PREFIX, "mapped");
+    try {
+      File file = tempFile.toFile();
+      ChunkInfo chunkInfo = new ChunkInfo(tempFile.toString(), 0,
+          array.length);
+      VolumeIOStats stats = new VolumeIOStats();
+      ChunkUtils.writeData(file, chunkInfo, ByteBuffer.wrap(array), stats,
+          true);
+
+      ByteBuffer mapped = ChunkUtils.mapData(file, chunkInfo, 6, 5, stats,
+          null);
+      assertTrue(mapped instanceof MappedByteBuffer);
+      byte[] read = new byte[mapped.remaining()];
+      mapped.get(read);
+      assertArrayEquals("World".getBytes(), read);
+
+      try {
+        ChunkUtils.mapData(file, chunkInfo, 6, array.length, stats, null);
+        fail("Mapping beyond the end of the file should fail");
+      } catch (StorageContainerException e) {
+        assertEquals(ContainerProtos.Result.IO_EXCEPTION, e.getResult());
+      }
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
 }
@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership.  The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.hadoop.ozone.container.keyvalue.helpers;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests reading and writing chunk data with direct I/O.
+ */
+public class TestDirectIOUtils {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Random random = new Random();
+
+  @Before
+  public void checkSupport() {
+    Assume.assumeTrue(DirectIOUtils.isSupported());
+  }
+
+  @Test
+  public void testWriteUnalignedLength() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("chunk");
+    byte[] data = randomBytes(DirectIOUtils.ALIGNMENT * 300 + 17);
+    assertTrue(DirectIOUtils.canWrite(path, 0, data.length));
+
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    assertEquals(data.length, DirectIOUtils.write(path, buffer, 0, true));
+    assertFalse(buffer.hasRemaining());
+    // the padding of the last block is truncated.
+    assertArrayEquals(data, Files.readAllBytes(path));
+  }
+
+  @Test
+  public void testAppendToBlockFile() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("block");
+    byte[] first = randomBytes(DirectIOUtils.ALIGNMENT * 2);
+    byte[] second = randomBytes(100);
+    DirectIOUtils.write(path, ByteBuffer.wrap(first), 0, false);
+    assertTrue(DirectIOUtils.canWrite(path, first.length, second.length));
+    DirectIOUtils.write(path, ByteBuffer.wrap(second), first.length, false);
+
+    byte[] expected = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, expected, first.length, second.length);
+    assertArrayEquals(expected, Files.readAllBytes(path));
+
+    // writes which do not start at a block boundary, or whose padding would
+    // overwrite existing data, are not done with direct I/O.
+    assertFalse(DirectIOUtils.canWrite(path, expected.length, 10));
+    assertFalse(DirectIOUtils.canWrite(path, 0, 10));
+    assertTrue(DirectIOUtils.canWrite(path, 0, DirectIOUtils.ALIGNMENT));
+  }
+
+  @Test
+  public void testWriteAlignedRangeInTheMiddle() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("block");
+    byte[] data = randomBytes(DirectIOUtils.ALIGNMENT * 3 + 100);
+    Files.write(path, data);
+    byte[] update = randomBytes(DirectIOUtils.ALIGNMENT);
+    assertTrue(DirectIOUtils.canWrite(path, DirectIOUtils.ALIGNMENT,
+        update.length));
+
+    DirectIOUtils.write(path, ByteBuffer.wrap(update),
+        DirectIOUtils.ALIGNMENT, false);
+    // the data following the write is kept.
+    System.arraycopy(update, 0, data, DirectIOUtils.ALIGNMENT, update.length);
+    assertArrayEquals(data, Files.readAllBytes(path));
+  }
+
+  @Test
+  public void testReadFromOffset() throws Exception {
+    File file = folder.newFile("block");
+    byte[] data = randomBytes(1024 * 1024 * 3 + 4321);
+    Files.write(file.toPath(), data);
+
+    for (long offset : new long[] {0, 1, DirectIOUtils.ALIGNMENT + 5,
+        1024 * 1024 * 2 + 7}) {
+      try (InputStream in = DirectIOUtils.newInputStream(file, offset)) {
+        byte[] read = IOUtils.toByteArray(in);
+        assertArrayEquals(Arrays.copyOfRange(data, (int) offset, data.length),
+            read);
+      }
+    }
+
+    try (InputStream in = DirectIOUtils.newInputStream(file, data.length)) {
+      assertEquals(-1, in.read());
+    }
+  }
+
+  @Test(expected = NoSuchFileException.class)
+  public void testReadMissingFile() throws Exception {
+    DirectIOUtils.newInputStream(new File(folder.getRoot(), "missing"), 0);
+  }
+
+  private byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+}
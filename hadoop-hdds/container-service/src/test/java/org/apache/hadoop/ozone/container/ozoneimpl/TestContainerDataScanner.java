@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.hadoop.ozone.container.ozoneimpl;
+
+import org.apache.hadoop.conf.StorageUnit;
+import org.apache.hadoop.hdds.conf.OzoneConfiguration;
+import org.apache.hadoop.hdfs.util.Canceler;
+import org.apache.hadoop.hdfs.util.DataTransferThrottler;
+import org.apache.hadoop.ozone.container.common.impl.ContainerData;
+import org.apache.hadoop.ozone.container.common.interfaces.Container;
+import org.apache.hadoop.ozone.container.common.volume.HddsVolume;
+import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainerData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests which containers the data scanner scans in an iteration.
+ */
+public class TestContainerDataScanner {
+
+  private static final Duration RESCAN_INTERVAL = Duration.ofDays(7);
+
+  private final AtomicLong containerIdSeq = new AtomicLong(100);
+
+  private ContainerController controller;
+  private ContainerDataScanner scanner;
+  private HddsVolume volume;
+
+  @Before
+  public void setup() {
+    ContainerScrubberConfiguration conf = new OzoneConfiguration()
+        .getObject(ContainerScrubberConfiguration.class);
+    conf.setDataScanInterval(0);
+    conf.setDataRescanInterval(RESCAN_INTERVAL.toMillis());
+    controller = mock(ContainerController.class);
+    volume = mock(HddsVolume.class);
+    scanner = new ContainerDataScanner(conf, controller, volume);
+  }
+
+  @After
+  public void cleanup() {
+    scanner.getMetrics().unregister();
+  }
+
+  @Test
+  public void testUnmodifiedRecentlyScannedContainersAreSkipped() {
+    Instant now = Instant.now();
+    Container<?> recentlyScanned = mockContainer(now.minusSeconds(60), false);
+    Container<?> neverScanned = mockContainer(null, false);
+    Container<?> longAgoScanned =
+        mockContainer(now.minus(RESCAN_INTERVAL).minusSeconds(60), false);
+    Container<?> modified = mockContainer(now.minusSeconds(30), true);
+    // ordered by last scan time, as returned by ContainerSet.
+    when(controller.getContainers(volume)).thenReturn(Arrays.<Container<?>>
+        asList(neverScanned, longAgoScanned, recentlyScanned, modified)
+        .iterator());
+
+    scanner.runIteration();
+
+    InOrder order = inOrder(neverScanned, modified, longAgoScanned);
+    order.verify(neverScanned).scanData(any(), any());
+    order.verify(modified).scanData(any(), any());
+    order.verify(longAgoScanned).scanData(any(), any());
+    verify(recentlyScanned, never()).scanData(any(), any());
+
+    ContainerDataScrubberMetrics metrics = scanner.getMetrics();
+    assertEquals(3, metrics.getNumContainersScanned());
+    assertEquals(1, metrics.getNumContainersSkipped());
+  }
+
+  @Test
+  public void testContainerIsModifiedIfBcsIdChangedSinceScan() {
+    KeyValueContainerData data = new KeyValueContainerData(1L,
+        (long) StorageUnit.GB.toBytes(1), UUID.randomUUID().toString(),
+        UUID.randomUUID().toString());
+    assertTrue(data.isModifiedSinceDataScan());
+
+    data.updateBlockCommitSequenceId(5);
+    data.updateDataScanTime(Instant.now());
+    assertFalse(data.isModifiedSinceDataScan());
+    assertEquals(5L, data.getDataScanBcsId().longValue());
+
+    data.updateBlockCommitSequenceId(6);
+    assertTrue(data.isModifiedSinceDataScan());
+  }
+
+  private Container<?> mockContainer(Instant lastScanTime, boolean modified) {
+    ContainerData data = mock(ContainerData.class);
+    when(data.getContainerID()).thenReturn(containerIdSeq.getAndIncrement());
+    when(data.lastDataScanTime()).thenReturn(
+        Optional.ofNullable(lastScanTime));
+    when(data.isModifiedSinceDataScan())
+        .thenReturn(modified || lastScanTime == null);
+    Container<?> c = mock(Container.class);
+    when(c.getContainerData()).thenReturn(data);
+    when(c.shouldScanData()).thenReturn(true);
+    when(c.scanData(any(DataTransferThrottler.class), any(Canceler.class)))
+        .thenReturn(true);
+    return c;
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.ozone.container.ozoneimpl;
+
+import com.google.common.primitives.Longs;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.StorageUnit;
+import org.apache.hadoop.hdds.HddsConfigKeys;
+import org.apache.hadoop.hdds.client.BlockID;
+import org.apache.hadoop.hdds.conf.OzoneConfiguration;
+import org.apache.hadoop.hdds.scm.ScmConfigKeys;
+import org.apache.hadoop.ozone.container.common.helpers.BlockData;
+import org.apache.hadoop.ozone.container.common.helpers.ChunkInfo;
+import org.apache.hadoop.ozone.container.common.impl.ContainerSet;
+import org.apache.hadoop.ozone.container.common.interfaces.Container;
+import org.apache.hadoop.ozone.container.common.transport.server.ratis
+    .DispatcherContext;
+import org.apache.hadoop.ozone.container.common.utils.ReferenceCountedDB;
+import org.apache.hadoop.ozone.container.common.volume.HddsVolume;
+import org.apache.hadoop.ozone.container.common.volume
+    .RoundRobinVolumeChoosingPolicy;
+import org.apache.hadoop.ozone.container.common.volume.VolumeSet;
+import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainer;
+import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainerData;
+import org.apache.hadoop.ozone.container.keyvalue.helpers.BlockUtils;
+import org.apache.hadoop.ozone.container.keyvalue.helpers.ChunkUtils;
+import org.apache.hadoop.ozone.container.keyvalue.impl.BlockManagerImpl;
+import org.apache.hadoop.ozone.container.keyvalue.impl.ChunkManagerImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests loading the containers of a volume from its container index.
+ */
+public class TestContainerIndex {
+
+  private static final int CONTAINERS = 5;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private OzoneConfiguration conf;
+  private VolumeSet volumeSet;
+  private HddsVolume volume;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new OzoneConfiguration();
+    conf.set(ScmConfigKeys.HDDS_DATANODE_DIR_KEY,
+        folder.newFolder().getAbsolutePath());
+    conf.set(HddsConfigKeys.OZONE_METADATA_DIRS,
+        folder.newFolder().getAbsolutePath());
+    conf.setBoolean(HddsConfigKeys.HDDS_DATANODE_CONTAINER_INDEX_ENABLED,
+        true);
+    volumeSet = new VolumeSet(UUID.randomUUID().toString(), conf);
+    volume = volumeSet.getVolumesList().get(0);
+    volume.format(UUID.randomUUID().toString());
+  }
+
+  @After
+  public void cleanUp() {
+    volumeSet.shutdown();
+  }
+
+  @Test
+  public void testContainersAreLoadedFromIndex() throws Exception {
+    String scmId = UUID.randomUUID().toString();
+    ContainerSet written = new ContainerSet();
+    for (long id = 1; id <= CONTAINERS; id++) {
+      KeyValueContainer container = createContainer(id, scmId);
+      container.getContainerData().updateDataScanTime(Instant.now());
+      written.addContainer(container);
+    }
+    ContainerIndex.write(volume, written.getContainerIterator(volume),
+        BlockUtils.isVolumeDBEnabled(conf));
+    assertTrue(ContainerIndex.getIndexFile(volume).exists());
+
+    // an indexed container whose .container file is unreadable is still
+    // loaded, as it is not parsed.
+    File containerFile = written.getContainer(1).getContainerFile();
+    FileUtils.writeStringToFile(containerFile, "corrupt",
+        StandardCharsets.UTF_8);
+    // an indexed container removed since the index was written is dropped.
+    FileUtils.deleteDirectory(new File(
+        written.getContainer(2).getContainerData().getContainerPath()));
+    // a container missing from the index is loaded from its .container file.
+    createContainer(CONTAINERS + 1, scmId);
+
+    ContainerSet loaded = readVolume();
+
+    assertEquals(CONTAINERS, loaded.containerCount());
+    assertNull(loaded.getContainer(2));
+    assertNotNull(loaded.getContainer(CONTAINERS + 1));
+    for (long id : new long[] {1, 3, 4, 5}) {
+      KeyValueContainerData expected = (KeyValueContainerData)
+          written.getContainer(id).getContainerData();
+      KeyValueContainerData actual = (KeyValueContainerData)
+          loaded.getContainer(id).getContainerData();
+      assertEquals(expected.getState(), actual.getState());
+      assertEquals(expected.getMetadataPath(), actual.getMetadataPath());
+      assertEquals(expected.getChunksPath(), actual.getChunksPath());
+      assertEquals(expected.getDbFile(), actual.getDbFile());
+      assertEquals(expected.getBytesUsed(), actual.getBytesUsed());
+      assertEquals(expected.getKeyCount(), actual.getKeyCount());
+      assertEquals(expected.getBlockCommitSequenceId(),
+          actual.getBlockCommitSequenceId());
+      assertEquals(expected.getDataScanTimestamp(),
+          actual.getDataScanTimestamp());
+      assertEquals(expected.getDataScanBcsId(), actual.getDataScanBcsId());
+      assertEquals(expected.getMetadata(), actual.getMetadata());
+      assertEquals(volume, actual.getVolume());
+    }
+
+    // the index is only used once.
+    assertFalse(ContainerIndex.getIndexFile(volume).exists());
+  }
+
+  @Test
+  public void testIndexOfOtherDBLayoutIsIgnored() throws Exception {
+    String scmId = UUID.randomUUID().toString();
+    KeyValueContainer container = createContainer(1, scmId);
+    ContainerIndex.write(volume,
+        Collections.<Container<?>>singletonList(container).iterator(),
+        !BlockUtils.isVolumeDBEnabled(conf));
+
+    assertTrue(ContainerIndex.load(volume, BlockUtils.isVolumeDBEnabled(conf))
+        .isEmpty());
+    assertFalse(ContainerIndex.getIndexFile(volume).exists());
+  }
+
+  @Test
+  public void testPackFileIsNotOverwrittenAfterIndexedLoad()
+      throws Exception {
+    KeyValueContainer container =
+        createContainer(1, UUID.randomUUID().toString());
+    ChunkManagerImpl chunkManager = new ChunkManagerImpl(true);
+    BlockManagerImpl blockManager = new BlockManagerImpl(conf);
+    byte[] first = "first small file".getBytes(StandardCharsets.UTF_8);
+    byte[] second = "second small file".getBytes(StandardCharsets.UTF_8);
+    BlockID firstBlock = new BlockID(1, 2);
+    ChunkInfo firstChunk = writeSmallFile(chunkManager, blockManager,
+        container, firstBlock, first);
+
+    ContainerIndex.write(volume,
+        Collections.<Container<?>>singletonList(container).iterator(),
+        BlockUtils.isVolumeDBEnabled(conf));
+    Container<?> loaded = readVolume().getContainer(1);
+    assertEquals(first.length, ((KeyValueContainerData)
+        loaded.getContainerData()).getPackFileLength());
+
+    ChunkInfo secondChunk = writeSmallFile(chunkManager, blockManager,
+        loaded, new BlockID(1, 3), second);
+    assertEquals(first.length, ChunkUtils.getPackOffset(secondChunk));
+    assertEquals(ByteBuffer.wrap(first), chunkManager.readChunk(loaded,
+        firstBlock, firstChunk, new DispatcherContext.Builder().build()));
+  }
+
+  private ChunkInfo writeSmallFile(ChunkManagerImpl chunkManager,
+      BlockManagerImpl blockManager, Container<?> container,
+      BlockID blockID, byte[] data) throws IOException {
+    ChunkInfo info = new ChunkInfo(blockID.getLocalID() + "_chunk_1", 0,
+        data.length);
+    chunkManager.writePackedChunk(container, blockID, info,
+        ByteBuffer.wrap(data), new DispatcherContext.Builder().build());
+    BlockData block = new BlockData(blockID);
+    block.setChunks(Collections.singletonList(info.getProtoBufMessage()));
+    blockManager.putBlock(container, block);
+    return info;
+  }
+
+  private ContainerSet readVolume() {
+    ContainerSet containerSet = new ContainerSet();
+    new ContainerReader(volumeSet, volume, containerSet, conf)
+        .readVolume(volume.getHddsRootDir());
+    return containerSet;
+  }
+
+  private KeyValueContainer createContainer(long id, String scmId)
+      throws IOException {
+    KeyValueContainerData data = new KeyValueContainerData(id,
+        (long) StorageUnit.GB.toBytes(1), UUID.randomUUID().toString(),
+        UUID.randomUUID().toString());
+    data.addMetadata("owner", "ozone");
+    KeyValueContainer container = new KeyValueContainer(data, conf);
+    container.create(volumeSet, new RoundRobinVolumeChoosingPolicy(), scmId);
+
+    try (ReferenceCountedDB db = BlockUtils.getDB(data, conf)) {
+      BlockData block = new BlockData(new BlockID(id, 1));
+      block.setChunks(Collections.singletonList(
+          new ChunkInfo("chunk", 0, 1024).getProtoBufMessage()));
+      db.getStore().put(Longs.toByteArray(1),
+          block.getProtoBufMessage().toByteArray());
+    }
+    data.setBytesUsed(1024);
+    data.setKeyCount(1);
+    container.updateBlockCommitSequenceId(id);
+    return container;
+  }
+}
@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership.  The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.hadoop.ozone.container.replication;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.hdds.protocol.DatanodeDetails;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .CopyContainerResponseProto;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.io.grpc.Status;
+import org.apache.ratis.thirdparty.io.grpc.StatusRuntimeException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests reading the archive of a container from its replicas.
+ */
+public class TestContainerInputStream {
+
+  private static final int RESPONSE_SIZE = 100;
+
+  private final byte[] archive = new byte[1000];
+
+  private final List<DatanodeDetails> sources = Arrays.asList(
+      randomDatanode(), randomDatanode());
+
+  public TestContainerInputStream() {
+    new Random().nextBytes(archive);
+  }
+
+  @Test
+  public void testDownloadIsStartedFromNextSource() throws Exception {
+    // the first download fails before sending any data.
+    DummyContainerInputStream in = new DummyContainerInputStream(1, 0, 3);
+
+    assertEquals(CopyContainerCompression.LZ4, in.getCompression());
+    assertArrayEquals(archive, IOUtils.toByteArray(in));
+    assertEquals(archive.length, in.getPosition());
+    assertEquals(sources.get(1), in.getSource());
+    assertFalse(in.hasFailed());
+    in.close();
+
+    assertEquals(Arrays.asList(sources.get(0), sources.get(1)),
+        in.connectedSources);
+  }
+
+  @Test
+  public void testDownloadIsNotResumedAfterData() throws Exception {
+    // the first download fails after 3 responses.
+    DummyContainerInputStream in = new DummyContainerInputStream(1, 3, 3);
+    byte[] read = new byte[archive.length];
+    try {
+      IOUtils.readFully(in, read);
+      fail("Download should fail");
+    } catch (IOException e) {
+      assertTrue(in.hasFailed());
+    }
+
+    // the other replica packs the container to different bytes, so the
+    // rest of the archive is not downloaded from it.
+    assertEquals(3L * RESPONSE_SIZE, in.getPosition());
+    assertEquals(sources.get(0), in.getSource());
+    assertEquals(Arrays.asList(sources.get(0)), in.connectedSources);
+    try {
+      in.read();
+      fail("Read after failed download should fail");
+    } catch (IOException e) {
+      assertEquals(1, in.connectedSources.size());
+    }
+    in.close();
+  }
+
+  @Test
+  public void testDownloadFailsAfterMaxFailures() throws Exception {
+    // every download fails before sending any data.
+    DummyContainerInputStream in =
+        new DummyContainerInputStream(Integer.MAX_VALUE, 0, 2);
+    try {
+      IOUtils.toByteArray(in);
+      fail("Download should fail");
+    } catch (IOException e) {
+      assertEquals(3, in.connectedSources.size());
+      assertFalse(in.hasFailed());
+    }
+  }
+
+  @Test
+  public void testLegacySourceHasNoCompression() throws Exception {
+    DummyContainerInputStream in = new DummyContainerInputStream(0, 0, 0);
+    in.compression = null;
+    assertNull(in.getCompression());
+    assertArrayEquals(archive, IOUtils.toByteArray(in));
+  }
+
+  private static DatanodeDetails randomDatanode() {
+    return DatanodeDetails.newBuilder()
+        .setUuid(UUID.randomUUID().toString())
+        .setHostName("localhost")
+        .setIpAddress("127.0.0.1")
+        .build();
+  }
+
+  /**
+   * Reads the archive from sources, the first downloads of which fail after
+   * sending a number of responses.
+   */
+  private class DummyContainerInputStream extends ContainerInputStream {
+    private final int failingDownloads;
+    private final int responsesBeforeFailure;
+    private final List<DatanodeDetails> connectedSources = new ArrayList<>();
+    private CopyContainerCompression compression =
+        CopyContainerCompression.LZ4;
+
+    DummyContainerInputStream(int failingDownloads,
+        int responsesBeforeFailure, int maxFailures) {
+      super(1L, sources, CopyContainerCompression.LZ4, maxFailures);
+      this.failingDownloads = failingDownloads;
+      this.responsesBeforeFailure = responsesBeforeFailure;
+    }
+
+    @Override
+    protected Iterator<CopyContainerResponseProto> connect(
+        DatanodeDetails source) {
+      boolean failing = connectedSources.size() < failingDownloads;
+      connectedSources.add(source);
+      List<CopyContainerResponseProto> responses = new ArrayList<>();
+      for (long pos = 0; pos < archive.length; pos += RESPONSE_SIZE) {
+        int len = (int) Math.min(RESPONSE_SIZE, archive.length - pos);
+        CopyContainerResponseProto.Builder response =
+            CopyContainerResponseProto.newBuilder()
+                .setContainerID(1L)
+                .setReadOffset(pos)
+                .setLen(len)
+                .setEof(pos + len == archive.length)
+                .setData(ByteString.copyFrom(archive, (int) pos, len));
+        if (compression != null) {
+          response.setCompression(compression.name());
+        }
+        responses.add(response.build());
+      }
+      Iterator<CopyContainerResponseProto> iterator = responses.iterator();
+      return new Iterator<CopyContainerResponseProto>() {
+        private int sent;
+
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public CopyContainerResponseProto next() {
+          if (failing && sent++ == responsesBeforeFailure) {
+            throw new StatusRuntimeException(Status.UNAVAILABLE);
+          }
+          return iterator.next();
+        }
+      };
+    }
+  }
+}
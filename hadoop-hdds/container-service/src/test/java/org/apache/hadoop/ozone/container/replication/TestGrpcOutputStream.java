@@ -152,6 +152,34 @@ public void secondWriteSpillsToNextResponse() throws IOException {
     verifyResponses(concat(bytes1, bytes2));
   }
 
+  @Test
+  public void dataBeforeReadOffsetIsSkipped() throws IOException {
+    int readOffset = bufferSize + bufferSize / 2;
+    subject = new GrpcOutputStream(observer, containerId, bufferSize,
+        readOffset, CopyContainerCompression.NO_COMPRESSION);
+    byte[] bytes = getRandomBytes(3 * bufferSize);
+    subject.write(bytes, 0, bufferSize);
+    subject.write(bytes[bufferSize]);
+    subject.write(bytes, bufferSize + 1, 2 * bufferSize - 1);
+    subject.close();
+
+    ArgumentCaptor<CopyContainerResponseProto> captor =
+        ArgumentCaptor.forClass(CopyContainerResponseProto.class);
+    verify(observer, times(2)).onNext(captor.capture());
+    List<CopyContainerResponseProto> responses = captor.getAllValues();
+    ByteString received = ByteString.EMPTY;
+    long expectedOffset = readOffset;
+    for (CopyContainerResponseProto response : responses) {
+      assertEquals(expectedOffset, response.getReadOffset());
+      assertEquals(CopyContainerCompression.NO_COMPRESSION.name(),
+          response.getCompression());
+      expectedOffset += response.getLen();
+      received = received.concat(response.getData());
+    }
+    assertArrayEquals(Arrays.copyOfRange(bytes, readOffset, bytes.length),
+        received.toByteArray());
+  }
+
   private void verifyResponses(byte[] bytes) {
     int expectedResponseCount = bytes.length / bufferSize;
     if (bytes.length % bufferSize > 0) {
@@ -0,0 +1,282 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership.  The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.hadoop.ozone.container.replication;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.hdds.HddsConfigKeys;
+import org.apache.hadoop.hdds.conf.OzoneConfiguration;
+import org.apache.hadoop.hdds.protocol.DatanodeDetails;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .CopyContainerPart;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .CopyContainerResponseProto;
+import org.apache.hadoop.ozone.OzoneConfigKeys;
+import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainer;
+import org.apache.hadoop.ozone.container.keyvalue.KeyValueContainerData;
+import org.apache.hadoop.ozone.container.keyvalue.TarContainerPacker;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.test.LambdaTestUtils;
+import org.apache.ratis.thirdparty.io.grpc.Status;
+import org.apache.ratis.thirdparty.io.grpc.StatusRuntimeException;
+import org.apache.ratis.thirdparty.io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests downloading a container from all of its replicas.
+ */
+public class TestParallelContainerDownloader {
+
+  private static final long CONTAINER_ID = 1L;
+
+  private static final int CHUNK_FILES = 20;
+
+  private final List<DatanodeDetails> sources = Arrays.asList(
+      randomDatanode(), randomDatanode(), randomDatanode());
+
+  private final Set<DatanodeDetails> failingSources = new HashSet<>();
+
+  private final Map<DatanodeDetails, AtomicInteger> chunkFileRequests =
+      new ConcurrentHashMap<>();
+
+  private File testDir;
+
+  private KeyValueContainer sourceContainer;
+
+  private ParallelContainerDownloader downloader;
+
+  @Before
+  public void setup() throws Exception {
+    testDir = GenericTestUtils.getRandomizedTestDir();
+    OzoneConfiguration conf = new OzoneConfiguration();
+    conf.set(OzoneConfigKeys.OZONE_CONTAINER_COPY_WORKDIR,
+        new File(testDir, "work").getAbsolutePath());
+    conf.set(HddsConfigKeys.HDDS_CONTAINER_REPLICATION_DOWNLOAD_PART_SIZE,
+        "4KB");
+
+    sourceContainer = createContainer(testDir.toPath().resolve("source"));
+    Files.write(sourceContainer.getContainerFile().toPath(),
+        "descriptor".getBytes(UTF_8));
+    Random random = new Random();
+    writeFile(sourceContainer.getContainerData().getDbFile().toPath()
+        .resolve("db1"), random, 1000);
+    for (int i = 0; i < CHUNK_FILES; i++) {
+      writeFile(Paths.get(sourceContainer.getContainerData().getChunksPath())
+          .resolve(i + "_chunk_1"), random, 1 + random.nextInt(3000));
+    }
+
+    downloader = new DummyParallelContainerDownloader(conf);
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    downloader.close();
+    FileUtils.deleteDirectory(testDir);
+  }
+
+  @Test
+  public void testChunkFilesAreDownloadedFromAllReplicas() throws Exception {
+    Path archive = downloader.download(CONTAINER_ID, sources);
+
+    assertArchiveIsComplete(archive);
+    for (DatanodeDetails source : sources) {
+      assertTrue(chunkFileRequests.get(source).get() > 0);
+    }
+  }
+
+  @Test
+  public void testFailedPartsAreDownloadedFromOtherReplicas()
+      throws Exception {
+    failingSources.add(sources.get(0));
+    failingSources.add(sources.get(1));
+
+    Path archive = downloader.download(CONTAINER_ID, sources);
+
+    assertArchiveIsComplete(archive);
+  }
+
+  @Test
+  public void testDownloadFailsIfAllReplicasFail() throws Exception {
+    failingSources.addAll(sources);
+
+    LambdaTestUtils.intercept(IOException.class,
+        "Failed to download",
+        () -> downloader.download(CONTAINER_ID, sources));
+  }
+
+  private void assertArchiveIsComplete(Path archive) throws Exception {
+    KeyValueContainer container =
+        createContainer(testDir.toPath().resolve("destination"));
+    TarContainerPacker packer =
+        new TarContainerPacker(CopyContainerCompression.NO_COMPRESSION);
+    try (InputStream input = new FileInputStream(archive.toFile())) {
+      assertArrayEquals("descriptor".getBytes(UTF_8),
+          packer.unpackContainerData(container, input));
+    }
+    assertSameFiles(sourceContainer.getContainerData().getDbFile(),
+        container.getContainerData().getDbFile());
+    assertSameFiles(
+        new File(sourceContainer.getContainerData().getChunksPath()),
+        new File(container.getContainerData().getChunksPath()));
+  }
+
+  private static void assertSameFiles(File expected, File actual)
+      throws IOException {
+    String[] names = expected.list();
+    Arrays.sort(names);
+    String[] actualNames = actual.list();
+    Arrays.sort(actualNames);
+    assertArrayEquals(names, actualNames);
+    for (String name : names) {
+      assertTrue(name, FileUtils.contentEquals(new File(expected, name),
+          new File(actual, name)));
+    }
+  }
+
+  private static KeyValueContainer createContainer(Path dir)
+      throws IOException {
+    Path dbDir = dir.resolve("db");
+    Path dataDir = dir.resolve("data");
+    Files.createDirectories(dbDir);
+    Files.createDirectories(dataDir);
+
+    KeyValueContainerData containerData = new KeyValueContainerData(
+        CONTAINER_ID, -1, UUID.randomUUID().toString(),
+        UUID.randomUUID().toString());
+    containerData.setChunksPath(dataDir.toString());
+    containerData.setMetadataPath(dir.toString());
+    containerData.setDbFile(dbDir.toFile());
+    return new KeyValueContainer(containerData, new OzoneConfiguration());
+  }
+
+  private static void writeFile(Path path, Random random, int size)
+      throws IOException {
+    byte[] data = new byte[size];
+    random.nextBytes(data);
+    Files.write(path, data);
+  }
+
+  private static DatanodeDetails randomDatanode() {
+    return DatanodeDetails.newBuilder()
+        .setUuid(UUID.randomUUID().toString())
+        .setHostName("localhost")
+        .setIpAddress("127.0.0.1")
+        .build();
+  }
+
+  /**
+   * Packs the parts of the source container as requested, the failing
+   * sources fail in the middle of sending the chunk files.
+   */
+  private class DummyParallelContainerDownloader
+      extends ParallelContainerDownloader {
+
+    DummyParallelContainerDownloader(OzoneConfiguration conf) {
+      super(conf);
+    }
+
+    @Override
+    protected GrpcReplicationClient connect(DatanodeDetails source) {
+      GrpcReplicationClient client = mock(GrpcReplicationClient.class);
+      when(client.streamPart(anyLong(), any(), any())).thenAnswer(
+          invocation -> streamPart(source, invocation.getArgument(1),
+              invocation.getArgument(2)));
+      return client;
+    }
+
+    private Iterator<CopyContainerResponseProto> streamPart(
+        DatanodeDetails source, CopyContainerPart part,
+        Collection<String> chunkFiles) throws IOException {
+      TarContainerPacker packer;
+      if (part == CopyContainerPart.METADATA) {
+        packer = TarContainerPacker.metadataPart();
+      } else {
+        chunkFileRequests.computeIfAbsent(source, s -> new AtomicInteger())
+            .incrementAndGet();
+        packer = TarContainerPacker.chunkFilesPart(chunkFiles);
+      }
+      List<CopyContainerResponseProto> responses = new ArrayList<>();
+      try (GrpcOutputStream out = new GrpcOutputStream(
+          new StreamObserver<CopyContainerResponseProto>() {
+            @Override
+            public void onNext(CopyContainerResponseProto response) {
+              responses.add(response);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+          }, CONTAINER_ID, 1024)) {
+        packer.pack(sourceContainer, out);
+      }
+      if (part == CopyContainerPart.CHUNK_FILES
+          && failingSources.contains(source)) {
+        Iterator<CopyContainerResponseProto> iterator = responses.iterator();
+        return new Iterator<CopyContainerResponseProto>() {
+          @Override
+          public boolean hasNext() {
+            return true;
+          }
+
+          @Override
+          public CopyContainerResponseProto next() {
+            if (iterator.hasNext()) {
+              return iterator.next();
+            }
+            throw new StatusRuntimeException(Status.UNAVAILABLE);
+          }
+        };
+      }
+      return responses.iterator();
+    }
+  }
+}
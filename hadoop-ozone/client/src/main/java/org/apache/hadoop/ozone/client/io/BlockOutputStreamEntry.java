@@ -19,6 +19,7 @@
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.hadoop.hdds.client.BlockID;
@@ -130,6 +131,13 @@ public void write(byte[] b, int off, int len) throws IOException {
     this.currentPosition += len;
   }
 
+  void write(ByteBuffer data) throws IOException {
+    checkStream();
+    int len = data.remaining();
+    ((BlockOutputStream) outputStream).write(data);
+    this.currentPosition += len;
+  }
+
   @Override
   public void flush() throws IOException {
     if (this.outputStream != null) {
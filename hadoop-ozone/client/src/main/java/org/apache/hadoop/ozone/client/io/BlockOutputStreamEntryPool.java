@@ -20,9 +20,12 @@
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
 import org.apache.hadoop.hdds.protocol.proto.HddsProtos;
 import org.apache.hadoop.hdds.scm.XceiverClientManager;
+import org.apache.hadoop.hdds.protocol.DatanodeDetails;
+import org.apache.hadoop.hdds.scm.container.ContainerID;
 import org.apache.hadoop.hdds.scm.container.common.helpers.ExcludeList;
 import org.apache.hadoop.hdds.scm.pipeline.PipelineID;
 import org.apache.hadoop.hdds.scm.storage.BufferPool;
@@ -34,9 +37,17 @@
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * This class manages the stream entries list and handles block allocation
@@ -47,6 +58,13 @@ public class BlockOutputStreamEntryPool {
   public static final Logger LOG =
       LoggerFactory.getLogger(BlockOutputStreamEntryPool.class);
 
+  // allocates the blocks of all the keys ahead of their writers.
+  private static final ExecutorService BLOCK_ALLOCATOR =
+      Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("BlockAllocator-%d")
+          .build());
+
   private final List<BlockOutputStreamEntry> streamEntries;
   private int currentStreamIndex;
   private final OzoneManagerProtocol omClient;
@@ -64,6 +82,10 @@ public class BlockOutputStreamEntryPool {
   private OmMultipartCommitUploadPartInfo commitUploadPartInfo;
   private final long openID;
   private ExcludeList excludeList;
+  // maximum number of blocks allocated ahead of the current block.
+  private final int blocksAllocatedAhead;
+  // blocks being allocated ahead of the current block, in allocation order.
+  private final Deque<CompletableFuture<OmKeyLocationInfo>> pendingBlocks;
 
   @SuppressWarnings("parameternumber")
   public BlockOutputStreamEntryPool(OzoneManagerProtocol omClient,
@@ -72,7 +94,8 @@ public BlockOutputStreamEntryPool(OzoneManagerProtocol omClient,
       long size, long watchTimeout, ContainerProtos.ChecksumType checksumType,
       int bytesPerChecksum, String uploadID, int partNumber,
       boolean isMultipart, OmKeyInfo info,
-      XceiverClientManager xceiverClientManager, long openID) {
+      XceiverClientManager xceiverClientManager, long openID,
+      int blocksAllocatedAhead) {
     streamEntries = new ArrayList<>();
     currentStreamIndex = 0;
     this.omClient = omClient;
@@ -92,6 +115,8 @@ public BlockOutputStreamEntryPool(OzoneManagerProtocol omClient,
     this.checksumType = checksumType;
     this.openID = openID;
     this.excludeList = new ExcludeList();
+    this.blocksAllocatedAhead = Math.max(0, blocksAllocatedAhead);
+    this.pendingBlocks = new ArrayDeque<>();
 
     Preconditions.checkState(chunkSize > 0);
     Preconditions.checkState(streamBufferFlushSize > 0);
@@ -102,7 +127,8 @@ public BlockOutputStreamEntryPool(OzoneManagerProtocol omClient,
     Preconditions.checkState(blockSize % streamBufferMaxSize == 0);
     this.bufferPool =
         new BufferPool(chunkSize, (int) streamBufferMaxSize / chunkSize,
-            xceiverClientManager.byteBufferToByteStringConversion());
+            xceiverClientManager.byteBufferToByteStringConversion(),
+            xceiverClientManager.getBufferArena());
   }
 
   /**
@@ -129,6 +155,8 @@ public BlockOutputStreamEntryPool(OzoneManagerProtocol omClient,
         .OZONE_CLIENT_BYTES_PER_CHECKSUM_DEFAULT_BYTES; // Default is 1MB
     currentStreamIndex = 0;
     openID = -1;
+    blocksAllocatedAhead = 0;
+    pendingBlocks = new ArrayDeque<>();
   }
 
   /**
@@ -260,6 +288,99 @@ private void allocateNewBlock() throws IOException {
     addKeyLocationInfo(subKeyInfo);
   }
 
+  /**
+   * Starts allocating blocks from OM in the background once half of the
+   * current block is written, so that the writer does not wait for OM when
+   * the current block is full. At most blocksAllocatedAhead blocks are
+   * allocated ahead of the current block, including the unused blocks
+   * preallocated with the key.
+   *
+   * Allocation failures are not reported here, the block is then allocated
+   * by {@link #allocateBlockIfNeeded()} when it is needed.
+   */
+  void allocateBlocksAhead() {
+    if (blocksAllocatedAhead <= 0 || omClient == null) {
+      return;
+    }
+    BlockOutputStreamEntry current = getCurrentStreamEntry();
+    if (current != null && !current.isClosed()
+        && current.getRemaining() > blockSize / 2) {
+      return;
+    }
+    int allocated = Math.max(0, streamEntries.size() - currentStreamIndex - 1)
+        + pendingBlocks.size();
+    if (allocated >= blocksAllocatedAhead) {
+      return;
+    }
+    UserGroupInformation ugi;
+    try {
+      ugi = UserGroupInformation.getCurrentUser();
+    } catch (IOException e) {
+      LOG.warn("Failed to allocate blocks ahead for key {}",
+          keyArgs.getKeyName(), e);
+      return;
+    }
+    // the exclude list is modified by the writer while blocks are allocated.
+    ExcludeList exclude =
+        ExcludeList.getFromProtoBuf(excludeList.getProtoBuf());
+    for (; allocated < blocksAllocatedAhead; allocated++) {
+      pendingBlocks.add(CompletableFuture.supplyAsync(() -> {
+        try {
+          return ugi.doAs((PrivilegedExceptionAction<OmKeyLocationInfo>)
+              () -> omClient.allocateBlock(keyArgs, openID, exclude));
+        } catch (IOException | InterruptedException e) {
+          throw new CompletionException(e);
+        }
+      }, BLOCK_ALLOCATOR));
+    }
+  }
+
+  /**
+   * Adds the first block allocated ahead which is not excluded since it was
+   * allocated to the stream entries.
+   *
+   * @return whether a block was added
+   */
+  private boolean addBlockAllocatedAhead() throws IOException {
+    while (!pendingBlocks.isEmpty()) {
+      CompletableFuture<OmKeyLocationInfo> pending = pendingBlocks.poll();
+      OmKeyLocationInfo subKeyInfo;
+      try {
+        subKeyInfo = pending.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while allocating block", e);
+      } catch (ExecutionException e) {
+        LOG.warn("Failed to allocate block ahead for key {}",
+            keyArgs.getKeyName(), e.getCause());
+        continue;
+      }
+      if (isExcluded(subKeyInfo)) {
+        LOG.debug("Skipping block {} allocated ahead on excluded {}",
+            subKeyInfo.getBlockID(), subKeyInfo.getPipeline());
+        continue;
+      }
+      addKeyLocationInfo(subKeyInfo);
+      return true;
+    }
+    return false;
+  }
+
+  private boolean isExcluded(OmKeyLocationInfo subKeyInfo) {
+    if (excludeList.getPipelineIds().contains(
+        subKeyInfo.getPipeline().getId())
+        || excludeList.getContainerIds().contains(
+            ContainerID.valueof(subKeyInfo.getContainerID()))) {
+      return true;
+    }
+    for (DatanodeDetails dn : subKeyInfo.getPipeline().getNodes()) {
+      if (excludeList.getDatanodes().contains(dn)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
 
   void commitKey(long offset) throws IOException {
     if (keyArgs != null) {
@@ -304,6 +425,9 @@ BlockOutputStreamEntry allocateBlockIfNeeded() throws IOException {
       // throw exception to the caller directly, and the write fails.
       int succeededAllocates = 0;
       try {
+        if (addBlockAllocatedAhead()) {
+          return streamEntries.get(currentStreamIndex);
+        }
         allocateNewBlock();
         succeededAllocates += 1;
       } catch (IOException ioe) {
@@ -324,6 +448,10 @@ long computeBufferData() {
   }
 
   void cleanup() {
+    // blocks still being allocated are not used, OM cleans them up with
+    // the other unused blocks of the key.
+    pendingBlocks.forEach(pending -> pending.cancel(false));
+    pendingBlocks.clear();
     if (excludeList != null) {
       excludeList.clear();
       excludeList = null;
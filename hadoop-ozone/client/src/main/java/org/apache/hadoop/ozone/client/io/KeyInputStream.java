@@ -18,7 +18,10 @@
 package org.apache.hadoop.ozone.client.io;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.fs.ByteBufferReadable;
 import org.apache.hadoop.fs.FSExceptionMessages;
+import org.apache.hadoop.fs.PositionedReadable;
 import org.apache.hadoop.fs.Seekable;
 import org.apache.hadoop.hdds.scm.XceiverClientManager;
 import org.apache.hadoop.hdds.scm.storage.BlockInputStream;
@@ -30,23 +33,36 @@
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Maintaining a list of BlockInputStream. Read based on offset.
+ * Positional reads do not use the position of the stream and can be
+ * performed concurrently with each other and with sequential reads.
  */
-public class KeyInputStream extends InputStream implements Seekable {
+public class KeyInputStream extends InputStream
+    implements Seekable, PositionedReadable, ByteBufferReadable {
 
   private static final Logger LOG =
       LoggerFactory.getLogger(KeyInputStream.class);
 
   private static final int EOF = -1;
 
+  // reads the chunks of all the keys ahead of their readers.
+  private static final ExecutorService READ_AHEAD_EXECUTOR =
+      Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("ChunkReadAhead-%d")
+          .build());
+
   private String key;
   private long length = 0;
-  private boolean closed = false;
+  private volatile boolean closed = false;
 
   // List of BlockInputStreams, one for each block in the key
   private final List<BlockInputStream> blockStreams;
@@ -67,6 +83,16 @@ public class KeyInputStream extends InputStream implements Seekable {
   // can be reset if a new position is seeked.
   private int blockIndexOfPrevPosition;
 
+  // Maximum number of chunks read ahead of the reader, 0 if disabled.
+  private int maxReadAheadChunks;
+
+  // Number of chunks read ahead of the reader, which grows while the key is
+  // read sequentially and is reset when it is not.
+  private int readAheadChunks;
+
+  // Position following the data returned by the last read.
+  private long nextReadPos;
+
   public KeyInputStream() {
     blockStreams = new ArrayList<>();
     blockIndex = 0;
@@ -78,12 +104,23 @@ public KeyInputStream() {
   public static LengthInputStream getFromOmKeyInfo(OmKeyInfo keyInfo,
       XceiverClientManager xceiverClientManager,
       boolean verifyChecksum) {
+    return getFromOmKeyInfo(keyInfo, xceiverClientManager, verifyChecksum, 0);
+  }
+
+  /**
+   * For each block in keyInfo, add a BlockInputStream to blockStreams, and
+   * read up to readAheadChunks chunks ahead of sequential reads.
+   */
+  public static LengthInputStream getFromOmKeyInfo(OmKeyInfo keyInfo,
+      XceiverClientManager xceiverClientManager,
+      boolean verifyChecksum, int readAheadChunks) {
     List<OmKeyLocationInfo> keyLocationInfos = keyInfo
         .getLatestVersionLocations().getBlocksLatestVersionOnly();
 
     KeyInputStream keyInputStream = new KeyInputStream();
     keyInputStream.initialize(keyInfo.getKeyName(), keyLocationInfos,
         xceiverClientManager, verifyChecksum);
+    keyInputStream.setMaxReadAheadChunks(readAheadChunks);
 
     return new LengthInputStream(keyInputStream, keyInputStream.length);
   }
@@ -130,6 +167,11 @@ public void addStream(BlockInputStream blockInputStream) {
     blockStreams.add(blockInputStream);
   }
 
+  @VisibleForTesting
+  public synchronized void setMaxReadAheadChunks(int chunks) {
+    this.maxReadAheadChunks = Math.max(0, chunks);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -157,7 +199,37 @@ public synchronized int read(byte[] b, int off, int len) throws IOException {
     if (len == 0) {
       return 0;
     }
+    return read(ByteBuffer.wrap(b, off, len));
+  }
+
+  /**
+   * Reads up to buf.remaining() bytes of the key into the given buffer,
+   * which may be a direct buffer. The data read from the datanodes is copied
+   * into the buffer directly.
+   */
+  @Override
+  public synchronized int read(ByteBuffer buf) throws IOException {
+    checkOpen();
+    int len = buf.remaining();
+    if (len == 0) {
+      return 0;
+    }
+    updateReadAhead();
     int totalReadLen = 0;
+    try {
+      totalReadLen = readFromBlocks(buf);
+    } finally {
+      nextReadPos = getPos();
+    }
+    if (totalReadLen > 0) {
+      readAhead();
+    }
+    return totalReadLen;
+  }
+
+  private int readFromBlocks(ByteBuffer buf) throws IOException {
+    int totalReadLen = 0;
+    int len = buf.remaining();
     while (len > 0) {
       // if we are at the last block and have read the entire block, return
       if (blockStreams.size() == 0 ||
@@ -170,7 +242,14 @@ public synchronized int read(byte[] b, int off, int len) throws IOException {
       // Get the current blockStream and read data from it
       BlockInputStream current = blockStreams.get(blockIndex);
       int numBytesToRead = Math.min(len, (int)current.getRemaining());
-      int numBytesRead = current.read(b, off, numBytesToRead);
+      int limit = buf.limit();
+      buf.limit(buf.position() + numBytesToRead);
+      int numBytesRead;
+      try {
+        numBytesRead = current.read(buf);
+      } finally {
+        buf.limit(limit);
+      }
       if (numBytesRead != numBytesToRead) {
         // This implies that there is either data loss or corruption in the
         // chunk entries. Even EOF in the current stream would be covered in
@@ -181,7 +260,6 @@ public synchronized int read(byte[] b, int off, int len) throws IOException {
                 numBytesRead));
       }
       totalReadLen += numBytesRead;
-      off += numBytesRead;
       len -= numBytesRead;
       if (current.getRemaining() <= 0 &&
           ((blockIndex + 1) < blockStreams.size())) {
@@ -191,6 +269,122 @@ public synchronized int read(byte[] b, int off, int len) throws IOException {
     return totalReadLen;
   }
 
+  /**
+   * Reads up to len bytes of the key from the given position, without
+   * changing the position of the stream.
+   */
+  @Override
+  public int read(long position, byte[] b, int off, int len)
+      throws IOException {
+    checkOpen();
+    if (b == null) {
+      throw new NullPointerException();
+    }
+    if (off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (position < 0) {
+      throw new EOFException(FSExceptionMessages.NEGATIVE_SEEK + " " +
+          position + " for key: " + key);
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (position >= length) {
+      return EOF;
+    }
+
+    int index = Arrays.binarySearch(blockOffsets, position);
+    if (index < 0) {
+      index = -index - 2;
+    }
+    int totalReadLen = 0;
+    for (; index < blockStreams.size() && len > 0; index++) {
+      BlockInputStream blockStream = blockStreams.get(index);
+      long blockPosition = position - blockOffsets[index];
+      int numBytesToRead =
+          (int) Math.min(len, blockStream.getLength() - blockPosition);
+      if (numBytesToRead <= 0) {
+        continue;
+      }
+      int numBytesRead =
+          blockStream.read(blockPosition, b, off, numBytesToRead);
+      if (numBytesRead != numBytesToRead) {
+        throw new IOException(String.format("Inconsistent read for blockID=%s "
+                + "length=%d position=%d numBytesToRead=%d numBytesRead=%d",
+            blockStream.getBlockID(), blockStream.getLength(), blockPosition,
+            numBytesToRead, numBytesRead));
+      }
+      totalReadLen += numBytesRead;
+      position += numBytesRead;
+      off += numBytesRead;
+      len -= numBytesRead;
+    }
+    return totalReadLen == 0 ? EOF : totalReadLen;
+  }
+
+  @Override
+  public void readFully(long position, byte[] b, int off, int len)
+      throws IOException {
+    int nread = 0;
+    while (nread < len) {
+      int nbytes = read(position + nread, b, off + nread, len - nread);
+      if (nbytes < 0) {
+        throw new EOFException(FSExceptionMessages.EOF_IN_READ_FULLY
+            + " for key: " + key);
+      }
+      nread += nbytes;
+    }
+  }
+
+  @Override
+  public void readFully(long position, byte[] b) throws IOException {
+    readFully(position, b, 0, b.length);
+  }
+
+  /**
+   * Grows the number of chunks read ahead if the read continues where the
+   * last one ended, or stops reading ahead otherwise.
+   */
+  private void updateReadAhead() throws IOException {
+    if (maxReadAheadChunks == 0) {
+      return;
+    }
+    if (getPos() == nextReadPos) {
+      readAheadChunks = readAheadChunks == 0 ? 1
+          : Math.min(2 * readAheadChunks, maxReadAheadChunks);
+    } else {
+      cancelReadAhead();
+    }
+  }
+
+  /**
+   * Starts reading the chunks following the current position in the
+   * background, continuing with the next blocks if needed.
+   */
+  private void readAhead() {
+    int chunks = readAheadChunks;
+    for (int i = blockIndex; i < blockStreams.size() && chunks > 0; i++) {
+      try {
+        chunks -= blockStreams.get(i).readAhead(chunks, READ_AHEAD_EXECUTOR);
+      } catch (IOException e) {
+        // the block is read again when the reader gets to it.
+        LOG.debug("Failed to read ahead block {} of key {}",
+            blockStreams.get(i).getBlockID(), key, e);
+        return;
+      }
+    }
+  }
+
+  private void cancelReadAhead() {
+    if (readAheadChunks > 0) {
+      readAheadChunks = 0;
+      for (BlockInputStream blockStream : blockStreams) {
+        blockStream.cancelReadAhead();
+      }
+    }
+  }
+
   /**
    * Seeks the KeyInputStream to the specified position. This involves 2 steps:
    *    1. Updating the blockIndex to the blockStream corresponding to the
@@ -216,6 +410,9 @@ public synchronized void seek(long pos) throws IOException {
       throw new EOFException(
           "EOF encountered at pos: " + pos + " for key: " + key);
     }
+    if (pos != getPos()) {
+      cancelReadAhead();
+    }
 
     // 1. Update the blockIndex
     if (blockIndex >= blockStreams.size()) {
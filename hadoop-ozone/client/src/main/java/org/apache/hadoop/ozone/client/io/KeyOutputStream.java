@@ -44,6 +44,7 @@
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Collection;
 import java.util.Map;
@@ -121,13 +122,14 @@ public KeyOutputStream(OpenKeySession handler,
       long bufferFlushSize, long bufferMaxSize, long size, long watchTimeout,
       ChecksumType checksumType, int bytesPerChecksum,
       String uploadID, int partNumber, boolean isMultipart,
-      int maxRetryCount, long retryInterval) {
+      int maxRetryCount, long retryInterval, int blocksAllocatedAhead) {
     OmKeyInfo info = handler.getKeyInfo();
     blockOutputStreamEntryPool =
         new BlockOutputStreamEntryPool(omClient, chunkSize, requestId, factor,
             type, bufferFlushSize, bufferMaxSize, size, watchTimeout,
             checksumType, bytesPerChecksum, uploadID, partNumber, isMultipart,
-            info, xceiverClientManager, handler.getId());
+            info, xceiverClientManager, handler.getId(),
+            blocksAllocatedAhead);
     // Retrieve the file encryption key info, null if file is not in
     // encrypted bucket.
     this.feInfo = info.getFileEncryptionInfo();
@@ -187,10 +189,30 @@ public void write(byte[] b, int off, int len)
     if (len == 0) {
       return;
     }
-    handleWrite(b, off, len, false);
+    handleWrite(ByteBuffer.wrap(b, off, len), len, false);
   }
 
-  private void handleWrite(byte[] b, int off, long len, boolean retry)
+  /**
+   * Try to write the remaining bytes of the given buffer to streams. The
+   * buffer may be a direct buffer, its data is copied into the buffers of
+   * the block streams directly.
+   *
+   * @param data the data to write, from its position up to its limit
+   * @throws IOException
+   */
+  public void write(ByteBuffer data) throws IOException {
+    checkNotClosed();
+    if (data == null) {
+      throw new NullPointerException();
+    }
+    int len = data.remaining();
+    if (len == 0) {
+      return;
+    }
+    handleWrite(data, len, false);
+  }
+
+  private void handleWrite(ByteBuffer data, long len, boolean retry)
       throws IOException {
     while (len > 0) {
       try {
@@ -205,7 +227,9 @@ private void handleWrite(byte[] b, int off, long len, boolean retry)
           if (retry) {
             current.writeOnRetry(len);
           } else {
-            current.write(b, off, writeLen);
+            ByteBuffer slice = data.duplicate();
+            slice.limit(slice.position() + writeLen);
+            current.write(slice);
             offset += writeLen;
           }
         } catch (IOException ioe) {
@@ -232,7 +256,10 @@ private void handleWrite(byte[] b, int off, long len, boolean retry)
           handleFlushOrClose(StreamAction.FULL);
         }
         len -= writeLen;
-        off += writeLen;
+        if (data != null) {
+          data.position(data.position() + writeLen);
+        }
+        blockOutputStreamEntryPool.allocateBlocksAhead();
       } catch (Exception e) {
         markStreamClosed();
         throw e;
@@ -372,7 +399,7 @@ private void handleRetry(IOException exception, long len) throws IOException {
     retryCount++;
     LOG.trace("Retrying Write request. Already tried " + retryCount
         + " time(s); retry policy is " + retryPolicy);
-    handleWrite(null, 0, len, true);
+    handleWrite(null, len, true);
   }
 
   /**
@@ -514,6 +541,7 @@ public static class Builder {
     private boolean isMultipartKey;
     private int maxRetryCount;
     private long retryInterval;
+    private int blocksAllocatedAhead;
 
     public Builder setMultipartUploadID(String uploadID) {
       this.multipartUploadID = uploadID;
@@ -605,12 +633,17 @@ public Builder setRetryInterval(long retryIntervalInMS) {
       return this;
     }
 
+    public Builder setBlocksAllocatedAhead(int blocks) {
+      this.blocksAllocatedAhead = blocks;
+      return this;
+    }
+
     public KeyOutputStream build() {
       return new KeyOutputStream(openHandler, xceiverManager, omClient,
           chunkSize, requestID, factor, type, streamBufferFlushSize,
           streamBufferMaxSize, blockSize, watchTimeout, checksumType,
           bytesPerChecksum, multipartUploadID, multipartNumber, isMultipartKey,
-          maxRetryCount, retryInterval);
+          maxRetryCount, retryInterval, blocksAllocatedAhead);
     }
   }
 
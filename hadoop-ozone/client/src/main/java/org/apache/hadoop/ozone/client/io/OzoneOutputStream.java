@@ -21,6 +21,7 @@
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * OzoneOutputStream is used to write data into Ozone.
@@ -49,6 +50,28 @@ public void write(byte[] b, int off, int len) throws IOException {
     outputStream.write(b, off, len);
   }
 
+  /**
+   * Writes the remaining bytes of the given buffer. Key streams copy the
+   * data into their block buffers directly, other streams are written
+   * through a heap array.
+   *
+   * @param data the data to write, from its position up to its limit
+   * @throws IOException
+   */
+  public void write(ByteBuffer data) throws IOException {
+    if (outputStream instanceof KeyOutputStream) {
+      ((KeyOutputStream) outputStream).write(data);
+    } else if (data.hasArray()) {
+      outputStream.write(data.array(), data.arrayOffset() + data.position(),
+          data.remaining());
+      data.position(data.limit());
+    } else {
+      byte[] b = new byte[data.remaining()];
+      data.get(b);
+      outputStream.write(b, 0, b.length);
+    }
+  }
+
   @Override
   public synchronized void flush() throws IOException {
     outputStream.flush();
@@ -119,6 +119,7 @@ public class RpcClient implements ClientProtocol {
   private final ChecksumType checksumType;
   private final int bytesPerChecksum;
   private boolean verifyChecksum;
+  private final int readAheadChunks;
   private final UserGroupInformation ugi;
   private final ACLType userRights;
   private final ACLType groupRights;
@@ -129,6 +130,7 @@ public class RpcClient implements ClientProtocol {
   private final ClientId clientId = ClientId.randomId();
   private final int maxRetryCount;
   private final long retryInterval;
+  private final int blocksAllocatedAhead;
   private Text dtService;
   private final boolean topologyAwareReadEnabled;
 
@@ -213,12 +215,18 @@ public RpcClient(Configuration conf, String omServiceId) throws IOException {
     this.verifyChecksum =
         conf.getBoolean(OzoneConfigKeys.OZONE_CLIENT_VERIFY_CHECKSUM,
             OzoneConfigKeys.OZONE_CLIENT_VERIFY_CHECKSUM_DEFAULT);
+    this.readAheadChunks =
+        conf.getInt(OzoneConfigKeys.OZONE_CLIENT_READ_AHEAD_CHUNKS,
+            OzoneConfigKeys.OZONE_CLIENT_READ_AHEAD_CHUNKS_DEFAULT);
     maxRetryCount =
         conf.getInt(OzoneConfigKeys.OZONE_CLIENT_MAX_RETRIES, OzoneConfigKeys.
             OZONE_CLIENT_MAX_RETRIES_DEFAULT);
     retryInterval = OzoneUtils.getTimeDurationInMS(conf,
         OzoneConfigKeys.OZONE_CLIENT_RETRY_INTERVAL,
         OzoneConfigKeys.OZONE_CLIENT_RETRY_INTERVAL_DEFAULT);
+    blocksAllocatedAhead = conf.getInt(
+        OzoneConfigKeys.OZONE_CLIENT_BLOCKS_ALLOCATED_AHEAD,
+        OzoneConfigKeys.OZONE_CLIENT_BLOCKS_ALLOCATED_AHEAD_DEFAULT);
     dtService = getOMProxyProvider().getCurrentProxyDelegationToken();
     topologyAwareReadEnabled = conf.getBoolean(
         OzoneConfigKeys.OZONE_NETWORK_TOPOLOGY_AWARE_READ_KEY,
@@ -872,6 +880,7 @@ public OzoneOutputStream createMultipartKey(String volumeName,
             .setIsMultipartKey(true)
             .setMaxRetryCount(maxRetryCount)
             .setRetryInterval(retryInterval)
+            .setBlocksAllocatedAhead(blocksAllocatedAhead)
             .build();
     keyOutputStream.addPreallocateBlocks(
         openKey.getKeyInfo().getLatestVersionLocations(),
@@ -1094,7 +1103,7 @@ private OzoneInputStream createInputStream(OmKeyInfo keyInfo)
       throws IOException {
     LengthInputStream lengthInputStream = KeyInputStream
         .getFromOmKeyInfo(keyInfo, xceiverClientManager,
-            verifyChecksum);
+            verifyChecksum, readAheadChunks);
     FileEncryptionInfo feInfo = keyInfo.getFileEncryptionInfo();
     if (feInfo != null) {
       final KeyProvider.KeyVersion decrypted = getDEK(feInfo);
@@ -1143,6 +1152,7 @@ private OzoneOutputStream createOutputStream(OpenKeySession openKey,
             .setBytesPerChecksum(bytesPerChecksum)
             .setMaxRetryCount(maxRetryCount)
             .setRetryInterval(retryInterval)
+            .setBlocksAllocatedAhead(blocksAllocatedAhead)
             .build();
     keyOutputStream
         .addPreallocateBlocks(openKey.getKeyInfo().getLatestVersionLocations(),
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.ozone.client.io;
+
+import org.apache.hadoop.hdds.client.BlockID;
+import org.apache.hadoop.hdds.conf.OzoneConfiguration;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
+import org.apache.hadoop.hdds.protocol.proto.HddsProtos.ReplicationFactor;
+import org.apache.hadoop.hdds.protocol.proto.HddsProtos.ReplicationType;
+import org.apache.hadoop.hdds.scm.XceiverClientManager;
+import org.apache.hadoop.hdds.scm.container.ContainerID;
+import org.apache.hadoop.hdds.scm.pipeline.Pipeline;
+import org.apache.hadoop.hdds.scm.pipeline.PipelineID;
+import org.apache.hadoop.ozone.om.helpers.OmKeyInfo;
+import org.apache.hadoop.ozone.om.helpers.OmKeyLocationInfo;
+import org.apache.hadoop.ozone.om.protocol.OzoneManagerProtocol;
+import org.apache.hadoop.security.token.Token;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the allocation of blocks ahead of the writer by
+ * {@link BlockOutputStreamEntryPool}.
+ */
+public class TestBlockOutputStreamEntryPool {
+
+  private static final int CHUNK_SIZE = 4;
+  private static final long BLOCK_SIZE = 4 * CHUNK_SIZE;
+
+  private XceiverClientManager xceiverClientManager;
+  // number of blocks allocated from OM, also the container of the block.
+  private AtomicInteger allocatedBlocks;
+  private int failedAllocations;
+
+  @Before
+  public void setup() throws IOException {
+    xceiverClientManager = new XceiverClientManager(new OzoneConfiguration());
+    allocatedBlocks = new AtomicInteger();
+    failedAllocations = 0;
+  }
+
+  @After
+  public void cleanup() {
+    xceiverClientManager.close();
+  }
+
+  private OzoneManagerProtocol createOmClient() {
+    return (OzoneManagerProtocol) Proxy.newProxyInstance(
+        OzoneManagerProtocol.class.getClassLoader(),
+        new Class<?>[] {OzoneManagerProtocol.class}, (proxy, method, args) -> {
+          if (!method.getName().equals("allocateBlock")) {
+            throw new UnsupportedOperationException(method.getName());
+          }
+          int block = allocatedBlocks.incrementAndGet();
+          if (block <= failedAllocations) {
+            throw new IOException("Failed to allocate block " + block);
+          }
+          Pipeline pipeline = Pipeline.newBuilder()
+              .setId(PipelineID.randomId())
+              .setType(ReplicationType.STAND_ALONE)
+              .setFactor(ReplicationFactor.ONE)
+              .setState(Pipeline.PipelineState.OPEN)
+              .setNodes(new ArrayList<>())
+              .build();
+          return new OmKeyLocationInfo.Builder()
+              .setBlockID(new BlockID(block, block))
+              .setPipeline(pipeline)
+              .setLength(BLOCK_SIZE)
+              .setOffset(0)
+              .setToken(new Token<>())
+              .build();
+        });
+  }
+
+  private BlockOutputStreamEntryPool createPool(int blocksAllocatedAhead) {
+    OmKeyInfo info = new OmKeyInfo.Builder()
+        .setVolumeName("volume")
+        .setBucketName("bucket")
+        .setKeyName("key")
+        .setOmKeyLocationInfos(Collections.emptyList())
+        .setReplicationType(ReplicationType.STAND_ALONE)
+        .setReplicationFactor(ReplicationFactor.ONE)
+        .build();
+    return new BlockOutputStreamEntryPool(createOmClient(), CHUNK_SIZE,
+        "request", ReplicationFactor.ONE, ReplicationType.STAND_ALONE,
+        CHUNK_SIZE, 2 * CHUNK_SIZE, BLOCK_SIZE, 1000,
+        ContainerProtos.ChecksumType.CRC32, CHUNK_SIZE, null, 0, false, info,
+        xceiverClientManager, 1, blocksAllocatedAhead);
+  }
+
+  private static long getContainerID(BlockOutputStreamEntry entry) {
+    return entry.getBlockID().getContainerID();
+  }
+
+  @Test(timeout = 30000)
+  public void testBlocksAreAllocatedAhead() throws Exception {
+    BlockOutputStreamEntryPool pool = createPool(2);
+    pool.allocateBlocksAhead();
+    BlockOutputStreamEntry entry = pool.allocateBlockIfNeeded();
+    Assert.assertEquals(1, pool.getStreamEntries().size());
+    Assert.assertTrue(getContainerID(entry) <= 2);
+    // the other block is allocated in the background.
+    while (allocatedBlocks.get() < 2) {
+      Thread.sleep(10);
+    }
+
+    // no block is allocated ahead before half of the block is written.
+    pool.allocateBlocksAhead();
+    Assert.assertEquals(2, allocatedBlocks.get());
+    pool.cleanup();
+  }
+
+  @Test(timeout = 30000)
+  public void testExcludedAndFailedBlocksAreSkipped() throws Exception {
+    failedAllocations = 1;
+    BlockOutputStreamEntryPool pool = createPool(3);
+    pool.allocateBlocksAhead();
+    // one allocation fails, one block is on an excluded container.
+    pool.getExcludeList().addConatinerId(ContainerID.valueof(2));
+    BlockOutputStreamEntry entry = pool.allocateBlockIfNeeded();
+    Assert.assertEquals(3, allocatedBlocks.get());
+    Assert.assertEquals(3, getContainerID(entry));
+
+    // without blocks allocated ahead the block is allocated right away.
+    pool = createPool(0);
+    pool.allocateBlocksAhead();
+    Assert.assertEquals(3, allocatedBlocks.get());
+    entry = pool.allocateBlockIfNeeded();
+    Assert.assertEquals(4, allocatedBlocks.get());
+    Assert.assertEquals(4, getContainerID(entry));
+  }
+}
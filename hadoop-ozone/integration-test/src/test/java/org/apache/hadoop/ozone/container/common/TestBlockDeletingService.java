@@ -68,6 +68,8 @@
 
 import static org.apache.hadoop.ozone.OzoneConfigKeys
     .OZONE_BLOCK_DELETING_SERVICE_INTERVAL;
+import static org.apache.hadoop.ozone.OzoneConfigKeys
+    .OZONE_BLOCK_DELETING_LIMIT_MAX_MULTIPLIER;
 import static org.apache.hadoop.ozone.OzoneConfigKeys
     .OZONE_BLOCK_DELETING_LIMIT_PER_CONTAINER;
 import static org.apache.hadoop.ozone.OzoneConfigKeys
@@ -450,6 +452,47 @@ public void testBlockThrottle() throws Exception {
     }
   }
 
+  @Test(timeout = 30000)
+  public void testBlockThrottleScalesWithBacklog() throws Exception {
+    // Properties :
+    //  - Number of containers : 1
+    //  - Number of blocks per container : 4
+    //  - Number of chunks per block : 1
+    //  - Container limit per interval : 1
+    //  - Block limit per container : 2
+    //  - Block limit max multiplier : 2
+    //
+    // It takes 2 intervals to delete the 4 pending blocks at the configured
+    // limits, so the block limit is doubled and all of them are deleted in
+    // the 1st interval.
+    Configuration conf = new OzoneConfiguration();
+    conf.set(
+        ScmConfigKeys.OZONE_SCM_KEY_VALUE_CONTAINER_DELETION_CHOOSING_POLICY,
+        RandomContainerDeletionChoosingPolicy.class.getName());
+    conf.setInt(OZONE_BLOCK_DELETING_CONTAINER_LIMIT_PER_INTERVAL, 1);
+    conf.setInt(OZONE_BLOCK_DELETING_LIMIT_PER_CONTAINER, 2);
+    conf.setInt(OZONE_BLOCK_DELETING_LIMIT_MAX_MULTIPLIER, 2);
+    ContainerSet containerSet = new ContainerSet();
+    createToDeleteBlocks(containerSet, conf, 1, 4, 1);
+    KeyValueContainerData data = (KeyValueContainerData) containerSet
+        .getContainerIterator().next().getContainerData();
+    data.incrPendingDeletionBlocks(4);
+
+    Assert.assertEquals(4, getNumberOfChunksInContainers(containerSet));
+    BlockDeletingServiceTestImpl service =
+        getBlockDeletinService(containerSet, conf, 1000);
+    service.start();
+
+    try {
+      GenericTestUtils.waitFor(service::isStarted, 100, 3000);
+      deleteAndWait(service, 1);
+      Assert.assertEquals(0, getNumberOfChunksInContainers(containerSet));
+      Assert.assertEquals(0, data.getNumPendingDeletionBlocks());
+    } finally {
+      service.shutdown();
+    }
+  }
+
   private int getNumberOfChunksInContainers(ContainerSet containerSet) {
     Iterator<Container<?>> iterator = containerSet.getContainerIterator();
     int numChunks = 0;
@@ -19,6 +19,7 @@
 package org.apache.hadoop.ozone.container.common.transport.server.ratis;
 
 import static org.apache.hadoop.test.MetricsAsserts.assertCounter;
+import static org.apache.hadoop.test.MetricsAsserts.assertGauge;
 import static org.apache.hadoop.test.MetricsAsserts.getDoubleGauge;
 import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
 
@@ -124,6 +125,8 @@ static void runContainerStateMachineMetrics(
       assertCounter("NumStartTransactionVerifyFailures", 0L, metric);
       assertCounter("NumContainerNotOpenVerifyFailures", 0L, metric);
       assertCounter("WriteChunkNumOps", 0L, metric);
+      assertCounter("NumReadStateMachineHitCount", 0L, metric);
+      assertGauge("StateMachineDataCacheBytes", 0L, metric);
       double applyTransactionLatency = getDoubleGauge(
           "ApplyTransactionAvgTime", metric);
       assertTrue(applyTransactionLatency == 0.0);
@@ -151,6 +154,8 @@ static void runContainerStateMachineMetrics(
       assertCounter("NumStartTransactionVerifyFailures", 0L, metric);
       assertCounter("NumContainerNotOpenVerifyFailures", 0L, metric);
       assertCounter("WriteChunkNumOps", 1L, metric);
+      // the data of the chunk is cached by the leader.
+      assertGauge("StateMachineDataCacheBytes", 1024L, metric);
 
       //Read Chunk
       ContainerProtos.ContainerCommandRequestProto readChunkRequest =
@@ -47,6 +47,7 @@
 import java.security.Signature;
 import java.security.cert.X509Certificate;
 import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Test class for {@link OzoneBlockTokenSecretManager}.
@@ -62,6 +63,7 @@ public class TestOzoneBlockTokenSecretManager {
   private static final String BASEDIR = GenericTestUtils
       .getTempPath(TestOzoneBlockTokenSecretManager.class.getSimpleName());
   private BlockTokenVerifier tokenVerifier;
+  private final AtomicInteger signatureVerifications = new AtomicInteger();
 
 
   @Before
@@ -109,6 +111,13 @@ public PrivateKey getPrivateKey() {
       public PublicKey getPublicKey() {
         return keyPair.getPublic();
       }
+
+      @Override
+      public boolean verifySignature(byte[] data, byte[] signature,
+          X509Certificate cert) throws CertificateException {
+        signatureVerifications.incrementAndGet();
+        return super.verifySignature(data, signature, cert);
+      }
     };
   }
 
@@ -231,4 +240,34 @@ public void testBlockTokenVerifier() throws Exception {
     tokenVerifier.verify(null, null,
         ContainerProtos.Type.CloseContainer, null);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testBlockTokenVerifierCachesVerifiedTokens() throws Exception {
+    Token<OzoneBlockTokenIdentifier> token =
+        secretManager.generateToken("testUser", "102",
+            EnumSet.allOf(AccessModeProto.class), 60 * 1000);
+    String tokenStr = token.encodeToUrlString();
+
+    // the signature is verified once.
+    for (int i = 0; i < 3; i++) {
+      tokenVerifier.verify("testUser", tokenStr,
+          ContainerProtos.Type.ReadChunk, "102");
+    }
+    Assert.assertEquals(1, signatureVerifications.get());
+
+    // a cached token is not valid for other blocks.
+    LambdaTestUtils.intercept(BlockTokenException.class,
+        "can't be used to access block: 103",
+        () -> tokenVerifier.verify("testUser", tokenStr,
+            ContainerProtos.Type.ReadChunk, "103"));
+
+    // the token is verified again once the signer certificate is replaced.
+    x509Certificate = KeyStoreTestUtil.generateCertificate("CN=OzoneMaster",
+        KeyStoreTestUtil.generateKeyPair("RSA"), 30, "SHA256withRSA");
+    LambdaTestUtils.intercept(BlockTokenException.class,
+        "Invalid block token for user",
+        () -> tokenVerifier.verify("testUser", tokenStr,
+            ContainerProtos.Type.ReadChunk, "102"));
+    Assert.assertEquals(2, signatureVerifications.get());
+  }
+}
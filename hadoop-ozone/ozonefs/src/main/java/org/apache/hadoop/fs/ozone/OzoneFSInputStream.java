@@ -20,21 +20,26 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.fs.ByteBufferReadable;
 import org.apache.hadoop.fs.FSInputStream;
+import org.apache.hadoop.fs.PositionedReadable;
 import org.apache.hadoop.fs.Seekable;
 
 /**
  * The input stream for Ozone file system.
  *
  * TODO: Make inputStream generic for both rest and rpc clients
- * This class is not thread safe.
+ * This class is not thread safe, except for positional reads if the wrapped
+ * stream supports them.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
-public final class OzoneFSInputStream extends FSInputStream {
+public final class OzoneFSInputStream extends FSInputStream
+    implements ByteBufferReadable {
 
   private final InputStream inputStream;
 
@@ -52,6 +57,54 @@ public int read(byte[] b, int off, int len) throws IOException {
     return inputStream.read(b, off, len);
   }
 
+  /**
+   * Reads into the given buffer, which may be a direct buffer, without an
+   * intermediate copy if the wrapped stream supports it.
+   */
+  @Override
+  public int read(ByteBuffer buf) throws IOException {
+    if (inputStream instanceof ByteBufferReadable) {
+      return ((ByteBufferReadable) inputStream).read(buf);
+    }
+    int len = buf.remaining();
+    if (len == 0) {
+      return 0;
+    }
+    if (buf.hasArray()) {
+      int n = inputStream.read(buf.array(),
+          buf.arrayOffset() + buf.position(), len);
+      if (n > 0) {
+        buf.position(buf.position() + n);
+      }
+      return n;
+    }
+    byte[] b = new byte[len];
+    int n = inputStream.read(b, 0, len);
+    if (n > 0) {
+      buf.put(b, 0, n);
+    }
+    return n;
+  }
+
+  /**
+   * Reads from the given position with the positional read of the wrapped
+   * stream, without the seeks and synchronization of
+   * {@link FSInputStream#read(long, byte[], int, int)}, if supported.
+   */
+  @Override
+  public int read(long position, byte[] buffer, int offset, int length)
+      throws IOException {
+    if (inputStream instanceof PositionedReadable) {
+      validatePositionedReadArgs(position, buffer, offset, length);
+      if (length == 0) {
+        return 0;
+      }
+      return ((PositionedReadable) inputStream)
+          .read(position, buffer, offset, length);
+    }
+    return super.read(position, buffer, offset, length);
+  }
+
   @Override
   public synchronized void close() throws IOException {
     inputStream.close();
@@ -19,7 +19,12 @@
 package org.apache.hadoop.fs.ozone;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.hadoop.conf.StorageUnit;
 import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
@@ -134,4 +139,43 @@ public void testO3FSMultiByteRead() throws IOException {
     Assert.assertTrue(Arrays.equals(value, data));
     inputStream.close();
   }
+
+  @Test
+  public void testO3FSPositionalRead() throws Exception {
+    try (FSDataInputStream inputStream = fs.open(filePath)) {
+      inputStream.seek(100);
+      int threads = 8;
+      int readLen = 64 * 1024;
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<Void>> reads = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+          // reads spanning the blocks of the file.
+          long position = (long) t * (data.length / threads) - readLen / 2;
+          long start = Math.max(0, position);
+          reads.add(executor.submit(() -> {
+            byte[] value = new byte[readLen];
+            inputStream.readFully(start, value);
+            Assert.assertArrayEquals(Arrays.copyOfRange(data, (int) start,
+                (int) start + readLen), value);
+            return null;
+          }));
+        }
+        for (Future<Void> read : reads) {
+          read.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+
+      // positional reads do not change the position of the stream.
+      Assert.assertEquals(100, inputStream.getPos());
+      byte[] value = new byte[20];
+      Assert.assertEquals(10, inputStream.read(data.length - 10, value, 0,
+          20));
+      Assert.assertArrayEquals(Arrays.copyOfRange(data, data.length - 10,
+          data.length), Arrays.copyOf(value, 10));
+      Assert.assertEquals(-1, inputStream.read(data.length, value, 0, 10));
+    }
+  }
 }
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.ozone.genesis;
+
+import org.apache.commons.lang3.RandomUtils;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos
+    .ChecksumType;
+import org.apache.hadoop.ozone.common.Checksum;
+import org.apache.hadoop.ozone.common.ChecksumData;
+import org.apache.hadoop.ozone.common.OzoneChecksumException;
+import org.apache.hadoop.util.PureJavaCrc32;
+import org.apache.hadoop.util.PureJavaCrc32C;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares computing and verifying the CRC checksums of a chunk one slice at
+ * a time in pure Java, as done before, with {@link Checksum}, which handles
+ * all the slices in one pass with native or intrinsic CRC.
+ */
+@State(Scope.Thread)
+public class BenchMarkChecksum {
+
+  private static final String PER_SLICE = "perSlice";
+  private static final String CHUNKED = "chunked";
+  private static final int DATA_SIZE = 4 * 1024 * 1024;
+
+  @Param({PER_SLICE, CHUNKED})
+  private String mode;
+
+  @Param({"CRC32", "CRC32C"})
+  private String checksumType;
+
+  @Param({"16384", "1048576"})
+  private int bytesPerChecksum;
+
+  private byte[] data;
+  private ChecksumData checksumData;
+  private java.util.zip.Checksum pureJava;
+
+  @Setup(Level.Trial)
+  public void initialize() throws OzoneChecksumException {
+    data = RandomUtils.nextBytes(DATA_SIZE);
+    ChecksumType type = ChecksumType.valueOf(checksumType);
+    checksumData = new Checksum(type, bytesPerChecksum).computeChecksum(data);
+    pureJava = type == ChecksumType.CRC32
+        ? new PureJavaCrc32() : new PureJavaCrc32C();
+  }
+
+  @Benchmark
+  public void computeChecksum(Blackhole bh) throws IOException {
+    if (PER_SLICE.equals(mode)) {
+      bh.consume(computePerSlice());
+    } else {
+      bh.consume(new Checksum(checksumData.getChecksumType(),
+          bytesPerChecksum).computeChecksum(data));
+    }
+  }
+
+  @Benchmark
+  public void verifyChecksum(Blackhole bh) throws IOException {
+    if (PER_SLICE.equals(mode)) {
+      bh.consume(computePerSlice().equals(checksumData.getChecksums()));
+    } else {
+      bh.consume(Checksum.verifyChecksum(data, checksumData));
+    }
+  }
+
+  private List<ByteString> computePerSlice() throws IOException {
+    List<ByteString> checksums =
+        new ArrayList<>(checksumData.getChecksums().size());
+    for (int off = 0; off < data.length; off += bytesPerChecksum) {
+      pureJava.reset();
+      pureJava.update(data, off, Math.min(bytesPerChecksum,
+          data.length - off));
+      ByteString.Output out = ByteString.newOutput();
+      try (DataOutputStream dataOut = new DataOutputStream(out)) {
+        dataOut.writeInt((int) pureJava.getValue());
+      }
+      checksums.add(out.toByteString());
+    }
+    return checksums;
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.ozone.genesis;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang3.RandomUtils;
+import org.apache.hadoop.hdds.protocol.datanode.proto.ContainerProtos;
+import org.apache.hadoop.ozone.container.common.helpers.ChunkInfo;
+import org.apache.hadoop.ozone.container.common.helpers.MappedBuffers;
+import org.apache.hadoop.ozone.container.common.volume.FileChannelCache;
+import org.apache.hadoop.ozone.container.common.volume.VolumeIOStats;
+import org.apache.hadoop.ozone.container.keyvalue.helpers.ChunkUtils;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serving ReadChunk responses from heap buffers, as done by default,
+ * with serving them from memory mapped files.
+ */
+@State(Scope.Benchmark)
+public class BenchMarkChunkRead {
+
+  private static final String HEAP = "heap";
+  private static final String MAPPED = "mapped";
+  private static final int CHUNKS = 64;
+
+  @Param({HEAP, MAPPED})
+  private String readMode;
+
+  @Param({"1048576", "4194304"})
+  private int chunkSize;
+
+  private File baseDir;
+  private File blockFile;
+  private VolumeIOStats stats;
+  private FileChannelCache handleCache;
+
+  @Setup(Level.Trial)
+  public void initialize() throws IOException {
+    baseDir = Files.createTempDirectory("BenchMarkChunkRead").toFile();
+    blockFile = new File(baseDir, "block");
+    byte[] data = RandomUtils.nextBytes(chunkSize);
+    for (int i = 0; i < CHUNKS; i++) {
+      FileUtils.writeByteArrayToFile(blockFile, data, true);
+    }
+    stats = new VolumeIOStats();
+    handleCache = new FileChannelCache(16, TimeUnit.MINUTES.toMillis(10),
+        stats);
+  }
+
+  @TearDown(Level.Trial)
+  public void cleanup() throws IOException {
+    handleCache.close();
+    FileUtils.deleteDirectory(baseDir);
+  }
+
+  @Benchmark
+  public void readChunk(Blackhole bh) throws IOException {
+    long offset = (long) RandomUtils.nextInt(0, CHUNKS) * chunkSize;
+    ChunkInfo info = new ChunkInfo("chunk", offset, chunkSize);
+    // the mapping is released once the response has been serialized, as
+    // done by the datanode.
+    try (MappedBuffers mappedBuffers = new MappedBuffers()) {
+      ByteString data;
+      if (MAPPED.equals(readMode)) {
+        MappedByteBuffer buffer = ChunkUtils.mapData(blockFile, info, offset,
+            chunkSize, stats, handleCache);
+        mappedBuffers.add(buffer);
+        data = UnsafeByteOperations.unsafeWrap(buffer);
+      } else {
+        ByteBuffer buffer = ChunkUtils.readData(blockFile, info, offset,
+            chunkSize, stats, handleCache);
+        data = ByteString.copyFrom(buffer);
+      }
+      ContainerProtos.ReadChunkResponseProto response =
+          ContainerProtos.ReadChunkResponseProto.newBuilder()
+              .setChunkData(info.getProtoBufMessage())
+              .setData(data)
+              .setBlockID(ContainerProtos.DatanodeBlockID.newBuilder()
+                  .setContainerID(1).setLocalID(1))
+              .build();
+      // serialize the response, as gRPC does when sending it.
+      response.writeTo(NullOutputStream.NULL_OUTPUT_STREAM);
+      bh.consume(response);
+    }
+  }
+}
@@ -50,7 +50,7 @@ public final class Genesis {
           + "BenchMarkOzoneManager, BenchMarkOMClient, "
           + "BenchMarkSCM, BenchMarkMetadataStoreReads, "
           + "BenchMarkMetadataStoreWrites, BenchMarkDatanodeDispatcher, "
-          + "BenchMarkRocksDbStore}")
+          + "BenchMarkRocksDbStore, BenchMarkChunkRead, BenchMarkChecksum}")
   private static String[] benchmarks;
 
   @Option(names = "-t", defaultValue = "4",